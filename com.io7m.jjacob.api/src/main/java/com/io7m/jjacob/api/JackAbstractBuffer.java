@@ -16,7 +16,10 @@
 
 package com.io7m.jjacob.api;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * An abstract implementation of the {@link JackBufferType} interface.
@@ -24,13 +27,14 @@ import java.util.Objects;
 
 public abstract class JackAbstractBuffer implements JackBufferType
 {
-  private final int buffer_frames;
   private final int buffer_frame_size;
+  private final int buffer_frames;
 
   /**
    * Construct a buffer.
    *
-   * @param in_buffer_frames The size of the buffer in frames
+   * @param in_buffer_frames     The size of the buffer in frames
+   * @param in_buffer_frame_size The size in bytes of each frame
    */
 
   protected JackAbstractBuffer(
@@ -53,6 +57,32 @@ public abstract class JackAbstractBuffer implements JackBufferType
     return this.buffer_frame_size;
   }
 
+  /**
+   * The buffer memory is not exposed by default. Subclasses backed by memory
+   * that can be exposed directly should override this method.
+   *
+   * @return Nothing
+   */
+
+  @Override
+  public Optional<ByteBuffer> asByteBuffer()
+  {
+    return Optional.empty();
+  }
+
+  /**
+   * The buffer memory is not exposed by default. Subclasses backed by memory
+   * that can be exposed directly should override this method.
+   *
+   * @return Nothing
+   */
+
+  @Override
+  public Optional<FloatBuffer> asFloatBuffer()
+  {
+    return Optional.empty();
+  }
+
   /**
    * Put a floating point value at the given byte offset.
    *
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * A cursor over the events in a MIDI buffer. A cursor is initially
+ * positioned before the first event in the buffer, and {@link #next()} must
+ * be called to move to each event in turn.
+ *
+ * Cursors are flyweights: implementations reuse a single cursor value for
+ * each port, and the cursor refers directly to the event data held by the
+ * server. A cursor therefore <i>is only valid during the call to
+ * {@link JackClientProcessCallbackType#onProcess(JackClientProcessCallbackContextType)}</i>
+ * and <i>MUST NOT</i> be stored or otherwise used outside of that callback.
+ *
+ * @see JackBufferMIDIType#events()
+ */
+
+public interface JackBufferMIDIEventCursorType
+{
+  /**
+   * Move to the next event in the buffer.
+   *
+   * @return {@code true} if there was a next event, {@code false} if the
+   * cursor has moved past the last event
+   *
+   * @throws JackException On errors
+   */
+
+  boolean next()
+    throws JackException;
+
+  /**
+   * @return The index of the current event, or {@code -1} if the cursor is
+   * positioned before the first event
+   */
+
+  int index();
+
+  /**
+   * @return The time of the current event in frames, relative to the start
+   * of the current process cycle
+   */
+
+  int frameOffset();
+
+  /**
+   * @return The size in bytes of the current event
+   */
+
+  int size();
+
+  /**
+   * Get a byte of the current event. The return value is of type {@code int}
+   * in order to allow for the full range of unsigned byte values
+   * ({@code [0, 255]}).
+   *
+   * @param offset The offset of the byte within the event
+   *
+   * @return The byte value
+   *
+   * @throws ArrayIndexOutOfBoundsException If {@code offset} is not in the
+   *                                        range {@code [0, size())}
+   */
+
+  int getB(
+    int offset);
+
+  /**
+   * Get an array of {@code length} bytes from the byte offset {@code offset}
+   * in the current event, writing them to {@code array_offset} in the given
+   * {@code values} array.
+   *
+   * @param offset       The byte offset in the event
+   * @param values       The values
+   * @param array_offset The offset within the array
+   * @param length       The number of values to fetch
+   *
+   * @throws ArrayIndexOutOfBoundsException If the range of bytes is not
+   *                                        within the event
+   */
+
+  void getArrayB(
+    int offset,
+    byte[] values,
+    int array_offset,
+    int length);
+}
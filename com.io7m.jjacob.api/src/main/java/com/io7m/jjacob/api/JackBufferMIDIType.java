@@ -33,4 +33,14 @@ public interface JackBufferMIDIType
    */
 
   int eventLostCount();
+
+  /**
+   * Obtain a cursor over the events in the buffer. The cursor is positioned
+   * before the first event. Implementations reuse a single cursor for each
+   * port, and so calling this method again resets the cursor.
+   *
+   * @return A cursor over the events in the buffer
+   */
+
+  JackBufferMIDIEventCursorType events();
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * A writable buffer of MIDI events, used to send MIDI events from output
+ * ports.
+ *
+ * JACK requires that the buffer of each MIDI output port be cleared once at
+ * the start of every process cycle before any events are written, using
+ * {@link #clear()}, even if no events are subsequently written. Events must
+ * be written in order of increasing frame offset, and all frame offsets must
+ * be less than the number of frames in the current process cycle.
+ *
+ * Implementations are required not to allocate when writing events of up to
+ * three bytes, and are encouraged not to allocate at all. The buffer <i>is
+ * only valid during the call to
+ * {@link JackClientProcessCallbackType#onProcess(JackClientProcessCallbackContextType)}</i>
+ * and <i>MUST NOT</i> be stored or otherwise used outside of that callback.
+ *
+ * @see JackClientProcessCallbackContextType#portBufferMIDIWritable(JackPortType)
+ */
+
+public interface JackBufferMIDIWritableType
+{
+  /**
+   * Remove all events from the buffer.
+   */
+
+  void clear();
+
+  /**
+   * Write a one-byte event (such as a MIDI clock message). The byte is
+   * given as an {@code int} in the range {@code [0, 255]}; only the lower
+   * eight bits are used.
+   *
+   * @param frame_offset The time of the event in frames, relative to the
+   *                     start of the current process cycle
+   * @param b0           The first byte
+   *
+   * @throws JackException If the event cannot be written (such as when the
+   *                       buffer is full or the events are out of order)
+   */
+
+  void write1(
+    int frame_offset,
+    int b0)
+    throws JackException;
+
+  /**
+   * Write a two-byte event (such as a program change message).
+   *
+   * @param frame_offset The time of the event in frames, relative to the
+   *                     start of the current process cycle
+   * @param b0           The first byte
+   * @param b1           The second byte
+   *
+   * @throws JackException If the event cannot be written
+   * @see #write1(int, int)
+   */
+
+  void write2(
+    int frame_offset,
+    int b0,
+    int b1)
+    throws JackException;
+
+  /**
+   * Write a three-byte event (such as a note on message).
+   *
+   * @param frame_offset The time of the event in frames, relative to the
+   *                     start of the current process cycle
+   * @param b0           The first byte
+   * @param b1           The second byte
+   * @param b2           The third byte
+   *
+   * @throws JackException If the event cannot be written
+   * @see #write1(int, int)
+   */
+
+  void write3(
+    int frame_offset,
+    int b0,
+    int b1,
+    int b2)
+    throws JackException;
+
+  /**
+   * Write an event consisting of {@code length} bytes taken from
+   * {@code offset} in the given array.
+   *
+   * @param frame_offset The time of the event in frames, relative to the
+   *                     start of the current process cycle
+   * @param values       The event bytes
+   * @param offset       The offset of the first byte in the array
+   * @param length       The number of bytes
+   *
+   * @throws JackException If the event cannot be written
+   * @see #write1(int, int)
+   */
+
+  void writeArray(
+    int frame_offset,
+    byte[] values,
+    int offset,
+    int length)
+    throws JackException;
+}
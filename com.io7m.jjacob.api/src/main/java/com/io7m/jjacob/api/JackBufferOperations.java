@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.util.Objects;
+
+/**
+ * Bulk operations on buffers of floating point samples. All operations
+ * treat buffers as arrays of {@link JackBufferType#frameCount()} 32-bit
+ * floating point samples, and all operations are allocation-free and are
+ * therefore suitable for use in process callbacks.
+ *
+ * Buffers of type {@link JackNIOBuffer} (such as the port buffers produced by
+ * the vanilla provider) are processed directly over their memory; other
+ * buffer implementations are processed using the per-sample accessors.
+ */
+
+public final class JackBufferOperations
+{
+  private JackBufferOperations()
+  {
+
+  }
+
+  static void checkSampleBuffer(
+    final JackBufferType buffer)
+  {
+    final int size = buffer.frameSizeBytes();
+    if (size != 4) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Buffer frames must be 4 bytes in size (received ")
+          .append(size)
+          .append(")")
+          .toString());
+    }
+  }
+
+  private static int checkSameSize(
+    final JackBufferType target,
+    final JackBufferType source)
+  {
+    checkSampleBuffer(target);
+    checkSampleBuffer(source);
+
+    final int count = target.frameCount();
+    if (source.frameCount() != count) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Buffer frame counts must match (target ")
+          .append(count)
+          .append(", source ")
+          .append(source.frameCount())
+          .append(")")
+          .toString());
+    }
+    return count;
+  }
+
+  /**
+   * Set every sample in {@code buffer} to {@code value}.
+   *
+   * @param buffer The buffer
+   * @param value  The value
+   */
+
+  public static void fill(
+    final JackBufferType buffer,
+    final float value)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+    checkSampleBuffer(buffer);
+
+    final int count = buffer.frameCount();
+    if (buffer instanceof JackNIOBuffer) {
+      final JackNIOBuffer f = (JackNIOBuffer) buffer;
+      for (int index = 0; index < count; ++index) {
+        f.samplePut(index, value);
+      }
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      buffer.putF(index, value);
+    }
+  }
+
+  /**
+   * Set every sample in {@code buffer} to {@code 0.0}.
+   *
+   * @param buffer The buffer
+   */
+
+  public static void clear(
+    final JackBufferType buffer)
+  {
+    fill(buffer, 0.0f);
+  }
+
+  /**
+   * Multiply every sample in {@code buffer} by {@code gain}.
+   *
+   * @param buffer The buffer
+   * @param gain   The gain
+   */
+
+  public static void scale(
+    final JackBufferType buffer,
+    final float gain)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+    checkSampleBuffer(buffer);
+
+    final int count = buffer.frameCount();
+    if (buffer instanceof JackNIOBuffer) {
+      final JackNIOBuffer f = (JackNIOBuffer) buffer;
+      for (int index = 0; index < count; ++index) {
+        f.samplePut(index, f.sampleGet(index) * gain);
+      }
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      buffer.putF(index, buffer.getF(index) * gain);
+    }
+  }
+
+  /**
+   * Add every sample in {@code source}, multiplied by {@code gain}, to the
+   * corresponding sample in {@code target}. This is the basic operation
+   * of a mixer.
+   *
+   * @param target The target buffer
+   * @param source The source buffer
+   * @param gain   The gain applied to the source samples
+   *
+   * @throws IllegalArgumentException If the buffers differ in size
+   */
+
+  public static void addScaled(
+    final JackBufferType target,
+    final JackBufferType source,
+    final float gain)
+  {
+    Objects.requireNonNull(target, "target");
+    Objects.requireNonNull(source, "source");
+
+    final int count = checkSameSize(target, source);
+    if (target instanceof JackNIOBuffer && source instanceof JackNIOBuffer) {
+      final JackNIOBuffer t = (JackNIOBuffer) target;
+      final JackNIOBuffer s = (JackNIOBuffer) source;
+      for (int index = 0; index < count; ++index) {
+        t.samplePut(index, t.sampleGet(index) + (s.sampleGet(index) * gain));
+      }
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      target.putF(index, target.getF(index) + (source.getF(index) * gain));
+    }
+  }
+
+  /**
+   * Copy every sample in {@code source} to {@code target}.
+   *
+   * The copy is a loop over the samples, not a single bulk memory copy.
+   * When both buffers are {@link JackNIOBuffer} instances, the loop uses the
+   * absolute accessors of the underlying NIO buffers and so avoids the
+   * per-sample index checks of {@link JackBufferType#getF(int)}. An NIO bulk
+   * transfer is not used, because it moves the positions of the buffers
+   * involved; it would either allocate a fresh view of each buffer per call,
+   * or prevent other threads from reading {@code source} at the same time.
+   *
+   * @param target The target buffer
+   * @param source The source buffer
+   *
+   * @throws IllegalArgumentException If the buffers differ in size
+   */
+
+  public static void copy(
+    final JackBufferType target,
+    final JackBufferType source)
+  {
+    Objects.requireNonNull(target, "target");
+    Objects.requireNonNull(source, "source");
+
+    final int count = checkSameSize(target, source);
+    if (target == source) {
+      return;
+    }
+
+    if (target instanceof JackNIOBuffer && source instanceof JackNIOBuffer) {
+      final JackNIOBuffer t = (JackNIOBuffer) target;
+      final JackNIOBuffer s = (JackNIOBuffer) source;
+      for (int index = 0; index < count; ++index) {
+        t.samplePut(index, s.sampleGet(index));
+      }
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      target.putF(index, source.getF(index));
+    }
+  }
+
+  /**
+   * @param buffer The buffer
+   *
+   * @return The largest absolute sample value in {@code buffer}
+   */
+
+  public static float peak(
+    final JackBufferType buffer)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+    checkSampleBuffer(buffer);
+
+    float peak = 0.0f;
+    final int count = buffer.frameCount();
+    if (buffer instanceof JackNIOBuffer) {
+      final JackNIOBuffer f = (JackNIOBuffer) buffer;
+      for (int index = 0; index < count; ++index) {
+        peak = Math.max(peak, Math.abs(f.sampleGet(index)));
+      }
+      return peak;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      peak = Math.max(peak, Math.abs(buffer.getF(index)));
+    }
+    return peak;
+  }
+}
@@ -16,6 +16,10 @@
 
 package com.io7m.jjacob.api;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Optional;
+
 /**
  * A buffer of samples. This is typically an abstraction over a section of
  * native memory. This native memory is typically mapped into the client's
@@ -208,4 +212,36 @@ public interface JackBufferType
   {
     this.getArrayB(offset, values, 0, values.length);
   }
+
+  /**
+   * Obtain a direct, native-order byte buffer that aliases the memory of
+   * this buffer, if the buffer is backed by memory that can be exposed
+   * directly. Writes to the returned buffer are visible to JACK, and vice
+   * versa. The returned buffer has a position of {@code 0} and a limit and
+   * capacity of {@link #sizeBytes()}.
+   *
+   * Implementations are encouraged to return the same view each time this
+   * method is called, and so the returned buffer <i>is only valid during the
+   * call to
+   * {@link JackClientProcessCallbackType#onProcess(JackClientProcessCallbackContextType)}</i>
+   * and <i>MUST NOT</i> be stored or otherwise used outside of that callback.
+   *
+   * @return A byte buffer view of the buffer memory, or nothing if the buffer
+   * memory cannot be exposed directly
+   */
+
+  Optional<ByteBuffer> asByteBuffer();
+
+  /**
+   * Obtain a direct, native-order float buffer that aliases the memory of
+   * this buffer, if the buffer is backed by memory that can be exposed
+   * directly. The returned buffer has a position of {@code 0} and a limit
+   * and capacity of {@code sizeBytes() / 4}. The same restrictions apply as
+   * for {@link #asByteBuffer()}.
+   *
+   * @return A float buffer view of the buffer memory, or nothing if the
+   * buffer memory cannot be exposed directly
+   */
+
+  Optional<FloatBuffer> asFloatBuffer();
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default asynchronous client facade, executing operations on a single
+ * daemon thread.
+ */
+
+public final class JackClientAsync implements JackClientAsyncType
+{
+  private final JackClientType client;
+  private final ExecutorService executor;
+  private volatile Thread thread;
+
+  private JackClientAsync(
+    final JackClientType in_client)
+  {
+    this.client = Objects.requireNonNull(in_client, "client");
+
+    /*
+     * The thread is created directly rather than by a caller-supplied
+     * factory, so that it is guaranteed to be a platform thread.
+     */
+
+    final String name = "com.io7m.jjacob.control[" + in_client.name() + "]";
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      final Thread created = new Thread(runnable, name);
+      created.setDaemon(true);
+      this.thread = created;
+      return created;
+    });
+  }
+
+  /**
+   * Create an asynchronous facade over the given client.
+   *
+   * @param client The client
+   *
+   * @return A new facade
+   */
+
+  public static JackClientAsyncType create(
+    final JackClientType client)
+  {
+    return new JackClientAsync(client);
+  }
+
+  @Override
+  public JackClientType client()
+  {
+    return this.client;
+  }
+
+  @Override
+  public <T> CompletableFuture<T> submit(
+    final JackClientOperationType<T> operation)
+  {
+    Objects.requireNonNull(operation, "operation");
+
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      this.executor.execute(() -> {
+        if (future.isDone()) {
+          return;
+        }
+        try {
+          future.complete(operation.execute(this.client));
+        } catch (final Throwable e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      future.completeExceptionally(
+        new JackClientClosedException("Control thread is closed"));
+    }
+    return future;
+  }
+
+  @Override
+  public void close()
+    throws InterruptedException
+  {
+    this.executor.shutdown();
+    if (this.isControlThread()) {
+      return;
+    }
+    this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public boolean close(
+    final Duration timeout)
+    throws InterruptedException
+  {
+    Objects.requireNonNull(timeout, "timeout");
+
+    this.executor.shutdown();
+    if (this.isControlThread()) {
+      return false;
+    }
+    return this.executor.awaitTermination(
+      timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /*
+   * The control thread cannot wait for its own termination, so closing the
+   * facade from within an operation only stops it accepting new operations.
+   */
+
+  private boolean isControlThread()
+  {
+    return Thread.currentThread() == this.thread;
+  }
+
+  @Override
+  public String toString()
+  {
+    return new StringBuilder(64)
+      .append("[JackClientAsync ")
+      .append(this.client.name())
+      .append("]")
+      .toString();
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>An asynchronous facade over the control-plane methods of a client.</p>
+ *
+ * <p>All operations submitted to the facade are executed, one at a time and
+ * in submission order, on a single platform thread owned by the facade.
+ * Only that thread ever calls into libjack on behalf of the facade, so any
+ * number of threads (including virtual threads, which would otherwise pin
+ * their carrier threads for the duration of each native call) can drive the
+ * client without each of them becoming attached to native code.</p>
+ *
+ * <p>Failures are reported by completing the returned futures
+ * exceptionally; the failure of one operation does not affect any other.</p>
+ */
+
+public interface JackClientAsyncType extends AutoCloseable
+{
+  /**
+   * @return The underlying client
+   */
+
+  JackClientType client();
+
+  /**
+   * Submit an operation for execution on the control-plane thread.
+   *
+   * @param operation The operation
+   * @param <T>       The type of returned values
+   *
+   * @return A future representing the result of the operation. If the facade
+   * has been closed, the future fails with {@link JackClientClosedException}.
+   */
+
+  <T> CompletableFuture<T> submit(
+    JackClientOperationType<T> operation);
+
+  /**
+   * <p>Shut down the control-plane thread. Operations that have already been
+   * submitted are executed before the thread terminates. The underlying
+   * client is not closed.</p>
+   *
+   * <p>This method blocks until every submitted operation has completed, and
+   * so will block indefinitely if an operation never completes. Use
+   * {@link #close(Duration)} to bound the wait. If called from within an
+   * operation, the facade stops accepting operations and the method returns
+   * immediately; the remaining operations are executed after the calling
+   * operation completes.</p>
+   *
+   * @throws InterruptedException If interrupted whilst waiting for the thread
+   *                              to terminate
+   */
+
+  @Override
+  void close()
+    throws InterruptedException;
+
+  /**
+   * Shut down the control-plane thread, waiting at most {@code timeout} for
+   * submitted operations to complete. Operations that are still running or
+   * queued when the timeout elapses continue to execute. If called from
+   * within an operation, the method does not wait and returns {@code false}.
+   *
+   * @param timeout The maximum time to wait
+   *
+   * @return {@code true} if the control-plane thread terminated within the
+   * timeout
+   *
+   * @throws InterruptedException If interrupted whilst waiting for the thread
+   *                              to terminate
+   * @see #close()
+   */
+
+  boolean close(
+    Duration timeout)
+    throws InterruptedException;
+
+  /**
+   * @return A future that completes when the client is activated
+   *
+   * @see JackClientType#activate()
+   */
+
+  default CompletableFuture<Void> activate()
+  {
+    return this.submit(client -> {
+      client.activate();
+      return null;
+    });
+  }
+
+  /**
+   * @return A future that completes when the client is deactivated
+   *
+   * @see JackClientType#deactivate()
+   */
+
+  default CompletableFuture<Void> deactivate()
+  {
+    return this.submit(client -> {
+      client.deactivate();
+      return null;
+    });
+  }
+
+  /**
+   * @param name    The port name
+   * @param options The port options
+   *
+   * @return A future yielding a new port
+   *
+   * @see JackClientType#portRegister(String, Set)
+   */
+
+  default CompletableFuture<JackPortType> portRegister(
+    final String name,
+    final Set<JackPortFlag> options)
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(options, "options");
+    return this.submit(client -> client.portRegister(name, options));
+  }
+
+  /**
+   * @param name        The port name
+   * @param type        The port type name
+   * @param options     The port options
+   * @param buffer_size The buffer size
+   *
+   * @return A future yielding a new port
+   *
+   * @see JackClientType#portRegister(String, String, Set, long)
+   */
+
+  default CompletableFuture<JackPortType> portRegister(
+    final String name,
+    final String type,
+    final Set<JackPortFlag> options,
+    final long buffer_size)
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(type, "type");
+    Objects.requireNonNull(options, "options");
+    return this.submit(
+      client -> client.portRegister(name, type, options, buffer_size));
+  }
+
+  /**
+   * @param name_pattern A pattern that port names must match
+   * @param type_pattern A pattern that port type names must match
+   * @param flags        The flags that ports must have
+   *
+   * @return A future yielding the names of all matching ports
+   *
+   * @see JackClientType#portsList(Optional, Optional, Set)
+   */
+
+  default CompletableFuture<List<String>> portsList(
+    final Optional<String> name_pattern,
+    final Optional<String> type_pattern,
+    final Set<JackPortFlag> flags)
+  {
+    Objects.requireNonNull(name_pattern, "name_pattern");
+    Objects.requireNonNull(type_pattern, "type_pattern");
+    Objects.requireNonNull(flags, "flags");
+    return this.submit(
+      client -> client.portsList(name_pattern, type_pattern, flags));
+  }
+
+  /**
+   * @param source_port The source port
+   * @param target_port The target port
+   *
+   * @return A future yielding {@code true} iff a connection was created
+   *
+   * @see JackClientType#portsConnect(String, String)
+   */
+
+  default CompletableFuture<Boolean> portsConnect(
+    final String source_port,
+    final String target_port)
+  {
+    Objects.requireNonNull(source_port, "source_port");
+    Objects.requireNonNull(target_port, "target_port");
+    return this.submit(
+      client -> Boolean.valueOf(client.portsConnect(source_port, target_port)));
+  }
+
+  /**
+   * @param source_port The source port
+   * @param target_port The target port
+   *
+   * @return A future that completes when the ports are disconnected
+   *
+   * @see JackClientType#portsDisconnect(String, String)
+   */
+
+  default CompletableFuture<Void> portsDisconnect(
+    final String source_port,
+    final String target_port)
+  {
+    Objects.requireNonNull(source_port, "source_port");
+    Objects.requireNonNull(target_port, "target_port");
+    return this.submit(client -> {
+      client.portsDisconnect(source_port, target_port);
+      return null;
+    });
+  }
+
+  /**
+   * @param scope       A pattern that selects the existing connections that
+   *                    may be removed
+   * @param connections The desired connections
+   *
+   * @return A future yielding a report of the changes made
+   *
+   * @see JackClientType#portsConnectionsApply(Optional, Set)
+   */
+
+  default CompletableFuture<JackConnectionReport> portsConnectionsApply(
+    final Optional<String> scope,
+    final Set<JackGraphConnection> connections)
+  {
+    Objects.requireNonNull(scope, "scope");
+    Objects.requireNonNull(connections, "connections");
+    return this.submit(
+      client -> client.portsConnectionsApply(scope, connections));
+  }
+
+  /**
+   * @param name The port name
+   *
+   * @return A future yielding the port, if any
+   *
+   * @see JackClientType#portByName(String)
+   */
+
+  default CompletableFuture<Optional<JackPortType>> portByName(
+    final String name)
+  {
+    Objects.requireNonNull(name, "name");
+    return this.submit(client -> client.portByName(name));
+  }
+}
@@ -73,4 +73,97 @@ public interface JackClientConfigurationType
   {
     return false;
   }
+
+  /**
+   * @return {@code true} if the execution time of the process callback
+   * should be measured on each cycle
+   *
+   * @see JackClientType#processTiming()
+   */
+
+  @Value.Default
+  default boolean processTimingEnabled()
+  {
+    return false;
+  }
+
+  /**
+   * The fraction of the period budget (the buffer size divided by the sample
+   * rate) above which a process cycle is counted as over budget. For example,
+   * a value of {@code 0.8} counts every cycle that takes longer than 80% of
+   * the period.
+   *
+   * @return The over-budget threshold
+   *
+   * @see JackClientProcessTimingType#overBudgetCount()
+   */
+
+  @Value.Default
+  default double processTimingBudgetThreshold()
+  {
+    return 1.0;
+  }
+
+  /**
+   * @return The action taken when the process callback raises an exception
+   *
+   * @see JackClientType#processErrorCount()
+   */
+
+  @Value.Default
+  default JackProcessErrorPolicy processErrorPolicy()
+  {
+    return JackProcessErrorPolicy.JACK_PROCESS_ERROR_FAIL;
+  }
+
+  /**
+   * @return {@code true} if the client should maintain a snapshot of the
+   * connection graph
+   *
+   * @see JackClientType#graph()
+   */
+
+  @Value.Default
+  default boolean graphSnapshotEnabled()
+  {
+    return false;
+  }
+
+  /**
+   * The minimum number of commands that can be waiting in the command queue
+   * of the client at any one time. The value is rounded up to the next power
+   * of two.
+   *
+   * @return The capacity of the command queue
+   *
+   * @see JackClientType#commandQueue()
+   */
+
+  @Value.Default
+  default int commandQueueCapacity()
+  {
+    return 256;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    final double threshold = this.processTimingBudgetThreshold();
+    if (!(threshold > 0.0 && Double.isFinite(threshold))) {
+      throw new IllegalArgumentException(
+        "Process timing budget threshold must be positive (received "
+          + threshold + ")");
+    }
+
+    final int capacity = this.commandQueueCapacity();
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(
+        "Command queue capacity must be positive (received "
+          + capacity + ")");
+    }
+  }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * Instrumentation hooks called by client implementations. Implementations
+ * typically forward the calls to a profiling or monitoring system. All
+ * methods have default implementations that do nothing.
+ *
+ * The process cycle methods are called from the process thread of each
+ * client and so <i>MUST NOT</i> block or allocate; the remaining methods are
+ * called from whichever thread performed the operation. Implementations that
+ * need per-client state in the process cycle methods should allocate it in
+ * {@link #onClientOpened(JackClientType)}.
+ */
+
+public interface JackClientInstrumentationType
+{
+  /**
+   * A client was opened. This is called before the client is returned to
+   * the caller, and before any other method is called for the client.
+   *
+   * @param client The client
+   */
+
+  default void onClientOpened(
+    final JackClientType client)
+  {
+
+  }
+
+  /**
+   * A client was closed. No further methods are called for the client.
+   *
+   * @param client The client
+   */
+
+  default void onClientClosed(
+    final JackClientType client)
+  {
+
+  }
+
+  /**
+   * Called at the start of each process cycle to determine whether the cycle
+   * should be measured. Implementations use this to sample cycles and to
+   * avoid the cost of measurement when nothing is being recorded.
+   *
+   * @param client The client
+   *
+   * @return {@code true} if {@link #onProcessCycle(JackClientType, int, long,
+   * int)} should be called for the current cycle
+   */
+
+  default boolean onProcessCycleWanted(
+    final JackClientType client)
+  {
+    return false;
+  }
+
+  /**
+   * A process cycle was measured.
+   *
+   * @param client      The client
+   * @param frames      The number of frames in the cycle
+   * @param time_nanos  The time taken by the process callback in nanoseconds
+   * @param ports       The number of port buffers accessed during the cycle
+   */
+
+  default void onProcessCycle(
+    final JackClientType client,
+    final int frames,
+    final long time_nanos,
+    final int ports)
+  {
+
+  }
+
+  /**
+   * An xrun occurred.
+   *
+   * @param client       The client
+   * @param delay_usecs  The delay reported by JACK in microseconds
+   */
+
+  default void onXRun(
+    final JackClientType client,
+    final float delay_usecs)
+  {
+
+  }
+
+  /**
+   * A control-plane function (such as {@code jack_connect}) was called.
+   *
+   * @param client     The client
+   * @param function   The name of the JACK function
+   * @param time_nanos The time taken by the call in nanoseconds
+   * @param succeeded  {@code true} if the call succeeded
+   */
+
+  default void onControlCall(
+    final JackClientType client,
+    final String function,
+    final long time_nanos,
+    final boolean succeeded)
+  {
+
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * Configuration values for a pipelined process callback.
+ *
+ * @see JackClientType#setProcessCallbackPipelined(JackClientProcessCallbackType, JackClientPipelineConfiguration)
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface JackClientPipelineConfigurationType
+{
+  /**
+   * The number of whole periods of latency added by the pipeline. The
+   * callback processing the input captured in one cycle has this many
+   * periods in which to finish before its output is due.
+   *
+   * @return The number of periods of added latency
+   */
+
+  @Value.Default
+  default int latencyPeriods()
+  {
+    return 1;
+  }
+
+  /**
+   * The number of worker threads that take turns to execute the callback.
+   * Regardless of the number of workers, the callback is never executed by
+   * more than one worker at a time, and cycles are always processed in the
+   * order in which they were captured. Additional workers do not increase
+   * throughput; they only allow a cycle to be started by another thread
+   * whilst the thread that finished the previous cycle is descheduled.
+   *
+   * @return The number of worker threads that execute the callback
+   */
+
+  @Value.Default
+  default int workerCount()
+  {
+    return 1;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.latencyPeriods() < 1) {
+      throw new IllegalArgumentException(
+        "Latency periods must be positive (received "
+          + this.latencyPeriods() + ")");
+    }
+    if (this.workerCount() < 1) {
+      throw new IllegalArgumentException(
+        "Worker count must be positive (received "
+          + this.workerCount() + ")");
+    }
+  }
+}
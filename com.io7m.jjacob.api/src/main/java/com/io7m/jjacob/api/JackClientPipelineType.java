@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * <p>A running pipelined process callback.</p>
+ *
+ * <p>On each process cycle, the input audio ports of the client are copied
+ * into a free slot of a preallocated ring, and the output audio ports are
+ * filled from the slot that was captured {@link #latencyPeriods()} cycles
+ * earlier. The callback itself runs on worker threads and never on the
+ * real-time thread.</p>
+ *
+ * @see JackClientType#setProcessCallbackPipelined(JackClientProcessCallbackType, JackClientPipelineConfiguration)
+ */
+
+public interface JackClientPipelineType
+{
+  /**
+   * @return The number of whole periods of latency added by the pipeline
+   */
+
+  int latencyPeriods();
+
+  /**
+   * @return The number of captured cycles that the callback has processed
+   */
+
+  long cyclesProcessed();
+
+  /**
+   * @return The number of cycles for which output was due but the callback
+   * had not finished, and silence was emitted instead
+   */
+
+  long cyclesLate();
+
+  /**
+   * @return The number of cycles whose input could not be captured because
+   * no slot was free
+   */
+
+  long cyclesDropped();
+
+  /**
+   * @return The number of captured cycles for which the callback raised an
+   * exception
+   */
+
+  long cyclesFailed();
+}
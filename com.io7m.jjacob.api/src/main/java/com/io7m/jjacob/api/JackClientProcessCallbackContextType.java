@@ -73,4 +73,78 @@ public interface JackClientProcessCallbackContextType
   JackBufferMIDIType portBufferMIDI(
     JackPortType port)
     throws JackException;
+
+  /**
+   * Get a reference to the writable MIDI buffer for the target port. The
+   * buffer <i>is only valid during the call to
+   * {@link JackClientProcessCallbackType#onProcess(JackClientProcessCallbackContextType)}</i>
+   * and <i>MUST NOT</i> be stored or otherwise used outside of that callback.
+   *
+   * The method will raise an exception if the port is not of a type understood
+   * by JACK to contain MIDI event data.
+   *
+   * @param port The target port
+   *
+   * @return A writable port buffer
+   *
+   * @throws JackException On errors
+   * @see JackBufferMIDIWritableType
+   */
+
+  JackBufferMIDIWritableType portBufferMIDIWritable(
+    JackPortType port)
+    throws JackException;
+
+  /**
+   * Get a reference to the buffer for the port with the given handle. This is
+   * equivalent to {@link #portBuffer(JackPortType)}, but the buffers of all of
+   * the ports registered by the client are fetched together on the first
+   * access by handle in each cycle, after which each access costs only an
+   * array lookup. Clients with large numbers of ports should prefer this
+   * method.
+   *
+   * @param handle The port handle
+   *
+   * @return A port buffer
+   *
+   * @throws JackException On errors
+   * @see JackPortType#handle()
+   */
+
+  JackBufferType portBuffer(
+    int handle)
+    throws JackException;
+
+  /**
+   * Get a reference to the buffer for the port with the given handle.
+   *
+   * @param handle The port handle
+   *
+   * @return A port buffer
+   *
+   * @throws JackException On errors
+   * @see #portBuffer(int)
+   * @see #portBufferMIDI(JackPortType)
+   */
+
+  JackBufferMIDIType portBufferMIDI(
+    int handle)
+    throws JackException;
+
+  /**
+   * Get a reference to the writable MIDI buffer for the port with the given
+   * handle.
+   *
+   * @param handle The port handle
+   *
+   * @return A writable port buffer
+   *
+   * @throws JackException On errors
+   * @see #portBuffer(int)
+   * @see #portBufferMIDIWritable(JackPortType)
+   */
+
+  JackBufferMIDIWritableType portBufferMIDIWritable(
+    int handle)
+    throws JackException;
 }
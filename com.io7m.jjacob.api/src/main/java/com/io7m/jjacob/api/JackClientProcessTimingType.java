@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * Timing measurements of the process callback of a client. The time taken
+ * by each call to {@link JackClientProcessCallbackType#onProcess(
+ * JackClientProcessCallbackContextType)} is recorded into a preallocated
+ * histogram without locks or allocation, and is compared against the period
+ * budget (the number of frames in the cycle divided by the sample rate).
+ *
+ * Measurements are published by the process thread and may be read from any
+ * thread. Values read by successive calls are not guaranteed to be mutually
+ * consistent. Recorded durations are accurate to within 12.5%.
+ */
+
+public interface JackClientProcessTimingType
+{
+  /**
+   * @return The number of process cycles measured
+   */
+
+  long cycles();
+
+  /**
+   * @return The longest measured cycle in nanoseconds
+   */
+
+  long maximumNanoseconds();
+
+  /**
+   * Estimate the duration at or below which the given percentage of
+   * measured cycles completed.
+   *
+   * @param percentile The percentile in the range {@code [0, 100]}
+   *
+   * @return The estimated duration in nanoseconds, or {@code 0} if no cycles
+   * have been measured
+   */
+
+  long percentileNanoseconds(
+    double percentile);
+
+  /**
+   * @return The period budget of the most recently measured cycle in
+   * nanoseconds
+   */
+
+  long budgetNanoseconds();
+
+  /**
+   * @return The fraction of the period budget above which cycles are counted
+   * as over budget
+   *
+   * @see JackClientConfigurationType#processTimingBudgetThreshold()
+   */
+
+  double budgetThreshold();
+
+  /**
+   * @return The number of measured cycles that took longer than
+   * {@link #budgetThreshold()} multiplied by the period budget
+   */
+
+  long overBudgetCount();
+}
@@ -20,6 +20,7 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
@@ -112,7 +113,10 @@ public interface JackClientType extends AutoCloseable
     throws JackException;
 
   /**
-   * Set the process callback for the client.
+   * Set the process callback for the client. The first process callback must
+   * be set before the client is activated. Subsequent calls replace the
+   * current callback atomically, even whilst the client is active; the new
+   * callback takes effect from the next process cycle.
    *
    * @param process The process callback
    *
@@ -124,6 +128,176 @@ public interface JackClientType extends AutoCloseable
     JackClientProcessCallbackType process)
     throws JackException;
 
+  /**
+   * Replace the process callback for the client, crossfading from the current
+   * callback to the new one. During the next process cycle, both callbacks
+   * are executed and the audio output ports of the client are faded linearly
+   * from the output of the current callback to the output of the new
+   * callback over the course of the period. MIDI output ports contain only
+   * the events written by the new callback. If the client is not active, has
+   * no current callback, or has a pipelined callback, this is equivalent to
+   * {@link #setProcessCallback(JackClientProcessCallbackType)}.
+   *
+   * @param process The process callback
+   *
+   * @throws JackException On errors
+   */
+
+  void setProcessCallbackCrossfade(
+    JackClientProcessCallbackType process)
+    throws JackException;
+
+  /**
+   * Set a pipelined process callback for the client. The callback is
+   * executed on a pool of worker threads rather than on the real-time
+   * thread, and may take up to {@link JackClientPipelineConfigurationType#latencyPeriods()}
+   * whole periods to process each cycle. The real-time thread only copies
+   * the input audio ports of the client into the pipeline, and copies the
+   * finished output of an earlier cycle to the output audio ports. The added
+   * latency is reported to JACK in the latency ranges of the client's ports.
+   *
+   * However many workers are configured, the callback is executed by one
+   * worker at a time, once per captured cycle, in the order in which the
+   * cycles were captured. Changes that the callback makes to its own state
+   * in one cycle are visible to it in the next, so stateful processing such
+   * as filters and envelopes behaves as it would on the real-time thread.
+   * Cycles that the pipeline drops are skipped, not reordered.
+   *
+   * Only the audio ports registered at the time of the call take part in
+   * the pipeline; within the callback, the buffers of those ports must be
+   * accessed by handle or by port, and MIDI buffers are unavailable. The
+   * pipeline is stopped when the process callback is next replaced or the
+   * client is closed. As with
+   * {@link #setProcessCallback(JackClientProcessCallbackType)}, the first
+   * process callback must be set before the client is activated. The
+   * callback through which the added latency is reported is registered when
+   * the first pipelined callback is set, so that too must happen before the
+   * client is activated.
+   *
+   * @param process       The process callback
+   * @param configuration The pipeline configuration
+   *
+   * @return The running pipeline
+   *
+   * @throws JackException On errors
+   */
+
+  JackClientPipelineType setProcessCallbackPipelined(
+    JackClientProcessCallbackType process,
+    JackClientPipelineConfiguration configuration)
+    throws JackException;
+
+  /**
+   * @return The queue of commands passed from other threads to the process
+   * thread of the client
+   *
+   * @see #setCommandReceiver(JackCommandReceiverType)
+   * @see JackClientConfigurationType#commandQueueCapacity()
+   */
+
+  JackCommandQueue commandQueue();
+
+  /**
+   * Set the receiver of the commands in {@link #commandQueue()}. At the start
+   * of each process cycle, before the process callback is executed, the
+   * commands that take effect during the cycle are removed from the queue and
+   * delivered to the receiver on the process thread. The receiver replaces
+   * any existing receiver, and takes effect from the next process cycle.
+   * Commands are not removed from the queue whilst no receiver is set.
+   * Exceptions raised by the receiver are handled in the same way as
+   * exceptions raised by the process callback.
+   *
+   * @param receiver The command receiver
+   *
+   * @throws JackException On errors
+   */
+
+  void setCommandReceiver(
+    JackCommandReceiverType receiver)
+    throws JackException;
+
+  /**
+   * Retrieve the estimated current time in frames, suitable for
+   * timestamping commands with
+   * {@link JackCommandQueue#offerAt(long, int, int, double)}. The value is
+   * an unsigned 32-bit quantity that wraps around.
+   *
+   * @return The current frame time
+   *
+   * @throws JackException On errors
+   * @see "jack_frame_time"
+   */
+
+  long frameTime()
+    throws JackException;
+
+  /**
+   * Set the xrun listener for the client. The listener replaces any existing
+   * listener. Xruns are counted in {@link #xrunStatistics()} regardless of
+   * whether or not a listener is set.
+   *
+   * @param listener The xrun listener
+   *
+   * @throws JackException On errors
+   * @see "jack_set_xrun_callback"
+   */
+
+  void setXRunListener(
+    JackClientXRunListenerType listener)
+    throws JackException;
+
+  /**
+   * @return The continuously updated xrun statistics for the client
+   */
+
+  JackClientXRunStatisticsType xrunStatistics();
+
+  /**
+   * @return The process callback timing measurements for the client, if
+   * timing was enabled when the client was opened
+   *
+   * @see JackClientConfigurationType#processTimingEnabled()
+   */
+
+  Optional<JackClientProcessTimingType> processTiming();
+
+  /**
+   * @return The identifier of the Java thread that most recently executed
+   * the process callback, if the process callback has ever executed
+   *
+   * @see Thread#getId()
+   */
+
+  OptionalLong processThreadId();
+
+  /**
+   * Retrieve the number of times that the process callback has raised an
+   * exception. Exceptions are recorded on the process thread without
+   * allocating or blocking, and are logged later by a background thread.
+   *
+   * @return The number of exceptions raised by the process callback
+   *
+   * @see JackClientConfigurationType#processErrorPolicy()
+   */
+
+  long processErrorCount();
+
+  /**
+   * Retrieve the current snapshot of the connection graph. If a snapshot is
+   * maintained, {@link #portsList(Optional, Optional, Set)} and
+   * {@link #portByName(String)} are also answered from the snapshot rather
+   * than by querying the server.
+   *
+   * @return The current graph snapshot, if graph snapshots were enabled when
+   * the client was opened
+   *
+   * @throws JackException On errors
+   * @see JackClientConfigurationType#graphSnapshotEnabled()
+   */
+
+  Optional<JackGraphSnapshotType> graph()
+    throws JackException;
+
   /**
    * Register a new port of the default typeName.
    *
@@ -270,6 +444,37 @@ public interface JackClientType extends AutoCloseable
     String target_port)
     throws JackException;
 
+  /**
+   * <p>Make the current connections match the given set of connections,
+   * issuing only the connects and disconnects that are required.</p>
+   *
+   * <p>Existing connections that are not in {@code connections} are removed
+   * if either of their ports has a name that matches {@code scope}; if no
+   * scope is given, all such connections are removed. Existing connections
+   * that are in {@code connections} are left untouched.</p>
+   *
+   * <p>All disconnections are applied before any connections, so that the
+   * server never observes a transient graph containing both the old and new
+   * routes. A failure to apply one change does not prevent the remaining
+   * changes from being applied, and is instead recorded in the returned
+   * report.</p>
+   *
+   * @param scope       A pattern that selects the existing connections that
+   *                    may be removed
+   * @param connections The desired connections
+   *
+   * @return A report of the changes made
+   *
+   * @throws JackException On errors
+   * @see #portsConnect(String, String)
+   * @see #portsDisconnect(String, String)
+   */
+
+  JackConnectionReport portsConnectionsApply(
+    Optional<String> scope,
+    Set<JackGraphConnection> connections)
+    throws JackException;
+
   /**
    * Find a port matching the given name.
    *
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * Continuously updated xrun statistics for a client. The statistics are
+ * updated without locks as xruns and process cycles occur, and may be read
+ * from any thread. Each method returns the most recently published value;
+ * values read by successive calls are not guaranteed to be mutually
+ * consistent.
+ */
+
+public interface JackClientXRunStatisticsType
+{
+  /**
+   * @return The number of xruns that have occurred since the client was opened
+   */
+
+  long xrunCount();
+
+  /**
+   * @return The delay in microseconds reported by JACK for the most recent
+   * xrun, or {@code 0.0} if no xrun has occurred
+   *
+   * @see "jack_get_xrun_delayed_usecs"
+   */
+
+  float xrunLastDelayMicroseconds();
+
+  /**
+   * @return The number of process cycles that have been executed since the
+   * client was opened
+   */
+
+  long processCycles();
+
+  /**
+   * @return The number of process cycles that have been executed since the
+   * most recent xrun (or since the client was opened, if no xrun has occurred)
+   */
+
+  long processCyclesSinceLastXRun();
+}
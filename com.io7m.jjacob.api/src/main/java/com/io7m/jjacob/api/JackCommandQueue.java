@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A bounded, lock-free, multiple-producer, single-consumer queue of
+ * commands, intended to pass parameter changes and similar commands from
+ * ordinary Java threads to a process callback without racing on shared
+ * fields or blocking the callback.</p>
+ *
+ * <p>Each command is a record of primitive values: a command number, a
+ * target number, a value, and an optional timestamp in JACK frame time. The
+ * records are stored in preallocated arrays, so neither producers nor the
+ * consumer allocate. Any number of threads may call the producer methods
+ * ({@link #offer(int, int, double)}, {@link #offerAt(long, int, int,
+ * double)}); a producer never blocks, and only retries when another producer
+ * claims the same slot at the same moment. Offers made when the queue is
+ * full fail immediately. Exactly one thread may call
+ * {@link #drain(int, int, JackCommandReceiverType)}, which is wait-free.</p>
+ *
+ * <p>Commands are delivered in the order in which their slots were claimed.
+ * A command whose timestamp falls in a later cycle, or whose producer has
+ * claimed a slot but not yet finished writing it, holds back the commands
+ * queued after it until a later drain.</p>
+ */
+
+public final class JackCommandQueue
+{
+  private static final long IMMEDIATE = -1L;
+  private static final VarHandle TAIL;
+  private static final VarHandle SEQUENCES =
+    MethodHandles.arrayElementVarHandle(long[].class);
+
+  static {
+    try {
+      TAIL = MethodHandles.lookup().findVarHandle(
+        JackCommandQueue.class, "tail", long.class);
+    } catch (final NoSuchFieldException | IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final int capacity;
+  private final int mask;
+  private final long[] sequences;
+  private final long[] frames;
+  private final int[] commands;
+  private final int[] targets;
+  private final double[] values;
+  private final AtomicLong rejected;
+  private long tail;
+  private long head;
+
+  private JackCommandQueue(
+    final int in_capacity)
+  {
+    this.capacity = in_capacity;
+    this.mask = in_capacity - 1;
+    this.sequences = new long[in_capacity];
+    this.frames = new long[in_capacity];
+    this.commands = new int[in_capacity];
+    this.targets = new int[in_capacity];
+    this.values = new double[in_capacity];
+    this.rejected = new AtomicLong(0L);
+
+    /*
+     * The sequence number of each slot is the queue position at which the
+     * slot may next be written; a slot holding a published command has the
+     * sequence number of its position plus one.
+     */
+
+    for (int index = 0; index < in_capacity; ++index) {
+      this.sequences[index] = (long) index;
+    }
+    this.tail = 0L;
+    this.head = 0L;
+  }
+
+  /**
+   * Create a new queue. The capacity is rounded up to the next power of two.
+   *
+   * @param capacity The minimum capacity in commands
+   *
+   * @return A new queue
+   */
+
+  public static JackCommandQueue create(
+    final int capacity)
+  {
+    return new JackCommandQueue(
+      JackRingBufferIndex.capacityFor(capacity, 1 << 24));
+  }
+
+  /**
+   * @return The capacity of the queue in commands
+   */
+
+  public int capacity()
+  {
+    return this.capacity;
+  }
+
+  /**
+   * @return The number of offers that failed because the queue was full
+   */
+
+  public long rejectedCount()
+  {
+    return this.rejected.get();
+  }
+
+  /**
+   * Offer a command that takes effect at the start of the next cycle in
+   * which the queue is drained. This method may be called from any thread.
+   *
+   * @param command The command
+   * @param target  The target of the command
+   * @param value   The value of the command
+   *
+   * @return {@code true} if the command was queued, {@code false} if the
+   * queue was full
+   */
+
+  public boolean offer(
+    final int command,
+    final int target,
+    final double value)
+  {
+    return this.offerFrame(IMMEDIATE, command, target, value);
+  }
+
+  /**
+   * Offer a command that takes effect at the given JACK frame time. A
+   * command whose time has already passed when the queue is drained takes
+   * effect at the start of that cycle. This method may be called from any
+   * thread.
+   *
+   * @param frame   The frame time, as an unsigned 32-bit value
+   * @param command The command
+   * @param target  The target of the command
+   * @param value   The value of the command
+   *
+   * @return {@code true} if the command was queued, {@code false} if the
+   * queue was full
+   *
+   * @see JackClientType#frameTime()
+   */
+
+  public boolean offerAt(
+    final long frame,
+    final int command,
+    final int target,
+    final double value)
+  {
+    return this.offerFrame(frame & 0xffff_ffffL, command, target, value);
+  }
+
+  private boolean offerFrame(
+    final long frame,
+    final int command,
+    final int target,
+    final double value)
+  {
+    long position = (long) TAIL.getVolatile(this);
+    while (true) {
+      final int index = (int) (position & (long) this.mask);
+      final long sequence = (long) SEQUENCES.getAcquire(this.sequences, index);
+      final long difference = sequence - position;
+
+      if (difference == 0L) {
+        final long witness =
+          (long) TAIL.compareAndExchange(this, position, position + 1L);
+        if (witness == position) {
+          this.frames[index] = frame;
+          this.commands[index] = command;
+          this.targets[index] = target;
+          this.values[index] = value;
+          SEQUENCES.setRelease(this.sequences, index, position + 1L);
+          return true;
+        }
+        position = witness;
+      } else if (difference < 0L) {
+        this.rejected.incrementAndGet();
+        return false;
+      } else {
+        position = (long) TAIL.getVolatile(this);
+      }
+    }
+  }
+
+  /**
+   * Deliver all commands that take effect during the current cycle. This
+   * method may only be called from the consumer thread. If the receiver
+   * raises an exception, the command that was being delivered is consumed
+   * and the remaining commands are left in the queue.
+   *
+   * @param cycle_start The JACK frame time at the start of the current cycle
+   * @param cycle_frames The number of frames in the current cycle
+   * @param receiver    The receiver of the commands
+   *
+   * @return The number of commands delivered
+   *
+   * @throws Exception If the receiver raises an exception
+   * @see "jack_last_frame_time"
+   */
+
+  public int drain(
+    final int cycle_start,
+    final int cycle_frames,
+    final JackCommandReceiverType receiver)
+    throws Exception
+  {
+    Objects.requireNonNull(receiver, "receiver");
+
+    int count = 0;
+    long position = this.head;
+    while (true) {
+      final int index = (int) (position & (long) this.mask);
+      final long sequence = (long) SEQUENCES.getAcquire(this.sequences, index);
+      if (sequence != position + 1L) {
+        return count;
+      }
+
+      /*
+       * Frame times wrap around, so the offset is computed with 32-bit
+       * arithmetic; commands up to half the frame time range in the past
+       * or future are ordered correctly.
+       */
+
+      final long frame = this.frames[index];
+      final int offset;
+      if (frame == IMMEDIATE) {
+        offset = 0;
+      } else {
+        final int delta = (int) frame - cycle_start;
+        if (delta >= cycle_frames) {
+          return count;
+        }
+        offset = Math.max(delta, 0);
+      }
+
+      final int command = this.commands[index];
+      final int target = this.targets[index];
+      final double value = this.values[index];
+      ++position;
+      this.head = position;
+      SEQUENCES.setRelease(
+        this.sequences, index, position - 1L + (long) this.capacity);
+
+      ++count;
+      receiver.onCommand(offset, command, target, value);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * A receiver of commands drained from a {@link JackCommandQueue}. Commands
+ * are delivered on the thread draining the queue, which for the queue of a
+ * client is the real-time process thread; receivers must therefore not
+ * allocate, block, or take locks.
+ *
+ * @see JackClientType#setCommandReceiver(JackCommandReceiverType)
+ */
+
+public interface JackCommandReceiverType
+{
+  /**
+   * A command has been received.
+   *
+   * @param offset  The offset in frames from the start of the current cycle
+   *                at which the command takes effect
+   * @param command The command, as chosen by the producer
+   * @param target  The target of the command, as chosen by the producer
+   * @param value   The value of the command
+   *
+   * @throws Exception On errors
+   */
+
+  void onCommand(
+    int offset,
+    int command,
+    int target,
+    double value)
+    throws Exception;
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * The action taken for a single connection when applying a set of
+ * connections.
+ *
+ * @see JackClientType#portsConnectionsApply(java.util.Optional, java.util.Set)
+ */
+
+public enum JackConnectionAction
+{
+  /**
+   * The connection was both present and desired, and so was left alone.
+   */
+
+  JACK_CONNECTION_KEEP,
+
+  /**
+   * The connection was desired but not present, and so was created.
+   */
+
+  JACK_CONNECTION_CONNECT,
+
+  /**
+   * The connection was present but not desired, and so was removed.
+   */
+
+  JACK_CONNECTION_DISCONNECT
+}
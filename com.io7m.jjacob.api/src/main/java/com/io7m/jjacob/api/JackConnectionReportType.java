@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A report of the changes made when applying a set of connections.
+ *
+ * @see JackClientType#portsConnectionsApply(java.util.Optional, java.util.Set)
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface JackConnectionReportType
+{
+  /**
+   * @return The results, in the order in which the changes were applied
+   */
+
+  List<JackConnectionResult> results();
+
+  /**
+   * @return The results for all changes that failed
+   */
+
+  default List<JackConnectionResult> failures()
+  {
+    return this.results()
+      .stream()
+      .filter(result -> !result.succeeded())
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @return {@code true} iff every change succeeded
+   */
+
+  default boolean isSuccessful()
+  {
+    return this.results()
+      .stream()
+      .allMatch(JackConnectionResult::succeeded);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * The result of applying a single connection change.
+ *
+ * @see JackConnectionReportType
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface JackConnectionResultType
+{
+  /**
+   * @return The connection
+   */
+
+  @Value.Parameter
+  JackGraphConnection connection();
+
+  /**
+   * @return The action taken for the connection
+   */
+
+  @Value.Parameter
+  JackConnectionAction action();
+
+  /**
+   * @return {@code true} iff the action succeeded
+   */
+
+  @Value.Parameter
+  boolean succeeded();
+}
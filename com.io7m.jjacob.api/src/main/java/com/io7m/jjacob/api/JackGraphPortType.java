@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * A description of a port in a graph snapshot.
+ *
+ * @see JackGraphSnapshotType
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface JackGraphPortType
+{
+  /**
+   * @return The full name of the port (such as {@code system:playback_1})
+   */
+
+  @Value.Parameter
+  String name();
+
+  /**
+   * @return The name of the port type
+   */
+
+  @Value.Parameter
+  String typeName();
+
+  /**
+   * @return The port flags
+   */
+
+  @Value.Parameter
+  Set<JackPortFlag> flags();
+
+  /**
+   * @return The name of the client that owns the port
+   */
+
+  default String clientName()
+  {
+    final String name = this.name();
+    final int colon = name.indexOf(':');
+    return colon == -1 ? "" : name.substring(0, colon);
+  }
+
+  /**
+   * @return The name of the port without the client name prefix
+   */
+
+  default String shortName()
+  {
+    final String name = this.name();
+    return name.substring(name.indexOf(':') + 1);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>An immutable snapshot of the JACK connection graph, as seen by a
+ * client.</p>
+ *
+ * <p>Snapshots are maintained incrementally from the port registration,
+ * port connection, and graph order notifications that the server delivers to
+ * the client, and so queries against a snapshot do not require any
+ * communication with the server. Each change to the graph produces a new
+ * snapshot with a higher {@link #version()}.</p>
+ *
+ * @see JackClientType#graph()
+ */
+
+public interface JackGraphSnapshotType
+{
+  /**
+   * @return The version of the snapshot
+   */
+
+  long version();
+
+  /**
+   * @return The names of all clients that own at least one port
+   */
+
+  Set<String> clients();
+
+  /**
+   * @return All ports, by full name, in order of registration
+   */
+
+  Map<String, JackGraphPort> ports();
+
+  /**
+   * @return All connections
+   */
+
+  Set<JackGraphConnection> connections();
+
+  /**
+   * @param port The full name of a port
+   *
+   * @return The names of all ports connected to {@code port}
+   */
+
+  Set<String> connectionsOf(String port);
+
+  /**
+   * @param name The full name of a port
+   *
+   * @return The port, if it exists
+   */
+
+  default Optional<JackGraphPort> portByName(
+    final String name)
+  {
+    Objects.requireNonNull(name, "name");
+    return Optional.ofNullable(this.ports().get(name));
+  }
+
+  /**
+   * @param source The full name of an output port
+   * @param target The full name of an input port
+   *
+   * @return {@code true} iff {@code source} is connected to {@code target}
+   */
+
+  default boolean isConnected(
+    final String source,
+    final String target)
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(target, "target");
+    return this.connections().contains(JackGraphConnection.of(source, target));
+  }
+
+  /**
+   * List ports. The semantics of this method are the same as those of
+   * {@link JackClientType#portsList(Optional, Optional, Set)}: Patterns are
+   * regular expressions that need only match part of the name, and a port
+   * must have all of the given flags.
+   *
+   * @param name_pattern A pattern that port names must match
+   * @param type_pattern A pattern that port type names must match
+   * @param flags        The flags that ports must have
+   *
+   * @return The names of all matching ports
+   */
+
+  default List<String> portsList(
+    final Optional<String> name_pattern,
+    final Optional<String> type_pattern,
+    final Set<JackPortFlag> flags)
+  {
+    Objects.requireNonNull(name_pattern, "name_pattern");
+    Objects.requireNonNull(type_pattern, "type_pattern");
+    Objects.requireNonNull(flags, "flags");
+
+    final Pattern name = name_pattern.map(Pattern::compile).orElse(null);
+    final Pattern type = type_pattern.map(Pattern::compile).orElse(null);
+
+    final Map<String, JackGraphPort> ports = this.ports();
+    final List<String> results = new ArrayList<>(ports.size());
+    for (final JackGraphPort port : ports.values()) {
+      if (name != null && !name.matcher(port.name()).find()) {
+        continue;
+      }
+      if (type != null && !type.matcher(port.typeName()).find()) {
+        continue;
+      }
+      if (!port.flags().containsAll(flags)) {
+        continue;
+      }
+      results.add(port.name());
+    }
+    return results;
+  }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An implementation of the {@link JackBufferType} interface backed by an NIO
+ * byte buffer. The buffer is sized exactly to the port buffer, and all
+ * accesses are delegated directly to the NIO buffer using native byte order.
+ * The NIO buffer accessors are intrinsified by the JIT compiler, so the
+ * bounds checks performed in sample loops can typically be hoisted out of
+ * those loops.
+ *
+ * The accessors of this class, including the bulk array accesses, use
+ * absolute indices and never modify the position or limit of the underlying
+ * NIO buffers, so any number of threads may read a buffer through them
+ * concurrently provided that no thread writes to it at the same time.
+ *
+ * The views returned by {@link #asByteBuffer()} and {@link #asFloatBuffer()}
+ * are not covered by that guarantee. To avoid allocating on the process
+ * thread, each buffer has a single byte view and a single float view, and
+ * every call to those methods returns the same view after resetting its
+ * position and limit. The views are therefore not thread-safe: a buffer's
+ * views must only be used by one thread at a time, and a call to either
+ * method invalidates the position and limit of any earlier use of the same
+ * view. Callers that need independent views should
+ * {@link ByteBuffer#duplicate()} the returned view.
+ */
+
+public final class JackNIOBuffer implements JackBufferType
+{
+  private final ByteBuffer bytes;
+  private final FloatBuffer floats;
+  private final IntBuffer ints;
+  private final ByteBuffer view_bytes;
+  private final FloatBuffer view_floats;
+  private final Optional<ByteBuffer> view_bytes_opt;
+  private final Optional<FloatBuffer> view_floats_opt;
+  private final int frame_count;
+  private final int frame_size;
+  private final int size;
+  private final int size_words;
+
+  /**
+   * Construct a buffer. The buffer aliases the memory of the given buffer
+   * from index {@code 0} to the buffer's capacity, regardless of the current
+   * position and limit of the buffer.
+   *
+   * @param in_buffer     The underlying buffer
+   * @param in_frame_size The size in bytes of each frame
+   */
+
+  public JackNIOBuffer(
+    final ByteBuffer in_buffer,
+    final int in_frame_size)
+  {
+    Objects.requireNonNull(in_buffer, "buffer");
+
+    if (in_frame_size <= 0) {
+      throw new IllegalArgumentException(
+        "Frame size must be positive (received " + in_frame_size + ")");
+    }
+
+    final int capacity = in_buffer.capacity();
+    if (capacity % in_frame_size != 0) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Buffer capacity ")
+          .append(capacity)
+          .append(" is not a multiple of the frame size ")
+          .append(in_frame_size)
+          .toString());
+    }
+
+    this.frame_size = in_frame_size;
+    this.frame_count = capacity / in_frame_size;
+    this.size = capacity;
+    this.size_words = capacity / 4;
+
+    final ByteBuffer base = in_buffer.duplicate();
+    base.clear();
+    this.bytes = base.slice().order(ByteOrder.nativeOrder());
+    this.floats = this.bytes.asFloatBuffer();
+    this.ints = this.bytes.asIntBuffer();
+    this.view_bytes = this.bytes.duplicate().order(ByteOrder.nativeOrder());
+    this.view_floats = this.bytes.asFloatBuffer();
+    this.view_bytes_opt = Optional.of(this.view_bytes);
+    this.view_floats_opt = Optional.of(this.view_floats);
+  }
+
+  private static void checkIndex(
+    final int index,
+    final int bound)
+  {
+    if (index < 0 || index >= bound) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+  }
+
+  private static void checkRange(
+    final int index,
+    final int length,
+    final int bound)
+  {
+    if (index < 0 || length < 0 || index > bound - length) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+  }
+
+  @Override
+  public int frameCount()
+  {
+    return this.frame_count;
+  }
+
+  @Override
+  public int frameSizeBytes()
+  {
+    return this.frame_size;
+  }
+
+  @Override
+  public long sizeBytes()
+  {
+    return (long) this.size;
+  }
+
+  @Override
+  public void putF(
+    final int index,
+    final float value)
+  {
+    checkIndex(index, this.size_words);
+    this.floats.put(index, value);
+  }
+
+  @Override
+  public void putI(
+    final int index,
+    final int value)
+  {
+    checkIndex(index, this.size_words);
+    this.ints.put(index, value);
+  }
+
+  @Override
+  public void putB(
+    final int offset,
+    final int value)
+  {
+    checkIndex(offset, this.size);
+    this.bytes.put(offset, (byte) (value & 0xff));
+  }
+
+  @Override
+  public void putArrayF(
+    final int index,
+    final float[] values)
+  {
+    Objects.requireNonNull(values, "values");
+    checkRange(index, values.length, this.size_words);
+    for (int value = 0; value < values.length; ++value) {
+      this.floats.put(index + value, values[value]);
+    }
+  }
+
+  @Override
+  public void putArrayB(
+    final int offset,
+    final byte[] values)
+  {
+    Objects.requireNonNull(values, "values");
+    checkRange(offset, values.length, this.size);
+    for (int value = 0; value < values.length; ++value) {
+      this.bytes.put(offset + value, values[value]);
+    }
+  }
+
+  @Override
+  public float getF(
+    final int index)
+  {
+    checkIndex(index, this.size_words);
+    return this.floats.get(index);
+  }
+
+  @Override
+  public int getI(
+    final int index)
+  {
+    checkIndex(index, this.size_words);
+    return this.ints.get(index);
+  }
+
+  @Override
+  public int getB(
+    final int offset)
+  {
+    checkIndex(offset, this.size);
+    return (int) this.bytes.get(offset) & 0xff;
+  }
+
+  @Override
+  public void getArrayF(
+    final int index,
+    final float[] values,
+    final int offset,
+    final int length)
+  {
+    Objects.requireNonNull(values, "values");
+    checkRange(index, length, this.size_words);
+    checkRange(offset, length, values.length);
+    for (int value = 0; value < length; ++value) {
+      values[offset + value] = this.floats.get(index + value);
+    }
+  }
+
+  @Override
+  public void getArrayB(
+    final int offset,
+    final byte[] values,
+    final int array_offset,
+    final int length)
+  {
+    Objects.requireNonNull(values, "values");
+    checkRange(offset, length, this.size);
+    checkRange(array_offset, length, values.length);
+    for (int value = 0; value < length; ++value) {
+      values[array_offset + value] = this.bytes.get(offset + value);
+    }
+  }
+
+  /**
+   * Get the sample at {@code index}. Unlike {@link #getF(int)}, the index is
+   * only checked by the NIO buffer.
+   *
+   * @param index The sample index
+   *
+   * @return The sample
+   */
+
+  float sampleGet(
+    final int index)
+  {
+    return this.floats.get(index);
+  }
+
+  /**
+   * Set the sample at {@code index}. Unlike {@link #putF(int, float)}, the
+   * index is only checked by the NIO buffer.
+   *
+   * @param index The sample index
+   * @param value The sample
+   */
+
+  void samplePut(
+    final int index,
+    final float value)
+  {
+    this.floats.put(index, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The same view is returned by every call, with its position and limit
+   * reset; the view must not be used by more than one thread at a time.
+   */
+
+  @Override
+  public Optional<ByteBuffer> asByteBuffer()
+  {
+    this.view_bytes.clear();
+    return this.view_bytes_opt;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The same view is returned by every call, with its position and limit
+   * reset; the view must not be used by more than one thread at a time.
+   */
+
+  @Override
+  public Optional<FloatBuffer> asFloatBuffer()
+  {
+    this.view_floats.clear();
+    return this.view_floats_opt;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * The context passed to a node during a single process cycle. Buffers
+ * returned by the context are flyweights that <i>MUST NOT</i> be stored or
+ * used outside of the call to
+ * {@link JackNodeType#process(JackNodeContextType)}. Input buffers
+ * <i>MUST NOT</i> be written.
+ */
+
+public interface JackNodeContextType
+{
+  /**
+   * @return The number of frames in the current cycle
+   */
+
+  int frameCount();
+
+  /**
+   * Obtain the buffer of an audio input. The buffer may be shared with other
+   * nodes connected to the same source, and those nodes may be executed
+   * concurrently; input buffers must therefore only be read.
+   *
+   * @param index The index of an audio input
+   *
+   * @return The buffer of the given input
+   *
+   * @throws JackException On errors, or if the input is not an audio input
+   */
+
+  JackBufferType input(
+    int index)
+    throws JackException;
+
+  /**
+   * @param index The index of a MIDI input
+   *
+   * @return The buffer of the given input
+   *
+   * @throws JackException On errors, or if the input is not a MIDI input
+   */
+
+  JackBufferMIDIType inputMIDI(
+    int index)
+    throws JackException;
+
+  /**
+   * @param index The index of an audio output
+   *
+   * @return The buffer of the given output
+   *
+   * @throws JackException On errors, or if the output is not an audio output
+   */
+
+  JackBufferType output(
+    int index)
+    throws JackException;
+
+  /**
+   * @param index The index of a MIDI output
+   *
+   * @return The buffer of the given output
+   *
+   * @throws JackException On errors, or if the output is not a MIDI output
+   */
+
+  JackBufferMIDIWritableType outputMIDI(
+    int index)
+    throws JackException;
+}
@@ -0,0 +1,1132 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.io7m.jjacob.api.JackNodePortKind.JACK_NODE_PORT_AUDIO;
+import static com.io7m.jjacob.api.JackNodePortKind.JACK_NODE_PORT_MIDI;
+
+/**
+ * <p>A graph of processing nodes hosted inside a single client.</p>
+ *
+ * <p>Hosting many processing stages inside one client avoids the context
+ * switch that JACK performs for each client in each cycle. The graph is
+ * installed as the process callback of the client, and executes all of its
+ * nodes in topological order on each cycle.</p>
+ *
+ * <p>The graph is changed by obtaining an edit with {@link #edit()} and then
+ * committing it. Committing sorts the graph and allocates all intermediate
+ * buffers (audio buffers are direct, off-heap buffers) for the current
+ * buffer size of the client, and then publishes the result with a single
+ * volatile write. The process callback therefore neither allocates nor
+ * locks. If the buffer size of the client changes, an empty edit must be
+ * committed in order to reallocate the buffers; until then, the graph
+ * writes silence to its output ports.</p>
+ *
+ * <p>By default, nodes are executed one at a time on the process thread. A
+ * graph created with {@link #create(JackClientType, JackNodeGraphWorkers)}
+ * instead executes nodes whose inputs are ready concurrently across a set of
+ * worker threads and the process thread.</p>
+ */
+
+public final class JackNodeGraph implements JackClientProcessCallbackType
+{
+  private final JackClientType client;
+  private final JackNodeGraphWorkers workers;
+  private final Object edit_lock;
+  private Definition definition;
+  private volatile Schedule schedule;
+
+  private JackNodeGraph(
+    final JackClientType in_client,
+    final JackNodeGraphWorkers in_workers)
+  {
+    this.client = Objects.requireNonNull(in_client, "client");
+    this.workers = in_workers;
+    this.edit_lock = new Object();
+    this.definition = new Definition();
+    this.schedule = Schedule.EMPTY;
+  }
+
+  /**
+   * Create a new, empty graph for the given client. The graph must be
+   * installed as the process callback of the client with
+   * {@link JackClientType#setProcessCallback(JackClientProcessCallbackType)}.
+   *
+   * @param client The client
+   *
+   * @return A new graph
+   */
+
+  public static JackNodeGraph create(
+    final JackClientType client)
+  {
+    return new JackNodeGraph(client, null);
+  }
+
+  /**
+   * Create a new, empty graph for the given client that executes independent
+   * nodes in parallel using the given workers. Nodes are executed on the
+   * worker threads and on the process thread concurrently, and so nodes
+   * that share state must synchronize access to it themselves (without
+   * blocking). The workers are owned by the graph from this point on, but
+   * must be closed by the caller.
+   *
+   * @param client  The client
+   * @param workers The workers
+   *
+   * @return A new graph
+   *
+   * @throws IllegalStateException If the workers are already used by
+   *                               another graph
+   */
+
+  public static JackNodeGraph create(
+    final JackClientType client,
+    final JackNodeGraphWorkers workers)
+  {
+    Objects.requireNonNull(workers, "workers");
+    workers.claim();
+    return new JackNodeGraph(client, workers);
+  }
+
+  /**
+   * @return A new edit based on the current state of the graph
+   */
+
+  public JackNodeGraphEditType edit()
+  {
+    synchronized (this.edit_lock) {
+      return new Edit(this, new Definition(this.definition));
+    }
+  }
+
+  /**
+   * @return The names of the nodes in the order in which they are executed
+   */
+
+  public List<String> executionOrder()
+  {
+    return this.schedule.order;
+  }
+
+  @Override
+  public void onProcess(
+    final JackClientProcessCallbackContextType context)
+    throws Exception
+  {
+    final Schedule current = this.schedule;
+    if (context.bufferFrameCount() != current.frames) {
+      current.silence(context);
+      return;
+    }
+    current.execute(context, this.workers);
+  }
+
+  private void commit(
+    final Definition edited)
+    throws JackException
+  {
+    synchronized (this.edit_lock) {
+      final Schedule compiled =
+        Schedule.compile(
+          edited, this.client.bufferSize(), this.client.sampleRate());
+      this.definition = edited;
+      this.schedule = compiled;
+    }
+  }
+
+  /*
+   * The editable description of a graph.
+   */
+
+  private static final class Definition
+  {
+    private final LinkedHashMap<String, JackNodeType> nodes;
+    private final List<Link> links;
+    private final List<InputLink> inputs;
+    private final List<OutputLink> outputs;
+
+    Definition()
+    {
+      this.nodes = new LinkedHashMap<>();
+      this.links = new ArrayList<>();
+      this.inputs = new ArrayList<>();
+      this.outputs = new ArrayList<>();
+    }
+
+    Definition(
+      final Definition other)
+    {
+      this.nodes = new LinkedHashMap<>(other.nodes);
+      this.links = new ArrayList<>(other.links);
+      this.inputs = new ArrayList<>(other.inputs);
+      this.outputs = new ArrayList<>(other.outputs);
+    }
+  }
+
+  private static final class Link
+  {
+    private final String from_node;
+    private final String from_output;
+    private final String to_node;
+    private final String to_input;
+
+    Link(
+      final String in_from_node,
+      final String in_from_output,
+      final String in_to_node,
+      final String in_to_input)
+    {
+      this.from_node = Objects.requireNonNull(in_from_node, "from_node");
+      this.from_output = Objects.requireNonNull(in_from_output, "from_output");
+      this.to_node = Objects.requireNonNull(in_to_node, "to_node");
+      this.to_input = Objects.requireNonNull(in_to_input, "to_input");
+    }
+
+    boolean matches(
+      final Link other)
+    {
+      return this.from_node.equals(other.from_node)
+        && this.from_output.equals(other.from_output)
+        && this.to_node.equals(other.to_node)
+        && this.to_input.equals(other.to_input);
+    }
+  }
+
+  private static final class InputLink
+  {
+    private final JackPortType port;
+    private final String to_node;
+    private final String to_input;
+
+    InputLink(
+      final JackPortType in_port,
+      final String in_to_node,
+      final String in_to_input)
+    {
+      this.port = Objects.requireNonNull(in_port, "port");
+      this.to_node = Objects.requireNonNull(in_to_node, "to_node");
+      this.to_input = Objects.requireNonNull(in_to_input, "to_input");
+    }
+
+    boolean matches(
+      final InputLink other)
+    {
+      return this.port == other.port
+        && this.to_node.equals(other.to_node)
+        && this.to_input.equals(other.to_input);
+    }
+  }
+
+  private static final class OutputLink
+  {
+    private final String from_node;
+    private final String from_output;
+    private final JackPortType port;
+
+    OutputLink(
+      final String in_from_node,
+      final String in_from_output,
+      final JackPortType in_port)
+    {
+      this.from_node = Objects.requireNonNull(in_from_node, "from_node");
+      this.from_output = Objects.requireNonNull(in_from_output, "from_output");
+      this.port = Objects.requireNonNull(in_port, "port");
+    }
+
+    boolean matches(
+      final OutputLink other)
+    {
+      return this.port == other.port
+        && this.from_node.equals(other.from_node)
+        && this.from_output.equals(other.from_output);
+    }
+  }
+
+  private static final class Edit implements JackNodeGraphEditType
+  {
+    private final JackNodeGraph graph;
+    private final Definition definition;
+
+    Edit(
+      final JackNodeGraph in_graph,
+      final Definition in_definition)
+    {
+      this.graph = Objects.requireNonNull(in_graph, "graph");
+      this.definition = Objects.requireNonNull(in_definition, "definition");
+    }
+
+    @Override
+    public JackNodeGraphEditType nodeAdd(
+      final String name,
+      final JackNodeType node)
+      throws JackNodeGraphException
+    {
+      Objects.requireNonNull(name, "name");
+      Objects.requireNonNull(node, "node");
+
+      if (this.definition.nodes.containsKey(name)) {
+        throw new JackNodeGraphException("Node already exists: " + name);
+      }
+      this.definition.nodes.put(name, node);
+      return this;
+    }
+
+    @Override
+    public JackNodeGraphEditType nodeRemove(
+      final String name)
+    {
+      Objects.requireNonNull(name, "name");
+
+      this.definition.nodes.remove(name);
+      this.definition.links.removeIf(
+        link -> link.from_node.equals(name) || link.to_node.equals(name));
+      this.definition.inputs.removeIf(link -> link.to_node.equals(name));
+      this.definition.outputs.removeIf(link -> link.from_node.equals(name));
+      return this;
+    }
+
+    @Override
+    public JackNodeGraphEditType connect(
+      final String from_node,
+      final String from_output,
+      final String to_node,
+      final String to_input)
+    {
+      this.definition.links.add(
+        new Link(from_node, from_output, to_node, to_input));
+      return this;
+    }
+
+    @Override
+    public JackNodeGraphEditType disconnect(
+      final String from_node,
+      final String from_output,
+      final String to_node,
+      final String to_input)
+    {
+      final Link link = new Link(from_node, from_output, to_node, to_input);
+      this.definition.links.removeIf(link::matches);
+      return this;
+    }
+
+    @Override
+    public JackNodeGraphEditType connectInput(
+      final JackPortType port,
+      final String to_node,
+      final String to_input)
+    {
+      this.definition.inputs.add(new InputLink(port, to_node, to_input));
+      return this;
+    }
+
+    @Override
+    public JackNodeGraphEditType disconnectInput(
+      final JackPortType port,
+      final String to_node,
+      final String to_input)
+    {
+      final InputLink link = new InputLink(port, to_node, to_input);
+      this.definition.inputs.removeIf(link::matches);
+      return this;
+    }
+
+    @Override
+    public JackNodeGraphEditType connectOutput(
+      final String from_node,
+      final String from_output,
+      final JackPortType port)
+    {
+      this.definition.outputs.add(new OutputLink(from_node, from_output, port));
+      return this;
+    }
+
+    @Override
+    public JackNodeGraphEditType disconnectOutput(
+      final String from_node,
+      final String from_output,
+      final JackPortType port)
+    {
+      final OutputLink link = new OutputLink(from_node, from_output, port);
+      this.definition.outputs.removeIf(link::matches);
+      return this;
+    }
+
+    @Override
+    public void commit()
+      throws JackException
+    {
+      this.graph.commit(new Definition(this.definition));
+    }
+  }
+
+  /*
+   * The declarations of a node, read once per compilation.
+   */
+
+  private static final class Declared
+  {
+    private final String name;
+    private final JackNodeType node;
+    private final List<JackNodePortDeclaration> inputs;
+    private final List<JackNodePortDeclaration> outputs;
+    private final Object[] sources;
+    private final List<Declared> successors;
+    private int predecessors;
+
+    Declared(
+      final String in_name,
+      final JackNodeType in_node)
+    {
+      this.name = Objects.requireNonNull(in_name, "name");
+      this.node = Objects.requireNonNull(in_node, "node");
+      this.inputs =
+        Collections.unmodifiableList(new ArrayList<>(in_node.inputs()));
+      this.outputs =
+        Collections.unmodifiableList(new ArrayList<>(in_node.outputs()));
+      this.sources = new Object[this.inputs.size()];
+      this.successors = new ArrayList<>();
+      this.predecessors = 0;
+    }
+
+    int inputIndex(
+      final String input)
+      throws JackNodeGraphException
+    {
+      for (int index = 0; index < this.inputs.size(); ++index) {
+        if (this.inputs.get(index).name().equals(input)) {
+          return index;
+        }
+      }
+      throw new JackNodeGraphException(
+        new StringBuilder(64)
+          .append("Node ")
+          .append(this.name)
+          .append(" has no input ")
+          .append(input)
+          .toString());
+    }
+
+    int outputIndex(
+      final String output)
+      throws JackNodeGraphException
+    {
+      for (int index = 0; index < this.outputs.size(); ++index) {
+        if (this.outputs.get(index).name().equals(output)) {
+          return index;
+        }
+      }
+      throw new JackNodeGraphException(
+        new StringBuilder(64)
+          .append("Node ")
+          .append(this.name)
+          .append(" has no output ")
+          .append(output)
+          .toString());
+    }
+
+    void sourceSet(
+      final int input,
+      final Object source)
+      throws JackNodeGraphException
+    {
+      if (this.sources[input] != null) {
+        throw new JackNodeGraphException(
+          new StringBuilder(64)
+            .append("Input ")
+            .append(this.inputs.get(input).name())
+            .append(" of node ")
+            .append(this.name)
+            .append(" is already connected")
+            .toString());
+      }
+      this.sources[input] = source;
+    }
+  }
+
+  private static JackNodePortKind kindOf(
+    final JackPortType port)
+    throws JackException
+  {
+    if (port.type().isJackMIDI()) {
+      return JACK_NODE_PORT_MIDI;
+    }
+    if (port.type().frameSizeBytes() != 4) {
+      throw new JackNodeGraphException(
+        "Port " + port.name() + " does not carry 32-bit audio samples");
+    }
+    return JACK_NODE_PORT_AUDIO;
+  }
+
+  private static void checkKinds(
+    final JackNodePortKind source,
+    final JackNodePortKind target,
+    final String description)
+    throws JackNodeGraphException
+  {
+    if (source != target) {
+      throw new JackNodeGraphException(
+        new StringBuilder(64)
+          .append("Cannot connect ")
+          .append(description)
+          .append(": ")
+          .append(source)
+          .append(" is not compatible with ")
+          .append(target)
+          .toString());
+    }
+  }
+
+  private static Declared declaredOf(
+    final Map<String, Declared> declared,
+    final String name)
+    throws JackNodeGraphException
+  {
+    final Declared node = declared.get(name);
+    if (node == null) {
+      throw new JackNodeGraphException("No such node: " + name);
+    }
+    return node;
+  }
+
+  /*
+   * A compiled graph: the nodes in execution order, along with all of the
+   * buffers and contexts that they require. A schedule is immutable once
+   * published, apart from the contents of its buffers, which only the
+   * process thread touches.
+   */
+
+  private static final class Schedule
+    implements JackNodeGraphParallelJob.StepsType
+  {
+    private static final Schedule EMPTY =
+      new Schedule(
+        -1,
+        Collections.emptyList(),
+        new Step[0],
+        new AudioPortInput[0],
+        new MIDIPortInput[0],
+        new AudioPortOutput[0],
+        new MIDIPortOutput[0],
+        null,
+        Long.MAX_VALUE,
+        new int[0][]);
+
+    private final int frames;
+    private final List<String> order;
+    private final Step[] steps;
+    private final AudioPortInput[] audio_inputs;
+    private final MIDIPortInput[] midi_inputs;
+    private final AudioPortOutput[] audio_outputs;
+    private final MIDIPortOutput[] midi_outputs;
+    private final JackBufferType silence;
+    private final long period_nanos;
+    private final JackNodeGraphParallelJob job;
+
+    private Schedule(
+      final int in_frames,
+      final List<String> in_order,
+      final Step[] in_steps,
+      final AudioPortInput[] in_audio_inputs,
+      final MIDIPortInput[] in_midi_inputs,
+      final AudioPortOutput[] in_audio_outputs,
+      final MIDIPortOutput[] in_midi_outputs,
+      final JackBufferType in_silence,
+      final long in_period_nanos,
+      final int[][] in_successors)
+    {
+      this.frames = in_frames;
+      this.order = Objects.requireNonNull(in_order, "order");
+      this.steps = Objects.requireNonNull(in_steps, "steps");
+      this.audio_inputs =
+        Objects.requireNonNull(in_audio_inputs, "audio_inputs");
+      this.midi_inputs =
+        Objects.requireNonNull(in_midi_inputs, "midi_inputs");
+      this.audio_outputs =
+        Objects.requireNonNull(in_audio_outputs, "audio_outputs");
+      this.midi_outputs =
+        Objects.requireNonNull(in_midi_outputs, "midi_outputs");
+      this.silence = in_silence;
+      this.period_nanos = in_period_nanos;
+
+      final int[] predecessors = new int[in_successors.length];
+      for (final int[] successors : in_successors) {
+        for (final int successor : successors) {
+          ++predecessors[successor];
+        }
+      }
+      this.job =
+        new JackNodeGraphParallelJob(this, predecessors, in_successors);
+    }
+
+    static Schedule compile(
+      final Definition definition,
+      final int frames,
+      final int sample_rate)
+      throws JackException
+    {
+      final Map<String, Declared> declared = new LinkedHashMap<>();
+      for (final Map.Entry<String, JackNodeType> entry
+        : definition.nodes.entrySet()) {
+        declared.put(
+          entry.getKey(), new Declared(entry.getKey(), entry.getValue()));
+      }
+
+      for (final Link link : definition.links) {
+        final Declared from = declaredOf(declared, link.from_node);
+        final Declared to = declaredOf(declared, link.to_node);
+        final int output = from.outputIndex(link.from_output);
+        final int input = to.inputIndex(link.to_input);
+        checkKinds(
+          from.outputs.get(output).kind(),
+          to.inputs.get(input).kind(),
+          link.from_node + ":" + link.from_output
+            + " to " + link.to_node + ":" + link.to_input);
+        to.sourceSet(input, link);
+        from.successors.add(to);
+        ++to.predecessors;
+      }
+
+      for (final InputLink link : definition.inputs) {
+        final Declared to = declaredOf(declared, link.to_node);
+        final int input = to.inputIndex(link.to_input);
+        checkKinds(
+          kindOf(link.port),
+          to.inputs.get(input).kind(),
+          link.port.name() + " to " + link.to_node + ":" + link.to_input);
+        to.sourceSet(input, link);
+      }
+
+      final Map<JackPortType, OutputLink> port_sources = new HashMap<>();
+      for (final OutputLink link : definition.outputs) {
+        final Declared from = declaredOf(declared, link.from_node);
+        final int output = from.outputIndex(link.from_output);
+        checkKinds(
+          from.outputs.get(output).kind(),
+          kindOf(link.port),
+          link.from_node + ":" + link.from_output + " to " + link.port.name());
+        if (port_sources.containsKey(link.port)) {
+          throw new JackNodeGraphException(
+            "Port " + link.port.name() + " is already connected");
+        }
+        port_sources.put(link.port, link);
+      }
+
+      final List<Declared> sorted = sort(declared);
+      final long period_nanos;
+      if (sample_rate > 0) {
+        period_nanos = (1_000_000_000L * (long) frames) / (long) sample_rate;
+      } else {
+        period_nanos = Long.MAX_VALUE;
+      }
+      return allocate(definition, declared, sorted, frames, period_nanos);
+    }
+
+    /*
+     * Kahn's algorithm. Nodes that become ready at the same time are
+     * executed in the order in which they were added to the graph, so that
+     * the execution order is deterministic.
+     */
+
+    private static List<Declared> sort(
+      final Map<String, Declared> declared)
+      throws JackNodeGraphException
+    {
+      final ArrayDeque<Declared> ready = new ArrayDeque<>();
+      for (final Declared node : declared.values()) {
+        if (node.predecessors == 0) {
+          ready.add(node);
+        }
+      }
+
+      final List<Declared> sorted = new ArrayList<>(declared.size());
+      while (!ready.isEmpty()) {
+        final Declared node = ready.remove();
+        sorted.add(node);
+        for (final Declared successor : node.successors) {
+          --successor.predecessors;
+          if (successor.predecessors == 0) {
+            ready.add(successor);
+          }
+        }
+      }
+
+      if (sorted.size() != declared.size()) {
+        final List<String> cyclic = new ArrayList<>();
+        for (final Declared node : declared.values()) {
+          if (node.predecessors > 0) {
+            cyclic.add(node.name);
+          }
+        }
+        throw new JackNodeGraphException(
+          "Graph contains a cycle involving nodes " + cyclic);
+      }
+      return sorted;
+    }
+
+    private static Schedule allocate(
+      final Definition definition,
+      final Map<String, Declared> declared,
+      final List<Declared> sorted,
+      final int frames,
+      final long period_nanos)
+      throws JackNodeGraphException
+    {
+      final Map<String, NodeContext> contexts = new HashMap<>();
+      final Map<String, Integer> indices = new HashMap<>();
+      final List<String> order = new ArrayList<>(sorted.size());
+      final Step[] steps = new Step[sorted.size()];
+      for (int index = 0; index < steps.length; ++index) {
+        final Declared node = sorted.get(index);
+        final NodeContext context = new NodeContext(frames, node);
+        contexts.put(node.name, context);
+        indices.put(node.name, Integer.valueOf(index));
+        order.add(node.name);
+        steps[index] = new Step(node.node, context);
+      }
+
+      final int[][] successors = new int[steps.length][];
+      for (int index = 0; index < steps.length; ++index) {
+        final List<Declared> next = sorted.get(index).successors;
+        successors[index] = new int[next.size()];
+        for (int successor = 0; successor < next.size(); ++successor) {
+          successors[index][successor] =
+            indices.get(next.get(successor).name).intValue();
+        }
+      }
+
+      final Wiring wiring = new Wiring(frames);
+      for (final Declared node : sorted) {
+        wiring.wire(declared, contexts, node);
+      }
+
+      final List<AudioPortOutput> audio_outputs = new ArrayList<>();
+      final List<MIDIPortOutput> midi_outputs = new ArrayList<>();
+      for (final OutputLink link : definition.outputs) {
+        final NodeContext from = contexts.get(link.from_node);
+        final int output = from.declared.outputIndex(link.from_output);
+        if (from.audio_out[output] != null) {
+          audio_outputs.add(
+            new AudioPortOutput(link.port, from.audio_out[output]));
+        } else {
+          midi_outputs.add(
+            new MIDIPortOutput(link.port, from.midi_out[output]));
+        }
+      }
+
+      return new Schedule(
+        frames,
+        Collections.unmodifiableList(order),
+        steps,
+        wiring.audioInputs(),
+        wiring.midiInputs(),
+        audio_outputs.toArray(new AudioPortOutput[0]),
+        midi_outputs.toArray(new MIDIPortOutput[0]),
+        wiring.silence,
+        period_nanos,
+        successors);
+    }
+
+    @Override
+    public void stepExecute(
+      final int index)
+      throws Exception
+    {
+      final Step step = this.steps[index];
+      step.context.clearMIDIOutputs();
+      step.node.process(step.context);
+    }
+
+    void execute(
+      final JackClientProcessCallbackContextType context,
+      final JackNodeGraphWorkers workers)
+      throws Exception
+    {
+      for (int index = 0; index < this.audio_inputs.length; ++index) {
+        final AudioPortInput input = this.audio_inputs[index];
+        final JackBufferType buffer = context.portBuffer(input.port);
+        for (int target = 0; target < input.contexts.length; ++target) {
+          input.contexts[target].audio_in[input.indices[target]] = buffer;
+        }
+      }
+
+      for (int index = 0; index < this.midi_inputs.length; ++index) {
+        final MIDIPortInput input = this.midi_inputs[index];
+        input.buffer.copyFrom(context.portBufferMIDI(input.port));
+      }
+
+      if (this.silence != null) {
+        JackBufferOperations.clear(this.silence);
+      }
+
+      if (workers != null && this.steps.length > 1) {
+        workers.execute(this.job, this.period_nanos);
+      } else {
+        for (int index = 0; index < this.steps.length; ++index) {
+          this.stepExecute(index);
+        }
+      }
+
+      for (int index = 0; index < this.audio_outputs.length; ++index) {
+        final AudioPortOutput output = this.audio_outputs[index];
+        JackBufferOperations.copy(
+          context.portBuffer(output.port), output.source);
+      }
+
+      for (int index = 0; index < this.midi_outputs.length; ++index) {
+        final MIDIPortOutput output = this.midi_outputs[index];
+        output.source.copyTo(context.portBufferMIDIWritable(output.port));
+      }
+    }
+
+    void silence(
+      final JackClientProcessCallbackContextType context)
+      throws JackException
+    {
+      for (int index = 0; index < this.audio_outputs.length; ++index) {
+        JackBufferOperations.clear(
+          context.portBuffer(this.audio_outputs[index].port));
+      }
+      for (int index = 0; index < this.midi_outputs.length; ++index) {
+        context.portBufferMIDIWritable(this.midi_outputs[index].port).clear();
+      }
+    }
+  }
+
+  /*
+   * The resolution of the sources of node inputs to buffers.
+   */
+
+  private static final class Wiring
+  {
+    private final int frames;
+    private final Map<JackPortType, List<NodeContext>> audio_port_contexts;
+    private final Map<JackPortType, List<Integer>> audio_port_indices;
+    private final Map<JackPortType, JackNodeMIDIBuffer> midi_port_buffers;
+    private JackBufferType silence;
+    private JackNodeMIDIBuffer empty;
+
+    Wiring(
+      final int in_frames)
+    {
+      this.frames = in_frames;
+      this.audio_port_contexts = new LinkedHashMap<>();
+      this.audio_port_indices = new HashMap<>();
+      this.midi_port_buffers = new LinkedHashMap<>();
+    }
+
+    void wire(
+      final Map<String, Declared> declared,
+      final Map<String, NodeContext> contexts,
+      final Declared node)
+      throws JackNodeGraphException
+    {
+      final NodeContext context = contexts.get(node.name);
+      for (int input = 0; input < node.sources.length; ++input) {
+        final Object source = node.sources[input];
+        final JackNodePortKind kind = node.inputs.get(input).kind();
+
+        if (source instanceof Link) {
+          final Link link = (Link) source;
+          final NodeContext from = contexts.get(link.from_node);
+          final int output =
+            declared.get(link.from_node).outputIndex(link.from_output);
+          if (kind == JACK_NODE_PORT_AUDIO) {
+            context.audio_in[input] = from.audio_out[output];
+          } else {
+            context.midi_in[input] = from.midi_out[output].reader();
+          }
+        } else if (source instanceof InputLink) {
+          this.wirePort(((InputLink) source).port, context, input, kind);
+        } else {
+          this.wireNothing(context, input, kind);
+        }
+      }
+    }
+
+    private void wirePort(
+      final JackPortType port,
+      final NodeContext context,
+      final int input,
+      final JackNodePortKind kind)
+    {
+      if (kind == JACK_NODE_PORT_AUDIO) {
+        this.audio_port_contexts
+          .computeIfAbsent(port, p -> new ArrayList<>())
+          .add(context);
+        this.audio_port_indices
+          .computeIfAbsent(port, p -> new ArrayList<>())
+          .add(Integer.valueOf(input));
+      } else {
+        context.midi_in[input] =
+          this.midi_port_buffers
+            .computeIfAbsent(port, p -> new JackNodeMIDIBuffer(this.frames))
+            .reader();
+      }
+    }
+
+    private void wireNothing(
+      final NodeContext context,
+      final int input,
+      final JackNodePortKind kind)
+    {
+      if (kind == JACK_NODE_PORT_AUDIO) {
+        if (this.silence == null) {
+          this.silence = audioBuffer(this.frames);
+        }
+        context.audio_in[input] = this.silence;
+      } else {
+        if (this.empty == null) {
+          this.empty = new JackNodeMIDIBuffer(this.frames);
+        }
+        context.midi_in[input] = this.empty.reader();
+      }
+    }
+
+    AudioPortInput[] audioInputs()
+    {
+      final List<AudioPortInput> inputs = new ArrayList<>();
+      for (final Map.Entry<JackPortType, List<NodeContext>> entry
+        : this.audio_port_contexts.entrySet()) {
+        final List<Integer> indices =
+          this.audio_port_indices.get(entry.getKey());
+        final int[] index_array = new int[indices.size()];
+        for (int index = 0; index < index_array.length; ++index) {
+          index_array[index] = indices.get(index).intValue();
+        }
+        inputs.add(
+          new AudioPortInput(
+            entry.getKey(),
+            entry.getValue().toArray(new NodeContext[0]),
+            index_array));
+      }
+      return inputs.toArray(new AudioPortInput[0]);
+    }
+
+    MIDIPortInput[] midiInputs()
+    {
+      final List<MIDIPortInput> inputs = new ArrayList<>();
+      for (final Map.Entry<JackPortType, JackNodeMIDIBuffer> entry
+        : this.midi_port_buffers.entrySet()) {
+        inputs.add(new MIDIPortInput(entry.getKey(), entry.getValue()));
+      }
+      return inputs.toArray(new MIDIPortInput[0]);
+    }
+  }
+
+  private static JackBufferType audioBuffer(
+    final int frames)
+  {
+    return new JackNIOBuffer(
+      ByteBuffer.allocateDirect(Math.multiplyExact(frames, 4)), 4);
+  }
+
+  private static final class Step
+  {
+    private final JackNodeType node;
+    private final NodeContext context;
+
+    Step(
+      final JackNodeType in_node,
+      final NodeContext in_context)
+    {
+      this.node = Objects.requireNonNull(in_node, "node");
+      this.context = Objects.requireNonNull(in_context, "context");
+    }
+  }
+
+  private static final class AudioPortInput
+  {
+    private final JackPortType port;
+    private final NodeContext[] contexts;
+    private final int[] indices;
+
+    AudioPortInput(
+      final JackPortType in_port,
+      final NodeContext[] in_contexts,
+      final int[] in_indices)
+    {
+      this.port = Objects.requireNonNull(in_port, "port");
+      this.contexts = Objects.requireNonNull(in_contexts, "contexts");
+      this.indices = Objects.requireNonNull(in_indices, "indices");
+    }
+  }
+
+  private static final class MIDIPortInput
+  {
+    private final JackPortType port;
+    private final JackNodeMIDIBuffer buffer;
+
+    MIDIPortInput(
+      final JackPortType in_port,
+      final JackNodeMIDIBuffer in_buffer)
+    {
+      this.port = Objects.requireNonNull(in_port, "port");
+      this.buffer = Objects.requireNonNull(in_buffer, "buffer");
+    }
+  }
+
+  private static final class AudioPortOutput
+  {
+    private final JackPortType port;
+    private final JackBufferType source;
+
+    AudioPortOutput(
+      final JackPortType in_port,
+      final JackBufferType in_source)
+    {
+      this.port = Objects.requireNonNull(in_port, "port");
+      this.source = Objects.requireNonNull(in_source, "source");
+    }
+  }
+
+  private static final class MIDIPortOutput
+  {
+    private final JackPortType port;
+    private final JackNodeMIDIBuffer source;
+
+    MIDIPortOutput(
+      final JackPortType in_port,
+      final JackNodeMIDIBuffer in_source)
+    {
+      this.port = Objects.requireNonNull(in_port, "port");
+      this.source = Objects.requireNonNull(in_source, "source");
+    }
+  }
+
+  private static final class NodeContext implements JackNodeContextType
+  {
+    private final int frames;
+    private final Declared declared;
+    private final JackBufferType[] audio_in;
+    private final JackNodeMIDIBuffer.Reader[] midi_in;
+    private final JackBufferType[] audio_out;
+    private final JackNodeMIDIBuffer[] midi_out;
+
+    NodeContext(
+      final int in_frames,
+      final Declared in_declared)
+    {
+      this.frames = in_frames;
+      this.declared = Objects.requireNonNull(in_declared, "declared");
+      this.audio_in = new JackBufferType[in_declared.inputs.size()];
+      this.midi_in = new JackNodeMIDIBuffer.Reader[in_declared.inputs.size()];
+      this.audio_out = new JackBufferType[in_declared.outputs.size()];
+      this.midi_out = new JackNodeMIDIBuffer[in_declared.outputs.size()];
+
+      for (int index = 0; index < this.audio_out.length; ++index) {
+        switch (in_declared.outputs.get(index).kind()) {
+          case JACK_NODE_PORT_AUDIO:
+            this.audio_out[index] = audioBuffer(in_frames);
+            break;
+          case JACK_NODE_PORT_MIDI:
+            this.midi_out[index] = new JackNodeMIDIBuffer(in_frames);
+            break;
+        }
+      }
+    }
+
+    private static JackNodeGraphException wrongKind(
+      final String direction,
+      final int index,
+      final JackNodePortKind kind)
+    {
+      return new JackNodeGraphException(
+        new StringBuilder(64)
+          .append(direction)
+          .append(" ")
+          .append(index)
+          .append(" is not of kind ")
+          .append(kind)
+          .toString());
+    }
+
+    void clearMIDIOutputs()
+    {
+      for (int index = 0; index < this.midi_out.length; ++index) {
+        final JackNodeMIDIBuffer buffer = this.midi_out[index];
+        if (buffer != null) {
+          buffer.clear();
+        }
+      }
+    }
+
+    @Override
+    public int frameCount()
+    {
+      return this.frames;
+    }
+
+    @Override
+    public JackBufferType input(
+      final int index)
+      throws JackException
+    {
+      if (index < 0 || index >= this.audio_in.length
+        || this.audio_in[index] == null) {
+        throw wrongKind("Input", index, JACK_NODE_PORT_AUDIO);
+      }
+      return this.audio_in[index];
+    }
+
+    @Override
+    public JackBufferMIDIType inputMIDI(
+      final int index)
+      throws JackException
+    {
+      if (index < 0 || index >= this.midi_in.length
+        || this.midi_in[index] == null) {
+        throw wrongKind("Input", index, JACK_NODE_PORT_MIDI);
+      }
+      return this.midi_in[index];
+    }
+
+    @Override
+    public JackBufferType output(
+      final int index)
+      throws JackException
+    {
+      if (index < 0 || index >= this.audio_out.length
+        || this.audio_out[index] == null) {
+        throw wrongKind("Output", index, JACK_NODE_PORT_AUDIO);
+      }
+      return this.audio_out[index];
+    }
+
+    @Override
+    public JackBufferMIDIWritableType outputMIDI(
+      final int index)
+      throws JackException
+    {
+      if (index < 0 || index >= this.midi_out.length
+        || this.midi_out[index] == null) {
+        throw wrongKind("Output", index, JACK_NODE_PORT_MIDI);
+      }
+      return this.midi_out[index];
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * <p>A set of changes to a {@link JackNodeGraph}.</p>
+ *
+ * <p>An edit begins as a copy of the graph at the time that
+ * {@link JackNodeGraph#edit()} was called. Changes are not visible to the
+ * process callback until {@link #commit()} is called, at which point the
+ * whole edit is validated and, if valid, published atomically. Edits are
+ * not thread-safe.</p>
+ */
+
+public interface JackNodeGraphEditType
+{
+  /**
+   * Add a node.
+   *
+   * @param name The unique name of the node
+   * @param node The node
+   *
+   * @return This edit
+   *
+   * @throws JackNodeGraphException If a node already exists with the name
+   */
+
+  JackNodeGraphEditType nodeAdd(
+    String name,
+    JackNodeType node)
+    throws JackNodeGraphException;
+
+  /**
+   * Remove a node, along with all connections to and from it. The method has
+   * no effect if no node exists with the given name.
+   *
+   * @param name The name of the node
+   *
+   * @return This edit
+   */
+
+  JackNodeGraphEditType nodeRemove(
+    String name);
+
+  /**
+   * Connect an output of one node to an input of another.
+   *
+   * @param from_node   The source node
+   * @param from_output The name of the output of the source node
+   * @param to_node     The target node
+   * @param to_input    The name of the input of the target node
+   *
+   * @return This edit
+   */
+
+  JackNodeGraphEditType connect(
+    String from_node,
+    String from_output,
+    String to_node,
+    String to_input);
+
+  /**
+   * Remove a connection made with
+   * {@link #connect(String, String, String, String)}.
+   *
+   * @param from_node   The source node
+   * @param from_output The name of the output of the source node
+   * @param to_node     The target node
+   * @param to_input    The name of the input of the target node
+   *
+   * @return This edit
+   */
+
+  JackNodeGraphEditType disconnect(
+    String from_node,
+    String from_output,
+    String to_node,
+    String to_input);
+
+  /**
+   * Feed an input of a node from an input port of the client.
+   *
+   * @param port     The input port
+   * @param to_node  The target node
+   * @param to_input The name of the input of the target node
+   *
+   * @return This edit
+   */
+
+  JackNodeGraphEditType connectInput(
+    JackPortType port,
+    String to_node,
+    String to_input);
+
+  /**
+   * Remove a connection made with
+   * {@link #connectInput(JackPortType, String, String)}.
+   *
+   * @param port     The input port
+   * @param to_node  The target node
+   * @param to_input The name of the input of the target node
+   *
+   * @return This edit
+   */
+
+  JackNodeGraphEditType disconnectInput(
+    JackPortType port,
+    String to_node,
+    String to_input);
+
+  /**
+   * Write an output of a node to an output port of the client.
+   *
+   * @param from_node   The source node
+   * @param from_output The name of the output of the source node
+   * @param port        The output port
+   *
+   * @return This edit
+   */
+
+  JackNodeGraphEditType connectOutput(
+    String from_node,
+    String from_output,
+    JackPortType port);
+
+  /**
+   * Remove a connection made with
+   * {@link #connectOutput(String, String, JackPortType)}.
+   *
+   * @param from_node   The source node
+   * @param from_output The name of the output of the source node
+   * @param port        The output port
+   *
+   * @return This edit
+   */
+
+  JackNodeGraphEditType disconnectOutput(
+    String from_node,
+    String from_output,
+    JackPortType port);
+
+  /**
+   * Validate the edit and publish it to the process callback. The graph is
+   * sorted topologically and all intermediate buffers are allocated here,
+   * for the current buffer size of the client.
+   *
+   * @throws JackException On errors, such as a {@link JackNodeGraphException}
+   *                       if the edited graph is invalid
+   */
+
+  void commit()
+    throws JackException;
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>The per-cycle state required to execute the nodes of a compiled graph
+ * on several threads at once.</p>
+ *
+ * <p>Each node has a count of unfinished predecessors. Nodes whose count
+ * reaches zero are appended to a ready list, and any participating thread
+ * may claim the next node from the list. Claims are made against a head
+ * index tagged with the cycle number, so a thread that is late in noticing
+ * that a cycle has finished cannot claim a node of the following cycle.
+ * All storage is allocated when the graph is compiled.</p>
+ */
+
+final class JackNodeGraphParallelJob
+{
+  private static final long INDEX_MASK = 0xffff_ffffL;
+
+  private final StepsType steps;
+  private final int count;
+  private final int[] predecessors;
+  private final int[][] successors;
+  private final int[] roots;
+  private final AtomicIntegerArray remaining;
+  private final AtomicIntegerArray ready;
+  private final AtomicInteger tail;
+  private final AtomicLong head;
+  private final AtomicInteger completed;
+  private final AtomicReference<Exception> failure;
+
+  JackNodeGraphParallelJob(
+    final StepsType in_steps,
+    final int[] in_predecessors,
+    final int[][] in_successors)
+  {
+    this.steps = Objects.requireNonNull(in_steps, "steps");
+    this.predecessors =
+      Objects.requireNonNull(in_predecessors, "predecessors");
+    this.successors = Objects.requireNonNull(in_successors, "successors");
+    this.count = in_predecessors.length;
+
+    int root_count = 0;
+    for (int index = 0; index < this.count; ++index) {
+      if (in_predecessors[index] == 0) {
+        ++root_count;
+      }
+    }
+    this.roots = new int[root_count];
+    int root = 0;
+    for (int index = 0; index < this.count; ++index) {
+      if (in_predecessors[index] == 0) {
+        this.roots[root] = index;
+        ++root;
+      }
+    }
+
+    this.remaining = new AtomicIntegerArray(this.count);
+    this.ready = new AtomicIntegerArray(this.count);
+    this.tail = new AtomicInteger(0);
+    this.head = new AtomicLong(0L);
+    this.completed = new AtomicInteger(this.count);
+    this.failure = new AtomicReference<>();
+  }
+
+  /**
+   * The steps of a graph, executed by index.
+   */
+
+  interface StepsType
+  {
+    /**
+     * Execute the step with the given index.
+     *
+     * @param index The step index
+     *
+     * @throws Exception On errors
+     */
+
+    void stepExecute(
+      int index)
+      throws Exception;
+  }
+
+  /**
+   * Prepare the job for a new cycle. This must only be called by the
+   * process thread, and only when no other thread can be executing steps of
+   * the previous cycle.
+   *
+   * @param cycle The cycle number
+   */
+
+  void reset(
+    final long cycle)
+  {
+    this.failure.set(null);
+    this.completed.set(0);
+    this.tail.set(0);
+    for (int index = 0; index < this.count; ++index) {
+      this.remaining.set(index, this.predecessors[index]);
+      this.ready.set(index, -1);
+    }
+    this.head.set((cycle & INDEX_MASK) << 32);
+    for (int index = 0; index < this.roots.length; ++index) {
+      this.push(this.roots[index]);
+    }
+  }
+
+  private void push(
+    final int step)
+  {
+    this.ready.set(this.tail.getAndIncrement(), step);
+  }
+
+  /**
+   * Attempt to claim and execute a single ready step.
+   *
+   * @param cycle The cycle number
+   *
+   * @return {@code false} if no step was ready, or if the cycle is over
+   */
+
+  boolean runOne(
+    final long cycle)
+  {
+    final long tag = (cycle & INDEX_MASK) << 32;
+    while (true) {
+      final long current = this.head.get();
+      if ((current & ~INDEX_MASK) != tag) {
+        return false;
+      }
+
+      final int slot = (int) (current & INDEX_MASK);
+      if (slot >= this.tail.get()) {
+        return false;
+      }
+
+      if (this.head.compareAndSet(current, current + 1L)) {
+        int step = this.ready.get(slot);
+        while (step == -1) {
+          Thread.onSpinWait();
+          step = this.ready.get(slot);
+        }
+        this.execute(step);
+        return true;
+      }
+    }
+  }
+
+  private void execute(
+    final int step)
+  {
+    try {
+      this.steps.stepExecute(step);
+    } catch (final Exception e) {
+      this.failure.compareAndSet(null, e);
+    }
+
+    final int[] next = this.successors[step];
+    for (int index = 0; index < next.length; ++index) {
+      if (this.remaining.decrementAndGet(next[index]) == 0) {
+        this.push(next[index]);
+      }
+    }
+    this.completed.incrementAndGet();
+  }
+
+  /**
+   * @return {@code true} if every step of the current cycle has finished
+   */
+
+  boolean isComplete()
+  {
+    return this.completed.get() == this.count;
+  }
+
+  /**
+   * @return The first exception raised by a step in the current cycle, if
+   * any
+   */
+
+  Exception failure()
+  {
+    return this.failure.get();
+  }
+}
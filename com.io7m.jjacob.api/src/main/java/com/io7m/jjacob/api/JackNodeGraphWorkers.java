@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A fixed set of worker threads that execute independent nodes of a
+ * {@link JackNodeGraph} in parallel within a single process cycle.</p>
+ *
+ * <p>On each cycle, the process thread publishes the cycle to the workers
+ * and then executes nodes itself alongside them, returning only when every
+ * node has finished. Workers spin for a short time after each cycle so that
+ * they are awake for the next one, and then park. The process thread never
+ * waits for a worker to wake up: any node that no worker has claimed is
+ * executed by the process thread. The only time the process thread waits is
+ * for nodes that workers have already started, so the time spent waiting is
+ * bounded by the execution time of a single node. Cycles that nevertheless
+ * exceed the period are counted in {@link #overrunCount()}.</p>
+ *
+ * <p>A set of workers may be used by at most one graph. The number of
+ * workers should be smaller than the number of available processors, as
+ * spinning workers otherwise compete with the process thread for time.</p>
+ */
+
+public final class JackNodeGraphWorkers implements AutoCloseable
+{
+  private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200L);
+  private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+
+  private final Worker[] workers;
+  private final AtomicBoolean claimed;
+  private final AtomicLong overruns;
+  private volatile JackNodeGraphParallelJob job;
+  private volatile long cycle;
+  private volatile boolean closed;
+
+  private JackNodeGraphWorkers(
+    final int count,
+    final ThreadFactory factory)
+  {
+    this.claimed = new AtomicBoolean(false);
+    this.overruns = new AtomicLong(0L);
+    this.cycle = 0L;
+    this.closed = false;
+
+    this.workers = new Worker[count];
+    for (int index = 0; index < count; ++index) {
+      final Worker worker = new Worker(this);
+      worker.thread = factory.newThread(worker);
+      this.workers[index] = worker;
+    }
+    for (int index = 0; index < count; ++index) {
+      this.workers[index].thread.start();
+    }
+  }
+
+  /**
+   * Create a set of workers using daemon threads.
+   *
+   * @param count The number of worker threads
+   *
+   * @return A set of workers
+   */
+
+  public static JackNodeGraphWorkers create(
+    final int count)
+  {
+    final AtomicLong ids = new AtomicLong(0L);
+    return create(count, runnable -> {
+      final Thread thread = new Thread(runnable);
+      thread.setName(
+        "com.io7m.jjacob.node-worker[" + ids.getAndIncrement() + "]");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Create a set of workers using threads produced by the given factory.
+   * The factory may, for example, produce threads with raised priorities.
+   *
+   * @param count   The number of worker threads
+   * @param factory A thread factory
+   *
+   * @return A set of workers
+   */
+
+  public static JackNodeGraphWorkers create(
+    final int count,
+    final ThreadFactory factory)
+  {
+    Objects.requireNonNull(factory, "factory");
+
+    if (count < 1) {
+      throw new IllegalArgumentException(
+        "Worker count must be positive (received " + count + ")");
+    }
+    return new JackNodeGraphWorkers(count, factory);
+  }
+
+  /**
+   * @return The number of worker threads
+   */
+
+  public int count()
+  {
+    return this.workers.length;
+  }
+
+  /**
+   * @return The number of cycles in which executing the graph took longer
+   * than the period
+   */
+
+  public long overrunCount()
+  {
+    return this.overruns.get();
+  }
+
+  void claim()
+  {
+    if (!this.claimed.compareAndSet(false, true)) {
+      throw new IllegalStateException(
+        "These workers are already in use by another graph");
+    }
+  }
+
+  /**
+   * Execute a job for a single cycle. Called only by the process thread.
+   *
+   * @param in_job       The job
+   * @param period_nanos The duration of the period
+   *
+   * @throws Exception If any step of the job raised an exception
+   */
+
+  void execute(
+    final JackNodeGraphParallelJob in_job,
+    final long period_nanos)
+    throws Exception
+  {
+    final long time_then = System.nanoTime();
+    final long next = this.cycle + 1L;
+
+    in_job.reset(next);
+    this.job = in_job;
+    this.cycle = next;
+
+    for (int index = 0; index < this.workers.length; ++index) {
+      final Worker worker = this.workers[index];
+      if (worker.parked) {
+        LockSupport.unpark(worker.thread);
+      }
+    }
+
+    while (!in_job.isComplete()) {
+      if (!in_job.runOne(next)) {
+        Thread.onSpinWait();
+      }
+    }
+
+    if (System.nanoTime() - time_then > period_nanos) {
+      this.overruns.incrementAndGet();
+    }
+
+    final Exception failure = in_job.failure();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Stop all worker threads and wait for them to exit.
+   *
+   * @throws InterruptedException If interrupted whilst waiting
+   */
+
+  @Override
+  public void close()
+    throws InterruptedException
+  {
+    this.closed = true;
+    for (final Worker worker : this.workers) {
+      LockSupport.unpark(worker.thread);
+    }
+    for (final Worker worker : this.workers) {
+      worker.thread.join();
+    }
+  }
+
+  private static final class Worker implements Runnable
+  {
+    private final JackNodeGraphWorkers owner;
+    private volatile boolean parked;
+    private Thread thread;
+
+    Worker(
+      final JackNodeGraphWorkers in_owner)
+    {
+      this.owner = Objects.requireNonNull(in_owner, "owner");
+      this.parked = false;
+    }
+
+    @Override
+    public void run()
+    {
+      long seen = 0L;
+      long idle_since = System.nanoTime();
+
+      while (!this.owner.closed) {
+        final long current = this.owner.cycle;
+        if (current != seen) {
+          seen = current;
+          final JackNodeGraphParallelJob current_job = this.owner.job;
+          while (!current_job.isComplete() && this.owner.cycle == current) {
+            if (!current_job.runOne(current)) {
+              Thread.onSpinWait();
+            }
+          }
+          idle_since = System.nanoTime();
+          continue;
+        }
+
+        if (System.nanoTime() - idle_since < SPIN_NANOS) {
+          Thread.onSpinWait();
+          continue;
+        }
+
+        this.parked = true;
+        if (this.owner.cycle == seen && !this.owner.closed) {
+          LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        this.parked = false;
+        idle_since = System.nanoTime();
+      }
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * <p>A MIDI buffer used to carry events between nodes of a
+ * {@link JackNodeGraph}.</p>
+ *
+ * <p>Event data is held in a preallocated direct buffer, and event offsets,
+ * times and sizes are held in preallocated arrays, so neither writing nor
+ * reading events allocates. The buffer is written by a single node and may
+ * be read by any number of nodes; each reader has its own cursor, obtained
+ * with {@link #reader()} when the graph is compiled.</p>
+ */
+
+final class JackNodeMIDIBuffer implements JackBufferMIDIWritableType
+{
+  private static final int CAPACITY_BYTES = 8192;
+  private static final int CAPACITY_EVENTS = 1024;
+
+  private final ByteBuffer data;
+  private final int[] event_offsets;
+  private final int[] event_frames;
+  private final int[] event_sizes;
+  private final byte[] scratch;
+  private final int frames;
+  private int event_count;
+  private int event_lost;
+  private int used;
+
+  JackNodeMIDIBuffer(
+    final int in_frames)
+  {
+    this.frames = in_frames;
+    this.data = ByteBuffer.allocateDirect(CAPACITY_BYTES);
+    this.event_offsets = new int[CAPACITY_EVENTS];
+    this.event_frames = new int[CAPACITY_EVENTS];
+    this.event_sizes = new int[CAPACITY_EVENTS];
+    this.scratch = new byte[CAPACITY_BYTES];
+  }
+
+  /**
+   * @return A new reader for the buffer
+   */
+
+  Reader reader()
+  {
+    return new Reader(this);
+  }
+
+  /**
+   * Replace the contents of this buffer with the events of {@code source}.
+   *
+   * @param source The source buffer
+   *
+   * @throws JackException On errors
+   */
+
+  void copyFrom(
+    final JackBufferMIDIType source)
+    throws JackException
+  {
+    this.clear();
+
+    final JackBufferMIDIEventCursorType cursor = source.events();
+    while (cursor.next()) {
+      final int size = cursor.size();
+      if (size > this.scratch.length) {
+        ++this.event_lost;
+        continue;
+      }
+      cursor.getArrayB(0, this.scratch, 0, size);
+      this.append(cursor.frameOffset(), this.scratch, 0, size);
+    }
+    this.event_lost += source.eventLostCount();
+  }
+
+  /**
+   * Replace the contents of {@code target} with the events of this buffer.
+   *
+   * @param target The target buffer
+   *
+   * @throws JackException On errors
+   */
+
+  void copyTo(
+    final JackBufferMIDIWritableType target)
+    throws JackException
+  {
+    target.clear();
+
+    for (int index = 0; index < this.event_count; ++index) {
+      final int offset = this.event_offsets[index];
+      final int size = this.event_sizes[index];
+      for (int byte_index = 0; byte_index < size; ++byte_index) {
+        this.scratch[byte_index] = this.data.get(offset + byte_index);
+      }
+      target.writeArray(this.event_frames[index], this.scratch, 0, size);
+    }
+  }
+
+  private boolean append(
+    final int frame_offset,
+    final byte[] values,
+    final int offset,
+    final int length)
+  {
+    if (this.event_count == CAPACITY_EVENTS
+      || length > CAPACITY_BYTES - this.used) {
+      ++this.event_lost;
+      return false;
+    }
+
+    final int base = this.used;
+    for (int index = 0; index < length; ++index) {
+      this.data.put(base + index, values[offset + index]);
+    }
+
+    this.event_offsets[this.event_count] = base;
+    this.event_frames[this.event_count] = frame_offset;
+    this.event_sizes[this.event_count] = length;
+    ++this.event_count;
+    this.used += length;
+    return true;
+  }
+
+  private void checkTime(
+    final int frame_offset)
+    throws JackBufferMIDIException
+  {
+    if (frame_offset < 0 || frame_offset >= this.frames) {
+      throw new JackBufferMIDIException(
+        "Event time is outside of the current cycle");
+    }
+    if (this.event_count > 0
+      && frame_offset < this.event_frames[this.event_count - 1]) {
+      throw new JackBufferMIDIException(
+        "Events must be written in time order");
+    }
+  }
+
+  private void writeChecked(
+    final int frame_offset,
+    final int length)
+    throws JackBufferMIDIException
+  {
+    this.checkTime(frame_offset);
+    if (!this.append(frame_offset, this.scratch, 0, length)) {
+      throw new JackBufferMIDIException("Could not write MIDI event");
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    this.event_count = 0;
+    this.event_lost = 0;
+    this.used = 0;
+  }
+
+  @Override
+  public void write1(
+    final int frame_offset,
+    final int b0)
+    throws JackException
+  {
+    this.scratch[0] = (byte) (b0 & 0xff);
+    this.writeChecked(frame_offset, 1);
+  }
+
+  @Override
+  public void write2(
+    final int frame_offset,
+    final int b0,
+    final int b1)
+    throws JackException
+  {
+    this.scratch[0] = (byte) (b0 & 0xff);
+    this.scratch[1] = (byte) (b1 & 0xff);
+    this.writeChecked(frame_offset, 2);
+  }
+
+  @Override
+  public void write3(
+    final int frame_offset,
+    final int b0,
+    final int b1,
+    final int b2)
+    throws JackException
+  {
+    this.scratch[0] = (byte) (b0 & 0xff);
+    this.scratch[1] = (byte) (b1 & 0xff);
+    this.scratch[2] = (byte) (b2 & 0xff);
+    this.writeChecked(frame_offset, 3);
+  }
+
+  @Override
+  public void writeArray(
+    final int frame_offset,
+    final byte[] values,
+    final int offset,
+    final int length)
+    throws JackException
+  {
+    Objects.requireNonNull(values, "values");
+
+    if (offset < 0 || length < 0 || offset > values.length - length) {
+      throw new ArrayIndexOutOfBoundsException(offset);
+    }
+
+    this.checkTime(frame_offset);
+    if (!this.append(frame_offset, values, offset, length)) {
+      throw new JackBufferMIDIException("Could not write MIDI event");
+    }
+  }
+
+  /**
+   * A reader of the events in a buffer. The reader is its own cursor.
+   */
+
+  static final class Reader
+    implements JackBufferMIDIType, JackBufferMIDIEventCursorType
+  {
+    private final JackNodeMIDIBuffer buffer;
+    private int index;
+
+    Reader(
+      final JackNodeMIDIBuffer in_buffer)
+    {
+      this.buffer = Objects.requireNonNull(in_buffer, "buffer");
+      this.index = -1;
+    }
+
+    @Override
+    public int eventCount()
+    {
+      return this.buffer.event_count;
+    }
+
+    @Override
+    public int eventLostCount()
+    {
+      return this.buffer.event_lost;
+    }
+
+    @Override
+    public JackBufferMIDIEventCursorType events()
+    {
+      this.index = -1;
+      return this;
+    }
+
+    @Override
+    public boolean next()
+    {
+      if (this.index + 1 < this.buffer.event_count) {
+        ++this.index;
+        return true;
+      }
+      this.index = this.buffer.event_count;
+      return false;
+    }
+
+    @Override
+    public int index()
+    {
+      return this.index;
+    }
+
+    @Override
+    public int frameOffset()
+    {
+      return this.buffer.event_frames[this.index];
+    }
+
+    @Override
+    public int size()
+    {
+      return this.buffer.event_sizes[this.index];
+    }
+
+    @Override
+    public int getB(
+      final int offset)
+    {
+      final int size = this.size();
+      if (offset < 0 || offset >= size) {
+        throw new ArrayIndexOutOfBoundsException(offset);
+      }
+      final int base = this.buffer.event_offsets[this.index];
+      return (int) this.buffer.data.get(base + offset) & 0xff;
+    }
+
+    @Override
+    public void getArrayB(
+      final int offset,
+      final byte[] values,
+      final int array_offset,
+      final int length)
+    {
+      Objects.requireNonNull(values, "values");
+
+      final int size = this.size();
+      if (offset < 0 || length < 0 || offset > size - length) {
+        throw new ArrayIndexOutOfBoundsException(offset);
+      }
+      if (array_offset < 0 || array_offset > values.length - length) {
+        throw new ArrayIndexOutOfBoundsException(array_offset);
+      }
+
+      final int base = this.buffer.event_offsets[this.index] + offset;
+      for (int byte_index = 0; byte_index < length; ++byte_index) {
+        values[array_offset + byte_index] =
+          this.buffer.data.get(base + byte_index);
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.util.List;
+
+/**
+ * <p>A processing node in a {@link JackNodeGraph}.</p>
+ *
+ * <p>A node declares a fixed list of inputs and outputs. The declarations
+ * are read once each time the graph is committed, and inputs and outputs
+ * are subsequently referred to by their index in the declared lists.</p>
+ */
+
+public interface JackNodeType
+{
+  /**
+   * @return The inputs of the node
+   */
+
+  List<JackNodePortDeclaration> inputs();
+
+  /**
+   * @return The outputs of the node
+   */
+
+  List<JackNodePortDeclaration> outputs();
+
+  /**
+   * Process a single cycle. The method is called on the real-time process
+   * thread and is subject to the same restrictions as
+   * {@link JackClientProcessCallbackType#onProcess(JackClientProcessCallbackContextType)}.
+   * The node is expected to write every frame of each of its audio outputs;
+   * MIDI outputs are cleared before the method is called.
+   *
+   * @param context The node context
+   *
+   * @throws Exception On errors
+   */
+
+  void process(
+    JackNodeContextType context)
+    throws Exception;
+}
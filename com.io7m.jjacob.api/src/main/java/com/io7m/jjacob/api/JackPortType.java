@@ -36,6 +36,20 @@ public interface JackPortType
 
   JackClientType connection();
 
+  /**
+   * Retrieve the handle of the port. Each port registered by a client is
+   * assigned a small non-negative integer handle at registration time that
+   * remains valid for as long as the client is open, and that can be used to
+   * access the port's buffer with
+   * {@link JackClientProcessCallbackContextType#portBuffer(int)} and related
+   * methods. Ports that were not registered by the client have the handle
+   * {@code -1}.
+   *
+   * @return The handle of the port
+   */
+
+  int handle();
+
   /**
    * @return The short name of the port
    *
@@ -85,6 +99,32 @@ public interface JackPortType
   Set<JackPortFlag> flags()
     throws JackException;
 
+  /**
+   * The capture latency of the port: the range of time, in frames, taken
+   * for data that arrived at the system's capture ports to reach this port.
+   *
+   * @return The capture latency of the port
+   *
+   * @throws JackException On errors
+   * @see "jack_port_get_latency_range"
+   */
+
+  JackLatencyRange latencyCapture()
+    throws JackException;
+
+  /**
+   * The playback latency of the port: the range of time, in frames, taken
+   * for data written to this port to reach the system's playback ports.
+   *
+   * @return The playback latency of the port
+   *
+   * @throws JackException On errors
+   * @see "jack_port_get_latency_range"
+   */
+
+  JackLatencyRange latencyPlayback()
+    throws JackException;
+
   /**
    * @param client The target client
    *
@@ -26,12 +26,18 @@ import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.component.annotations.ReferencePolicyOption;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
  * The default port typeName registry implementation.
+ *
+ * Lookups are made against an immutable index of types by name, which is
+ * rebuilt whenever a provider is added or removed. Lookups therefore take
+ * no locks and do not race with providers arriving and departing.
  */
 
 @Component(service = JackClientPortTypeRegistryType.class)
@@ -41,6 +47,7 @@ public final class JackPortTypeRegistry
   private final Object providers_lock;
   private final @GuardedBy("providers_lock")
   ArrayList<JackPortTypeInformationProviderType> providers;
+  private volatile Map<String, Optional<JackPortTypeInformation>> index;
 
   /**
    * Construct a registry.
@@ -50,6 +57,7 @@ public final class JackPortTypeRegistry
   {
     this.providers_lock = new Object();
     this.providers = new ArrayList<>(8);
+    this.index = Collections.emptyMap();
   }
 
   /**
@@ -68,6 +76,7 @@ public final class JackPortTypeRegistry
   {
     synchronized (this.providers_lock) {
       this.providers.add(Objects.requireNonNull(provider, "provider"));
+      this.index = this.indexCreate();
     }
   }
 
@@ -82,7 +91,27 @@ public final class JackPortTypeRegistry
   {
     synchronized (this.providers_lock) {
       this.providers.remove(provider);
+      this.index = this.indexCreate();
+    }
+  }
+
+  /*
+   * Where more than one provider supplies a type with the same name, the
+   * provider that was added first takes precedence. The values are stored
+   * as Optional instances so that lookups do not allocate.
+   */
+
+  @GuardedBy("providers_lock")
+  private Map<String, Optional<JackPortTypeInformation>> indexCreate()
+  {
+    final HashMap<String, Optional<JackPortTypeInformation>> result =
+      new HashMap<>(16);
+    for (final JackPortTypeInformationProviderType provider : this.providers) {
+      for (final JackPortTypeInformation type : provider.types()) {
+        result.putIfAbsent(type.name(), Optional.of(type));
+      }
     }
+    return Collections.unmodifiableMap(result);
   }
 
   @Override
@@ -91,15 +120,10 @@ public final class JackPortTypeRegistry
   {
     Objects.requireNonNull(name, "name");
 
-    for (final JackPortTypeInformationProviderType provider : this.providers) {
-      final List<JackPortTypeInformation> types = provider.types();
-      for (final JackPortTypeInformation type : types) {
-        if (Objects.equals(type.name(), name)) {
-          return Optional.of(type);
-        }
-      }
+    final Optional<JackPortTypeInformation> type = this.index.get(name);
+    if (type != null) {
+      return type;
     }
-
     return Optional.empty();
   }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+/**
+ * The action taken when a process callback raises an exception.
+ *
+ * @see JackClientConfigurationType#processErrorPolicy()
+ */
+
+public enum JackProcessErrorPolicy
+{
+  /**
+   * Report the failure to the server. JACK responds by removing the client
+   * from the process graph and then shutting the client down.
+   */
+
+  JACK_PROCESS_ERROR_FAIL,
+
+  /**
+   * Write silence to all of the output ports of the client for the failed
+   * cycle, and call the process callback again on the next cycle.
+   */
+
+  JACK_PROCESS_ERROR_SILENCE,
+
+  /**
+   * Write silence to all of the output ports of the client for the failed
+   * cycle, and stop calling the process callback; every subsequent cycle
+   * writes silence until a new process callback is set.
+   */
+
+  JACK_PROCESS_ERROR_BYPASS
+}
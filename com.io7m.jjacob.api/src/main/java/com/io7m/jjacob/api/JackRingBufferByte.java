@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * A lock-free single-producer, single-consumer ring buffer of bytes, intended
+ * to pass data between a process callback and an ordinary Java thread without
+ * blocking either of them.
+ *
+ * Exactly one thread may call the producer methods ({@link #write(byte[], int,
+ * int)}, {@link #writeVector()}, {@link #writeAdvance(int)}), and exactly one
+ * thread may call the consumer methods ({@link #read(byte[], int, int)},
+ * {@link #readVector()}, {@link #readAdvance(int)}). None of the producer or
+ * consumer methods allocate, block, or take locks.
+ *
+ * The memory of the ring buffer is allocated off-heap when the buffer is
+ * created. Allocation zero-fills the memory, so every page is touched (and
+ * therefore faulted in) before the buffer is ever used from a process
+ * callback. By itself, this does not prevent the pages from later being
+ * swapped out; a ring buffer created with
+ * {@link #create(int, JackRingBufferMemoryType)} instead uses memory from
+ * the given source, which may lock the memory into RAM (for example with
+ * {@code mlock(2)}, subject to the {@code memlock} resource limit).
+ */
+
+public final class JackRingBufferByte
+{
+  private final JackRingBufferIndex index;
+  private final ByteBuffer memory;
+  private final ByteBuffer producer_memory;
+  private final ByteBuffer consumer_memory;
+  private final JackRingBufferVector<ByteBuffer> producer_vector;
+  private final JackRingBufferVector<ByteBuffer> consumer_vector;
+
+  private JackRingBufferByte(
+    final int in_capacity,
+    final ByteBuffer in_memory)
+  {
+    this.index = new JackRingBufferIndex(in_capacity);
+
+    final ByteBuffer base = in_memory.duplicate();
+    base.clear();
+    this.memory = base.order(ByteOrder.nativeOrder());
+    this.producer_memory =
+      this.memory.duplicate().order(ByteOrder.nativeOrder());
+    this.consumer_memory =
+      this.memory.duplicate().order(ByteOrder.nativeOrder());
+    this.producer_vector = new JackRingBufferVector<>(
+      this.memory.duplicate().order(ByteOrder.nativeOrder()));
+    this.consumer_vector = new JackRingBufferVector<>(
+      this.memory.duplicate().order(ByteOrder.nativeOrder()));
+  }
+
+  /**
+   * Create a new ring buffer. The capacity is rounded up to the next power of
+   * two.
+   *
+   * @param capacity The minimum capacity in bytes
+   *
+   * @return A new ring buffer
+   */
+
+  public static JackRingBufferByte create(
+    final int capacity)
+  {
+    final int rounded = JackRingBufferIndex.capacityFor(capacity, 1 << 30);
+    return new JackRingBufferByte(
+      rounded,
+      ByteBuffer.allocateDirect(rounded));
+  }
+
+  /**
+   * Create a new ring buffer using memory from the given source. The capacity
+   * is rounded up to the next power of two.
+   *
+   * @param capacity The minimum capacity in bytes
+   * @param memory   The source of memory for the ring buffer
+   *
+   * @return A new ring buffer
+   *
+   * @throws JackException On errors
+   */
+
+  public static JackRingBufferByte create(
+    final int capacity,
+    final JackRingBufferMemoryType memory)
+    throws JackException
+  {
+    Objects.requireNonNull(memory, "memory");
+
+    final int rounded = JackRingBufferIndex.capacityFor(capacity, 1 << 30);
+    final ByteBuffer buffer =
+      JackRingBufferIndex.allocate(memory, rounded);
+    return new JackRingBufferByte(rounded, buffer);
+  }
+
+  /**
+   * @return The capacity of the ring buffer in bytes
+   */
+
+  public int capacity()
+  {
+    return this.index.capacity();
+  }
+
+  /**
+   * @return The number of bytes that can currently be read
+   */
+
+  public int readAvailable()
+  {
+    return this.index.readAvailable();
+  }
+
+  /**
+   * @return The number of bytes that can currently be written
+   */
+
+  public int writeAvailable()
+  {
+    return this.index.writeAvailable();
+  }
+
+  /**
+   * Write at most {@code length} bytes from {@code values} starting at
+   * {@code offset}. This method may only be called from the producer thread.
+   *
+   * @param values The source array
+   * @param offset The offset in the source array
+   * @param length The maximum number of bytes to write
+   *
+   * @return The number of bytes actually written
+   */
+
+  public int write(
+    final byte[] values,
+    final int offset,
+    final int length)
+  {
+    Objects.requireNonNull(values, "values");
+    Objects.checkFromIndexSize(offset, length, values.length);
+
+    final int count = Math.min(length, this.index.writeAvailable());
+    final int position = this.index.writePosition();
+    final int first = Math.min(count, this.index.capacity() - position);
+
+    final ByteBuffer target = this.producer_memory;
+    target.clear();
+    target.position(position);
+    target.put(values, offset, first);
+    if (count > first) {
+      target.position(0);
+      target.put(values, offset + first, count - first);
+    }
+
+    this.index.writeAdvance(count);
+    return count;
+  }
+
+  /**
+   * Read at most {@code length} bytes into {@code values} starting at
+   * {@code offset}. This method may only be called from the consumer thread.
+   *
+   * @param values The target array
+   * @param offset The offset in the target array
+   * @param length The maximum number of bytes to read
+   *
+   * @return The number of bytes actually read
+   */
+
+  public int read(
+    final byte[] values,
+    final int offset,
+    final int length)
+  {
+    Objects.requireNonNull(values, "values");
+    Objects.checkFromIndexSize(offset, length, values.length);
+
+    final int count = Math.min(length, this.index.readAvailable());
+    final int position = this.index.readPosition();
+    final int first = Math.min(count, this.index.capacity() - position);
+
+    final ByteBuffer source = this.consumer_memory;
+    source.clear();
+    source.position(position);
+    source.get(values, offset, first);
+    if (count > first) {
+      source.position(0);
+      source.get(values, offset + first, count - first);
+    }
+
+    this.index.readAdvance(count);
+    return count;
+  }
+
+  /**
+   * Obtain the regions of the ring buffer that may currently be written
+   * directly. Having written data into the regions, the producer publishes
+   * the data with {@link #writeAdvance(int)}. This method may only be called
+   * from the producer thread, and the returned vector is reused on each call.
+   *
+   * @return The writable regions
+   */
+
+  public JackRingBufferVector<ByteBuffer> writeVector()
+  {
+    this.producer_vector.set(
+      this.index.writePosition(),
+      this.index.writeAvailable(),
+      this.index.capacity());
+    return this.producer_vector;
+  }
+
+  /**
+   * Publish {@code count} bytes written directly into the regions returned by
+   * {@link #writeVector()}. This method may only be called from the producer
+   * thread.
+   *
+   * @param count The number of bytes written
+   *
+   * @throws IllegalArgumentException If {@code count} exceeds the writable
+   *                                  space
+   */
+
+  public void writeAdvance(
+    final int count)
+    throws IllegalArgumentException
+  {
+    this.index.writeAdvance(count);
+  }
+
+  /**
+   * Obtain the regions of the ring buffer that may currently be read
+   * directly. Having read data from the regions, the consumer releases the
+   * space with {@link #readAdvance(int)}. This method may only be called from
+   * the consumer thread, and the returned vector is reused on each call.
+   *
+   * @return The readable regions
+   */
+
+  public JackRingBufferVector<ByteBuffer> readVector()
+  {
+    this.consumer_vector.set(
+      this.index.readPosition(),
+      this.index.readAvailable(),
+      this.index.capacity());
+    return this.consumer_vector;
+  }
+
+  /**
+   * Release {@code count} bytes read directly from the regions returned by
+   * {@link #readVector()}. This method may only be called from the consumer
+   * thread.
+   *
+   * @param count The number of bytes read
+   *
+   * @throws IllegalArgumentException If {@code count} exceeds the readable
+   *                                  data
+   */
+
+  public void readAdvance(
+    final int count)
+    throws IllegalArgumentException
+  {
+    this.index.readAdvance(count);
+  }
+}
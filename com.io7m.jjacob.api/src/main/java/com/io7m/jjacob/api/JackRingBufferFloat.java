@@ -0,0 +1,393 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Objects;
+
+/**
+ * A lock-free single-producer, single-consumer ring buffer of 32-bit floating point
+ * samples, intended
+ * to pass data between a process callback and an ordinary Java thread without
+ * blocking either of them.
+ *
+ * Exactly one thread may call the producer methods ({@link #write(float[], int,
+ * int)}, {@link #writeVector()}, {@link #writeAdvance(int)}), and exactly one
+ * thread may call the consumer methods ({@link #read(float[], int, int)},
+ * {@link #readVector()}, {@link #readAdvance(int)}). None of the producer or
+ * consumer methods allocate, block, or take locks.
+ *
+ * The memory of the ring buffer is allocated off-heap when the buffer is
+ * created. Allocation zero-fills the memory, so every page is touched (and
+ * therefore faulted in) before the buffer is ever used from a process
+ * callback. By itself, this does not prevent the pages from later being
+ * swapped out; a ring buffer created with
+ * {@link #create(int, JackRingBufferMemoryType)} instead uses memory from
+ * the given source, which may lock the memory into RAM (for example with
+ * {@code mlock(2)}, subject to the {@code memlock} resource limit).
+ */
+
+public final class JackRingBufferFloat
+{
+  private final JackRingBufferIndex index;
+  private final FloatBuffer memory;
+  private final FloatBuffer producer_memory;
+  private final FloatBuffer consumer_memory;
+  private final JackRingBufferVector<FloatBuffer> producer_vector;
+  private final JackRingBufferVector<FloatBuffer> consumer_vector;
+
+  private JackRingBufferFloat(
+    final int in_capacity,
+    final ByteBuffer in_memory)
+  {
+    this.index = new JackRingBufferIndex(in_capacity);
+
+    final ByteBuffer base = in_memory.duplicate();
+    base.clear();
+    this.memory = base.order(ByteOrder.nativeOrder()).asFloatBuffer();
+    this.producer_memory = this.memory.duplicate();
+    this.consumer_memory = this.memory.duplicate();
+    this.producer_vector = new JackRingBufferVector<>(this.memory.duplicate());
+    this.consumer_vector = new JackRingBufferVector<>(this.memory.duplicate());
+  }
+
+  /**
+   * Create a new ring buffer. The capacity is rounded up to the next power of
+   * two.
+   *
+   * @param capacity The minimum capacity in samples
+   *
+   * @return A new ring buffer
+   */
+
+  public static JackRingBufferFloat create(
+    final int capacity)
+  {
+    final int rounded = JackRingBufferIndex.capacityFor(capacity, 1 << 28);
+    return new JackRingBufferFloat(
+      rounded,
+      ByteBuffer.allocateDirect(rounded * 4));
+  }
+
+  /**
+   * Create a new ring buffer using memory from the given source. The capacity
+   * is rounded up to the next power of two.
+   *
+   * @param capacity The minimum capacity in samples
+   * @param memory   The source of memory for the ring buffer
+   *
+   * @return A new ring buffer
+   *
+   * @throws JackException On errors
+   */
+
+  public static JackRingBufferFloat create(
+    final int capacity,
+    final JackRingBufferMemoryType memory)
+    throws JackException
+  {
+    Objects.requireNonNull(memory, "memory");
+
+    final int rounded = JackRingBufferIndex.capacityFor(capacity, 1 << 28);
+    final ByteBuffer buffer =
+      JackRingBufferIndex.allocate(memory, rounded * 4);
+    return new JackRingBufferFloat(rounded, buffer);
+  }
+
+  /**
+   * @return The capacity of the ring buffer in samples
+   */
+
+  public int capacity()
+  {
+    return this.index.capacity();
+  }
+
+  /**
+   * @return The number of samples that can currently be read
+   */
+
+  public int readAvailable()
+  {
+    return this.index.readAvailable();
+  }
+
+  /**
+   * @return The number of samples that can currently be written
+   */
+
+  public int writeAvailable()
+  {
+    return this.index.writeAvailable();
+  }
+
+  /**
+   * Write at most {@code length} samples from {@code values} starting at
+   * {@code offset}. This method may only be called from the producer thread.
+   *
+   * @param values The source array
+   * @param offset The offset in the source array
+   * @param length The maximum number of samples to write
+   *
+   * @return The number of samples actually written
+   */
+
+  public int write(
+    final float[] values,
+    final int offset,
+    final int length)
+  {
+    Objects.requireNonNull(values, "values");
+    Objects.checkFromIndexSize(offset, length, values.length);
+
+    final int count = Math.min(length, this.index.writeAvailable());
+    final int position = this.index.writePosition();
+    final int first = Math.min(count, this.index.capacity() - position);
+
+    final FloatBuffer target = this.producer_memory;
+    target.clear();
+    target.position(position);
+    target.put(values, offset, first);
+    if (count > first) {
+      target.position(0);
+      target.put(values, offset + first, count - first);
+    }
+
+    this.index.writeAdvance(count);
+    return count;
+  }
+
+  /**
+   * Read at most {@code length} samples into {@code values} starting at
+   * {@code offset}. This method may only be called from the consumer thread.
+   *
+   * @param values The target array
+   * @param offset The offset in the target array
+   * @param length The maximum number of samples to read
+   *
+   * @return The number of samples actually read
+   */
+
+  public int read(
+    final float[] values,
+    final int offset,
+    final int length)
+  {
+    Objects.requireNonNull(values, "values");
+    Objects.checkFromIndexSize(offset, length, values.length);
+
+    final int count = Math.min(length, this.index.readAvailable());
+    final int position = this.index.readPosition();
+    final int first = Math.min(count, this.index.capacity() - position);
+
+    final FloatBuffer source = this.consumer_memory;
+    source.clear();
+    source.position(position);
+    source.get(values, offset, first);
+    if (count > first) {
+      source.position(0);
+      source.get(values, offset + first, count - first);
+    }
+
+    this.index.readAdvance(count);
+    return count;
+  }
+
+  /**
+   * Write at most {@link JackBufferType#frameCount()} samples from
+   * {@code buffer}, starting at the first sample of the buffer. This method
+   * may only be called from the producer thread, and is typically used to
+   * pass the contents of a port buffer out of a process callback.
+   *
+   * @param buffer The source buffer
+   *
+   * @return The number of samples actually written
+   */
+
+  public int writeFrom(
+    final JackBufferType buffer)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+    JackBufferOperations.checkSampleBuffer(buffer);
+
+    final int count = Math.min(buffer.frameCount(), this.index.writeAvailable());
+    final int position = this.index.writePosition();
+    final int first = Math.min(count, this.index.capacity() - position);
+
+    final FloatBuffer target = this.producer_memory;
+    target.clear();
+    target.position(position);
+
+    /*
+     * The source buffer is only read with absolute accesses so that its
+     * position and limit are left untouched for the caller.
+     */
+
+    if (buffer instanceof JackNIOBuffer) {
+      final JackNIOBuffer source = (JackNIOBuffer) buffer;
+      for (int sample = 0; sample < first; ++sample) {
+        target.put(source.sampleGet(sample));
+      }
+      if (count > first) {
+        target.position(0);
+        for (int sample = first; sample < count; ++sample) {
+          target.put(source.sampleGet(sample));
+        }
+      }
+    } else {
+      for (int sample = 0; sample < first; ++sample) {
+        target.put(buffer.getF(sample));
+      }
+      if (count > first) {
+        target.position(0);
+        for (int sample = first; sample < count; ++sample) {
+          target.put(buffer.getF(sample));
+        }
+      }
+    }
+
+    this.index.writeAdvance(count);
+    return count;
+  }
+
+  /**
+   * Read at most {@link JackBufferType#frameCount()} samples into
+   * {@code buffer}, starting at the first sample of the buffer. Samples of
+   * {@code buffer} beyond the number of samples read are left unmodified.
+   * This method may only be called from the consumer thread, and is typically
+   * used to fill a port buffer inside a process callback.
+   *
+   * @param buffer The target buffer
+   *
+   * @return The number of samples actually read
+   */
+
+  public int readInto(
+    final JackBufferType buffer)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+    JackBufferOperations.checkSampleBuffer(buffer);
+
+    final int count = Math.min(buffer.frameCount(), this.index.readAvailable());
+    final int position = this.index.readPosition();
+    final int first = Math.min(count, this.index.capacity() - position);
+
+    final FloatBuffer source = this.consumer_memory;
+    source.clear();
+    source.position(position);
+
+    if (buffer instanceof JackNIOBuffer) {
+      final JackNIOBuffer target = (JackNIOBuffer) buffer;
+      for (int sample = 0; sample < first; ++sample) {
+        target.samplePut(sample, source.get());
+      }
+      if (count > first) {
+        source.position(0);
+        for (int sample = first; sample < count; ++sample) {
+          target.samplePut(sample, source.get());
+        }
+      }
+    } else {
+      for (int sample = 0; sample < first; ++sample) {
+        buffer.putF(sample, source.get());
+      }
+      if (count > first) {
+        source.position(0);
+        for (int sample = first; sample < count; ++sample) {
+          buffer.putF(sample, source.get());
+        }
+      }
+    }
+
+    this.index.readAdvance(count);
+    return count;
+  }
+
+  /**
+   * Obtain the regions of the ring buffer that may currently be written
+   * directly. Having written data into the regions, the producer publishes
+   * the data with {@link #writeAdvance(int)}. This method may only be called
+   * from the producer thread, and the returned vector is reused on each call.
+   *
+   * @return The writable regions
+   */
+
+  public JackRingBufferVector<FloatBuffer> writeVector()
+  {
+    this.producer_vector.set(
+      this.index.writePosition(),
+      this.index.writeAvailable(),
+      this.index.capacity());
+    return this.producer_vector;
+  }
+
+  /**
+   * Publish {@code count} samples written directly into the regions returned by
+   * {@link #writeVector()}. This method may only be called from the producer
+   * thread.
+   *
+   * @param count The number of samples written
+   *
+   * @throws IllegalArgumentException If {@code count} exceeds the writable
+   *                                  space
+   */
+
+  public void writeAdvance(
+    final int count)
+    throws IllegalArgumentException
+  {
+    this.index.writeAdvance(count);
+  }
+
+  /**
+   * Obtain the regions of the ring buffer that may currently be read
+   * directly. Having read data from the regions, the consumer releases the
+   * space with {@link #readAdvance(int)}. This method may only be called from
+   * the consumer thread, and the returned vector is reused on each call.
+   *
+   * @return The readable regions
+   */
+
+  public JackRingBufferVector<FloatBuffer> readVector()
+  {
+    this.consumer_vector.set(
+      this.index.readPosition(),
+      this.index.readAvailable(),
+      this.index.capacity());
+    return this.consumer_vector;
+  }
+
+  /**
+   * Release {@code count} samples read directly from the regions returned by
+   * {@link #readVector()}. This method may only be called from the consumer
+   * thread.
+   *
+   * @param count The number of samples read
+   *
+   * @throws IllegalArgumentException If {@code count} exceeds the readable
+   *                                  data
+   */
+
+  public void readAdvance(
+    final int count)
+    throws IllegalArgumentException
+  {
+    this.index.readAdvance(count);
+  }
+}
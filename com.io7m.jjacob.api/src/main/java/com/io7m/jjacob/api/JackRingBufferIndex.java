@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * The read and write indices of a single-producer, single-consumer ring
+ * buffer. The indices increase monotonically and are reduced modulo the
+ * (power-of-two) capacity to obtain positions. The producer publishes data
+ * by releasing the write index, and the consumer releases space by releasing
+ * the read index; each side acquires the index of the other.
+ */
+
+final class JackRingBufferIndex
+{
+  private static final VarHandle READ_INDEX;
+  private static final VarHandle WRITE_INDEX;
+
+  static {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      READ_INDEX = lookup.findVarHandle(
+        JackRingBufferIndex.class, "read_index", long.class);
+      WRITE_INDEX = lookup.findVarHandle(
+        JackRingBufferIndex.class, "write_index", long.class);
+    } catch (final NoSuchFieldException | IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final int capacity;
+  private final int mask;
+  private long read_index;
+  private long write_index;
+
+  JackRingBufferIndex(
+    final int in_capacity)
+  {
+    this.capacity = in_capacity;
+    this.mask = in_capacity - 1;
+    this.read_index = 0L;
+    this.write_index = 0L;
+  }
+
+  static int capacityFor(
+    final int requested,
+    final int maximum)
+  {
+    if (requested <= 0 || requested > maximum) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Capacity must be in the range [1, ")
+          .append(maximum)
+          .append("] (received ")
+          .append(requested)
+          .append(")")
+          .toString());
+    }
+    return requested == 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+  }
+
+  static ByteBuffer allocate(
+    final JackRingBufferMemoryType memory,
+    final int size)
+    throws JackException
+  {
+    final ByteBuffer buffer = memory.allocate(size);
+    if (buffer == null || !buffer.isDirect() || buffer.capacity() != size) {
+      throw new JackRingBufferMemoryException(
+        new StringBuilder(64)
+          .append("Ring buffer memory must be a direct buffer of ")
+          .append(size)
+          .append(" bytes")
+          .toString());
+    }
+    return buffer;
+  }
+
+  int capacity()
+  {
+    return this.capacity;
+  }
+
+  int readAvailable()
+  {
+    final long w = (long) WRITE_INDEX.getAcquire(this);
+    final long r = (long) READ_INDEX.getAcquire(this);
+    return (int) (w - r);
+  }
+
+  int writeAvailable()
+  {
+    final long r = (long) READ_INDEX.getAcquire(this);
+    final long w = (long) WRITE_INDEX.getAcquire(this);
+    return this.capacity - (int) (w - r);
+  }
+
+  int readPosition()
+  {
+    return (int) ((long) READ_INDEX.getOpaque(this) & (long) this.mask);
+  }
+
+  int writePosition()
+  {
+    return (int) ((long) WRITE_INDEX.getOpaque(this) & (long) this.mask);
+  }
+
+  void readAdvance(
+    final int count)
+  {
+    if (count < 0 || count > this.readAvailable()) {
+      throw new IllegalArgumentException(
+        "Cannot advance the read index past the available data");
+    }
+    final long r = (long) READ_INDEX.getOpaque(this);
+    READ_INDEX.setRelease(this, r + (long) count);
+  }
+
+  void writeAdvance(
+    final int count)
+  {
+    if (count < 0 || count > this.writeAvailable()) {
+      throw new IllegalArgumentException(
+        "Cannot advance the write index past the available space");
+    }
+    final long w = (long) WRITE_INDEX.getOpaque(this);
+    WRITE_INDEX.setRelease(this, w + (long) count);
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A source of memory for ring buffers. The default ring buffer memory is
+ * ordinary direct NIO memory; implementations of this interface may instead
+ * provide memory that is, for example, locked into RAM so that it cannot be
+ * paged out whilst a process callback is using it.
+ *
+ * @see JackRingBufferByte#create(int, JackRingBufferMemoryType)
+ * @see JackRingBufferFloat#create(int, JackRingBufferMemoryType)
+ */
+
+public interface JackRingBufferMemoryType
+{
+  /**
+   * Allocate zero-filled memory for a ring buffer. The returned buffer must
+   * be direct, must have a capacity of exactly {@code size} bytes, and must
+   * remain valid for as long as the ring buffer that uses it.
+   *
+   * @param size The size in bytes
+   *
+   * @return A direct buffer of {@code size} bytes
+   *
+   * @throws JackException On errors
+   */
+
+  ByteBuffer allocate(
+    int size)
+    throws JackException;
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.api;
+
+import java.nio.Buffer;
+
+/**
+ * A vector of (at most) two regions of the memory of a ring buffer. Because
+ * the readable data or writable space in a ring buffer may wrap around the
+ * end of the underlying memory, it is presented as two contiguous regions;
+ * the second region is empty if no wrapping occurs. Regions are specified in
+ * elements of the underlying buffer (bytes or floats).
+ *
+ * Vectors are reused by the ring buffer that produced them, and so are only
+ * valid until the next call that produced them.
+ *
+ * @param <B> The type of buffer
+ */
+
+public final class JackRingBufferVector<B extends Buffer>
+{
+  private final B buffer;
+  private int first_offset;
+  private int first_length;
+  private int second_length;
+
+  JackRingBufferVector(
+    final B in_buffer)
+  {
+    this.buffer = in_buffer;
+  }
+
+  void set(
+    final int position,
+    final int available,
+    final int capacity)
+  {
+    this.first_offset = position;
+    this.first_length = Math.min(available, capacity - position);
+    this.second_length = available - this.first_length;
+  }
+
+  /**
+   * @return The buffer that contains the regions. The buffer aliases the
+   * memory of the ring buffer; its position and limit may be freely changed.
+   */
+
+  public B buffer()
+  {
+    return this.buffer;
+  }
+
+  /**
+   * @return The offset of the first region
+   */
+
+  public int firstOffset()
+  {
+    return this.first_offset;
+  }
+
+  /**
+   * @return The length of the first region
+   */
+
+  public int firstLength()
+  {
+    return this.first_length;
+  }
+
+  /**
+   * @return The offset of the second region (always {@code 0})
+   */
+
+  public int secondOffset()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The length of the second region
+   */
+
+  public int secondLength()
+  {
+    return this.second_length;
+  }
+
+  /**
+   * @return The total length of both regions
+   */
+
+  public int length()
+  {
+    return this.first_length + this.second_length;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackNIOBuffer;
+import jnr.ffi.Memory;
+import jnr.ffi.Runtime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A comparison of per-sample and bulk access to port buffers backed by
+ * jnr-ffi pointers and by NIO buffers.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JackBufferAccessBenchmark
+{
+  @Param({"64", "256", "1024"})
+  public int frames;
+
+  private JackBufferType buffer_pointer;
+  private JackBufferType buffer_nio;
+  private float[] scratch;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JackBufferAccessBenchmark()
+  {
+
+  }
+
+  private static void gain(
+    final JackBufferType buffer)
+  {
+    final int count = buffer.frameCount();
+    for (int index = 0; index < count; ++index) {
+      buffer.putF(index, buffer.getF(index) * 0.5f);
+    }
+  }
+
+  private static float sum(
+    final JackBufferType buffer)
+  {
+    float total = 0.0f;
+    final int count = buffer.frameCount();
+    for (int index = 0; index < count; ++index) {
+      total += buffer.getF(index);
+    }
+    return total;
+  }
+
+  private static void gainArray(
+    final JackBufferType buffer,
+    final float[] scratch)
+  {
+    buffer.getArrayF(0, scratch);
+    for (int index = 0; index < scratch.length; ++index) {
+      scratch[index] *= 0.5f;
+    }
+    buffer.putArrayF(0, scratch);
+  }
+
+  private static float sumArray(
+    final JackBufferType buffer,
+    final float[] scratch)
+  {
+    buffer.getArrayF(0, scratch);
+    float total = 0.0f;
+    for (int index = 0; index < scratch.length; ++index) {
+      total += scratch[index];
+    }
+    return total;
+  }
+
+  /**
+   * Allocate buffers.
+   */
+
+  @Setup
+  public void setup()
+  {
+    final int size = this.frames * 4;
+
+    this.buffer_pointer =
+      new JackPointerBuffer(
+        this.frames, 4, Memory.allocateDirect(Runtime.getSystemRuntime(), size));
+    this.buffer_nio =
+      new JackNIOBuffer(ByteBuffer.allocateDirect(size), 4);
+    this.scratch =
+      new float[this.frames];
+
+    for (int index = 0; index < this.frames; ++index) {
+      this.buffer_pointer.putF(index, (float) index);
+      this.buffer_nio.putF(index, (float) index);
+    }
+  }
+
+  /**
+   * Apply a gain to a pointer buffer.
+   */
+
+  @Benchmark
+  public void gainPointer()
+  {
+    gain(this.buffer_pointer);
+  }
+
+  /**
+   * Apply a gain to an NIO buffer.
+   */
+
+  @Benchmark
+  public void gainNIO()
+  {
+    gain(this.buffer_nio);
+  }
+
+  /**
+   * Sum the samples of a pointer buffer.
+   *
+   * @return The sum
+   */
+
+  @Benchmark
+  public float sumPointer()
+  {
+    return sum(this.buffer_pointer);
+  }
+
+  /**
+   * Sum the samples of an NIO buffer.
+   *
+   * @return The sum
+   */
+
+  @Benchmark
+  public float sumNIO()
+  {
+    return sum(this.buffer_nio);
+  }
+
+  /**
+   * Apply a gain to a pointer buffer using bulk array transfers.
+   */
+
+  @Benchmark
+  public void gainArrayPointer()
+  {
+    gainArray(this.buffer_pointer, this.scratch);
+  }
+
+  /**
+   * Apply a gain to an NIO buffer using bulk array transfers.
+   */
+
+  @Benchmark
+  public void gainArrayNIO()
+  {
+    gainArray(this.buffer_nio, this.scratch);
+  }
+
+  /**
+   * Sum the samples of a pointer buffer using a bulk array transfer.
+   *
+   * @return The sum
+   */
+
+  @Benchmark
+  public float sumArrayPointer()
+  {
+    return sumArray(this.buffer_pointer, this.scratch);
+  }
+
+  /**
+   * Sum the samples of an NIO buffer using a bulk array transfer.
+   *
+   * @return The sum
+   */
+
+  @Benchmark
+  public float sumArrayNIO()
+  {
+    return sumArray(this.buffer_nio, this.scratch);
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackBufferOperations;
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackNIOBuffer;
+import jnr.ffi.Memory;
+import jnr.ffi.Runtime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A comparison of the bulk operations in {@link JackBufferOperations} against
+ * loops written in terms of the per-sample accessors of a
+ * {@link com.io7m.jjacob.api.JackAbstractBuffer}.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JackBufferOperationsBenchmark
+{
+  @Param({"64", "256", "1024"})
+  public int frames;
+
+  private JackBufferType pointer_target;
+  private JackBufferType pointer_source;
+  private JackBufferType nio_target;
+  private JackBufferType nio_source;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JackBufferOperationsBenchmark()
+  {
+
+  }
+
+  private JackBufferType pointerBuffer()
+  {
+    final Runtime runtime = Runtime.getSystemRuntime();
+    return new JackPointerBuffer(
+      this.frames, 4, Memory.allocateDirect(runtime, this.frames * 4));
+  }
+
+  private JackBufferType nioBuffer()
+  {
+    return new JackNIOBuffer(ByteBuffer.allocateDirect(this.frames * 4), 4);
+  }
+
+  /**
+   * Allocate buffers.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.pointer_target = this.pointerBuffer();
+    this.pointer_source = this.pointerBuffer();
+    this.nio_target = this.nioBuffer();
+    this.nio_source = this.nioBuffer();
+
+    for (int index = 0; index < this.frames; ++index) {
+      final float x = (float) Math.sin((double) index);
+      this.pointer_source.putF(index, x);
+      this.nio_source.putF(index, x);
+    }
+  }
+
+  /**
+   * Mix one buffer into another using per-sample accessors.
+   */
+
+  @Benchmark
+  public void addScaledPerSample()
+  {
+    final JackBufferType target = this.pointer_target;
+    final JackBufferType source = this.pointer_source;
+    final int count = target.frameCount();
+    for (int index = 0; index < count; ++index) {
+      target.putF(index, target.getF(index) + (source.getF(index) * 0.5f));
+    }
+  }
+
+  /**
+   * Mix one buffer into another using bulk operations.
+   */
+
+  @Benchmark
+  public void addScaledBulk()
+  {
+    JackBufferOperations.addScaled(this.nio_target, this.nio_source, 0.5f);
+  }
+
+  /**
+   * Apply a gain using per-sample accessors.
+   */
+
+  @Benchmark
+  public void scalePerSample()
+  {
+    final JackBufferType target = this.pointer_target;
+    final int count = target.frameCount();
+    for (int index = 0; index < count; ++index) {
+      target.putF(index, target.getF(index) * 0.5f);
+    }
+  }
+
+  /**
+   * Apply a gain using bulk operations.
+   */
+
+  @Benchmark
+  public void scaleBulk()
+  {
+    JackBufferOperations.scale(this.nio_target, 0.5f);
+  }
+
+  /**
+   * Copy a buffer using per-sample accessors.
+   */
+
+  @Benchmark
+  public void copyPerSample()
+  {
+    final JackBufferType target = this.pointer_target;
+    final JackBufferType source = this.pointer_source;
+    final int count = target.frameCount();
+    for (int index = 0; index < count; ++index) {
+      target.putF(index, source.getF(index));
+    }
+  }
+
+  /**
+   * Copy a buffer using bulk operations.
+   */
+
+  @Benchmark
+  public void copyBulk()
+  {
+    JackBufferOperations.copy(this.nio_target, this.nio_source);
+  }
+
+  /**
+   * Clear a buffer using per-sample accessors.
+   */
+
+  @Benchmark
+  public void clearPerSample()
+  {
+    final JackBufferType target = this.pointer_target;
+    final int count = target.frameCount();
+    for (int index = 0; index < count; ++index) {
+      target.putF(index, 0.0f);
+    }
+  }
+
+  /**
+   * Clear a buffer using bulk operations.
+   */
+
+  @Benchmark
+  public void clearBulk()
+  {
+    JackBufferOperations.clear(this.nio_target);
+  }
+
+  /**
+   * Find the peak of a buffer using per-sample accessors.
+   *
+   * @return The peak
+   */
+
+  @Benchmark
+  public float peakPerSample()
+  {
+    final JackBufferType source = this.pointer_source;
+    final int count = source.frameCount();
+    float peak = 0.0f;
+    for (int index = 0; index < count; ++index) {
+      peak = Math.max(peak, Math.abs(source.getF(index)));
+    }
+    return peak;
+  }
+
+  /**
+   * Find the peak of a buffer using bulk operations.
+   *
+   * @return The peak
+   */
+
+  @Benchmark
+  public float peakBulk()
+  {
+    return JackBufferOperations.peak(this.nio_source);
+  }
+}
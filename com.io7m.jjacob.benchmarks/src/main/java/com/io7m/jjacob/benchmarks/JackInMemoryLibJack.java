@@ -0,0 +1,635 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A minimal, single-client, in-memory implementation of the libjack API.
+ * Ports are backed by native memory, and the process callback is never
+ * called by the implementation itself: benchmarks call the registered
+ * callback directly via {@link #process(int)} in order to measure the cost
+ * of a process cycle without a running JACK server.
+ */
+
+public final class JackInMemoryLibJack implements LibJackType
+{
+  private static final int PORT_NAME_SIZE = 320;
+  private static final int MIDI_EVENTS_MAXIMUM = 1024;
+  private static final int MIDI_DATA_SIZE = 65536;
+
+  private final Runtime runtime;
+  private final String client_name;
+  private final int buffer_size;
+  private final int sample_rate;
+  private final Map<Pointer, Port> ports;
+  private final Map<Pointer, MIDIStore> midi;
+  private final List<Port> ports_ordered;
+  private final List<Pointer> handles;
+  private ProcessCallbackType process;
+  private PortRegistrationCallbackType registration;
+
+  /**
+   * Construct an implementation.
+   *
+   * @param in_client_name The name of the client
+   * @param in_buffer_size The buffer size in frames
+   * @param in_sample_rate The sample rate
+   */
+
+  public JackInMemoryLibJack(
+    final String in_client_name,
+    final int in_buffer_size,
+    final int in_sample_rate)
+  {
+    this.client_name =
+      Objects.requireNonNull(in_client_name, "client_name");
+    this.buffer_size = in_buffer_size;
+    this.sample_rate = in_sample_rate;
+    this.runtime = Runtime.getSystemRuntime();
+    this.ports = new IdentityHashMap<>(64);
+    this.midi = new IdentityHashMap<>(64);
+    this.ports_ordered = new ArrayList<>(64);
+    this.handles = new ArrayList<>(64);
+  }
+
+  /**
+   * Run a single process cycle by calling the registered process callback.
+   *
+   * @param frames The number of frames to process
+   *
+   * @return The value returned by the callback
+   */
+
+  public int process(
+    final int frames)
+  {
+    return this.process.call(frames, null);
+  }
+
+  /**
+   * Append an event to the MIDI buffer of the given port. This is typically
+   * used to populate input ports prior to running benchmarks.
+   *
+   * @param port_name The full name of the port
+   * @param time      The frame offset of the event
+   * @param data      The event data
+   */
+
+  public void midiAppend(
+    final String port_name,
+    final int time,
+    final byte[] data)
+  {
+    final Port port = this.portByName(port_name);
+    if (port == null || port.midi == null) {
+      throw new IllegalArgumentException("No such MIDI port: " + port_name);
+    }
+    final Pointer reserved = port.midi.reserve(time, data.length);
+    if (reserved == null) {
+      throw new IllegalStateException("MIDI buffer is full");
+    }
+    reserved.put(0L, data, 0, data.length);
+  }
+
+  private Port portByName(
+    final String name)
+  {
+    for (int index = 0; index < this.ports_ordered.size(); ++index) {
+      final Port port = this.ports_ordered.get(index);
+      if (port.name.equals(name)) {
+        return port;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Pointer jack_client_open(
+    final String name,
+    final int options,
+    final int[] status,
+    final String server_name)
+  {
+    return Memory.allocateDirect(this.runtime, 8);
+  }
+
+  @Override
+  public int jack_client_close(
+    final Pointer client)
+  {
+    return 0;
+  }
+
+  @Override
+  public String jack_get_client_name(
+    final Pointer client)
+  {
+    return this.client_name;
+  }
+
+  @Override
+  public int jack_get_sample_rate(
+    final Pointer client)
+  {
+    return this.sample_rate;
+  }
+
+  @Override
+  public int jack_get_buffer_size(
+    final Pointer client)
+  {
+    return this.buffer_size;
+  }
+
+  @Override
+  public float jack_cpu_load(
+    final Pointer client)
+  {
+    return 0.0f;
+  }
+
+  @Override
+  public int jack_frame_time(
+    final Pointer client)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_last_frame_time(
+    final Pointer client)
+  {
+    return 0;
+  }
+
+  @Override
+  public float jack_get_xrun_delayed_usecs(
+    final Pointer client)
+  {
+    return 0.0f;
+  }
+
+  @Override
+  public int jack_set_process_callback(
+    final Pointer client,
+    final ProcessCallbackType in_process,
+    final Pointer data)
+  {
+    this.process = in_process;
+    return 0;
+  }
+
+  @Override
+  public int jack_set_xrun_callback(
+    final Pointer client,
+    final XRunCallbackType in_process,
+    final Pointer data)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_set_port_registration_callback(
+    final Pointer client,
+    final PortRegistrationCallbackType callback,
+    final Pointer data)
+  {
+    this.registration = callback;
+    return 0;
+  }
+
+  @Override
+  public int jack_set_port_connect_callback(
+    final Pointer client,
+    final PortConnectCallbackType callback,
+    final Pointer data)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_set_graph_order_callback(
+    final Pointer client,
+    final GraphOrderCallbackType callback,
+    final Pointer data)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_set_latency_callback(
+    final Pointer client,
+    final LatencyCallbackType callback,
+    final Pointer data)
+  {
+    return 0;
+  }
+
+  @Override
+  public void jack_port_get_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+    range.putInt(0L, 0);
+    range.putInt(4L, 0);
+  }
+
+  @Override
+  public void jack_port_set_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+
+  }
+
+  @Override
+  public int jack_recompute_total_latencies(
+    final Pointer client)
+  {
+    return 0;
+  }
+
+  @Override
+  public Pointer jack_port_register(
+    final Pointer client,
+    final String port_name,
+    final String port_type,
+    final long flags,
+    final long in_buffer_size)
+  {
+    final String name = this.client_name + ":" + port_name;
+    if (this.portByName(name) != null) {
+      return Pointer.wrap(this.runtime, 0L);
+    }
+
+    final Pointer handle = Memory.allocateDirect(this.runtime, 8);
+    final Port port;
+    if (Objects.equals(port_type, LibJackPorts.defaultMidiType())) {
+      final Pointer buffer = Memory.allocateDirect(this.runtime, 8);
+      final MIDIStore store = new MIDIStore(this.runtime);
+      this.midi.put(buffer, store);
+      port = new Port(
+        this.runtime, name, port_name, port_type, (int) flags, buffer, store);
+    } else {
+      final Pointer buffer =
+        Memory.allocateDirect(this.runtime, this.buffer_size * 4, true);
+      port = new Port(
+        this.runtime, name, port_name, port_type, (int) flags, buffer, null);
+    }
+
+    this.ports.put(handle, port);
+    this.ports_ordered.add(port);
+    this.handles.add(handle);
+    if (this.registration != null) {
+      this.registration.call(this.handles.size() - 1, 1, null);
+    }
+    return handle;
+  }
+
+  @Override
+  public void jack_on_shutdown(
+    final Pointer client,
+    final ShutdownCallbackType in_process,
+    final Pointer data)
+  {
+
+  }
+
+  @Override
+  public Pointer jack_get_ports(
+    final Pointer client,
+    final String port_name_pattern,
+    final String type_name_pattern,
+    final long flags)
+  {
+    final Pattern name_pattern =
+      port_name_pattern == null ? null : Pattern.compile(port_name_pattern);
+    final Pattern type_pattern =
+      type_name_pattern == null ? null : Pattern.compile(type_name_pattern);
+
+    final ArrayList<Port> matching = new ArrayList<>(this.ports_ordered.size());
+    for (final Port port : this.ports_ordered) {
+      if (name_pattern != null && !name_pattern.matcher(port.name).find()) {
+        continue;
+      }
+      if (type_pattern != null && !type_pattern.matcher(port.type).find()) {
+        continue;
+      }
+      if ((port.flags & flags) != flags) {
+        continue;
+      }
+      matching.add(port);
+    }
+
+    if (matching.isEmpty()) {
+      return null;
+    }
+
+    /*
+     * As with libjack, a fresh NULL-terminated array is returned on each
+     * call. The name strings themselves are shared.
+     */
+
+    final int address_size = this.runtime.addressSize();
+    final Pointer array =
+      Memory.allocateDirect(
+        this.runtime, (matching.size() + 1) * address_size, true);
+    for (int index = 0; index < matching.size(); ++index) {
+      array.putPointer(
+        (long) (index * address_size), matching.get(index).name_native);
+    }
+    return array;
+  }
+
+  @Override
+  public void jack_free(
+    final Pointer pointer)
+  {
+
+  }
+
+  @Override
+  public String jack_port_name(
+    final Pointer port)
+  {
+    return this.ports.get(port).name;
+  }
+
+  @Override
+  public String jack_port_short_name(
+    final Pointer pointer)
+  {
+    return this.ports.get(pointer).short_name;
+  }
+
+  @Override
+  public String jack_port_type(
+    final Pointer pointer)
+  {
+    return this.ports.get(pointer).type;
+  }
+
+  @Override
+  public int jack_port_flags(
+    final Pointer pointer)
+  {
+    return this.ports.get(pointer).flags;
+  }
+
+  @Override
+  public boolean jack_port_is_mine(
+    final Pointer client,
+    final Pointer pointer)
+  {
+    return this.ports.containsKey(pointer);
+  }
+
+  @Override
+  public Pointer jack_port_get_buffer(
+    final Pointer port,
+    final int frames)
+  {
+    return this.ports.get(port).buffer;
+  }
+
+  @Override
+  public int jack_port_name_size()
+  {
+    return PORT_NAME_SIZE;
+  }
+
+  @Override
+  public Pointer jack_port_by_id(
+    final Pointer client,
+    final int port_id)
+  {
+    if (port_id < 0 || port_id >= this.handles.size()) {
+      return null;
+    }
+    return this.handles.get(port_id);
+  }
+
+  @Override
+  public Pointer jack_port_get_all_connections(
+    final Pointer client,
+    final Pointer port)
+  {
+    return null;
+  }
+
+  @Override
+  public Pointer jack_port_by_name(
+    final Pointer client,
+    final String name)
+  {
+    for (final Map.Entry<Pointer, Port> entry : this.ports.entrySet()) {
+      if (entry.getValue().name.equals(name)) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public int jack_activate(
+    final Pointer client)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_connect(
+    final Pointer client,
+    final String source_port,
+    final String target_port)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_disconnect(
+    final Pointer client,
+    final String source_port,
+    final String target_port)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_deactivate(
+    final Pointer client)
+  {
+    return 0;
+  }
+
+  @Override
+  public int jack_midi_get_event_count(
+    final Pointer buffer)
+  {
+    return this.midi.get(buffer).count;
+  }
+
+  @Override
+  public int jack_midi_get_lost_event_count(
+    final Pointer buffer)
+  {
+    return this.midi.get(buffer).lost;
+  }
+
+  @Override
+  public int jack_midi_event_get(
+    final MidiEvent event,
+    final Pointer buffer,
+    final int index)
+  {
+    final MIDIStore store = this.midi.get(buffer);
+    if (index < 0 || index >= store.count) {
+      return -1;
+    }
+    event.frames.set((long) store.times[index]);
+    event.size.set((long) store.sizes[index]);
+    event.pointer.set(store.slices[index]);
+    return 0;
+  }
+
+  @Override
+  public void jack_midi_clear_buffer(
+    final Pointer buffer)
+  {
+    this.midi.get(buffer).clear();
+  }
+
+  @Override
+  public Pointer jack_midi_event_reserve(
+    final Pointer buffer,
+    final int time,
+    final long data_size)
+  {
+    return this.midi.get(buffer).reserve(time, (int) data_size);
+  }
+
+  @Override
+  public int jack_midi_event_write(
+    final Pointer buffer,
+    final int time,
+    final Pointer data,
+    final long data_size)
+  {
+    final Pointer reserved =
+      this.midi.get(buffer).reserve(time, (int) data_size);
+    if (reserved == null) {
+      return -1;
+    }
+    data.transferTo(0L, reserved, 0L, data_size);
+    return 0;
+  }
+
+  private static final class Port
+  {
+    private final String name;
+    private final String short_name;
+    private final String type;
+    private final int flags;
+    private final Pointer buffer;
+    private final Pointer name_native;
+    private final MIDIStore midi;
+
+    Port(
+      final Runtime runtime,
+      final String in_name,
+      final String in_short_name,
+      final String in_type,
+      final int in_flags,
+      final Pointer in_buffer,
+      final MIDIStore in_midi)
+    {
+      this.name = Objects.requireNonNull(in_name, "name");
+      this.short_name = Objects.requireNonNull(in_short_name, "short_name");
+      this.type = Objects.requireNonNull(in_type, "type");
+      this.flags = in_flags;
+      this.buffer = Objects.requireNonNull(in_buffer, "buffer");
+      this.midi = in_midi;
+
+      final byte[] bytes = this.name.getBytes(UTF_8);
+      this.name_native = Memory.allocateDirect(runtime, bytes.length + 1, true);
+      this.name_native.put(0L, bytes, 0, bytes.length);
+    }
+  }
+
+  private static final class MIDIStore
+  {
+    private final Pointer data;
+    private final int[] times;
+    private final int[] sizes;
+    private final Pointer[] slices;
+    private int count;
+    private int lost;
+    private int used;
+
+    MIDIStore(
+      final Runtime runtime)
+    {
+      this.data = Memory.allocateDirect(runtime, MIDI_DATA_SIZE, true);
+      this.times = new int[MIDI_EVENTS_MAXIMUM];
+      this.sizes = new int[MIDI_EVENTS_MAXIMUM];
+      this.slices = new Pointer[MIDI_EVENTS_MAXIMUM];
+    }
+
+    void clear()
+    {
+      this.count = 0;
+      this.lost = 0;
+      this.used = 0;
+    }
+
+    Pointer reserve(
+      final int time,
+      final int size)
+    {
+      if (this.count == MIDI_EVENTS_MAXIMUM
+        || size > MIDI_DATA_SIZE - this.used) {
+        ++this.lost;
+        return null;
+      }
+
+      final int index = this.count;
+      final Pointer slice = this.data.slice((long) this.used, (long) size);
+      this.times[index] = time;
+      this.sizes[index] = size;
+      this.slices[index] = slice;
+      this.used += size;
+      this.count = index + 1;
+      return slice;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackBufferMIDIEventCursorType;
+import com.io7m.jjacob.api.JackBufferMIDIType;
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackPortType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+
+/**
+ * The cost of counting and iterating over the events of a MIDI input port
+ * during a process cycle.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JackMIDIBenchmark
+{
+  @Param({"0", "16", "256"})
+  public int events;
+
+  private JackInMemoryLibJack libjack_count;
+  private JackInMemoryLibJack libjack_iterate;
+  private JackClientType client_count;
+  private JackClientType client_iterate;
+  private int total;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JackMIDIBenchmark()
+  {
+
+  }
+
+  private JackClientType open(
+    final JackInMemoryLibJack libjack)
+    throws JackException
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+
+    final JackClientProviderType provider =
+      JackClientProvider.create(types, libjack);
+
+    return provider.openClient(JackClientConfiguration.builder().build());
+  }
+
+  private JackPortType register(
+    final JackInMemoryLibJack libjack,
+    final JackClientType client)
+    throws JackException
+  {
+    final JackPortType port =
+      client.portRegister(
+        "in_M",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_INPUT),
+        0L);
+
+    final byte[] data = {(byte) 0x90, (byte) 0x3c, (byte) 0x7f};
+    for (int index = 0; index < this.events; ++index) {
+      libjack.midiAppend("benchmark:in_M", index, data);
+    }
+    return port;
+  }
+
+  /**
+   * Open clients and populate MIDI ports.
+   *
+   * @throws JackException On errors
+   */
+
+  @Setup
+  public void setup()
+    throws JackException
+  {
+    this.libjack_count = new JackInMemoryLibJack("benchmark", 256, 48000);
+    this.client_count = this.open(this.libjack_count);
+    final JackPortType port_count =
+      this.register(this.libjack_count, this.client_count);
+
+    this.client_count.setProcessCallback(context -> {
+      final JackBufferMIDIType buffer = context.portBufferMIDI(port_count);
+      this.total += buffer.eventCount();
+    });
+
+    this.libjack_iterate = new JackInMemoryLibJack("benchmark", 256, 48000);
+    this.client_iterate = this.open(this.libjack_iterate);
+    final JackPortType port_iterate =
+      this.register(this.libjack_iterate, this.client_iterate);
+
+    this.client_iterate.setProcessCallback(context -> {
+      final JackBufferMIDIType buffer = context.portBufferMIDI(port_iterate);
+      final JackBufferMIDIEventCursorType cursor = buffer.events();
+      int sum = 0;
+      while (cursor.next()) {
+        sum += cursor.getB(0);
+      }
+      this.total += sum;
+    });
+  }
+
+  /**
+   * Close the clients.
+   *
+   * @throws JackException On errors
+   */
+
+  @TearDown
+  public void tearDown()
+    throws JackException
+  {
+    this.client_count.close();
+    this.client_iterate.close();
+  }
+
+  /**
+   * Count the events in a MIDI buffer.
+   *
+   * @return The callback result
+   */
+
+  @Benchmark
+  public int count()
+  {
+    return this.libjack_count.process(256);
+  }
+
+  /**
+   * Iterate over the events in a MIDI buffer, reading the status byte of
+   * each.
+   *
+   * @return The callback result
+   */
+
+  @Benchmark
+  public int iterate()
+  {
+    return this.libjack_iterate.process(256);
+  }
+}
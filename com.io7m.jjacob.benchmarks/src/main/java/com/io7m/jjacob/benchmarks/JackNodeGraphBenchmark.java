@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackNodeContextType;
+import com.io7m.jjacob.api.JackNodeGraph;
+import com.io7m.jjacob.api.JackNodeGraphEditType;
+import com.io7m.jjacob.api.JackNodeGraphWorkers;
+import com.io7m.jjacob.api.JackNodePortDeclaration;
+import com.io7m.jjacob.api.JackNodeType;
+import com.io7m.jjacob.api.JackPortType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jjacob.api.JackNodePortKind.JACK_NODE_PORT_AUDIO;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+/**
+ * The cost of a process cycle of a node graph consisting of a number of
+ * independent, computationally expensive branches, executed either serially
+ * or across a set of workers.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JackNodeGraphBenchmark
+{
+  @Param({"8"})
+  public int branches;
+
+  @Param({"0", "1", "3"})
+  public int workers;
+
+  private JackInMemoryLibJack libjack;
+  private JackClientType client;
+  private JackNodeGraphWorkers graph_workers;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JackNodeGraphBenchmark()
+  {
+
+  }
+
+  /*
+   * A node that repeatedly applies a one-pole lowpass filter to its output.
+   */
+
+  private static final class Filter implements JackNodeType
+  {
+    private static final int PASSES = 64;
+
+    private float state;
+
+    Filter()
+    {
+
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return List.of();
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return List.of(JackNodePortDeclaration.of("out", JACK_NODE_PORT_AUDIO));
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+      throws JackException
+    {
+      final JackBufferType output = context.output(0);
+      final int frames = context.frameCount();
+      float current = this.state;
+      for (int pass = 0; pass < PASSES; ++pass) {
+        for (int index = 0; index < frames; ++index) {
+          current += ((float) (index & 1) - current) * 0.01f;
+          output.putF(index, current);
+        }
+      }
+      this.state = current;
+    }
+  }
+
+  /**
+   * Open a client and build the graph.
+   *
+   * @throws JackException On errors
+   */
+
+  @Setup
+  public void setup()
+    throws JackException
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+
+    this.libjack = new JackInMemoryLibJack("benchmark", 256, 48000);
+
+    final JackClientProviderType provider =
+      JackClientProvider.create(types, this.libjack);
+
+    this.client =
+      provider.openClient(JackClientConfiguration.builder().build());
+
+    final JackNodeGraph graph;
+    if (this.workers > 0) {
+      this.graph_workers = JackNodeGraphWorkers.create(this.workers);
+      graph = JackNodeGraph.create(this.client, this.graph_workers);
+    } else {
+      graph = JackNodeGraph.create(this.client);
+    }
+
+    final JackNodeGraphEditType edit = graph.edit();
+    for (int index = 0; index < this.branches; ++index) {
+      final JackPortType port =
+        this.client.portRegister(
+          "out_" + index, EnumSet.of(JACK_PORT_IS_OUTPUT));
+      final String name = "filter" + index;
+      edit.nodeAdd(name, new Filter());
+      edit.connectOutput(name, "out", port);
+    }
+    edit.commit();
+
+    this.client.setProcessCallback(graph);
+    this.client.activate();
+  }
+
+  /**
+   * Close the client and stop the workers.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown
+  public void tearDown()
+    throws Exception
+  {
+    this.client.close();
+    if (this.graph_workers != null) {
+      this.graph_workers.close();
+    }
+  }
+
+  /**
+   * Run a single process cycle.
+   *
+   * @return The callback result
+   */
+
+  @Benchmark
+  public int cycle()
+  {
+    return this.libjack.process(256);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackAbstractBuffer;
+import jnr.ffi.Pointer;
+
+import java.util.Objects;
+
+/**
+ * A buffer implemented in terms of a jnr-ffi pointer. This is the buffer
+ * implementation that the vanilla provider used prior to the introduction of
+ * {@link com.io7m.jjacob.api.JackNIOBuffer}, and is retained here as a
+ * baseline for comparison.
+ */
+
+public final class JackPointerBuffer extends JackAbstractBuffer
+{
+  private final Pointer buffer_ptr;
+
+  /**
+   * Construct a buffer.
+   *
+   * @param in_buffer_frame_count The size of the buffer in frames
+   * @param in_buffer_frame_size  The size of a frame in bytes
+   * @param in_buffer_ptr         The buffer memory
+   */
+
+  public JackPointerBuffer(
+    final int in_buffer_frame_count,
+    final int in_buffer_frame_size,
+    final Pointer in_buffer_ptr)
+  {
+    super(in_buffer_frame_count, in_buffer_frame_size);
+    this.buffer_ptr =
+      Objects.requireNonNull(in_buffer_ptr, "buffer_ptr");
+  }
+
+  @Override
+  protected void actualPutF(
+    final long offset,
+    final float value)
+  {
+    this.buffer_ptr.putFloat(offset, value);
+  }
+
+  @Override
+  protected void actualPutArrayF(
+    final long offset,
+    final float[] values)
+  {
+    this.buffer_ptr.put(offset, values, 0, values.length);
+  }
+
+  @Override
+  protected void actualPutI(
+    final long offset,
+    final int value)
+  {
+    this.buffer_ptr.putInt(offset, value);
+  }
+
+  @Override
+  protected void actualPutB(
+    final long offset,
+    final int value)
+  {
+    this.buffer_ptr.putByte(offset, (byte) (value & 0xff));
+  }
+
+  @Override
+  protected void actualPutArrayB(
+    final long offset,
+    final byte[] values)
+  {
+    this.buffer_ptr.put(offset, values, 0, values.length);
+  }
+
+  @Override
+  protected float actualGetF(final long offset)
+  {
+    return this.buffer_ptr.getFloat(offset);
+  }
+
+  @Override
+  protected int actualGetI(final long offset)
+  {
+    return this.buffer_ptr.getInt(offset);
+  }
+
+  @Override
+  protected int actualGetB(final long offset)
+  {
+    return (int) this.buffer_ptr.getByte(offset) & 0xff;
+  }
+
+  @Override
+  protected void actualGetArrayF(
+    final long offset,
+    final float[] values,
+    final int array_offset,
+    final int length)
+  {
+    this.buffer_ptr.get(offset, values, array_offset, length);
+  }
+
+  @Override
+  protected void actualGetArrayB(
+    final long offset,
+    final byte[] values,
+    final int array_offset,
+    final int length)
+  {
+    this.buffer_ptr.get(offset, values, array_offset, length);
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.porttype.api.JackPortTypeInformation;
+import com.io7m.jjacob.porttype.api.JackPortTypeInformationProviderType;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of looking up port types by name, with the default types
+ * registered after a number of other providers.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JackPortTypeRegistryBenchmark
+{
+  @Param({"1", "16", "128"})
+  public int providers;
+
+  private JackPortTypeRegistry registry;
+  private String name_audio;
+  private String name_midi;
+  private String name_missing;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JackPortTypeRegistryBenchmark()
+  {
+
+  }
+
+  /**
+   * Create a registry.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.registry = new JackPortTypeRegistry();
+    for (int index = 1; index < this.providers; ++index) {
+      this.registry.providerAdd(provider(index));
+    }
+    this.registry.providerAdd(new JackPortTypesDefault());
+
+    /*
+     * Copy the names so that lookups cannot short-circuit on reference
+     * equality with the registered names.
+     */
+
+    this.name_audio = new String(LibJackPorts.defaultAudioType());
+    this.name_midi = new String(LibJackPorts.defaultMidiType());
+    this.name_missing = "32 bit float mono audio (nonexistent)";
+  }
+
+  private static JackPortTypeInformationProviderType provider(
+    final int index)
+  {
+    final List<JackPortTypeInformation> types = new ArrayList<>(4);
+    for (int type = 0; type < 4; ++type) {
+      final String name =
+        String.format(
+          "custom type %d/%d", Integer.valueOf(index), Integer.valueOf(type));
+      types.add(JackPortTypeInformation.of(name, 4, false));
+    }
+    final List<JackPortTypeInformation> types_read =
+      Collections.unmodifiableList(types);
+    return () -> types_read;
+  }
+
+  /**
+   * Look up the default audio type.
+   *
+   * @return The type
+   */
+
+  @Benchmark
+  public Optional<JackPortTypeInformation> lookupAudio()
+  {
+    return this.registry.lookupByName(this.name_audio);
+  }
+
+  /**
+   * Look up the default MIDI type.
+   *
+   * @return The type
+   */
+
+  @Benchmark
+  public Optional<JackPortTypeInformation> lookupMIDI()
+  {
+    return this.registry.lookupByName(this.name_midi);
+  }
+
+  /**
+   * Look up a type that does not exist.
+   *
+   * @return The type
+   */
+
+  @Benchmark
+  public Optional<JackPortTypeInformation> lookupMissing()
+  {
+    return this.registry.lookupByName(this.name_missing);
+  }
+}
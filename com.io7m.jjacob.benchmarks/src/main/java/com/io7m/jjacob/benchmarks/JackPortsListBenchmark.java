@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackPortFlag;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+/**
+ * The cost of listing and decoding port names, either by querying the
+ * server or by consulting a graph snapshot.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JackPortsListBenchmark
+{
+  @Param({"8", "64", "512"})
+  public int ports;
+
+  @Param({"false", "true"})
+  public boolean snapshot;
+
+  private JackClientType client;
+  private EnumSet<JackPortFlag> flags;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JackPortsListBenchmark()
+  {
+
+  }
+
+  /**
+   * Open a client and register ports.
+   *
+   * @throws JackException On errors
+   */
+
+  @Setup
+  public void setup()
+    throws JackException
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+
+    final JackClientProviderType provider =
+      JackClientProvider.create(
+        types, new JackInMemoryLibJack("benchmark", 256, 48000));
+
+    this.client = provider.openClient(
+      JackClientConfiguration.builder()
+        .setGraphSnapshotEnabled(this.snapshot)
+        .build());
+    this.flags = EnumSet.noneOf(JackPortFlag.class);
+
+    for (int index = 0; index < this.ports; ++index) {
+      this.client.portRegister(
+        "out_" + index, EnumSet.of(JACK_PORT_IS_OUTPUT));
+    }
+  }
+
+  /**
+   * Close the client.
+   *
+   * @throws JackException On errors
+   */
+
+  @TearDown
+  public void tearDown()
+    throws JackException
+  {
+    this.client.close();
+  }
+
+  /**
+   * List all ports.
+   *
+   * @return The ports
+   *
+   * @throws JackException On errors
+   */
+
+  @Benchmark
+  public List<String> portsList()
+    throws JackException
+  {
+    return this.client.portsList(Optional.empty(), Optional.empty(), this.flags);
+  }
+}
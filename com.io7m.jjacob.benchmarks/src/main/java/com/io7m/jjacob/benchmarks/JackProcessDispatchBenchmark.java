@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.benchmarks;
+
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackPortType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+/**
+ * The cost of a complete process cycle of a vanilla client, including the
+ * resolution of each port buffer either with
+ * {@link com.io7m.jjacob.api.JackClientProcessCallbackContextType#portBuffer(JackPortType)}
+ * or by handle with
+ * {@link com.io7m.jjacob.api.JackClientProcessCallbackContextType#portBuffer(int)}.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JackProcessDispatchBenchmark
+{
+  @Param({"0", "1", "8", "64"})
+  public int ports;
+
+  @Param({"false", "true"})
+  public boolean timing;
+
+  @Param({"false", "true"})
+  public boolean handles;
+
+  private JackInMemoryLibJack libjack;
+  private JackClientType client;
+  private float total;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public JackProcessDispatchBenchmark()
+  {
+
+  }
+
+  /**
+   * Open a client and register ports.
+   *
+   * @throws JackException On errors
+   */
+
+  @Setup
+  public void setup()
+    throws JackException
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+
+    this.libjack = new JackInMemoryLibJack("benchmark", 256, 48000);
+
+    final JackClientProviderType provider =
+      JackClientProvider.create(types, this.libjack);
+
+    this.client =
+      provider.openClient(
+        JackClientConfiguration.builder()
+          .setProcessTimingEnabled(this.timing)
+          .build());
+
+    final JackPortType[] registered = new JackPortType[this.ports];
+    for (int index = 0; index < this.ports; ++index) {
+      registered[index] =
+        this.client.portRegister(
+          "out_" + index, EnumSet.of(JACK_PORT_IS_OUTPUT));
+    }
+
+    if (this.handles) {
+      final int[] handles_registered = new int[this.ports];
+      for (int index = 0; index < this.ports; ++index) {
+        handles_registered[index] = registered[index].handle();
+      }
+      this.client.setProcessCallback(context -> {
+        float sum = 0.0f;
+        for (int index = 0; index < handles_registered.length; ++index) {
+          sum += context.portBuffer(handles_registered[index]).getF(0);
+        }
+        this.total += sum;
+      });
+    } else {
+      this.client.setProcessCallback(context -> {
+        float sum = 0.0f;
+        for (int index = 0; index < registered.length; ++index) {
+          sum += context.portBuffer(registered[index]).getF(0);
+        }
+        this.total += sum;
+      });
+    }
+    this.client.activate();
+  }
+
+  /**
+   * Close the client.
+   *
+   * @throws JackException On errors
+   */
+
+  @TearDown
+  public void tearDown()
+    throws JackException
+  {
+    this.client.close();
+  }
+
+  /**
+   * Run a single process cycle.
+   *
+   * @return The callback result
+   */
+
+  @Benchmark
+  public int cycle()
+  {
+    return this.libjack.process(256);
+  }
+}
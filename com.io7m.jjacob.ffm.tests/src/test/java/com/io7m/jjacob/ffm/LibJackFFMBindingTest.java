@@ -0,0 +1,543 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.ffm;
+
+import com.io7m.jjacob.jnr.LibJackBufferAddressType;
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+/**
+ * Tests for the FFM binding that do not require libjack. Symbols are
+ * resolved against fake functions: the callback registration functions are
+ * upcall stubs that capture the callback that the binding passes to them,
+ * and the captured callback is then called as libjack would call it.
+ */
+
+public final class LibJackFFMBindingTest
+{
+  private static final Linker LINKER = Linker.nativeLinker();
+
+  /*
+   * An address that resolves every symbol that a test does not call.
+   */
+
+  private static final MemorySegment UNCALLED = MemorySegment.ofAddress(1L);
+
+  private static final FunctionDescriptor SET_CALLBACK_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS);
+  private static final FunctionDescriptor ON_SHUTDOWN_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, ADDRESS);
+  private static final FunctionDescriptor CLIENT_CLOSE_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, ADDRESS);
+
+  private static final FunctionDescriptor PROCESS_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor SHUTDOWN_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(ADDRESS);
+  private static final FunctionDescriptor XRUN_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor PORT_REGISTRATION_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(JAVA_INT, JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor PORT_CONNECT_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor GRAPH_ORDER_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor LATENCY_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS);
+
+  private static final MethodHandle SET_CALLBACK;
+  private static final MethodHandle ON_SHUTDOWN;
+  private static final MethodHandle CLIENT_CLOSE;
+
+  static {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      SET_CALLBACK = lookup.findStatic(
+        LibJackFFMBindingTest.class,
+        "fakeSetCallback",
+        MethodType.methodType(
+          int.class,
+          AtomicReference.class,
+          MemorySegment.class,
+          MemorySegment.class,
+          MemorySegment.class));
+      ON_SHUTDOWN = lookup.findStatic(
+        LibJackFFMBindingTest.class,
+        "fakeOnShutdown",
+        MethodType.methodType(
+          void.class,
+          AtomicReference.class,
+          MemorySegment.class,
+          MemorySegment.class,
+          MemorySegment.class));
+      CLIENT_CLOSE = lookup.findStatic(
+        LibJackFFMBindingTest.class,
+        "fakeClientClose",
+        MethodType.methodType(
+          int.class,
+          AtomicInteger.class,
+          MemorySegment.class));
+    } catch (final NoSuchMethodException | IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @Rule public final ExpectedException expected = ExpectedException.none();
+
+  private Arena arena;
+  private RecordingLookup lookup;
+  private AtomicReference<MemorySegment> registered;
+  private AtomicInteger closed;
+  private Runtime runtime;
+  private Pointer client;
+  private Pointer data;
+
+  private static int fakeSetCallback(
+    final AtomicReference<MemorySegment> registered,
+    final MemorySegment client,
+    final MemorySegment callback,
+    final MemorySegment data)
+  {
+    registered.set(callback);
+    return 0;
+  }
+
+  private static void fakeOnShutdown(
+    final AtomicReference<MemorySegment> registered,
+    final MemorySegment client,
+    final MemorySegment callback,
+    final MemorySegment data)
+  {
+    registered.set(callback);
+  }
+
+  private static int fakeClientClose(
+    final AtomicInteger closed,
+    final MemorySegment client)
+  {
+    closed.incrementAndGet();
+    return 0;
+  }
+
+  @Before
+  public void setUp()
+  {
+    this.arena = Arena.ofConfined();
+    this.lookup = new RecordingLookup();
+    this.registered = new AtomicReference<>();
+    this.closed = new AtomicInteger();
+    this.runtime = Runtime.getSystemRuntime();
+    this.client = Pointer.wrap(this.runtime, 0x1000L);
+    this.data = Pointer.wrap(this.runtime, 0x2000L);
+
+    final MemorySegment set_callback =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(SET_CALLBACK, 0, this.registered),
+        SET_CALLBACK_DESCRIPTOR,
+        this.arena);
+
+    this.lookup.symbols.put("jack_set_process_callback", set_callback);
+    this.lookup.symbols.put("jack_set_xrun_callback", set_callback);
+    this.lookup.symbols.put("jack_set_port_registration_callback", set_callback);
+    this.lookup.symbols.put("jack_set_port_connect_callback", set_callback);
+    this.lookup.symbols.put("jack_set_graph_order_callback", set_callback);
+    this.lookup.symbols.put("jack_set_latency_callback", set_callback);
+
+    this.lookup.symbols.put(
+      "jack_on_shutdown",
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(ON_SHUTDOWN, 0, this.registered),
+        ON_SHUTDOWN_DESCRIPTOR,
+        this.arena));
+
+    this.lookup.symbols.put(
+      "jack_client_close",
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(CLIENT_CLOSE, 0, this.closed),
+        CLIENT_CLOSE_DESCRIPTOR,
+        this.arena));
+  }
+
+  @After
+  public void tearDown()
+  {
+    this.arena.close();
+  }
+
+  private MethodHandle registeredCallback(
+    final FunctionDescriptor descriptor)
+  {
+    final MemorySegment callback = this.registered.get();
+    Assert.assertNotNull("A callback was registered", callback);
+    Assert.assertNotEquals(0L, callback.address());
+    return LINKER.downcallHandle(callback, descriptor);
+  }
+
+  /**
+   * Every function declared by the LibJack interface is linked when the
+   * binding is created.
+   */
+
+  @Test
+  public void testDowncallsLinked()
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+    Assert.assertTrue(libjack instanceof LibJackBufferAddressType);
+
+    for (final Method method : LibJackType.class.getDeclaredMethods()) {
+      if (Modifier.isAbstract(method.getModifiers())) {
+        Assert.assertTrue(
+          "Symbol " + method.getName() + " must be looked up",
+          this.lookup.requested.contains(method.getName()));
+      }
+    }
+  }
+
+  /**
+   * A missing symbol prevents the binding from being created.
+   */
+
+  @Test
+  public void testDowncallMissing()
+  {
+    this.lookup.missing.add("jack_activate");
+    this.expected.expect(NoSuchElementException.class);
+    LibJackFFMBinding.create(this.lookup);
+  }
+
+  /**
+   * Process callbacks receive the frame count and user data, and return
+   * their result to the server.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testProcessCallback()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    final AtomicInteger frames_received = new AtomicInteger();
+    final AtomicReference<Pointer> data_received = new AtomicReference<>();
+    Assert.assertEquals(0, libjack.jack_set_process_callback(
+      this.client,
+      (frames, user_data) -> {
+        frames_received.set(frames);
+        data_received.set(user_data);
+        return 23;
+      },
+      this.data));
+
+    final MethodHandle callback = this.registeredCallback(PROCESS_DESCRIPTOR);
+    final int result =
+      (int) callback.invokeExact(128, MemorySegment.ofAddress(0x2000L));
+
+    Assert.assertEquals(23, result);
+    Assert.assertEquals(128, frames_received.get());
+    Assert.assertEquals(0x2000L, data_received.get().address());
+  }
+
+  /**
+   * A process callback that raises an exception reports a failure to the
+   * server rather than terminating the VM.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testProcessCallbackFails()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    libjack.jack_set_process_callback(
+      this.client,
+      (frames, user_data) -> {
+        throw new IllegalStateException();
+      },
+      null);
+
+    final MethodHandle callback = this.registeredCallback(PROCESS_DESCRIPTOR);
+    final int result = (int) callback.invokeExact(128, MemorySegment.NULL);
+    Assert.assertEquals(-1, result);
+  }
+
+  /**
+   * Shutdown callbacks receive the user data.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testShutdownCallback()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    final AtomicReference<Pointer> data_received = new AtomicReference<>();
+    libjack.jack_on_shutdown(this.client, data_received::set, this.data);
+
+    final MethodHandle callback = this.registeredCallback(SHUTDOWN_DESCRIPTOR);
+    callback.invokeExact(MemorySegment.ofAddress(0x2000L));
+    Assert.assertEquals(0x2000L, data_received.get().address());
+  }
+
+  /**
+   * XRun callbacks receive the user data, and a null pointer is delivered
+   * as null.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testXRunCallback()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicReference<Pointer> data_received =
+      new AtomicReference<>(this.data);
+    Assert.assertEquals(0, libjack.jack_set_xrun_callback(
+      this.client,
+      user_data -> {
+        calls.incrementAndGet();
+        data_received.set(user_data);
+        return 0;
+      },
+      null));
+
+    final MethodHandle callback = this.registeredCallback(XRUN_DESCRIPTOR);
+    final int result = (int) callback.invokeExact(MemorySegment.NULL);
+    Assert.assertEquals(0, result);
+    Assert.assertEquals(1, calls.get());
+    Assert.assertNull(data_received.get());
+  }
+
+  /**
+   * Port registration callbacks receive the port and registration flag.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testPortRegistrationCallback()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    final AtomicInteger port_received = new AtomicInteger();
+    final AtomicInteger register_received = new AtomicInteger();
+    Assert.assertEquals(0, libjack.jack_set_port_registration_callback(
+      this.client,
+      (port, register, user_data) -> {
+        port_received.set(port);
+        register_received.set(register);
+      },
+      this.data));
+
+    final MethodHandle callback =
+      this.registeredCallback(PORT_REGISTRATION_DESCRIPTOR);
+    callback.invokeExact(7, 1, MemorySegment.NULL);
+    Assert.assertEquals(7, port_received.get());
+    Assert.assertEquals(1, register_received.get());
+  }
+
+  /**
+   * Port connection callbacks receive both ports and the connection flag.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testPortConnectCallback()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    final AtomicInteger port_a_received = new AtomicInteger();
+    final AtomicInteger port_b_received = new AtomicInteger();
+    final AtomicInteger connect_received = new AtomicInteger();
+    Assert.assertEquals(0, libjack.jack_set_port_connect_callback(
+      this.client,
+      (port_a, port_b, connect, user_data) -> {
+        port_a_received.set(port_a);
+        port_b_received.set(port_b);
+        connect_received.set(connect);
+      },
+      this.data));
+
+    final MethodHandle callback =
+      this.registeredCallback(PORT_CONNECT_DESCRIPTOR);
+    callback.invokeExact(3, 5, 1, MemorySegment.NULL);
+    Assert.assertEquals(3, port_a_received.get());
+    Assert.assertEquals(5, port_b_received.get());
+    Assert.assertEquals(1, connect_received.get());
+  }
+
+  /**
+   * Graph order callbacks return their result to the server.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testGraphOrderCallback()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    Assert.assertEquals(0, libjack.jack_set_graph_order_callback(
+      this.client,
+      user_data -> 17,
+      this.data));
+
+    final MethodHandle callback =
+      this.registeredCallback(GRAPH_ORDER_DESCRIPTOR);
+    final int result = (int) callback.invokeExact(MemorySegment.NULL);
+    Assert.assertEquals(17, result);
+  }
+
+  /**
+   * Latency callbacks receive the latency mode.
+   *
+   * @throws Throwable On errors
+   */
+
+  @Test
+  public void testLatencyCallback()
+    throws Throwable
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    final AtomicInteger mode_received = new AtomicInteger(-1);
+    Assert.assertEquals(0, libjack.jack_set_latency_callback(
+      this.client,
+      (mode, user_data) -> mode_received.set(mode),
+      this.data));
+
+    final MethodHandle callback = this.registeredCallback(LATENCY_DESCRIPTOR);
+    callback.invokeExact(1, MemorySegment.NULL);
+    Assert.assertEquals(1, mode_received.get());
+  }
+
+  /**
+   * Closing a client that registered callbacks calls the library and
+   * releases the callbacks.
+   */
+
+  @Test
+  public void testClientCloseReleasesCallbacks()
+  {
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+
+    libjack.jack_set_process_callback(
+      this.client, (frames, user_data) -> 0, null);
+    libjack.jack_set_xrun_callback(
+      this.client, user_data -> 0, null);
+
+    Assert.assertEquals(0, libjack.jack_client_close(this.client));
+    Assert.assertEquals(1, this.closed.get());
+
+    Assert.assertEquals(0, libjack.jack_client_close(this.client));
+    Assert.assertEquals(2, this.closed.get());
+  }
+
+  /**
+   * Both port buffer functions pass the port and frame count through, and
+   * return the address that the library returns. The C library's strchr
+   * stands in for jack_port_get_buffer: it has the same signature, and
+   * searching for zero returns the address of the string's terminator.
+   */
+
+  @Test
+  public void testPortBufferAddress()
+  {
+    this.lookup.symbols.put(
+      "jack_port_get_buffer",
+      LINKER.defaultLookup().find("strchr").orElseThrow());
+
+    final LibJackType libjack = LibJackFFMBinding.create(this.lookup);
+    final MemorySegment text = this.arena.allocateFrom("buffer");
+    final long expected = text.address() + 6L;
+
+    final Pointer buffer =
+      libjack.jack_port_get_buffer(
+        Pointer.wrap(this.runtime, text.address()), 0);
+    Assert.assertEquals(expected, buffer.address());
+
+    final long address =
+      ((LibJackBufferAddressType) libjack)
+        .jack_port_get_buffer_address(text.address(), 0);
+    Assert.assertEquals(expected, address);
+  }
+
+  private static final class RecordingLookup implements SymbolLookup
+  {
+    private final Map<String, MemorySegment> symbols;
+    private final Set<String> requested;
+    private final Set<String> missing;
+
+    RecordingLookup()
+    {
+      this.symbols = new HashMap<>();
+      this.requested = new HashSet<>();
+      this.missing = new HashSet<>();
+    }
+
+    @Override
+    public Optional<MemorySegment> find(
+      final String name)
+    {
+      this.requested.add(name);
+      if (this.missing.contains(name)) {
+        return Optional.empty();
+      }
+      return Optional.of(this.symbols.getOrDefault(name, UNCALLED));
+    }
+  }
+}
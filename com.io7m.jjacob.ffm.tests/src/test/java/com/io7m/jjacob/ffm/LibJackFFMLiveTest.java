@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.ffm;
+
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientOpenException;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackPortType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.jnr.LibJackType;
+import com.io7m.jjacob.jnr.LibJackUnavailableException;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+/**
+ * Tests that run the client provider against the FFM binding and a real
+ * JACK server. The tests are skipped if libjack is not installed or no
+ * server is running.
+ */
+
+public final class LibJackFFMLiveTest
+{
+  private static JackClientProviderType provider()
+  {
+    final LibJackType libjack;
+    try {
+      libjack = LibJackFFM.get();
+    } catch (final LibJackUnavailableException e) {
+      Assume.assumeNoException(e);
+      throw new AssertionError(e);
+    }
+
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    return JackClientProvider.create(types, libjack);
+  }
+
+  private static JackClientType open(
+    final JackClientProviderType provider,
+    final String name)
+    throws JackException
+  {
+    try {
+      return provider.openClient(
+        JackClientConfiguration.builder()
+          .setClientName(name)
+          .build());
+    } catch (final JackClientOpenException e) {
+      Assume.assumeNoException(e);
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * A client can register ports, process audio through a connection
+   * between its own ports, and close.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 10_000L)
+  public void testClientProcess()
+    throws Exception
+  {
+    final JackClientProviderType provider = provider();
+
+    try (final JackClientType client = open(provider, "jjacob-ffm-test")) {
+      final JackPortType out =
+        client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+      final JackPortType in =
+        client.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+
+      Assert.assertTrue(out.belongsTo(client));
+      Assert.assertTrue(in.belongsTo(client));
+      Assert.assertEquals(
+        out.name(),
+        client.portByName(out.name()).get().name());
+
+      /*
+       * Each cycle writes a constant to the output. Once the connection
+       * has been made, the input receives the value written in an earlier
+       * cycle.
+       */
+
+      final CountDownLatch received = new CountDownLatch(8);
+      final AtomicBoolean corrupted = new AtomicBoolean();
+      client.setProcessCallback(context -> {
+        final JackBufferType out_buffer = context.portBuffer(out);
+        final JackBufferType in_buffer = context.portBuffer(in);
+        final int frames = context.bufferFrameCount();
+        for (int index = 0; index < frames; ++index) {
+          out_buffer.putF(index, 0.25f);
+        }
+
+        final float first = in_buffer.getF(0);
+        if (first == 0.25f) {
+          for (int index = 0; index < frames; ++index) {
+            if (in_buffer.getF(index) != 0.25f) {
+              corrupted.set(true);
+            }
+          }
+          received.countDown();
+        }
+      });
+
+      client.activate();
+      Assert.assertTrue(client.portsConnect(out.name(), in.name()));
+
+      Assert.assertTrue(
+        "Audio must arrive within the timeout",
+        received.await(5L, TimeUnit.SECONDS));
+      Assert.assertFalse("Audio must arrive intact", corrupted.get());
+      Assert.assertTrue(client.cpuLoad() >= 0.0f);
+      Assert.assertTrue(client.sampleRate() > 0);
+    }
+  }
+}
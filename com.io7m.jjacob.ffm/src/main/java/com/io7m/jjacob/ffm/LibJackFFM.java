@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.ffm;
+
+import com.io7m.jjacob.jnr.LibJackProviderType;
+import com.io7m.jjacob.jnr.LibJackType;
+import com.io7m.jjacob.jnr.LibJackUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.SymbolLookup;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A LibJack provider that uses the foreign function and memory API.
+ */
+
+public final class LibJackFFM implements LibJackProviderType
+{
+  private static final Logger LOG = LoggerFactory.getLogger(LibJackFFM.class);
+
+  private static final List<String> LIBRARY_NAMES =
+    List.of(System.mapLibraryName("jack"), "libjack.so.0");
+
+  /**
+   * Construct a provider.
+   */
+
+  public LibJackFFM()
+  {
+    // Nothing!
+  }
+
+  /**
+   * Get a LibJack implementation.
+   *
+   * @return a LibJack implementation
+   *
+   * @throws LibJackUnavailableException If no implementation is available
+   */
+
+  public static LibJackType get()
+    throws LibJackUnavailableException
+  {
+    return new LibJackFFM().create();
+  }
+
+  @Override
+  public LibJackType create()
+    throws LibJackUnavailableException
+  {
+    IllegalArgumentException failure = null;
+    for (final String name : LIBRARY_NAMES) {
+      try {
+        LOG.debug("loading libjack library: {}", name);
+        final SymbolLookup lookup =
+          SymbolLookup.libraryLookup(name, Arena.global());
+        final LibJackType libjack = LibJackFFMBinding.create(lookup);
+        LOG.debug("loaded libjack library: {}", libjack);
+        return libjack;
+      } catch (final IllegalArgumentException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      } catch (final NoSuchElementException e) {
+        throw new LibJackUnavailableException(e);
+      }
+    }
+    throw new LibJackUnavailableException(failure);
+  }
+}
@@ -0,0 +1,1281 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.ffm;
+
+import com.io7m.jjacob.jnr.LibJackBufferAddressType;
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+import jnr.ffi.provider.ParameterFlags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * An implementation of the libjack C API in terms of downcall and upcall
+ * handles. Pointer values are exchanged with callers as {@link Pointer}
+ * values so that the binding is interchangeable with the jnr-ffi binding.
+ *
+ * Callbacks are exposed to libjack as upcall stubs. Upcalls execute directly
+ * on the thread that libjack uses to invoke the callback (such as the
+ * real-time process thread), and that thread remains attached to the VM
+ * between calls; no Java threads are created per callback invocation.
+ *
+ * Port buffers are also available through {@link LibJackBufferAddressType},
+ * which passes addresses as 64-bit integers so that fetching a buffer on the
+ * process thread allocates neither a {@link Pointer} nor a
+ * {@link MemorySegment}.
+ */
+
+// CHECKSTYLE:OFF
+final class LibJackFFMBinding implements LibJackType, LibJackBufferAddressType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LibJackFFMBinding.class);
+
+  private static final Linker LINKER = Linker.nativeLinker();
+
+  private static final FunctionDescriptor PROCESS_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor SHUTDOWN_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(ADDRESS);
+  private static final FunctionDescriptor XRUN_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor PORT_REGISTRATION_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(JAVA_INT, JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor PORT_CONNECT_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor GRAPH_ORDER_DESCRIPTOR =
+    FunctionDescriptor.of(JAVA_INT, ADDRESS);
+  private static final FunctionDescriptor LATENCY_DESCRIPTOR =
+    FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS);
+
+  private static final MethodHandle PROCESS_UPCALL;
+  private static final MethodHandle SHUTDOWN_UPCALL;
+  private static final MethodHandle XRUN_UPCALL;
+  private static final MethodHandle PORT_REGISTRATION_UPCALL;
+  private static final MethodHandle PORT_CONNECT_UPCALL;
+  private static final MethodHandle GRAPH_ORDER_UPCALL;
+  private static final MethodHandle LATENCY_UPCALL;
+
+  static {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      PROCESS_UPCALL = lookup.findStatic(
+        LibJackFFMBinding.class,
+        "onProcess",
+        MethodType.methodType(
+          int.class,
+          ProcessCallbackType.class,
+          Runtime.class,
+          int.class,
+          MemorySegment.class));
+      SHUTDOWN_UPCALL = lookup.findStatic(
+        LibJackFFMBinding.class,
+        "onShutdown",
+        MethodType.methodType(
+          void.class,
+          ShutdownCallbackType.class,
+          Runtime.class,
+          MemorySegment.class));
+      XRUN_UPCALL = lookup.findStatic(
+        LibJackFFMBinding.class,
+        "onXRun",
+        MethodType.methodType(
+          int.class,
+          XRunCallbackType.class,
+          Runtime.class,
+          MemorySegment.class));
+      PORT_REGISTRATION_UPCALL = lookup.findStatic(
+        LibJackFFMBinding.class,
+        "onPortRegistration",
+        MethodType.methodType(
+          void.class,
+          PortRegistrationCallbackType.class,
+          Runtime.class,
+          int.class,
+          int.class,
+          MemorySegment.class));
+      PORT_CONNECT_UPCALL = lookup.findStatic(
+        LibJackFFMBinding.class,
+        "onPortConnect",
+        MethodType.methodType(
+          void.class,
+          PortConnectCallbackType.class,
+          Runtime.class,
+          int.class,
+          int.class,
+          int.class,
+          MemorySegment.class));
+      GRAPH_ORDER_UPCALL = lookup.findStatic(
+        LibJackFFMBinding.class,
+        "onGraphOrder",
+        MethodType.methodType(
+          int.class,
+          GraphOrderCallbackType.class,
+          Runtime.class,
+          MemorySegment.class));
+      LATENCY_UPCALL = lookup.findStatic(
+        LibJackFFMBinding.class,
+        "onLatency",
+        MethodType.methodType(
+          void.class,
+          LatencyCallbackType.class,
+          Runtime.class,
+          int.class,
+          MemorySegment.class));
+    } catch (final NoSuchMethodException | IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final Runtime runtime;
+  private final ConcurrentHashMap<Long, Arena> callback_arenas;
+
+  private final MethodHandle h_client_open;
+  private final MethodHandle h_client_close;
+  private final MethodHandle h_get_client_name;
+  private final MethodHandle h_get_sample_rate;
+  private final MethodHandle h_get_buffer_size;
+  private final MethodHandle h_cpu_load;
+  private final MethodHandle h_frame_time;
+  private final MethodHandle h_last_frame_time;
+  private final MethodHandle h_get_xrun_delayed_usecs;
+  private final MethodHandle h_set_process_callback;
+  private final MethodHandle h_set_xrun_callback;
+  private final MethodHandle h_set_port_registration_callback;
+  private final MethodHandle h_set_port_connect_callback;
+  private final MethodHandle h_set_graph_order_callback;
+  private final MethodHandle h_set_latency_callback;
+  private final MethodHandle h_port_get_latency_range;
+  private final MethodHandle h_port_set_latency_range;
+  private final MethodHandle h_recompute_total_latencies;
+  private final MethodHandle h_port_register;
+  private final MethodHandle h_on_shutdown;
+  private final MethodHandle h_get_ports;
+  private final MethodHandle h_free;
+  private final MethodHandle h_port_name;
+  private final MethodHandle h_port_short_name;
+  private final MethodHandle h_port_type;
+  private final MethodHandle h_port_flags;
+  private final MethodHandle h_port_is_mine;
+  private final MethodHandle h_port_get_buffer;
+  private final MethodHandle h_port_get_buffer_address;
+  private final MethodHandle h_port_name_size;
+  private final MethodHandle h_port_by_id;
+  private final MethodHandle h_port_get_all_connections;
+  private final MethodHandle h_port_by_name;
+  private final MethodHandle h_activate;
+  private final MethodHandle h_connect;
+  private final MethodHandle h_disconnect;
+  private final MethodHandle h_deactivate;
+  private final MethodHandle h_midi_get_event_count;
+  private final MethodHandle h_midi_get_lost_event_count;
+  private final MethodHandle h_midi_event_get;
+  private final MethodHandle h_midi_clear_buffer;
+  private final MethodHandle h_midi_event_reserve;
+  private final MethodHandle h_midi_event_write;
+
+  private LibJackFFMBinding(
+    final SymbolLookup lookup)
+  {
+    Objects.requireNonNull(lookup, "lookup");
+
+    this.runtime = Runtime.getSystemRuntime();
+    this.callback_arenas = new ConcurrentHashMap<>(8);
+
+    /*
+     * Functions that are called from the process callback are short,
+     * non-blocking, and never call back into Java, so they are linked as
+     * critical functions to avoid the thread state transitions.
+     */
+
+    final Linker.Option critical = Linker.Option.critical(false);
+
+    this.h_client_open = downcall(
+      lookup,
+      "jack_client_open",
+      FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT, ADDRESS, ADDRESS),
+      Linker.Option.firstVariadicArg(3));
+    this.h_client_close = downcall(
+      lookup,
+      "jack_client_close",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_get_client_name = downcall(
+      lookup,
+      "jack_get_client_name",
+      FunctionDescriptor.of(ADDRESS, ADDRESS));
+    this.h_get_sample_rate = downcall(
+      lookup,
+      "jack_get_sample_rate",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_get_buffer_size = downcall(
+      lookup,
+      "jack_get_buffer_size",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_cpu_load = downcall(
+      lookup,
+      "jack_cpu_load",
+      FunctionDescriptor.of(JAVA_FLOAT, ADDRESS));
+    this.h_frame_time = downcall(
+      lookup,
+      "jack_frame_time",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_last_frame_time = downcall(
+      lookup,
+      "jack_last_frame_time",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_get_xrun_delayed_usecs = downcall(
+      lookup,
+      "jack_get_xrun_delayed_usecs",
+      FunctionDescriptor.of(JAVA_FLOAT, ADDRESS));
+    this.h_set_process_callback = downcall(
+      lookup,
+      "jack_set_process_callback",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_set_xrun_callback = downcall(
+      lookup,
+      "jack_set_xrun_callback",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_set_port_registration_callback = downcall(
+      lookup,
+      "jack_set_port_registration_callback",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_set_port_connect_callback = downcall(
+      lookup,
+      "jack_set_port_connect_callback",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_set_graph_order_callback = downcall(
+      lookup,
+      "jack_set_graph_order_callback",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_set_latency_callback = downcall(
+      lookup,
+      "jack_set_latency_callback",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_port_get_latency_range = downcall(
+      lookup,
+      "jack_port_get_latency_range",
+      FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, ADDRESS));
+    this.h_port_set_latency_range = downcall(
+      lookup,
+      "jack_port_set_latency_range",
+      FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, ADDRESS));
+    this.h_recompute_total_latencies = downcall(
+      lookup,
+      "jack_recompute_total_latencies",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_port_register = downcall(
+      lookup,
+      "jack_port_register",
+      FunctionDescriptor.of(
+        ADDRESS, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG, JAVA_LONG));
+    this.h_on_shutdown = downcall(
+      lookup,
+      "jack_on_shutdown",
+      FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, ADDRESS));
+    this.h_get_ports = downcall(
+      lookup,
+      "jack_get_ports",
+      FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG));
+    this.h_free = downcall(
+      lookup,
+      "jack_free",
+      FunctionDescriptor.ofVoid(ADDRESS));
+    this.h_port_name = downcall(
+      lookup,
+      "jack_port_name",
+      FunctionDescriptor.of(ADDRESS, ADDRESS));
+    this.h_port_short_name = downcall(
+      lookup,
+      "jack_port_short_name",
+      FunctionDescriptor.of(ADDRESS, ADDRESS));
+    this.h_port_type = downcall(
+      lookup,
+      "jack_port_type",
+      FunctionDescriptor.of(ADDRESS, ADDRESS));
+    this.h_port_flags = downcall(
+      lookup,
+      "jack_port_flags",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_port_is_mine = downcall(
+      lookup,
+      "jack_port_is_mine",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    this.h_port_get_buffer = downcall(
+      lookup,
+      "jack_port_get_buffer",
+      FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT),
+      critical);
+
+    /*
+     * On the 64-bit platforms supported by the native linker, pointers are
+     * passed and returned in exactly the same way as 64-bit integers, so the
+     * same function can be linked a second time with integer types.
+     */
+
+    if (ADDRESS.byteSize() == 8L) {
+      this.h_port_get_buffer_address = downcall(
+        lookup,
+        "jack_port_get_buffer",
+        FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_INT),
+        critical);
+    } else {
+      this.h_port_get_buffer_address = null;
+    }
+    this.h_port_name_size = downcall(
+      lookup,
+      "jack_port_name_size",
+      FunctionDescriptor.of(JAVA_INT));
+    this.h_port_by_id = downcall(
+      lookup,
+      "jack_port_by_id",
+      FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT));
+    this.h_port_get_all_connections = downcall(
+      lookup,
+      "jack_port_get_all_connections",
+      FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
+    this.h_port_by_name = downcall(
+      lookup,
+      "jack_port_by_name",
+      FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
+    this.h_activate = downcall(
+      lookup,
+      "jack_activate",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_connect = downcall(
+      lookup,
+      "jack_connect",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_disconnect = downcall(
+      lookup,
+      "jack_disconnect",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    this.h_deactivate = downcall(
+      lookup,
+      "jack_deactivate",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    this.h_midi_get_event_count = downcall(
+      lookup,
+      "jack_midi_get_event_count",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS),
+      critical);
+    this.h_midi_get_lost_event_count = downcall(
+      lookup,
+      "jack_midi_get_lost_event_count",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS),
+      critical);
+    this.h_midi_event_get = downcall(
+      lookup,
+      "jack_midi_event_get",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT),
+      critical);
+    this.h_midi_clear_buffer = downcall(
+      lookup,
+      "jack_midi_clear_buffer",
+      FunctionDescriptor.ofVoid(ADDRESS),
+      critical);
+    this.h_midi_event_reserve = downcall(
+      lookup,
+      "jack_midi_event_reserve",
+      FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT, JAVA_LONG),
+      critical);
+    this.h_midi_event_write = downcall(
+      lookup,
+      "jack_midi_event_write",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, JAVA_LONG),
+      critical);
+  }
+
+  /**
+   * Create a binding using the given library.
+   *
+   * @param lookup The library symbols
+   *
+   * @return A new binding
+   *
+   * @throws java.util.NoSuchElementException If a required symbol is missing
+   */
+
+  static LibJackType create(
+    final SymbolLookup lookup)
+  {
+    return new LibJackFFMBinding(lookup);
+  }
+
+  private static MethodHandle downcall(
+    final SymbolLookup lookup,
+    final String name,
+    final FunctionDescriptor descriptor,
+    final Linker.Option... options)
+  {
+    return LINKER.downcallHandle(
+      lookup.find(name).orElseThrow(),
+      descriptor,
+      options);
+  }
+
+  private static int onProcess(
+    final ProcessCallbackType callback,
+    final Runtime runtime,
+    final int frames,
+    final MemorySegment data)
+  {
+    /*
+     * An exception escaping an upcall terminates the VM, and logging here
+     * would happen on the real-time thread, so failures are simply reported
+     * to the server.
+     */
+
+    try {
+      return callback.call(frames, pointerOrNull(runtime, data));
+    } catch (final Throwable e) {
+      return -1;
+    }
+  }
+
+  private static void onShutdown(
+    final ShutdownCallbackType callback,
+    final Runtime runtime,
+    final MemorySegment data)
+  {
+    try {
+      callback.call(pointerOrNull(runtime, data));
+    } catch (final Throwable e) {
+      LOG.error("Shutdown callback raised exception: ", e);
+    }
+  }
+
+  private static int onXRun(
+    final XRunCallbackType callback,
+    final Runtime runtime,
+    final MemorySegment data)
+  {
+    try {
+      return callback.call(pointerOrNull(runtime, data));
+    } catch (final Throwable e) {
+      LOG.error("XRun callback raised exception: ", e);
+      return -1;
+    }
+  }
+
+  private static void onPortRegistration(
+    final PortRegistrationCallbackType callback,
+    final Runtime runtime,
+    final int port,
+    final int register,
+    final MemorySegment data)
+  {
+    try {
+      callback.call(port, register, pointerOrNull(runtime, data));
+    } catch (final Throwable e) {
+      LOG.error("Port registration callback raised exception: ", e);
+    }
+  }
+
+  private static void onPortConnect(
+    final PortConnectCallbackType callback,
+    final Runtime runtime,
+    final int port_a,
+    final int port_b,
+    final int connect,
+    final MemorySegment data)
+  {
+    try {
+      callback.call(port_a, port_b, connect, pointerOrNull(runtime, data));
+    } catch (final Throwable e) {
+      LOG.error("Port connect callback raised exception: ", e);
+    }
+  }
+
+  private static int onGraphOrder(
+    final GraphOrderCallbackType callback,
+    final Runtime runtime,
+    final MemorySegment data)
+  {
+    try {
+      return callback.call(pointerOrNull(runtime, data));
+    } catch (final Throwable e) {
+      LOG.error("Graph order callback raised exception: ", e);
+      return -1;
+    }
+  }
+
+  private static void onLatency(
+    final LatencyCallbackType callback,
+    final Runtime runtime,
+    final int mode,
+    final MemorySegment data)
+  {
+    try {
+      callback.call(mode, pointerOrNull(runtime, data));
+    } catch (final Throwable e) {
+      LOG.error("Latency callback raised exception: ", e);
+    }
+  }
+
+  private static Pointer pointerOrNull(
+    final Runtime runtime,
+    final MemorySegment data)
+  {
+    final long address = data.address();
+    if (address == 0L) {
+      return null;
+    }
+    return Pointer.wrap(runtime, address);
+  }
+
+  private static MemorySegment segmentOf(
+    final Pointer pointer)
+  {
+    if (pointer == null) {
+      return MemorySegment.NULL;
+    }
+    return MemorySegment.ofAddress(pointer.address());
+  }
+
+  private static MemorySegment stringOf(
+    final Arena arena,
+    final String text)
+  {
+    if (text == null) {
+      return MemorySegment.NULL;
+    }
+    return arena.allocateFrom(text);
+  }
+
+  private static String stringFrom(
+    final MemorySegment segment)
+  {
+    if (segment.address() == 0L) {
+      return null;
+    }
+    return segment.reinterpret(Long.MAX_VALUE).getString(0L);
+  }
+
+  private static IllegalStateException failed(
+    final String function,
+    final Throwable cause)
+  {
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IllegalStateException(
+      "Call to " + function + " failed", cause);
+  }
+
+  private Pointer pointerOf(
+    final MemorySegment segment)
+  {
+    return Pointer.wrap(this.runtime, segment.address());
+  }
+
+  private Arena callbackArena(
+    final Pointer client)
+  {
+    return this.callback_arenas.computeIfAbsent(
+      Long.valueOf(client.address()),
+      address -> Arena.ofShared());
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[LibJackFFM]";
+  }
+
+  @Override
+  public Pointer jack_client_open(
+    final String name,
+    final int options,
+    final int[] status,
+    final String server_name)
+  {
+    try (Arena arena = Arena.ofConfined()) {
+      final MemorySegment status_seg = arena.allocate(JAVA_INT);
+      final MemorySegment result =
+        (MemorySegment) this.h_client_open.invokeExact(
+          stringOf(arena, name),
+          options,
+          status_seg,
+          stringOf(arena, server_name));
+      status[0] = status_seg.get(JAVA_INT, 0L);
+      return this.pointerOf(result);
+    } catch (final Throwable e) {
+      throw failed("jack_client_open", e);
+    }
+  }
+
+  @Override
+  public int jack_client_close(
+    final Pointer client)
+  {
+    final int result;
+    try {
+      result = (int) this.h_client_close.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_client_close", e);
+    }
+
+    /*
+     * The server will not call any of the client's callbacks after the
+     * client has been closed, so the upcall stubs can be released.
+     */
+
+    final Arena arena =
+      this.callback_arenas.remove(Long.valueOf(client.address()));
+    if (arena != null) {
+      arena.close();
+    }
+    return result;
+  }
+
+  @Override
+  public String jack_get_client_name(
+    final Pointer client)
+  {
+    try {
+      return stringFrom(
+        (MemorySegment) this.h_get_client_name.invokeExact(
+          segmentOf(client)));
+    } catch (final Throwable e) {
+      throw failed("jack_get_client_name", e);
+    }
+  }
+
+  @Override
+  public int jack_get_sample_rate(
+    final Pointer client)
+  {
+    try {
+      return (int) this.h_get_sample_rate.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_get_sample_rate", e);
+    }
+  }
+
+  @Override
+  public int jack_get_buffer_size(
+    final Pointer client)
+  {
+    try {
+      return (int) this.h_get_buffer_size.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_get_buffer_size", e);
+    }
+  }
+
+  @Override
+  public float jack_cpu_load(
+    final Pointer client)
+  {
+    try {
+      return (float) this.h_cpu_load.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_cpu_load", e);
+    }
+  }
+
+  @Override
+  public int jack_frame_time(
+    final Pointer client)
+  {
+    try {
+      return (int) this.h_frame_time.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_frame_time", e);
+    }
+  }
+
+  @Override
+  public int jack_last_frame_time(
+    final Pointer client)
+  {
+    try {
+      return (int) this.h_last_frame_time.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_last_frame_time", e);
+    }
+  }
+
+  @Override
+  public float jack_get_xrun_delayed_usecs(
+    final Pointer client)
+  {
+    try {
+      return (float) this.h_get_xrun_delayed_usecs.invokeExact(
+        segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_get_xrun_delayed_usecs", e);
+    }
+  }
+
+  @Override
+  public int jack_set_process_callback(
+    final Pointer client,
+    final ProcessCallbackType process,
+    final Pointer data)
+  {
+    Objects.requireNonNull(process, "process");
+
+    final MemorySegment stub =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(
+          PROCESS_UPCALL, 0, process, this.runtime),
+        PROCESS_DESCRIPTOR,
+        this.callbackArena(client));
+
+    try {
+      return (int) this.h_set_process_callback.invokeExact(
+        segmentOf(client), stub, segmentOf(data));
+    } catch (final Throwable e) {
+      throw failed("jack_set_process_callback", e);
+    }
+  }
+
+  @Override
+  public int jack_set_xrun_callback(
+    final Pointer client,
+    final XRunCallbackType process,
+    final Pointer data)
+  {
+    Objects.requireNonNull(process, "process");
+
+    final MemorySegment stub =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(
+          XRUN_UPCALL, 0, process, this.runtime),
+        XRUN_DESCRIPTOR,
+        this.callbackArena(client));
+
+    try {
+      return (int) this.h_set_xrun_callback.invokeExact(
+        segmentOf(client), stub, segmentOf(data));
+    } catch (final Throwable e) {
+      throw failed("jack_set_xrun_callback", e);
+    }
+  }
+
+  @Override
+  public int jack_set_port_registration_callback(
+    final Pointer client,
+    final PortRegistrationCallbackType callback,
+    final Pointer data)
+  {
+    Objects.requireNonNull(callback, "callback");
+
+    final MemorySegment stub =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(
+          PORT_REGISTRATION_UPCALL, 0, callback, this.runtime),
+        PORT_REGISTRATION_DESCRIPTOR,
+        this.callbackArena(client));
+
+    try {
+      return (int) this.h_set_port_registration_callback.invokeExact(
+        segmentOf(client), stub, segmentOf(data));
+    } catch (final Throwable e) {
+      throw failed("jack_set_port_registration_callback", e);
+    }
+  }
+
+  @Override
+  public int jack_set_port_connect_callback(
+    final Pointer client,
+    final PortConnectCallbackType callback,
+    final Pointer data)
+  {
+    Objects.requireNonNull(callback, "callback");
+
+    final MemorySegment stub =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(
+          PORT_CONNECT_UPCALL, 0, callback, this.runtime),
+        PORT_CONNECT_DESCRIPTOR,
+        this.callbackArena(client));
+
+    try {
+      return (int) this.h_set_port_connect_callback.invokeExact(
+        segmentOf(client), stub, segmentOf(data));
+    } catch (final Throwable e) {
+      throw failed("jack_set_port_connect_callback", e);
+    }
+  }
+
+  @Override
+  public int jack_set_graph_order_callback(
+    final Pointer client,
+    final GraphOrderCallbackType callback,
+    final Pointer data)
+  {
+    Objects.requireNonNull(callback, "callback");
+
+    final MemorySegment stub =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(
+          GRAPH_ORDER_UPCALL, 0, callback, this.runtime),
+        GRAPH_ORDER_DESCRIPTOR,
+        this.callbackArena(client));
+
+    try {
+      return (int) this.h_set_graph_order_callback.invokeExact(
+        segmentOf(client), stub, segmentOf(data));
+    } catch (final Throwable e) {
+      throw failed("jack_set_graph_order_callback", e);
+    }
+  }
+
+  @Override
+  public int jack_set_latency_callback(
+    final Pointer client,
+    final LatencyCallbackType callback,
+    final Pointer data)
+  {
+    Objects.requireNonNull(callback, "callback");
+
+    final MemorySegment stub =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(
+          LATENCY_UPCALL, 0, callback, this.runtime),
+        LATENCY_DESCRIPTOR,
+        this.callbackArena(client));
+
+    try {
+      return (int) this.h_set_latency_callback.invokeExact(
+        segmentOf(client), stub, segmentOf(data));
+    } catch (final Throwable e) {
+      throw failed("jack_set_latency_callback", e);
+    }
+  }
+
+  @Override
+  public void jack_port_get_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+    try {
+      this.h_port_get_latency_range.invokeExact(
+        segmentOf(port), mode, segmentOf(range));
+    } catch (final Throwable e) {
+      throw failed("jack_port_get_latency_range", e);
+    }
+  }
+
+  @Override
+  public void jack_port_set_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+    try {
+      this.h_port_set_latency_range.invokeExact(
+        segmentOf(port), mode, segmentOf(range));
+    } catch (final Throwable e) {
+      throw failed("jack_port_set_latency_range", e);
+    }
+  }
+
+  @Override
+  public int jack_recompute_total_latencies(
+    final Pointer client)
+  {
+    try {
+      return (int) this.h_recompute_total_latencies.invokeExact(
+        segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_recompute_total_latencies", e);
+    }
+  }
+
+  @Override
+  public Pointer jack_port_register(
+    final Pointer client,
+    final String port_name,
+    final String port_type,
+    final long flags,
+    final long buffer_size)
+  {
+    try (Arena arena = Arena.ofConfined()) {
+      return this.pointerOf(
+        (MemorySegment) this.h_port_register.invokeExact(
+          segmentOf(client),
+          stringOf(arena, port_name),
+          stringOf(arena, port_type),
+          flags,
+          buffer_size));
+    } catch (final Throwable e) {
+      throw failed("jack_port_register", e);
+    }
+  }
+
+  @Override
+  public void jack_on_shutdown(
+    final Pointer client,
+    final ShutdownCallbackType process,
+    final Pointer data)
+  {
+    Objects.requireNonNull(process, "process");
+
+    final MemorySegment stub =
+      LINKER.upcallStub(
+        MethodHandles.insertArguments(
+          SHUTDOWN_UPCALL, 0, process, this.runtime),
+        SHUTDOWN_DESCRIPTOR,
+        this.callbackArena(client));
+
+    try {
+      this.h_on_shutdown.invokeExact(
+        segmentOf(client), stub, segmentOf(data));
+    } catch (final Throwable e) {
+      throw failed("jack_on_shutdown", e);
+    }
+  }
+
+  @Override
+  public Pointer jack_get_ports(
+    final Pointer client,
+    final String port_name_pattern,
+    final String type_name_pattern,
+    final long flags)
+  {
+    try (Arena arena = Arena.ofConfined()) {
+      return this.pointerOf(
+        (MemorySegment) this.h_get_ports.invokeExact(
+          segmentOf(client),
+          stringOf(arena, port_name_pattern),
+          stringOf(arena, type_name_pattern),
+          flags));
+    } catch (final Throwable e) {
+      throw failed("jack_get_ports", e);
+    }
+  }
+
+  @Override
+  public void jack_free(
+    final Pointer pointer)
+  {
+    try {
+      this.h_free.invokeExact(segmentOf(pointer));
+    } catch (final Throwable e) {
+      throw failed("jack_free", e);
+    }
+  }
+
+  @Override
+  public String jack_port_name(
+    final Pointer port)
+  {
+    try {
+      return stringFrom(
+        (MemorySegment) this.h_port_name.invokeExact(segmentOf(port)));
+    } catch (final Throwable e) {
+      throw failed("jack_port_name", e);
+    }
+  }
+
+  @Override
+  public String jack_port_short_name(
+    final Pointer pointer)
+  {
+    try {
+      return stringFrom(
+        (MemorySegment) this.h_port_short_name.invokeExact(
+          segmentOf(pointer)));
+    } catch (final Throwable e) {
+      throw failed("jack_port_short_name", e);
+    }
+  }
+
+  @Override
+  public String jack_port_type(
+    final Pointer pointer)
+  {
+    try {
+      return stringFrom(
+        (MemorySegment) this.h_port_type.invokeExact(segmentOf(pointer)));
+    } catch (final Throwable e) {
+      throw failed("jack_port_type", e);
+    }
+  }
+
+  @Override
+  public int jack_port_flags(
+    final Pointer pointer)
+  {
+    try {
+      return (int) this.h_port_flags.invokeExact(segmentOf(pointer));
+    } catch (final Throwable e) {
+      throw failed("jack_port_flags", e);
+    }
+  }
+
+  @Override
+  public boolean jack_port_is_mine(
+    final Pointer client,
+    final Pointer pointer)
+  {
+    try {
+      return (int) this.h_port_is_mine.invokeExact(
+        segmentOf(client), segmentOf(pointer)) != 0;
+    } catch (final Throwable e) {
+      throw failed("jack_port_is_mine", e);
+    }
+  }
+
+  @Override
+  public Pointer jack_port_get_buffer(
+    final Pointer port,
+    final int frames)
+  {
+    try {
+      return this.pointerOf(
+        (MemorySegment) this.h_port_get_buffer.invokeExact(
+          segmentOf(port), frames));
+    } catch (final Throwable e) {
+      throw failed("jack_port_get_buffer", e);
+    }
+  }
+
+  @Override
+  public long jack_port_get_buffer_address(
+    final long port,
+    final int frames)
+  {
+    final MethodHandle handle = this.h_port_get_buffer_address;
+    if (handle == null) {
+      return this.jack_port_get_buffer(
+        Pointer.wrap(this.runtime, port), frames).address();
+    }
+
+    try {
+      return (long) handle.invokeExact(port, frames);
+    } catch (final Throwable e) {
+      throw failed("jack_port_get_buffer", e);
+    }
+  }
+
+  @Override
+  public int jack_port_name_size()
+  {
+    try {
+      return (int) this.h_port_name_size.invokeExact();
+    } catch (final Throwable e) {
+      throw failed("jack_port_name_size", e);
+    }
+  }
+
+  @Override
+  public Pointer jack_port_by_id(
+    final Pointer client,
+    final int port_id)
+  {
+    try {
+      return this.pointerOf(
+        (MemorySegment) this.h_port_by_id.invokeExact(
+          segmentOf(client), port_id));
+    } catch (final Throwable e) {
+      throw failed("jack_port_by_id", e);
+    }
+  }
+
+  @Override
+  public Pointer jack_port_get_all_connections(
+    final Pointer client,
+    final Pointer port)
+  {
+    try {
+      return this.pointerOf(
+        (MemorySegment) this.h_port_get_all_connections.invokeExact(
+          segmentOf(client), segmentOf(port)));
+    } catch (final Throwable e) {
+      throw failed("jack_port_get_all_connections", e);
+    }
+  }
+
+  @Override
+  public Pointer jack_port_by_name(
+    final Pointer client,
+    final String name)
+  {
+    try (Arena arena = Arena.ofConfined()) {
+      return this.pointerOf(
+        (MemorySegment) this.h_port_by_name.invokeExact(
+          segmentOf(client), stringOf(arena, name)));
+    } catch (final Throwable e) {
+      throw failed("jack_port_by_name", e);
+    }
+  }
+
+  @Override
+  public int jack_activate(
+    final Pointer client)
+  {
+    try {
+      return (int) this.h_activate.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_activate", e);
+    }
+  }
+
+  @Override
+  public int jack_connect(
+    final Pointer client,
+    final String source_port,
+    final String target_port)
+  {
+    try (Arena arena = Arena.ofConfined()) {
+      return (int) this.h_connect.invokeExact(
+        segmentOf(client),
+        stringOf(arena, source_port),
+        stringOf(arena, target_port));
+    } catch (final Throwable e) {
+      throw failed("jack_connect", e);
+    }
+  }
+
+  @Override
+  public int jack_disconnect(
+    final Pointer client,
+    final String source_port,
+    final String target_port)
+  {
+    try (Arena arena = Arena.ofConfined()) {
+      return (int) this.h_disconnect.invokeExact(
+        segmentOf(client),
+        stringOf(arena, source_port),
+        stringOf(arena, target_port));
+    } catch (final Throwable e) {
+      throw failed("jack_disconnect", e);
+    }
+  }
+
+  @Override
+  public int jack_deactivate(
+    final Pointer client)
+  {
+    try {
+      return (int) this.h_deactivate.invokeExact(segmentOf(client));
+    } catch (final Throwable e) {
+      throw failed("jack_deactivate", e);
+    }
+  }
+
+  @Override
+  public int jack_midi_get_event_count(
+    final Pointer buffer)
+  {
+    try {
+      return (int) this.h_midi_get_event_count.invokeExact(segmentOf(buffer));
+    } catch (final Throwable e) {
+      throw failed("jack_midi_get_event_count", e);
+    }
+  }
+
+  @Override
+  public int jack_midi_get_lost_event_count(
+    final Pointer buffer)
+  {
+    try {
+      return (int) this.h_midi_get_lost_event_count.invokeExact(
+        segmentOf(buffer));
+    } catch (final Throwable e) {
+      throw failed("jack_midi_get_lost_event_count", e);
+    }
+  }
+
+  @Override
+  public int jack_midi_event_get(
+    final MidiEvent event,
+    final Pointer buffer,
+    final int index)
+  {
+    /*
+     * The jnr structure has the same layout as jack_midi_event_t. Backing
+     * it with direct memory (allocated once, on first use) allows libjack
+     * to write the event directly into the structure.
+     */
+
+    final Pointer memory = Struct.getMemory(event, ParameterFlags.DIRECT);
+    try {
+      return (int) this.h_midi_event_get.invokeExact(
+        segmentOf(memory), segmentOf(buffer), index);
+    } catch (final Throwable e) {
+      throw failed("jack_midi_event_get", e);
+    }
+  }
+
+  @Override
+  public void jack_midi_clear_buffer(
+    final Pointer buffer)
+  {
+    try {
+      this.h_midi_clear_buffer.invokeExact(segmentOf(buffer));
+    } catch (final Throwable e) {
+      throw failed("jack_midi_clear_buffer", e);
+    }
+  }
+
+  @Override
+  public Pointer jack_midi_event_reserve(
+    final Pointer buffer,
+    final int time,
+    final long data_size)
+  {
+    try {
+      return this.pointerOf(
+        (MemorySegment) this.h_midi_event_reserve.invokeExact(
+          segmentOf(buffer), time, data_size));
+    } catch (final Throwable e) {
+      throw failed("jack_midi_event_reserve", e);
+    }
+  }
+
+  @Override
+  public int jack_midi_event_write(
+    final Pointer buffer,
+    final int time,
+    final Pointer data,
+    final long data_size)
+  {
+    try {
+      return (int) this.h_midi_event_write.invokeExact(
+        segmentOf(buffer), time, segmentOf(data), data_size);
+    } catch (final Throwable e) {
+      throw failed("jack_midi_event_write", e);
+    }
+  }
+}
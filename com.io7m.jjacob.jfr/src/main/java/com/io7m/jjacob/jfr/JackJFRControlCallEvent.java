@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A control-plane call made by a JACK client.
+ */
+
+@Name("com.io7m.jjacob.ControlCall")
+@Label("JACK Control Call")
+@Category("JACK")
+@Description("A control-plane call (such as jack_connect) made by a JACK client")
+final class JackJFRControlCallEvent extends Event
+{
+  @Label("Client")
+  private String client;
+
+  @Label("Function")
+  @Description("The name of the JACK function")
+  private String function;
+
+  @Label("Call Time")
+  @Description("The time taken by the call")
+  @Timespan(Timespan.NANOSECONDS)
+  @Name("callTime")
+  private long call_time;
+
+  @Label("Succeeded")
+  private boolean succeeded;
+
+  JackJFRControlCallEvent()
+  {
+
+  }
+
+  void setClient(
+    final String value)
+  {
+    this.client = value;
+  }
+
+  void setFunction(
+    final String value)
+  {
+    this.function = value;
+  }
+
+  void setCallTime(
+    final long value)
+  {
+    this.call_time = value;
+  }
+
+  void setSucceeded(
+    final boolean value)
+  {
+    this.succeeded = value;
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.jfr;
+
+import com.io7m.jjacob.api.JackClientInstrumentationType;
+import com.io7m.jjacob.api.JackClientType;
+import jdk.jfr.EventType;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instrumentation that emits Java Flight Recorder events. Events are only
+ * constructed when the corresponding event type is enabled in a running
+ * recording; otherwise each hook costs a single flag check. Process cycle
+ * events are sampled: only every {@code N}th cycle of each client is
+ * measured and recorded. A single process cycle event is allocated for each
+ * client when the client is opened and is reused for every recorded cycle,
+ * so nothing is allocated on the process thread.
+ */
+
+public final class JackJFRInstrumentation
+  implements JackClientInstrumentationType
+{
+  private static final EventType PROCESS_CYCLE =
+    EventType.getEventType(JackJFRProcessCycleEvent.class);
+  private static final EventType XRUN =
+    EventType.getEventType(JackJFRXRunEvent.class);
+  private static final EventType CONTROL_CALL =
+    EventType.getEventType(JackJFRControlCallEvent.class);
+
+  private final int cycle_interval;
+  private final Map<JackClientType, JackJFRProcessCycleEvent> cycle_events;
+
+  private JackJFRInstrumentation(
+    final int in_cycle_interval)
+  {
+    this.cycle_interval = in_cycle_interval;
+    this.cycle_events = new ConcurrentHashMap<>(16);
+  }
+
+  /**
+   * Create new instrumentation.
+   *
+   * @param cycle_interval The process cycle sampling interval; a value of
+   *                       {@code 1} records every cycle, and a value of
+   *                       {@code 100} records every 100th cycle
+   *
+   * @return New instrumentation
+   */
+
+  public static JackClientInstrumentationType create(
+    final int cycle_interval)
+  {
+    if (cycle_interval <= 0) {
+      throw new IllegalArgumentException(
+        "Cycle interval must be positive (received " + cycle_interval + ")");
+    }
+    return new JackJFRInstrumentation(cycle_interval);
+  }
+
+  @Override
+  public void onClientOpened(
+    final JackClientType client)
+  {
+    final JackJFRProcessCycleEvent event = new JackJFRProcessCycleEvent();
+    event.setClient(client.name());
+    event.setSampleInterval(this.cycle_interval);
+    this.cycle_events.put(client, event);
+  }
+
+  @Override
+  public void onClientClosed(
+    final JackClientType client)
+  {
+    this.cycle_events.remove(client);
+  }
+
+  /*
+   * The event is begun here, immediately before the client executes the
+   * process callback, and ended in onProcessCycle immediately afterwards, so
+   * that the duration of the event covers the callback.
+   */
+
+  @Override
+  public boolean onProcessCycleWanted(
+    final JackClientType client)
+  {
+    if (!PROCESS_CYCLE.isEnabled()) {
+      return false;
+    }
+    final long cycle = client.xrunStatistics().processCycles();
+    if (cycle % (long) this.cycle_interval != 0L) {
+      return false;
+    }
+
+    final JackJFRProcessCycleEvent event = this.cycle_events.get(client);
+    if (event == null) {
+      return false;
+    }
+    event.begin();
+    return true;
+  }
+
+  @Override
+  public void onProcessCycle(
+    final JackClientType client,
+    final int frames,
+    final long time_nanos,
+    final int ports)
+  {
+    final JackJFRProcessCycleEvent event = this.cycle_events.get(client);
+    if (event != null) {
+      event.end();
+      event.setFrames(frames);
+      event.setProcessTime(time_nanos);
+      event.setPorts(ports);
+      event.commit();
+    }
+  }
+
+  @Override
+  public void onXRun(
+    final JackClientType client,
+    final float delay_usecs)
+  {
+    if (XRUN.isEnabled()) {
+      final JackJFRXRunEvent event = new JackJFRXRunEvent();
+      event.setClient(client.name());
+      event.setDelayMicroseconds(delay_usecs);
+      event.commit();
+    }
+  }
+
+  @Override
+  public void onControlCall(
+    final JackClientType client,
+    final String function,
+    final long time_nanos,
+    final boolean succeeded)
+  {
+    Objects.requireNonNull(function, "function");
+
+    if (CONTROL_CALL.isEnabled()) {
+      final JackJFRControlCallEvent event = new JackJFRControlCallEvent();
+      event.setClient(client.name());
+      event.setFunction(function);
+      event.setCallTime(time_nanos);
+      event.setSucceeded(succeeded);
+      event.commit();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return new StringBuilder(64)
+      .append("[JackJFRInstrumentation cycle_interval=")
+      .append(this.cycle_interval)
+      .append("]")
+      .toString();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A sampled process cycle of a JACK client.
+ */
+
+@Name("com.io7m.jjacob.ProcessCycle")
+@Label("JACK Process Cycle")
+@Category("JACK")
+@Description("A sampled process cycle of a JACK client")
+@StackTrace(false)
+final class JackJFRProcessCycleEvent extends Event
+{
+  @Label("Client")
+  private String client;
+
+  @Label("Frames")
+  @Description("The number of frames processed in the cycle")
+  private int frames;
+
+  @Label("Process Time")
+  @Description("The time taken by the process callback")
+  @Timespan(Timespan.NANOSECONDS)
+  @Name("processTime")
+  private long process_time;
+
+  @Label("Ports")
+  @Description("The number of port buffers accessed during the cycle")
+  private int ports;
+
+  @Label("Sample Interval")
+  @Description("The number of cycles represented by each recorded cycle")
+  @Name("sampleInterval")
+  private int sample_interval;
+
+  JackJFRProcessCycleEvent()
+  {
+
+  }
+
+  void setClient(
+    final String value)
+  {
+    this.client = value;
+  }
+
+  void setFrames(
+    final int value)
+  {
+    this.frames = value;
+  }
+
+  void setProcessTime(
+    final long value)
+  {
+    this.process_time = value;
+  }
+
+  void setPorts(
+    final int value)
+  {
+    this.ports = value;
+  }
+
+  void setSampleInterval(
+    final int value)
+  {
+    this.sample_interval = value;
+  }
+}
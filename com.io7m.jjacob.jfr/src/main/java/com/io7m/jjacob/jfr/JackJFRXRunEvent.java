@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An xrun reported to a JACK client.
+ */
+
+@Name("com.io7m.jjacob.XRun")
+@Label("JACK XRun")
+@Category("JACK")
+@Description("An xrun (buffer underrun or overrun) reported to a JACK client")
+@StackTrace(false)
+final class JackJFRXRunEvent extends Event
+{
+  @Label("Client")
+  private String client;
+
+  @Label("Delay")
+  @Description("The delay reported by JACK in microseconds")
+  @Name("delayMicroseconds")
+  private float delay_microseconds;
+
+  JackJFRXRunEvent()
+  {
+
+  }
+
+  void setClient(
+    final String value)
+  {
+    this.client = value;
+  }
+
+  void setDelayMicroseconds(
+    final float value)
+  {
+    this.delay_microseconds = value;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.jfr.JackJFRInstrumentation;
+import com.io7m.jjacob.simulated.JackSimulatedEngine;
+import com.io7m.jjacob.simulated.JackSimulatedEngineConfiguration;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+public final class JackJFRInstrumentationTest
+{
+  private JackSimulatedEngine engine;
+  private JackClientProviderType provider;
+  private Path file;
+
+  private static List<RecordedEvent> named(
+    final List<RecordedEvent> events,
+    final String name)
+  {
+    return events.stream()
+      .filter(event -> name.equals(event.getEventType().getName()))
+      .collect(Collectors.toList());
+  }
+
+  @Before
+  public void setup()
+    throws Exception
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    this.engine =
+      JackSimulatedEngine.create(
+        JackSimulatedEngineConfiguration.builder().build());
+    this.provider =
+      JackClientProvider.create(
+        types, this.engine.libjack(), JackJFRInstrumentation.create(2));
+    this.file = Files.createTempFile("jjacob-jfr", ".jfr");
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.engine.close();
+    Files.deleteIfExists(this.file);
+  }
+
+  @Test
+  public void testEventsRecorded()
+    throws Exception
+  {
+    final List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable("com.io7m.jjacob.ProcessCycle").withoutThreshold();
+      recording.enable("com.io7m.jjacob.XRun").withoutThreshold();
+      recording.enable("com.io7m.jjacob.ControlCall").withoutThreshold();
+      recording.start();
+
+      final JackClientType client =
+        this.provider.openClient(
+          JackClientConfiguration.builder().setClientName("c").build());
+      client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+      client.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+      client.setProcessCallback(context -> {
+        Thread.sleep(1L);
+      });
+      client.activate();
+
+      Assert.assertTrue(client.portsConnect("c:out", "c:in"));
+      for (int cycle = 0; cycle < 4; ++cycle) {
+        this.engine.processCycle();
+      }
+      this.engine.simulateXRun(Duration.ofNanos(2500L));
+
+      recording.stop();
+      recording.dump(this.file);
+      events = RecordingFile.readAllEvents(this.file);
+    }
+
+    final List<RecordedEvent> cycles =
+      named(events, "com.io7m.jjacob.ProcessCycle");
+    Assert.assertEquals(2, cycles.size());
+    for (final RecordedEvent cycle : cycles) {
+      Assert.assertEquals("c", cycle.getString("client"));
+      Assert.assertEquals(256, cycle.getInt("frames"));
+      Assert.assertEquals(2, cycle.getInt("sampleInterval"));
+      Assert.assertTrue(cycle.getLong("processTime") >= 1_000_000L);
+      Assert.assertTrue(cycle.getDuration().toNanos() >= 1_000_000L);
+    }
+
+    final List<RecordedEvent> xruns = named(events, "com.io7m.jjacob.XRun");
+    Assert.assertEquals(1, xruns.size());
+    Assert.assertEquals("c", xruns.get(0).getString("client"));
+    Assert.assertEquals(
+      2.5f, xruns.get(0).getFloat("delayMicroseconds"), 0.0f);
+
+    final List<RecordedEvent> calls =
+      named(events, "com.io7m.jjacob.ControlCall");
+    Assert.assertTrue(
+      calls.stream().anyMatch(
+        call -> "jack_connect".equals(call.getString("function"))
+          && call.getBoolean("succeeded")
+          && "c".equals(call.getString("client"))));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.jnr;
+
+import jnr.ffi.LibraryLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The default provider of the C library memory locking functions.
+ */
+
+public final class LibCMemoryLock
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LibCMemoryLock.class);
+
+  private LibCMemoryLock()
+  {
+
+  }
+
+  /**
+   * Get an implementation of the memory locking functions.
+   *
+   * @return The functions of the C library
+   *
+   * @throws LibJackUnavailableException If the C library cannot be loaded
+   */
+
+  public static LibCMemoryLockType get()
+    throws LibJackUnavailableException
+  {
+    try {
+      LOG.debug("loading C library");
+      final LibraryLoader<LibCMemoryLockType> loader =
+        LibraryLoader.create(LibCMemoryLockType.class);
+      loader.failImmediately();
+      return loader.load("c");
+    } catch (final UnsatisfiedLinkError e) {
+      throw new LibJackUnavailableException(e);
+    }
+  }
+}
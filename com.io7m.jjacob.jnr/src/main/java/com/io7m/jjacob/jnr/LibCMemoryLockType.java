@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.jnr;
+
+import jnr.ffi.types.intptr_t;
+import jnr.ffi.types.size_t;
+
+/**
+ * The memory locking functions of the C library, used to keep memory that
+ * is accessed from process callbacks resident in RAM. Addresses are passed
+ * as plain {@code long} values so that calls do not allocate.
+ */
+
+public interface LibCMemoryLockType
+{
+  /**
+   * Lock the pages containing the given range of memory into RAM.
+   *
+   * @param address The start address
+   * @param length  The length in bytes
+   *
+   * @return {@code 0} on success, or {@code -1} on errors
+   *
+   * @see "mlock(2)"
+   */
+
+  int mlock(
+    @intptr_t long address,
+    @size_t long length);
+
+  /**
+   * Unlock the pages containing the given range of memory.
+   *
+   * @param address The start address
+   * @param length  The length in bytes
+   *
+   * @return {@code 0} on success, or {@code -1} on errors
+   *
+   * @see "munlock(2)"
+   */
+
+  int munlock(
+    @intptr_t long address,
+    @size_t long length);
+}
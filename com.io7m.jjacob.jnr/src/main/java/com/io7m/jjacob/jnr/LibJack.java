@@ -57,10 +57,19 @@ public final class LibJack implements LibJackProviderType
   {
     try {
       LOG.debug("creating libjack loader");
-      final LibraryLoader<LibJackType> libjack_loader =
-        LibraryLoader.create(LibJackType.class);
+      final LibraryLoader<LibJackNativeType> libjack_loader =
+        LibraryLoader.create(LibJackNativeType.class);
       libjack_loader.failImmediately();
 
+      /*
+       * The address variant of jack_port_get_buffer is the same native
+       * function bound with integer types, so that calling it on the
+       * process thread does not allocate a pointer value.
+       */
+
+      libjack_loader.map(
+        "jack_port_get_buffer_address", "jack_port_get_buffer");
+
       LOG.debug("loading libjack library");
       final LibJackType libjack = libjack_loader.load("jack");
       LOG.debug("loaded libjack library: {}", libjack);
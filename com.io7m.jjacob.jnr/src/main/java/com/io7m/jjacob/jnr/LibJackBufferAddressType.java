@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.jnr;
+
+import jnr.ffi.annotations.IgnoreError;
+import jnr.ffi.types.intptr_t;
+import jnr.ffi.types.u_int32_t;
+
+/**
+ * An extension of {@link LibJackType} implemented by bindings that can
+ * exchange port and buffer addresses as plain {@code long} values. All of
+ * the bindings provided by this package implement it. The
+ * {@link LibJackType#jack_port_get_buffer(jnr.ffi.Pointer, int)} function
+ * returns a newly allocated {@link jnr.ffi.Pointer} on each call, and is
+ * typically called for every port on every process cycle; clients that
+ * detect this interface use it instead so that fetching port buffers does
+ * not allocate.
+ */
+
+public interface LibJackBufferAddressType
+{
+  /**
+   * Equivalent to {@link LibJackType#jack_port_get_buffer(jnr.ffi.Pointer,
+   * int)}.
+   *
+   * @param port   The address of the port
+   * @param frames The number of frames in the current cycle
+   *
+   * @return The address of the port buffer, or {@code 0} on errors
+   */
+
+  @IgnoreError
+  @intptr_t
+  long jack_port_get_buffer_address(
+    @intptr_t long port,
+    @u_int32_t int frames);
+}
@@ -24,6 +24,7 @@ import jnr.ffi.annotations.IgnoreError;
 import jnr.ffi.annotations.In;
 import jnr.ffi.annotations.Out;
 import jnr.ffi.annotations.Transient;
+import jnr.ffi.types.size_t;
 import jnr.ffi.types.u_int32_t;
 
 /**
@@ -55,6 +56,40 @@ public interface LibJackType
       Pointer data);
   }
 
+  interface PortRegistrationCallbackType
+  {
+    @Delegate
+    void call(
+      @u_int32_t int port,
+      int register,
+      Pointer data);
+  }
+
+  interface PortConnectCallbackType
+  {
+    @Delegate
+    void call(
+      @u_int32_t int port_a,
+      @u_int32_t int port_b,
+      int connect,
+      Pointer data);
+  }
+
+  interface GraphOrderCallbackType
+  {
+    @Delegate
+    int call(
+      Pointer data);
+  }
+
+  interface LatencyCallbackType
+  {
+    @Delegate
+    void call(
+      int mode,
+      Pointer data);
+  }
+
   final class MidiEvent extends Struct
   {
     public final Unsigned32 frames = new Unsigned32();
@@ -97,6 +132,20 @@ public interface LibJackType
   float jack_cpu_load(
     @In Pointer client);
 
+  @IgnoreError
+  @u_int32_t
+  int jack_frame_time(
+    @In Pointer client);
+
+  @IgnoreError
+  @u_int32_t
+  int jack_last_frame_time(
+    @In Pointer client);
+
+  @IgnoreError
+  float jack_get_xrun_delayed_usecs(
+    @In Pointer client);
+
   @IgnoreError
   int jack_set_process_callback(
     @In Pointer client,
@@ -109,6 +158,46 @@ public interface LibJackType
     @In XRunCallbackType process,
     @In Pointer data);
 
+  @IgnoreError
+  int jack_set_port_registration_callback(
+    @In Pointer client,
+    @In PortRegistrationCallbackType callback,
+    @In Pointer data);
+
+  @IgnoreError
+  int jack_set_port_connect_callback(
+    @In Pointer client,
+    @In PortConnectCallbackType callback,
+    @In Pointer data);
+
+  @IgnoreError
+  int jack_set_graph_order_callback(
+    @In Pointer client,
+    @In GraphOrderCallbackType callback,
+    @In Pointer data);
+
+  @IgnoreError
+  int jack_set_latency_callback(
+    @In Pointer client,
+    @In LatencyCallbackType callback,
+    @In Pointer data);
+
+  @IgnoreError
+  void jack_port_get_latency_range(
+    @In Pointer port,
+    int mode,
+    @Out Pointer range);
+
+  @IgnoreError
+  void jack_port_set_latency_range(
+    @In Pointer port,
+    int mode,
+    @In Pointer range);
+
+  @IgnoreError
+  int jack_recompute_total_latencies(
+    @In Pointer client);
+
   @IgnoreError
   Pointer jack_port_register(
     @In Pointer client,
@@ -163,6 +252,16 @@ public interface LibJackType
   @IgnoreError
   int jack_port_name_size();
 
+  @IgnoreError
+  Pointer jack_port_by_id(
+    @In Pointer client,
+    @In @u_int32_t int port_id);
+
+  @IgnoreError
+  Pointer jack_port_get_all_connections(
+    @In Pointer client,
+    @In Pointer port);
+
   @IgnoreError
   Pointer jack_port_by_name(
     @In Pointer client,
@@ -203,4 +302,21 @@ public interface LibJackType
     @Out @Transient MidiEvent event,
     @In Pointer buffer,
     @In @u_int32_t int index);
+
+  @IgnoreError
+  void jack_midi_clear_buffer(
+    @In Pointer buffer);
+
+  @IgnoreError
+  Pointer jack_midi_event_reserve(
+    @In Pointer buffer,
+    @In @u_int32_t int time,
+    @In @size_t long data_size);
+
+  @IgnoreError
+  int jack_midi_event_write(
+    @In Pointer buffer,
+    @In @u_int32_t int time,
+    @In Pointer data,
+    @In @size_t long data_size);
 }
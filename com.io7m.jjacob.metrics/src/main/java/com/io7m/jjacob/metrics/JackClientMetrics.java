@@ -0,0 +1,407 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.metrics;
+
+import com.io7m.jjacob.api.JackClientClosedException;
+import com.io7m.jjacob.api.JackClientProcessTimingType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackClientXRunStatisticsType;
+import com.io7m.jjacob.api.JackException;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A platform MBean that publishes the metrics of a single client.
+ *
+ * The metrics are sampled by a dedicated background thread at a fixed rate.
+ * Sampling reads the client's published statistics and makes the same
+ * (non-realtime) JACK calls as {@link JackClientType#cpuLoad()}; it never
+ * interacts with the process thread. Reading attributes of the MBean only
+ * returns the most recent sample. The MBean unregisters itself when the
+ * client is closed, or when {@link #close()} is called.
+ *
+ * The MBean is registered as {@code com.io7m.jjacob:type=Client,name=N},
+ * where {@code N} is the quoted name of the client.
+ */
+
+public final class JackClientMetrics
+  implements JackClientMetricsType, AutoCloseable
+{
+  private final JackClientType client;
+  private final MBeanServer server;
+  private final ObjectName object_name;
+  private final ScheduledExecutorService executor;
+  private final AtomicLong samples;
+  private final AtomicBoolean closed;
+  private volatile Sample sample;
+
+  private JackClientMetrics(
+    final JackClientType in_client,
+    final MBeanServer in_server,
+    final ObjectName in_object_name)
+  {
+    this.client = Objects.requireNonNull(in_client, "client");
+    this.server = Objects.requireNonNull(in_server, "server");
+    this.object_name = Objects.requireNonNull(in_object_name, "object_name");
+    this.samples = new AtomicLong(0L);
+    this.closed = new AtomicBoolean(false);
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable);
+      thread.setName("com.io7m.jjacob.metrics[" + in_client.name() + "]");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @param client The client
+   *
+   * @return The name under which the metrics for {@code client} are
+   * registered
+   *
+   * @throws JackException On errors
+   */
+
+  public static ObjectName objectNameFor(
+    final JackClientType client)
+    throws JackException
+  {
+    Objects.requireNonNull(client, "client");
+
+    try {
+      return new ObjectName(
+        new StringBuilder(64)
+          .append("com.io7m.jjacob:type=Client,name=")
+          .append(ObjectName.quote(client.name()))
+          .toString());
+    } catch (final JMException e) {
+      throw new JackClientMetricsRegistrationException(
+        "Could not construct an object name for the client", e);
+    }
+  }
+
+  /**
+   * Register metrics for the given client with the platform MBean server,
+   * sampling the metrics every {@code period}. One sample is taken before
+   * this method returns.
+   *
+   * @param client The client
+   * @param period The sampling period
+   *
+   * @return The registered metrics
+   *
+   * @throws JackException On errors
+   */
+
+  public static JackClientMetrics register(
+    final JackClientType client,
+    final Duration period)
+    throws JackException
+  {
+    Objects.requireNonNull(client, "client");
+    Objects.requireNonNull(period, "period");
+
+    final long period_nanos = period.toNanos();
+    if (period_nanos <= 0L) {
+      throw new IllegalArgumentException(
+        "Sampling period must be positive (received " + period + ")");
+    }
+
+    final JackClientMetrics metrics =
+      new JackClientMetrics(
+        client,
+        ManagementFactory.getPlatformMBeanServer(),
+        objectNameFor(client));
+
+    try {
+      metrics.sample = Sample.take(client);
+      metrics.samples.incrementAndGet();
+      metrics.server.registerMBean(metrics, metrics.object_name);
+    } catch (final JMException e) {
+      metrics.executor.shutdown();
+      throw new JackClientMetricsRegistrationException(
+        "Could not register client metrics", e);
+    } catch (final JackException e) {
+      metrics.executor.shutdown();
+      throw e;
+    }
+
+    metrics.executor.scheduleAtFixedRate(
+      metrics::onSample, period_nanos, period_nanos, TimeUnit.NANOSECONDS);
+    return metrics;
+  }
+
+  private void onSample()
+  {
+    if (this.client.isClosed()) {
+      this.close();
+      return;
+    }
+
+    try {
+      this.sample = Sample.take(this.client);
+      this.samples.incrementAndGet();
+    } catch (final JackClientClosedException e) {
+      this.close();
+    } catch (final JackException e) {
+      // The previous sample is retained
+    }
+  }
+
+  /**
+   * @return The name under which the metrics are registered
+   */
+
+  public ObjectName objectName()
+  {
+    return this.object_name;
+  }
+
+  /**
+   * Stop sampling and unregister the MBean. Closing is idempotent.
+   */
+
+  @Override
+  public void close()
+  {
+    if (this.closed.compareAndSet(false, true)) {
+      this.executor.shutdown();
+      try {
+        this.server.unregisterMBean(this.object_name);
+      } catch (final InstanceNotFoundException | MBeanRegistrationException e) {
+        // Already unregistered
+      }
+    }
+  }
+
+  @Override
+  public String getClientName()
+  {
+    return this.client.name();
+  }
+
+  @Override
+  public long getSamples()
+  {
+    return this.samples.get();
+  }
+
+  @Override
+  public long getSampleTimeMilliseconds()
+  {
+    return this.sample.time_ms;
+  }
+
+  @Override
+  public float getCpuLoad()
+  {
+    return this.sample.cpu_load;
+  }
+
+  @Override
+  public int getSampleRate()
+  {
+    return this.sample.sample_rate;
+  }
+
+  @Override
+  public int getBufferSize()
+  {
+    return this.sample.buffer_size;
+  }
+
+  @Override
+  public long getXRunCount()
+  {
+    return this.sample.xruns;
+  }
+
+  @Override
+  public float getXRunLastDelayMicroseconds()
+  {
+    return this.sample.xrun_delay;
+  }
+
+  @Override
+  public long getProcessCycles()
+  {
+    return this.sample.cycles;
+  }
+
+  @Override
+  public long getProcessTimeP50Nanoseconds()
+  {
+    return this.sample.time_p50;
+  }
+
+  @Override
+  public long getProcessTimeP99Nanoseconds()
+  {
+    return this.sample.time_p99;
+  }
+
+  @Override
+  public long getProcessTimeP999Nanoseconds()
+  {
+    return this.sample.time_p999;
+  }
+
+  @Override
+  public long getProcessTimeMaximumNanoseconds()
+  {
+    return this.sample.time_max;
+  }
+
+  @Override
+  public long getProcessOverBudgetCount()
+  {
+    return this.sample.over_budget;
+  }
+
+  @Override
+  public long getProcessThreadAllocatedBytes()
+  {
+    return this.sample.allocated;
+  }
+
+  private static final class Sample
+  {
+    private final long time_ms;
+    private final float cpu_load;
+    private final int sample_rate;
+    private final int buffer_size;
+    private final long xruns;
+    private final float xrun_delay;
+    private final long cycles;
+    private final long time_p50;
+    private final long time_p99;
+    private final long time_p999;
+    private final long time_max;
+    private final long over_budget;
+    private final long allocated;
+
+    private Sample(
+      final JackClientType client)
+      throws JackException
+    {
+      this.time_ms = System.currentTimeMillis();
+      this.cpu_load = client.cpuLoad();
+      this.sample_rate = client.sampleRate();
+      this.buffer_size = client.bufferSize();
+
+      final JackClientXRunStatisticsType xrun = client.xrunStatistics();
+      this.xruns = xrun.xrunCount();
+      this.xrun_delay = xrun.xrunLastDelayMicroseconds();
+      this.cycles = xrun.processCycles();
+
+      final Optional<JackClientProcessTimingType> timing_opt =
+        client.processTiming();
+      if (timing_opt.isPresent()) {
+        final JackClientProcessTimingType timing = timing_opt.get();
+        this.time_p50 = timing.percentileNanoseconds(50.0);
+        this.time_p99 = timing.percentileNanoseconds(99.0);
+        this.time_p999 = timing.percentileNanoseconds(99.9);
+        this.time_max = timing.maximumNanoseconds();
+        this.over_budget = timing.overBudgetCount();
+      } else {
+        this.time_p50 = -1L;
+        this.time_p99 = -1L;
+        this.time_p999 = -1L;
+        this.time_max = -1L;
+        this.over_budget = -1L;
+      }
+
+      this.allocated = allocatedBytes(client.processThreadId());
+    }
+
+    static Sample take(
+      final JackClientType client)
+      throws JackException
+    {
+      return new Sample(client);
+    }
+
+    private static long allocatedBytes(
+      final OptionalLong thread_id)
+    {
+      if (!thread_id.isPresent()) {
+        return -1L;
+      }
+
+      try {
+        return ThreadAllocation.allocatedBytes(thread_id.getAsLong());
+      } catch (final LinkageError e) {
+        return -1L;
+      }
+    }
+  }
+
+  /*
+   * The com.sun.management package is a JDK-specific extension that is not
+   * present on every JVM, and is imported optionally by the OSGi manifest.
+   * It is only referenced from this class so that a missing package causes
+   * a linkage error when the class is first used, which is reported as an
+   * unsupported measurement rather than an error.
+   */
+
+  private static final class ThreadAllocation
+  {
+    private static final com.sun.management.ThreadMXBean THREADS =
+      threads();
+
+    private ThreadAllocation()
+    {
+
+    }
+
+    private static com.sun.management.ThreadMXBean threads()
+    {
+      final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean) {
+        return (com.sun.management.ThreadMXBean) threads;
+      }
+      return null;
+    }
+
+    static long allocatedBytes(
+      final long thread_id)
+    {
+      final com.sun.management.ThreadMXBean threads = THREADS;
+      if (threads != null
+        && threads.isThreadAllocatedMemorySupported()
+        && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getThreadAllocatedBytes(thread_id);
+      }
+      return -1L;
+    }
+  }
+}
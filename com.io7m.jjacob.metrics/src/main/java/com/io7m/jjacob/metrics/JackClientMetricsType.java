@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.metrics;
+
+import javax.management.MXBean;
+
+/**
+ * The management interface exposing the metrics of a single client. All
+ * attributes are read from the most recent sample taken by a background
+ * thread; reading an attribute never calls into JACK and never interacts
+ * with the process thread.
+ *
+ * @see JackClientMetrics
+ */
+
+@MXBean
+public interface JackClientMetricsType
+{
+  /**
+   * @return The client name
+   */
+
+  String getClientName();
+
+  /**
+   * @return The number of samples taken so far
+   */
+
+  long getSamples();
+
+  /**
+   * @return The wall clock time at which the most recent sample was taken,
+   * in milliseconds since the epoch
+   */
+
+  long getSampleTimeMilliseconds();
+
+  /**
+   * @return The JACK CPU load as a percentage
+   */
+
+  float getCpuLoad();
+
+  /**
+   * @return The sample rate
+   */
+
+  int getSampleRate();
+
+  /**
+   * @return The buffer size
+   */
+
+  int getBufferSize();
+
+  /**
+   * @return The number of xruns since the client was opened
+   */
+
+  long getXRunCount();
+
+  /**
+   * @return The delay in microseconds of the most recent xrun
+   */
+
+  float getXRunLastDelayMicroseconds();
+
+  /**
+   * @return The number of process cycles since the client was opened
+   */
+
+  long getProcessCycles();
+
+  /**
+   * @return The 50th percentile process callback duration in nanoseconds,
+   * or {@code -1} if process timing is not enabled
+   */
+
+  long getProcessTimeP50Nanoseconds();
+
+  /**
+   * @return The 99th percentile process callback duration in nanoseconds,
+   * or {@code -1} if process timing is not enabled
+   */
+
+  long getProcessTimeP99Nanoseconds();
+
+  /**
+   * @return The 99.9th percentile process callback duration in nanoseconds,
+   * or {@code -1} if process timing is not enabled
+   */
+
+  long getProcessTimeP999Nanoseconds();
+
+  /**
+   * @return The maximum process callback duration in nanoseconds, or
+   * {@code -1} if process timing is not enabled
+   */
+
+  long getProcessTimeMaximumNanoseconds();
+
+  /**
+   * @return The number of over-budget process cycles, or {@code -1} if
+   * process timing is not enabled
+   */
+
+  long getProcessOverBudgetCount();
+
+  /**
+   * @return The total number of bytes allocated by the process thread, or
+   * {@code -1} if the process thread is not yet known or the JVM does not
+   * support allocation measurement
+   */
+
+  long getProcessThreadAllocatedBytes();
+}
@@ -0,0 +1 @@
+memberSearchIndex = [{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"close()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getBufferSize()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getBufferSize()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getClientName()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getClientName()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getCpuLoad()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getCpuLoad()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getProcessCycles()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getProcessCycles()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getProcessOverBudgetCount()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getProcessOverBudgetCount()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getProcessThreadAllocatedBytes()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getProcessThreadAllocatedBytes()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getProcessTimeMaximumNanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getProcessTimeMaximumNanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getProcessTimeP50Nanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getProcessTimeP50Nanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getProcessTimeP999Nanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getProcessTimeP999Nanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getProcessTimeP99Nanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getProcessTimeP99Nanoseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getSampleRate()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getSampleRate()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getSamples()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getSamples()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getSampleTimeMilliseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getSampleTimeMilliseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getXRunCount()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getXRunCount()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"getXRunLastDelayMicroseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsType","l":"getXRunLastDelayMicroseconds()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetricsRegistrationException","l":"JackClientMetricsRegistrationException(String, Throwable)","url":"%3Cinit%3E(java.lang.String,java.lang.Throwable)"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"objectName()"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"objectNameFor(JackClientType)","url":"objectNameFor(com.io7m.jjacob.api.JackClientType)"},{"p":"com.io7m.jjacob.metrics","c":"JackClientMetrics","l":"register(JackClientType, Duration)","url":"register(com.io7m.jjacob.api.JackClientType,java.time.Duration)"}]
\ No newline at end of file
@@ -0,0 +1 @@
+packageSearchIndex = [{"l":"All Packages","url":"allpackages-index.html"},{"l":"com.io7m.jjacob.metrics"}]
\ No newline at end of file
@@ -0,0 +1 @@
+typeSearchIndex = [{"l":"All Classes","url":"allclasses-index.html"},{"p":"com.io7m.jjacob.metrics","l":"JackClientMetrics"},{"p":"com.io7m.jjacob.metrics","l":"JackClientMetricsRegistrationException"},{"p":"com.io7m.jjacob.metrics","l":"JackClientMetricsType"}]
\ No newline at end of file
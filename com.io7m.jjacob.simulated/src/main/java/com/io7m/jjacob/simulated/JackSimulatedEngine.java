@@ -0,0 +1,243 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.simulated;
+
+import com.io7m.jjacob.jnr.LibJackType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A simulated JACK engine.</p>
+ *
+ * <p>The engine implements the libjack API entirely in Java (see
+ * {@link #libjack()}), and can therefore be passed to any client provider in
+ * place of the native library. The engine maintains a port graph with
+ * off-heap port buffers, mixes the outputs connected to each input port
+ * (summing audio, and merging MIDI events in frame order), and calls the
+ * process callbacks of all active clients either from its own clock thread
+ * (see {@link #start()}) or on demand (see {@link #processCycle()}).</p>
+ *
+ * <p>When running from the clock, any process cycle that finishes after the
+ * start of the next period is reported to clients as an xrun.</p>
+ */
+
+public final class JackSimulatedEngine implements AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JackSimulatedEngine.class);
+
+  private final JackSimulatedEngineConfiguration configuration;
+  private final JackSimulatedLibJack libjack;
+  private final Object state_lock;
+  private Thread clock;
+  private volatile boolean closed;
+
+  private JackSimulatedEngine(
+    final JackSimulatedEngineConfiguration in_configuration)
+  {
+    this.configuration =
+      Objects.requireNonNull(in_configuration, "configuration");
+    this.libjack = new JackSimulatedLibJack(this.configuration);
+    this.state_lock = new Object();
+    this.closed = false;
+  }
+
+  /**
+   * Create a new engine. The engine clock is not started.
+   *
+   * @param configuration The engine configuration
+   *
+   * @return A new engine
+   */
+
+  public static JackSimulatedEngine create(
+    final JackSimulatedEngineConfiguration configuration)
+  {
+    return new JackSimulatedEngine(configuration);
+  }
+
+  /**
+   * @return The engine configuration
+   */
+
+  public JackSimulatedEngineConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  /**
+   * @return A libjack implementation backed by this engine
+   */
+
+  public LibJackType libjack()
+  {
+    return this.libjack;
+  }
+
+  /**
+   * Start the engine clock. Process cycles will be executed once per
+   * {@link JackSimulatedEngineConfiguration#period()} until the engine is
+   * closed.
+   *
+   * @throws IllegalStateException If the engine is closed or already started
+   */
+
+  public void start()
+  {
+    synchronized (this.state_lock) {
+      this.checkNotClosed();
+      if (this.clock != null) {
+        throw new IllegalStateException("Engine clock is already running");
+      }
+
+      final Thread thread = new Thread(this::runClock);
+      thread.setName("com.io7m.jjacob.simulated.clock");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MAX_PRIORITY);
+      this.clock = thread;
+      thread.start();
+    }
+  }
+
+  /**
+   * Execute a single process cycle on the calling thread. This is primarily
+   * useful for deterministic tests, and may be used whether or not the clock
+   * is running; cycles never overlap.
+   *
+   * @throws IllegalStateException If the engine is closed
+   */
+
+  public void processCycle()
+  {
+    this.checkNotClosed();
+    this.libjack.processCycle();
+  }
+
+  /**
+   * Report an xrun to all active clients, as if a process cycle had
+   * overrun its period by the given delay.
+   *
+   * @param delay The delay
+   *
+   * @throws IllegalStateException If the engine is closed
+   */
+
+  public void simulateXRun(
+    final Duration delay)
+  {
+    Objects.requireNonNull(delay, "delay");
+    this.checkNotClosed();
+    this.libjack.xrun(delay.toNanos());
+  }
+
+  /**
+   * @return The number of process cycles executed so far
+   */
+
+  public long cycleCount()
+  {
+    return this.libjack.cycleCount();
+  }
+
+  /**
+   * @return The number of xruns reported so far
+   */
+
+  public long xrunCount()
+  {
+    return this.libjack.xrunCount();
+  }
+
+  /**
+   * @return {@code true} iff the engine has been closed
+   */
+
+  public boolean isClosed()
+  {
+    return this.closed;
+  }
+
+  private void checkNotClosed()
+  {
+    if (this.closed) {
+      throw new IllegalStateException("Engine is closed");
+    }
+  }
+
+  private void runClock()
+  {
+    LOG.debug("clock started");
+
+    final long period = this.configuration.period().toNanos();
+    long deadline = System.nanoTime();
+    while (!this.closed) {
+      this.libjack.processCycle();
+      deadline += period;
+
+      final long time_now = System.nanoTime();
+      if (time_now > deadline) {
+        this.libjack.xrun(time_now - deadline);
+        deadline = time_now;
+        continue;
+      }
+
+      while (!this.closed) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0L) {
+          break;
+        }
+        LockSupport.parkNanos(this, remaining);
+      }
+    }
+
+    LOG.debug("clock stopped");
+  }
+
+  /**
+   * Close the engine. The clock is stopped (waiting for any process cycle in
+   * progress to complete), and the shutdown callbacks of all open clients
+   * are called.
+   *
+   * @throws InterruptedException If the calling thread is interrupted whilst
+   *                              waiting for the clock to stop
+   */
+
+  @Override
+  public void close()
+    throws InterruptedException
+  {
+    final Thread thread;
+    synchronized (this.state_lock) {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+      thread = this.clock;
+    }
+
+    if (thread != null) {
+      LockSupport.unpark(thread);
+      thread.join();
+    }
+
+    this.libjack.shutdown();
+  }
+}
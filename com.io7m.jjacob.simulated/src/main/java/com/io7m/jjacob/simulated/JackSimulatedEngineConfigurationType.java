@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.simulated;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+/**
+ * Configuration values for simulated engines.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface JackSimulatedEngineConfigurationType
+{
+  /**
+   * @return The buffer size in frames
+   */
+
+  @Value.Default
+  default int bufferSize()
+  {
+    return 256;
+  }
+
+  /**
+   * @return The sample rate
+   */
+
+  @Value.Default
+  default int sampleRate()
+  {
+    return 48000;
+  }
+
+  /**
+   * The period of the engine clock. By default, this is the real-time period
+   * implied by the buffer size and sample rate. A shorter period can be used
+   * to run process cycles faster than real time.
+   *
+   * @return The period at which the engine clock runs process cycles
+   */
+
+  @Value.Default
+  default Duration period()
+  {
+    return Duration.ofNanos(
+      ((long) this.bufferSize() * 1_000_000_000L) / (long) this.sampleRate());
+  }
+
+  /**
+   * @return The size in bytes of each MIDI port buffer
+   */
+
+  @Value.Default
+  default int midiBufferSize()
+  {
+    return 32768;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.bufferSize() <= 0) {
+      throw new IllegalArgumentException(
+        "Buffer size must be positive (received " + this.bufferSize() + ")");
+    }
+    if (this.sampleRate() <= 0) {
+      throw new IllegalArgumentException(
+        "Sample rate must be positive (received " + this.sampleRate() + ")");
+    }
+    if (this.period().isNegative() || this.period().isZero()) {
+      throw new IllegalArgumentException(
+        "Period must be positive (received " + this.period() + ")");
+    }
+    if (this.midiBufferSize() < 64) {
+      throw new IllegalArgumentException(
+        "MIDI buffer size must be at least 64 (received "
+          + this.midiBufferSize() + ")");
+    }
+  }
+}
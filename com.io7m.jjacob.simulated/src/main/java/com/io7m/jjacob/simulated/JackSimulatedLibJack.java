@@ -0,0 +1,1453 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.simulated;
+
+import com.io7m.jjacob.jnr.LibJackBufferAddressType;
+import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.jnr.LibJackType;
+import com.kenai.jffi.MemoryIO;
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static com.io7m.jjacob.jnr.LibJackLatencyCallbackMode.JackCaptureLatency;
+import static com.io7m.jjacob.jnr.LibJackLatencyCallbackMode.JackPlaybackLatency;
+import static com.io7m.jjacob.jnr.LibJackOptions.JackUseExactName;
+import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsInput;
+import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsOutput;
+import static com.io7m.jjacob.jnr.LibJackStatus.JackFailure;
+import static com.io7m.jjacob.jnr.LibJackStatus.JackInvalidOption;
+import static com.io7m.jjacob.jnr.LibJackStatus.JackNameNotUnique;
+import static com.io7m.jjacob.jnr.LibJackStatus.JackServerFailed;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static jnr.constants.platform.Errno.EEXIST;
+
+/**
+ * The libjack implementation of a simulated engine.
+ *
+ * The port graph is modified under a lock by control-plane calls, and each
+ * modification publishes a new immutable snapshot of the graph. Process
+ * cycles, and any libjack functions that may be called from within a process
+ * callback, read only the current snapshot and therefore never block on
+ * control-plane calls.
+ *
+ * Port registration, port connection, and graph order notifications are
+ * delivered synchronously to all open clients on the thread that made the
+ * modification, after the lock has been released.
+ *
+ * Latencies are recomputed whenever a client is activated or closed, or a
+ * connection changes, and whenever a client asks for it. As with JACK, the capture
+ * latency of an input port and the playback latency of an output port are
+ * derived from the ports connected to them, and the latency callbacks of
+ * the active clients propagate latencies across the clients themselves: in
+ * process order for capture latencies, and in reverse process order for
+ * playback latencies.
+ */
+
+// CHECKSTYLE:OFF
+final class JackSimulatedLibJack
+  implements LibJackType, LibJackBufferAddressType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JackSimulatedLibJack.class);
+
+  private static final int CLIENT_NAME_SIZE = 64;
+  private static final int PORT_NAME_SIZE = 320;
+  private static final Port[] NO_PORTS = new Port[0];
+  private static final Pointer[] NO_POINTERS = new Pointer[0];
+
+  private final JackSimulatedEngineConfiguration configuration;
+  private final Runtime runtime;
+  private final Pointer null_pointer;
+  private final Object graph_lock;
+  private final Object cycle_lock;
+  private final List<Client> clients;
+  private final Map<String, Client> clients_by_name;
+  private final List<Port> ports;
+  private final Map<String, Port> ports_by_name;
+  private final Map<Integer, Port> ports_history;
+  private final List<Connection> connections;
+  private final AtomicLong cycles;
+  private final AtomicLong xruns;
+  private final double period_nanos;
+  private int client_id_next;
+  private int port_id_next;
+  private boolean closed;
+  private volatile Graph graph;
+  private volatile float cpu_load;
+  private volatile float xrun_delay;
+  private volatile long cycle_frame;
+  private volatile long cycle_nanos;
+
+  JackSimulatedLibJack(
+    final JackSimulatedEngineConfiguration in_configuration)
+  {
+    this.configuration =
+      Objects.requireNonNull(in_configuration, "configuration");
+
+    this.runtime = Runtime.getSystemRuntime();
+    this.null_pointer = Pointer.wrap(this.runtime, 0L);
+    this.graph_lock = new Object();
+    this.cycle_lock = new Object();
+    this.clients = new ArrayList<>(16);
+    this.clients_by_name = new HashMap<>(16);
+    this.ports = new ArrayList<>(64);
+    this.ports_by_name = new HashMap<>(64);
+    this.ports_history = new HashMap<>(64);
+    this.connections = new ArrayList<>(64);
+    this.cycles = new AtomicLong(0L);
+    this.xruns = new AtomicLong(0L);
+    this.period_nanos = (double) this.configuration.period().toNanos();
+    this.cycle_nanos = System.nanoTime();
+    this.graph = this.graphCreate();
+  }
+
+  long cycleCount()
+  {
+    return this.cycles.get();
+  }
+
+  long xrunCount()
+  {
+    return this.xruns.get();
+  }
+
+  /**
+   * Run a single process cycle, calling the process callbacks of all active
+   * clients in an order such that every client runs after the clients that
+   * feed its input ports (where the connections do not form a cycle).
+   *
+   * @return The time taken in nanoseconds
+   */
+
+  long processCycle()
+  {
+    synchronized (this.cycle_lock) {
+      final Graph current = this.graph;
+      final int frames = this.configuration.bufferSize();
+
+      final long time_then = System.nanoTime();
+      this.cycle_frame = this.cycles.get() * (long) frames;
+      this.cycle_nanos = time_then;
+      for (final Client client : current.order) {
+        final ProcessCallbackType process = client.process;
+        if (process == null) {
+          continue;
+        }
+
+        int r;
+        try {
+          r = process.call(frames, null);
+        } catch (final RuntimeException e) {
+          LOG.error("process callback raised exception: ", e);
+          r = -1;
+        }
+
+        if (r != 0) {
+          this.onClientFailed(client);
+        }
+      }
+      final long time_taken = System.nanoTime() - time_then;
+
+      final float load = (float) ((double) time_taken / this.period_nanos);
+      this.cpu_load = (this.cpu_load * 0.9f) + (load * 10.0f);
+      this.cycles.incrementAndGet();
+      return time_taken;
+    }
+  }
+
+  /**
+   * Notify all active clients of an xrun.
+   *
+   * @param delay_nanos The delay in nanoseconds
+   */
+
+  void xrun(
+    final long delay_nanos)
+  {
+    this.xrun_delay = (float) ((double) delay_nanos / 1000.0);
+    this.xruns.incrementAndGet();
+
+    for (final Client client : this.graph.order) {
+      final XRunCallbackType callback = client.xrun;
+      if (callback != null) {
+        try {
+          callback.call(null);
+        } catch (final RuntimeException e) {
+          LOG.error("xrun callback raised exception: ", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Shut down the engine, notifying all open clients.
+   */
+
+  void shutdown()
+  {
+    final List<Client> open;
+    synchronized (this.graph_lock) {
+      this.closed = true;
+      open = new ArrayList<>(this.clients);
+      for (final Client client : open) {
+        client.active = false;
+      }
+      this.publish();
+    }
+
+    for (final Client client : open) {
+      final ShutdownCallbackType callback = client.shutdown;
+      if (callback != null) {
+        callback.call(null);
+      }
+    }
+  }
+
+  /*
+   * JACK removes a client from the process graph if its process callback
+   * fails, and then notifies the client as if the server had shut down.
+   */
+
+  private void onClientFailed(
+    final Client client)
+  {
+    LOG.debug("client {} process callback failed", client.name);
+
+    synchronized (this.graph_lock) {
+      if (!client.active) {
+        return;
+      }
+      client.active = false;
+      this.publish();
+    }
+
+    final ShutdownCallbackType callback = client.shutdown;
+    if (callback != null) {
+      callback.call(null);
+    }
+  }
+
+  private void publish()
+  {
+    this.graph = this.graphCreate();
+  }
+
+  private Graph graphCreate()
+  {
+    final Client[] clients_by_id = new Client[this.client_id_next];
+    for (final Client client : this.clients) {
+      clients_by_id[client.id] = client;
+    }
+
+    final Port[] ports_by_id = new Port[this.port_id_next];
+    for (final Port port : this.ports) {
+      ports_by_id[port.id] = port;
+    }
+
+    final List<List<Port>> sources_lists = new ArrayList<>(ports_by_id.length);
+    for (int index = 0; index < ports_by_id.length; ++index) {
+      sources_lists.add(new ArrayList<>(2));
+    }
+    for (final Connection connection : this.connections) {
+      sources_lists.get(connection.target.id).add(connection.source);
+    }
+
+    final Port[][] sources = new Port[ports_by_id.length][];
+    final Pointer[][] sources_midi = new Pointer[ports_by_id.length][];
+    final int[][] cursors = new int[ports_by_id.length][];
+    for (int index = 0; index < ports_by_id.length; ++index) {
+      final List<Port> list = sources_lists.get(index);
+      sources[index] = list.isEmpty() ? NO_PORTS : list.toArray(NO_PORTS);
+      sources_midi[index] = NO_POINTERS;
+      final Port port = ports_by_id[index];
+      if (port != null && port.kind == PortKind.MIDI && list.size() > 1) {
+        final Pointer[] buffers = new Pointer[list.size()];
+        for (int source = 0; source < buffers.length; ++source) {
+          buffers[source] = list.get(source).buffer;
+        }
+        sources_midi[index] = buffers;
+        cursors[index] = new int[buffers.length];
+      }
+    }
+
+    return new Graph(
+      clients_by_id, this.processOrder(), ports_by_id, sources, sources_midi, cursors);
+  }
+
+  /*
+   * Order the active clients such that each client appears after every
+   * client that feeds it. Ties are broken by activation order, and any
+   * clients involved in feedback loops are ordered by activation order.
+   */
+
+  private Client[] processOrder()
+  {
+    final List<Client> active = new ArrayList<>(this.clients.size());
+    for (final Client client : this.clients) {
+      if (client.active) {
+        active.add(client);
+      }
+    }
+
+    final int count = active.size();
+    final boolean[][] edges = new boolean[count][count];
+    final int[] degree = new int[count];
+    for (final Connection connection : this.connections) {
+      final int source = active.indexOf(connection.source.owner);
+      final int target = active.indexOf(connection.target.owner);
+      if (source >= 0 && target >= 0 && source != target) {
+        if (!edges[source][target]) {
+          edges[source][target] = true;
+          ++degree[target];
+        }
+      }
+    }
+
+    final Client[] order = new Client[count];
+    final boolean[] done = new boolean[count];
+    for (int position = 0; position < count; ++position) {
+      int next = -1;
+      for (int index = 0; index < count; ++index) {
+        if (!done[index] && degree[index] == 0) {
+          next = index;
+          break;
+        }
+      }
+      if (next == -1) {
+        for (int index = 0; index < count; ++index) {
+          if (!done[index]) {
+            next = index;
+            break;
+          }
+        }
+      }
+
+      done[next] = true;
+      order[position] = active.get(next);
+      for (int index = 0; index < count; ++index) {
+        if (edges[next][index]) {
+          --degree[index];
+        }
+      }
+    }
+    return order;
+  }
+
+  /*
+   * Deliver notifications to the given clients. This is only ever called
+   * without the graph lock held, so that callbacks may call back into the
+   * engine.
+   */
+
+  private static void notify(
+    final List<Client> receivers,
+    final List<Notification> notifications)
+  {
+    for (final Notification notification : notifications) {
+      for (final Client receiver : receivers) {
+        try {
+          notification.deliver(receiver);
+        } catch (final RuntimeException e) {
+          LOG.error("notification callback raised exception: ", e);
+        }
+      }
+    }
+  }
+
+  private static Notification notifyRegistration(
+    final Port port,
+    final boolean register)
+  {
+    return receiver -> {
+      final PortRegistrationCallbackType callback = receiver.registration;
+      if (callback != null) {
+        callback.call(port.id, register ? 1 : 0, null);
+      }
+    };
+  }
+
+  private static Notification notifyConnect(
+    final Connection connection,
+    final boolean connect)
+  {
+    return receiver -> {
+      final PortConnectCallbackType callback = receiver.connect;
+      if (callback != null) {
+        callback.call(
+          connection.source.id, connection.target.id, connect ? 1 : 0, null);
+      }
+    };
+  }
+
+  private void latencyRecompute()
+  {
+    final Client[] order = this.graph.order;
+    for (int index = 0; index < order.length; ++index) {
+      notifyLatency(order[index], JackCaptureLatency.intValue());
+    }
+    for (int index = order.length - 1; index >= 0; --index) {
+      notifyLatency(order[index], JackPlaybackLatency.intValue());
+    }
+  }
+
+  private static void notifyLatency(
+    final Client client,
+    final int mode)
+  {
+    final LatencyCallbackType callback = client.latency;
+    if (callback != null) {
+      try {
+        callback.call(mode, null);
+      } catch (final RuntimeException e) {
+        LOG.error("latency callback raised exception: ", e);
+      }
+    }
+  }
+
+  private static Notification notifyGraphOrder()
+  {
+    return receiver -> {
+      final GraphOrderCallbackType callback = receiver.order;
+      if (callback != null) {
+        callback.call(null);
+      }
+    };
+  }
+
+  private Client clientOf(
+    final Pointer handle)
+  {
+    final Client[] by_id = this.graph.clients;
+    final int id = handle.getInt(0L);
+    if (id < 0 || id >= by_id.length) {
+      return null;
+    }
+    return by_id[id];
+  }
+
+  private Port portOf(
+    final Graph current,
+    final Pointer handle)
+  {
+    final Port[] by_id = current.ports;
+    final int id = handle.getInt(0L);
+    if (id < 0 || id >= by_id.length) {
+      return null;
+    }
+    return by_id[id];
+  }
+
+  private Pointer handleOf(
+    final int id)
+  {
+    final Pointer handle = Memory.allocateDirect(this.runtime, 4, true);
+    handle.putInt(0L, id);
+    return handle;
+  }
+
+  @Override
+  public Pointer jack_client_open(
+    final String name,
+    final int options,
+    final int[] status,
+    final String server_name)
+  {
+    Objects.requireNonNull(name, "name");
+
+    synchronized (this.graph_lock) {
+      if (this.closed) {
+        setStatus(status, JackFailure.intValue() | JackServerFailed.intValue());
+        return this.null_pointer;
+      }
+
+      int result_status = 0;
+      String actual = name;
+      if (this.clients_by_name.containsKey(name)) {
+        if ((options & JackUseExactName.intValue()) != 0) {
+          setStatus(
+            status, JackFailure.intValue() | JackNameNotUnique.intValue());
+          return this.null_pointer;
+        }
+
+        actual = null;
+        for (int index = 1; index <= 99; ++index) {
+          final String candidate = String.format("%s-%02d", name, index);
+          if (!this.clients_by_name.containsKey(candidate)) {
+            actual = candidate;
+            break;
+          }
+        }
+        if (actual == null) {
+          setStatus(
+            status, JackFailure.intValue() | JackNameNotUnique.intValue());
+          return this.null_pointer;
+        }
+        result_status |= JackNameNotUnique.intValue();
+      }
+
+      if (actual.length() >= CLIENT_NAME_SIZE) {
+        setStatus(
+          status, JackFailure.intValue() | JackInvalidOption.intValue());
+        return this.null_pointer;
+      }
+
+      final int id = this.client_id_next;
+      ++this.client_id_next;
+
+      final Client client = new Client(id, actual, this.handleOf(id));
+      this.clients.add(client);
+      this.clients_by_name.put(actual, client);
+      this.publish();
+
+      setStatus(status, result_status);
+      return client.handle;
+    }
+  }
+
+  private static void setStatus(
+    final int[] status,
+    final int value)
+  {
+    if (status != null && status.length > 0) {
+      status[0] = value;
+    }
+  }
+
+  @Override
+  public int jack_client_close(
+    final Pointer client)
+  {
+    final List<Notification> notifications = new ArrayList<>(16);
+    final List<Client> receivers;
+
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null) {
+        return -1;
+      }
+
+      c.active = false;
+      for (final Connection connection : this.connections) {
+        if (connection.source.owner == c || connection.target.owner == c) {
+          notifications.add(notifyConnect(connection, false));
+        }
+      }
+      for (final Port port : this.ports) {
+        if (port.owner == c) {
+          notifications.add(notifyRegistration(port, false));
+        }
+      }
+      if (!notifications.isEmpty()) {
+        notifications.add(notifyGraphOrder());
+      }
+
+      this.connections.removeIf(
+        connection -> connection.source.owner == c
+          || connection.target.owner == c);
+      this.ports.removeIf(port -> port.owner == c);
+      this.ports_by_name.values().removeIf(port -> port.owner == c);
+      this.clients.remove(c);
+      this.clients_by_name.remove(c.name);
+      this.publish();
+      receivers = new ArrayList<>(this.clients);
+    }
+
+    notify(receivers, notifications);
+    this.latencyRecompute();
+    return 0;
+  }
+
+  @Override
+  public String jack_get_client_name(
+    final Pointer client)
+  {
+    final Client c = this.clientOf(client);
+    return c == null ? null : c.name;
+  }
+
+  @Override
+  public int jack_get_sample_rate(
+    final Pointer client)
+  {
+    return this.configuration.sampleRate();
+  }
+
+  @Override
+  public int jack_get_buffer_size(
+    final Pointer client)
+  {
+    return this.configuration.bufferSize();
+  }
+
+  /**
+   * The simulated frame time advances by one buffer per cycle and is
+   * interpolated between cycles using the wall clock, up to the start of the
+   * next cycle.
+   */
+
+  @Override
+  public int jack_frame_time(
+    final Pointer client)
+  {
+    final long elapsed = System.nanoTime() - this.cycle_nanos;
+    final long period = (long) this.configuration.bufferSize();
+    final long frames = Math.min(
+      period,
+      (elapsed / 1_000L * (long) this.configuration.sampleRate()) / 1_000_000L);
+    return (int) (this.cycle_frame + frames);
+  }
+
+  @Override
+  public int jack_last_frame_time(
+    final Pointer client)
+  {
+    return (int) this.cycle_frame;
+  }
+
+  @Override
+  public float jack_cpu_load(
+    final Pointer client)
+  {
+    return this.cpu_load;
+  }
+
+  @Override
+  public float jack_get_xrun_delayed_usecs(
+    final Pointer client)
+  {
+    return this.xrun_delay;
+  }
+
+  @Override
+  public int jack_set_process_callback(
+    final Pointer client,
+    final ProcessCallbackType process,
+    final Pointer data)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null || c.active) {
+        return -1;
+      }
+      c.process = process;
+      return 0;
+    }
+  }
+
+  @Override
+  public int jack_set_xrun_callback(
+    final Pointer client,
+    final XRunCallbackType process,
+    final Pointer data)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null || c.active) {
+        return -1;
+      }
+      c.xrun = process;
+      return 0;
+    }
+  }
+
+  @Override
+  public int jack_set_port_registration_callback(
+    final Pointer client,
+    final PortRegistrationCallbackType callback,
+    final Pointer data)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null || c.active) {
+        return -1;
+      }
+      c.registration = callback;
+      return 0;
+    }
+  }
+
+  @Override
+  public int jack_set_port_connect_callback(
+    final Pointer client,
+    final PortConnectCallbackType callback,
+    final Pointer data)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null || c.active) {
+        return -1;
+      }
+      c.connect = callback;
+      return 0;
+    }
+  }
+
+  @Override
+  public int jack_set_graph_order_callback(
+    final Pointer client,
+    final GraphOrderCallbackType callback,
+    final Pointer data)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null || c.active) {
+        return -1;
+      }
+      c.order = callback;
+      return 0;
+    }
+  }
+
+  @Override
+  public int jack_set_latency_callback(
+    final Pointer client,
+    final LatencyCallbackType callback,
+    final Pointer data)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null || c.active) {
+        return -1;
+      }
+      c.latency = callback;
+      return 0;
+    }
+  }
+
+  /*
+   * The capture latency of an input port, and the playback latency of an
+   * output port, is the union of the latencies of the ports connected to it.
+   * All other latencies are whatever was last set by the owning client.
+   */
+
+  @Override
+  public void jack_port_get_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+    final boolean capture = mode == JackCaptureLatency.intValue();
+    final int offset = capture ? 0 : 2;
+
+    int minimum = 0;
+    int maximum = 0;
+    synchronized (this.graph_lock) {
+      final Port p = this.portOf(this.graph, port);
+      if (p != null) {
+        minimum = p.latency[offset];
+        maximum = p.latency[offset + 1];
+
+        final boolean input = (p.flags & JackPortIsInput.intValue()) != 0;
+        if (capture == input) {
+          boolean connected = false;
+          for (final Connection connection : this.connections) {
+            final Port peer;
+            if (capture && connection.target == p) {
+              peer = connection.source;
+            } else if (!capture && connection.source == p) {
+              peer = connection.target;
+            } else {
+              continue;
+            }
+
+            final int peer_min = peer.latency[offset];
+            final int peer_max = peer.latency[offset + 1];
+            minimum = connected ? Math.min(minimum, peer_min) : peer_min;
+            maximum = connected ? Math.max(maximum, peer_max) : peer_max;
+            connected = true;
+          }
+        }
+      }
+    }
+
+    range.putInt(0L, minimum);
+    range.putInt(4L, maximum);
+  }
+
+  @Override
+  public void jack_port_set_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+    final int offset = mode == JackCaptureLatency.intValue() ? 0 : 2;
+    synchronized (this.graph_lock) {
+      final Port p = this.portOf(this.graph, port);
+      if (p != null) {
+        p.latency[offset] = range.getInt(0L);
+        p.latency[offset + 1] = range.getInt(4L);
+      }
+    }
+  }
+
+  @Override
+  public int jack_recompute_total_latencies(
+    final Pointer client)
+  {
+    if (this.clientOf(client) == null) {
+      return -1;
+    }
+    this.latencyRecompute();
+    return 0;
+  }
+
+  @Override
+  public Pointer jack_port_register(
+    final Pointer client,
+    final String port_name,
+    final String port_type,
+    final long flags,
+    final long buffer_size)
+  {
+    Objects.requireNonNull(port_name, "port_name");
+    Objects.requireNonNull(port_type, "port_type");
+
+    final Port port;
+    final List<Client> receivers;
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null) {
+        return this.null_pointer;
+      }
+
+      final String name = c.name + ":" + port_name;
+      if (name.length() >= PORT_NAME_SIZE
+        || this.ports_by_name.containsKey(name)) {
+        return this.null_pointer;
+      }
+
+      final PortKind kind;
+      final int size;
+      if (Objects.equals(port_type, LibJackPorts.defaultAudioType())) {
+        kind = PortKind.AUDIO;
+        size = Math.multiplyExact(this.configuration.bufferSize(), 4);
+      } else if (Objects.equals(port_type, LibJackPorts.defaultMidiType())) {
+        kind = PortKind.MIDI;
+        size = this.configuration.midiBufferSize();
+      } else if (buffer_size > 0L) {
+        kind = PortKind.OTHER;
+        size = Math.toIntExact(buffer_size);
+      } else {
+        return this.null_pointer;
+      }
+
+      final int id = this.port_id_next;
+      ++this.port_id_next;
+
+      port =
+        new Port(
+          this.runtime,
+          id,
+          c,
+          name,
+          port_name,
+          port_type,
+          (int) flags,
+          kind,
+          size,
+          this.handleOf(id));
+
+      this.ports.add(port);
+      this.ports_by_name.put(name, port);
+      this.ports_history.put(Integer.valueOf(id), port);
+      this.publish();
+      receivers = new ArrayList<>(this.clients);
+    }
+
+    notify(receivers, List.of(notifyRegistration(port, true)));
+    return port.handle;
+  }
+
+  @Override
+  public void jack_on_shutdown(
+    final Pointer client,
+    final ShutdownCallbackType process,
+    final Pointer data)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c != null) {
+        c.shutdown = process;
+      }
+    }
+  }
+
+  @Override
+  public Pointer jack_get_ports(
+    final Pointer client,
+    final String port_name_pattern,
+    final String type_name_pattern,
+    final long flags)
+  {
+    final Pattern name_pattern =
+      port_name_pattern == null ? null : Pattern.compile(port_name_pattern);
+    final Pattern type_pattern =
+      type_name_pattern == null ? null : Pattern.compile(type_name_pattern);
+
+    final List<Port> matching;
+    synchronized (this.graph_lock) {
+      matching = new ArrayList<>(this.ports.size());
+      for (final Port port : this.ports) {
+        if (name_pattern != null && !name_pattern.matcher(port.name).find()) {
+          continue;
+        }
+        if (type_pattern != null && !type_pattern.matcher(port.type).find()) {
+          continue;
+        }
+        if (((long) port.flags & flags) != flags) {
+          continue;
+        }
+        matching.add(port);
+      }
+    }
+
+    return this.namesOf(matching);
+  }
+
+  private Pointer namesOf(
+    final List<Port> matching)
+  {
+    if (matching.isEmpty()) {
+      return this.null_pointer;
+    }
+
+    /*
+     * The array is managed by the garbage collector, so jack_free() need not
+     * do anything. The name strings are owned by the ports.
+     */
+
+    final int address_size = this.runtime.addressSize();
+    final Pointer array =
+      Memory.allocateDirect(
+        this.runtime, (matching.size() + 1) * address_size, true);
+    for (int index = 0; index < matching.size(); ++index) {
+      array.putPointer(
+        (long) index * (long) address_size, matching.get(index).name_native);
+    }
+    return array;
+  }
+
+  @Override
+  public void jack_free(
+    final Pointer pointer)
+  {
+
+  }
+
+  @Override
+  public String jack_port_name(
+    final Pointer port)
+  {
+    final Port p = this.portOf(this.graph, port);
+    return p == null ? null : p.name;
+  }
+
+  @Override
+  public String jack_port_short_name(
+    final Pointer port)
+  {
+    final Port p = this.portOf(this.graph, port);
+    return p == null ? null : p.short_name;
+  }
+
+  @Override
+  public String jack_port_type(
+    final Pointer port)
+  {
+    final Port p = this.portOf(this.graph, port);
+    return p == null ? null : p.type;
+  }
+
+  @Override
+  public int jack_port_flags(
+    final Pointer port)
+  {
+    final Port p = this.portOf(this.graph, port);
+    return p == null ? 0 : p.flags;
+  }
+
+  @Override
+  public boolean jack_port_is_mine(
+    final Pointer client,
+    final Pointer port)
+  {
+    final Port p = this.portOf(this.graph, port);
+    return p != null && p.owner.id == client.getInt(0L);
+  }
+
+  @Override
+  public long jack_port_get_buffer_address(
+    final long port,
+    final int frames)
+  {
+    return this.jack_port_get_buffer(
+      Pointer.wrap(this.runtime, port), frames).address();
+  }
+
+  @Override
+  public Pointer jack_port_get_buffer(
+    final Pointer port,
+    final int frames)
+  {
+    final Graph current = this.graph;
+    final Port p = this.portOf(current, port);
+    if (p == null) {
+      return this.null_pointer;
+    }
+
+    if ((p.flags & JackPortIsInput.intValue()) == 0) {
+      return p.buffer;
+    }
+
+    final Port[] sources = current.sources[p.id];
+    if (sources.length == 1) {
+      return sources[0].buffer;
+    }
+
+    switch (p.kind) {
+      case AUDIO:
+        this.mixAudio(p, sources);
+        break;
+      case MIDI:
+        this.mixMIDI(current, p);
+        break;
+      case OTHER:
+        break;
+    }
+    return p.buffer;
+  }
+
+  private void mixAudio(
+    final Port port,
+    final Port[] sources)
+  {
+    final FloatBuffer output = port.floats;
+    final int frames = this.configuration.bufferSize();
+
+    if (sources.length == 0) {
+      for (int index = 0; index < frames; ++index) {
+        output.put(index, 0.0f);
+      }
+      return;
+    }
+
+    final FloatBuffer first = sources[0].floats;
+    for (int index = 0; index < frames; ++index) {
+      output.put(index, first.get(index));
+    }
+    for (int source = 1; source < sources.length; ++source) {
+      final FloatBuffer input = sources[source].floats;
+      for (int index = 0; index < frames; ++index) {
+        output.put(index, output.get(index) + input.get(index));
+      }
+    }
+  }
+
+  private void mixMIDI(
+    final Graph current,
+    final Port port)
+  {
+    final Pointer[] sources = current.sources_midi[port.id];
+    if (sources.length == 0) {
+      JackSimulatedMIDI.clear(port.buffer);
+      return;
+    }
+
+    JackSimulatedMIDI.merge(
+      port.buffer,
+      this.configuration.midiBufferSize(),
+      this.configuration.bufferSize(),
+      sources,
+      current.cursors[port.id]);
+  }
+
+  @Override
+  public int jack_port_name_size()
+  {
+    return PORT_NAME_SIZE;
+  }
+
+  /*
+   * Port IDs are never reused, and a port remains resolvable by ID after it
+   * has been unregistered so that unregistration notifications can be
+   * handled.
+   */
+
+  @Override
+  public Pointer jack_port_by_id(
+    final Pointer client,
+    final int port_id)
+  {
+    synchronized (this.graph_lock) {
+      final Port port = this.ports_history.get(Integer.valueOf(port_id));
+      return port == null ? this.null_pointer : port.handle;
+    }
+  }
+
+  @Override
+  public Pointer jack_port_get_all_connections(
+    final Pointer client,
+    final Pointer port)
+  {
+    final List<Port> connected = new ArrayList<>(4);
+    synchronized (this.graph_lock) {
+      final Port p = this.portOf(this.graph, port);
+      if (p == null) {
+        return this.null_pointer;
+      }
+      for (final Connection connection : this.connections) {
+        if (connection.source == p) {
+          connected.add(connection.target);
+        } else if (connection.target == p) {
+          connected.add(connection.source);
+        }
+      }
+    }
+    return this.namesOf(connected);
+  }
+
+  @Override
+  public Pointer jack_port_by_name(
+    final Pointer client,
+    final String name)
+  {
+    synchronized (this.graph_lock) {
+      final Port port = this.ports_by_name.get(name);
+      return port == null ? this.null_pointer : port.handle;
+    }
+  }
+
+  @Override
+  public int jack_activate(
+    final Pointer client)
+  {
+    final int r = this.setActive(client, true);
+    if (r == 0) {
+      this.latencyRecompute();
+    }
+    return r;
+  }
+
+  @Override
+  public int jack_deactivate(
+    final Pointer client)
+  {
+    return this.setActive(client, false);
+  }
+
+  private int setActive(
+    final Pointer client,
+    final boolean active)
+  {
+    synchronized (this.graph_lock) {
+      final Client c = this.clientOf(client);
+      if (c == null || this.closed) {
+        return -1;
+      }
+      if (c.active != active) {
+        c.active = active;
+        this.publish();
+      }
+      return 0;
+    }
+  }
+
+  @Override
+  public int jack_connect(
+    final Pointer client,
+    final String source_port,
+    final String target_port)
+  {
+    final Connection connection;
+    final List<Client> receivers;
+    synchronized (this.graph_lock) {
+      final Port source = this.ports_by_name.get(source_port);
+      final Port target = this.ports_by_name.get(target_port);
+      if (source == null || target == null) {
+        return -1;
+      }
+      if ((source.flags & JackPortIsOutput.intValue()) == 0
+        || (target.flags & JackPortIsInput.intValue()) == 0
+        || !Objects.equals(source.type, target.type)) {
+        return -1;
+      }
+
+      for (final Connection existing : this.connections) {
+        if (existing.source == source && existing.target == target) {
+          return EEXIST.intValue();
+        }
+      }
+
+      connection = new Connection(source, target);
+      this.connections.add(connection);
+      this.publish();
+      receivers = new ArrayList<>(this.clients);
+    }
+
+    notify(
+      receivers,
+      List.of(notifyConnect(connection, true), notifyGraphOrder()));
+    this.latencyRecompute();
+    return 0;
+  }
+
+  @Override
+  public int jack_disconnect(
+    final Pointer client,
+    final String source_port,
+    final String target_port)
+  {
+    Connection removed = null;
+    final List<Client> receivers;
+    synchronized (this.graph_lock) {
+      for (final Connection connection : this.connections) {
+        if (connection.source.name.equals(source_port)
+          && connection.target.name.equals(target_port)) {
+          removed = connection;
+          break;
+        }
+      }
+      if (removed == null) {
+        return -1;
+      }
+      this.connections.remove(removed);
+      this.publish();
+      receivers = new ArrayList<>(this.clients);
+    }
+
+    notify(
+      receivers,
+      List.of(notifyConnect(removed, false), notifyGraphOrder()));
+    this.latencyRecompute();
+    return 0;
+  }
+
+  @Override
+  public int jack_midi_get_event_count(
+    final Pointer buffer)
+  {
+    return JackSimulatedMIDI.eventCount(buffer);
+  }
+
+  @Override
+  public int jack_midi_get_lost_event_count(
+    final Pointer buffer)
+  {
+    return JackSimulatedMIDI.lostEventCount(buffer);
+  }
+
+  @Override
+  public int jack_midi_event_get(
+    final MidiEvent event,
+    final Pointer buffer,
+    final int index)
+  {
+    return JackSimulatedMIDI.eventGet(event, buffer, index);
+  }
+
+  @Override
+  public void jack_midi_clear_buffer(
+    final Pointer buffer)
+  {
+    JackSimulatedMIDI.clear(buffer);
+  }
+
+  @Override
+  public Pointer jack_midi_event_reserve(
+    final Pointer buffer,
+    final int time,
+    final long data_size)
+  {
+    final int offset =
+      JackSimulatedMIDI.reserve(
+        buffer,
+        this.configuration.midiBufferSize(),
+        this.configuration.bufferSize(),
+        time,
+        (int) data_size);
+
+    if (offset < 0) {
+      return this.null_pointer;
+    }
+    return buffer.slice((long) offset, data_size);
+  }
+
+  @Override
+  public int jack_midi_event_write(
+    final Pointer buffer,
+    final int time,
+    final Pointer data,
+    final long data_size)
+  {
+    return JackSimulatedMIDI.write(
+      buffer,
+      this.configuration.midiBufferSize(),
+      this.configuration.bufferSize(),
+      time,
+      data,
+      (int) data_size);
+  }
+
+  private interface Notification
+  {
+    void deliver(Client receiver);
+  }
+
+  private enum PortKind
+  {
+    AUDIO,
+    MIDI,
+    OTHER
+  }
+
+  private static final class Client
+  {
+    private final int id;
+    private final String name;
+    private final Pointer handle;
+    private volatile boolean active;
+    private volatile ProcessCallbackType process;
+    private volatile XRunCallbackType xrun;
+    private volatile ShutdownCallbackType shutdown;
+    private volatile PortRegistrationCallbackType registration;
+    private volatile PortConnectCallbackType connect;
+    private volatile GraphOrderCallbackType order;
+    private volatile LatencyCallbackType latency;
+
+    Client(
+      final int in_id,
+      final String in_name,
+      final Pointer in_handle)
+    {
+      this.id = in_id;
+      this.name = Objects.requireNonNull(in_name, "name");
+      this.handle = Objects.requireNonNull(in_handle, "handle");
+    }
+  }
+
+  private static final class Port
+  {
+    private final int id;
+    private final Client owner;
+    private final String name;
+    private final String short_name;
+    private final String type;
+    private final int flags;
+    private final PortKind kind;
+    private final Pointer handle;
+    private final Pointer buffer;
+    private final FloatBuffer floats;
+    private final Pointer name_native;
+    private final int[] latency;
+
+    Port(
+      final Runtime runtime,
+      final int in_id,
+      final Client in_owner,
+      final String in_name,
+      final String in_short_name,
+      final String in_type,
+      final int in_flags,
+      final PortKind in_kind,
+      final int in_size,
+      final Pointer in_handle)
+    {
+      this.id = in_id;
+      this.owner = Objects.requireNonNull(in_owner, "owner");
+      this.name = Objects.requireNonNull(in_name, "name");
+      this.short_name = Objects.requireNonNull(in_short_name, "short_name");
+      this.type = Objects.requireNonNull(in_type, "type");
+      this.flags = in_flags;
+      this.kind = Objects.requireNonNull(in_kind, "kind");
+      this.handle = Objects.requireNonNull(in_handle, "handle");
+      this.latency = new int[4];
+
+      /*
+       * Port buffers live off-heap, as with JACK, so that clients access them
+       * through exactly the same paths that they would with a real server.
+       */
+
+      this.buffer = Memory.allocateDirect(runtime, in_size, true);
+      if (this.kind == PortKind.AUDIO) {
+        this.floats =
+          MemoryIO.getInstance()
+            .newDirectByteBuffer(this.buffer.address(), in_size)
+            .order(ByteOrder.nativeOrder())
+            .asFloatBuffer();
+      } else {
+        this.floats = null;
+      }
+
+      final byte[] bytes = this.name.getBytes(UTF_8);
+      this.name_native = Memory.allocateDirect(runtime, bytes.length + 1, true);
+      this.name_native.put(0L, bytes, 0, bytes.length);
+    }
+  }
+
+  private static final class Connection
+  {
+    private final Port source;
+    private final Port target;
+
+    Connection(
+      final Port in_source,
+      final Port in_target)
+    {
+      this.source = Objects.requireNonNull(in_source, "source");
+      this.target = Objects.requireNonNull(in_target, "target");
+    }
+  }
+
+  private static final class Graph
+  {
+    private final Client[] clients;
+    private final Client[] order;
+    private final Port[] ports;
+    private final Port[][] sources;
+    private final Pointer[][] sources_midi;
+    private final int[][] cursors;
+
+    Graph(
+      final Client[] in_clients,
+      final Client[] in_order,
+      final Port[] in_ports,
+      final Port[][] in_sources,
+      final Pointer[][] in_sources_midi,
+      final int[][] in_cursors)
+    {
+      this.clients = in_clients;
+      this.order = in_order;
+      this.ports = in_ports;
+      this.sources = in_sources;
+      this.sources_midi = in_sources_midi;
+      this.cursors = in_cursors;
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.simulated;
+
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Pointer;
+
+/**
+ * Functions over simulated MIDI buffers. A MIDI buffer is a region of native
+ * memory consisting of a header, a table of event entries growing upwards
+ * from the header, and event data growing downwards from the end of the
+ * buffer. Each event entry holds the frame offset, size, and data offset of
+ * an event. Events are stored in the order in which they were written, and
+ * must be written in nondecreasing frame order.
+ */
+
+final class JackSimulatedMIDI
+{
+  private static final long HEADER_COUNT = 0L;
+  private static final long HEADER_LOST = 4L;
+  private static final long HEADER_USED = 8L;
+  private static final long HEADER_SIZE = 16L;
+  private static final long ENTRY_SIZE = 12L;
+  private static final long ENTRY_TIME = 0L;
+  private static final long ENTRY_DATA_SIZE = 4L;
+  private static final long ENTRY_DATA_OFFSET = 8L;
+
+  private JackSimulatedMIDI()
+  {
+
+  }
+
+  private static long entry(
+    final int index)
+  {
+    return HEADER_SIZE + (long) index * ENTRY_SIZE;
+  }
+
+  static int eventCount(
+    final Pointer buffer)
+  {
+    return buffer.getInt(HEADER_COUNT);
+  }
+
+  static int lostEventCount(
+    final Pointer buffer)
+  {
+    return buffer.getInt(HEADER_LOST);
+  }
+
+  static void clear(
+    final Pointer buffer)
+  {
+    buffer.putInt(HEADER_COUNT, 0);
+    buffer.putInt(HEADER_LOST, 0);
+    buffer.putInt(HEADER_USED, 0);
+  }
+
+  static int eventTime(
+    final Pointer buffer,
+    final int index)
+  {
+    return buffer.getInt(entry(index) + ENTRY_TIME);
+  }
+
+  static int eventSize(
+    final Pointer buffer,
+    final int index)
+  {
+    return buffer.getInt(entry(index) + ENTRY_DATA_SIZE);
+  }
+
+  static int eventDataOffset(
+    final Pointer buffer,
+    final int index)
+  {
+    return buffer.getInt(entry(index) + ENTRY_DATA_OFFSET);
+  }
+
+  /**
+   * Fill in the given event structure with the event at {@code index}.
+   *
+   * @return 0 on success, or -1 if there is no such event
+   */
+
+  static int eventGet(
+    final LibJackType.MidiEvent event,
+    final Pointer buffer,
+    final int index)
+  {
+    if (index < 0 || index >= eventCount(buffer)) {
+      return -1;
+    }
+
+    event.frames.set((long) eventTime(buffer, index));
+    event.size.set((long) eventSize(buffer, index));
+
+    /*
+     * Write the data address directly into the structure rather than
+     * wrapping it in a new Pointer, so that no allocation occurs.
+     */
+
+    event.pointer.getMemory().putAddress(
+      event.pointer.offset(),
+      buffer.address() + (long) eventDataOffset(buffer, index));
+    return 0;
+  }
+
+  /**
+   * Reserve space for an event.
+   *
+   * @return The offset of the event data within the buffer, or -1 if the
+   * event could not be reserved
+   */
+
+  static int reserve(
+    final Pointer buffer,
+    final int buffer_size,
+    final int frames,
+    final int time,
+    final int size)
+  {
+    if (time < 0 || time >= frames || size <= 0) {
+      return -1;
+    }
+
+    final int count = eventCount(buffer);
+    if (count > 0 && time < eventTime(buffer, count - 1)) {
+      return -1;
+    }
+
+    final int used = buffer.getInt(HEADER_USED);
+    final long table_end = entry(count + 1);
+    final long data_start = (long) buffer_size - (long) used - (long) size;
+    if (data_start < table_end) {
+      buffer.putInt(HEADER_LOST, lostEventCount(buffer) + 1);
+      return -1;
+    }
+
+    final long entry = entry(count);
+    buffer.putInt(entry + ENTRY_TIME, time);
+    buffer.putInt(entry + ENTRY_DATA_SIZE, size);
+    buffer.putInt(entry + ENTRY_DATA_OFFSET, (int) data_start);
+    buffer.putInt(HEADER_USED, used + size);
+    buffer.putInt(HEADER_COUNT, count + 1);
+    return (int) data_start;
+  }
+
+  /**
+   * Write an event.
+   *
+   * @return 0 on success, or -1 if the event could not be written
+   */
+
+  static int write(
+    final Pointer buffer,
+    final int buffer_size,
+    final int frames,
+    final int time,
+    final Pointer data,
+    final int size)
+  {
+    final int offset = reserve(buffer, buffer_size, frames, time, size);
+    if (offset < 0) {
+      return -1;
+    }
+    data.transferTo(0L, buffer, (long) offset, (long) size);
+    return 0;
+  }
+
+  /**
+   * Merge the events of all of the given source buffers into the target
+   * buffer in frame order. The given cursor array must have at least as many
+   * elements as there are sources.
+   */
+
+  static void merge(
+    final Pointer target,
+    final int buffer_size,
+    final int frames,
+    final Pointer[] sources,
+    final int[] cursors)
+  {
+    clear(target);
+
+    int lost = 0;
+    for (int index = 0; index < sources.length; ++index) {
+      cursors[index] = 0;
+      lost += lostEventCount(sources[index]);
+    }
+
+    while (true) {
+      int best = -1;
+      int best_time = Integer.MAX_VALUE;
+      for (int index = 0; index < sources.length; ++index) {
+        final Pointer source = sources[index];
+        final int cursor = cursors[index];
+        if (cursor < eventCount(source)) {
+          final int time = eventTime(source, cursor);
+          if (time < best_time) {
+            best = index;
+            best_time = time;
+          }
+        }
+      }
+
+      if (best == -1) {
+        break;
+      }
+
+      final Pointer source = sources[best];
+      final int cursor = cursors[best];
+      final int size = eventSize(source, cursor);
+      final int offset =
+        reserve(target, buffer_size, frames, best_time, size);
+      if (offset >= 0) {
+        source.transferTo(
+          (long) eventDataOffset(source, cursor),
+          target,
+          (long) offset,
+          (long) size);
+      }
+      cursors[best] = cursor + 1;
+    }
+
+    target.putInt(HEADER_LOST, lostEventCount(target) + lost);
+  }
+}
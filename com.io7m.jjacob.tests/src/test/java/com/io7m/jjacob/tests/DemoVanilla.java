@@ -148,6 +148,13 @@ public final class DemoVanilla
         }
       });
 
+      /*
+       * Log any xruns that occur.
+       */
+
+      client.setXRunListener(
+        statistics -> LOG.warn("xrun: {}", statistics));
+
       /*
        * Activate the client.
        */
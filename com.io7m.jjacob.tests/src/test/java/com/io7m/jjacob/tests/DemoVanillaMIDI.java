@@ -16,6 +16,7 @@
 
 package com.io7m.jjacob.tests;
 
+import com.io7m.jjacob.api.JackBufferMIDIEventCursorType;
 import com.io7m.jjacob.api.JackBufferMIDIType;
 import com.io7m.jjacob.api.JackClientConfiguration;
 import com.io7m.jjacob.api.JackClientProviderType;
@@ -74,9 +75,19 @@ public final class DemoVanillaMIDI
       client.setProcessCallback(context -> {
         final JackBufferMIDIType buf0 = context.portBufferMIDI(port_L);
 
-        final int count = buf0.eventCount();
         final int lost_count = buf0.eventLostCount();
-        LOG.debug("lost: {}", Integer.valueOf(lost_count));
+        if (lost_count > 0) {
+          LOG.debug("lost: {}", Integer.valueOf(lost_count));
+        }
+
+        final JackBufferMIDIEventCursorType events = buf0.events();
+        while (events.next()) {
+          LOG.debug(
+            "event: frame {} size {} status 0x{}",
+            Integer.valueOf(events.frameOffset()),
+            Integer.valueOf(events.size()),
+            Integer.toHexString(events.getB(0)));
+        }
       });
 
       client.activate();
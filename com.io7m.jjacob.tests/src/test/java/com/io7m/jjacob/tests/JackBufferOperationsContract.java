@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackBufferOperations;
+import com.io7m.jjacob.api.JackBufferType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public abstract class JackBufferOperationsContract
+{
+  @Rule public final ExpectedException expected = ExpectedException.none();
+
+  protected abstract JackBufferType buffer(
+    int frames_count,
+    int frames_size);
+
+  private JackBufferType ramp(
+    final int frames_count)
+  {
+    final JackBufferType buffer = this.buffer(frames_count, 4);
+    for (int index = 0; index < frames_count; ++index) {
+      buffer.putF(index, (float) index);
+    }
+    return buffer;
+  }
+
+  @Test
+  public final void testFill()
+  {
+    final JackBufferType buffer = this.ramp(64);
+    JackBufferOperations.fill(buffer, 23.0f);
+
+    for (int index = 0; index < buffer.frameCount(); ++index) {
+      Assert.assertEquals(23.0f, buffer.getF(index), 0.0f);
+    }
+  }
+
+  @Test
+  public final void testClear()
+  {
+    final JackBufferType buffer = this.ramp(64);
+    JackBufferOperations.clear(buffer);
+
+    for (int index = 0; index < buffer.frameCount(); ++index) {
+      Assert.assertEquals(0.0f, buffer.getF(index), 0.0f);
+    }
+  }
+
+  @Test
+  public final void testScale()
+  {
+    final JackBufferType buffer = this.ramp(64);
+    JackBufferOperations.scale(buffer, 0.5f);
+
+    for (int index = 0; index < buffer.frameCount(); ++index) {
+      Assert.assertEquals((float) index * 0.5f, buffer.getF(index), 0.0f);
+    }
+  }
+
+  @Test
+  public final void testAddScaled()
+  {
+    final JackBufferType target = this.ramp(64);
+    final JackBufferType source = this.ramp(64);
+    JackBufferOperations.addScaled(target, source, 2.0f);
+
+    for (int index = 0; index < target.frameCount(); ++index) {
+      Assert.assertEquals((float) index * 3.0f, target.getF(index), 0.0f);
+      Assert.assertEquals((float) index, source.getF(index), 0.0f);
+    }
+  }
+
+  @Test
+  public final void testCopy()
+  {
+    final JackBufferType target = this.buffer(64, 4);
+    final JackBufferType source = this.ramp(64);
+    JackBufferOperations.copy(target, source);
+
+    for (int index = 0; index < target.frameCount(); ++index) {
+      Assert.assertEquals((float) index, target.getF(index), 0.0f);
+    }
+  }
+
+  @Test
+  public final void testCopySelf()
+  {
+    final JackBufferType buffer = this.ramp(64);
+    JackBufferOperations.copy(buffer, buffer);
+
+    for (int index = 0; index < buffer.frameCount(); ++index) {
+      Assert.assertEquals((float) index, buffer.getF(index), 0.0f);
+    }
+  }
+
+  @Test
+  public final void testPeak()
+  {
+    final JackBufferType buffer = this.buffer(64, 4);
+    Assert.assertEquals(0.0f, JackBufferOperations.peak(buffer), 0.0f);
+
+    buffer.putF(10, 0.25f);
+    buffer.putF(20, -0.75f);
+    buffer.putF(30, 0.5f);
+    Assert.assertEquals(0.75f, JackBufferOperations.peak(buffer), 0.0f);
+  }
+
+  @Test
+  public final void testCopySizeMismatch()
+  {
+    final JackBufferType target = this.buffer(64, 4);
+    final JackBufferType source = this.buffer(32, 4);
+
+    this.expected.expect(IllegalArgumentException.class);
+    JackBufferOperations.copy(target, source);
+  }
+
+  @Test
+  public final void testAddScaledSizeMismatch()
+  {
+    final JackBufferType target = this.buffer(64, 4);
+    final JackBufferType source = this.buffer(32, 4);
+
+    this.expected.expect(IllegalArgumentException.class);
+    JackBufferOperations.addScaled(target, source, 1.0f);
+  }
+
+  @Test
+  public final void testFrameSizeWrong()
+  {
+    final JackBufferType buffer = this.buffer(64, 1);
+
+    this.expected.expect(IllegalArgumentException.class);
+    JackBufferOperations.fill(buffer, 1.0f);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackAbstractBuffer;
+import com.io7m.jjacob.api.JackBufferType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class JackBufferOperationsFallbackTest
+  extends JackBufferOperationsContract
+{
+  @Override
+  protected JackBufferType buffer(
+    final int frames_count,
+    final int frames_size)
+  {
+    final ByteBuffer data =
+      ByteBuffer.allocate(frames_count * frames_size)
+        .order(ByteOrder.nativeOrder());
+
+    return new JackAbstractBuffer(frames_count, frames_size)
+    {
+      @Override
+      protected void actualPutF(
+        final long offset,
+        final float value)
+      {
+        data.putFloat((int) offset, value);
+      }
+
+      @Override
+      protected void actualPutArrayF(
+        final long offset,
+        final float[] values)
+      {
+        for (int index = 0; index < values.length; ++index) {
+          data.putFloat((int) offset + (index * 4), values[index]);
+        }
+      }
+
+      @Override
+      protected void actualPutI(
+        final long offset,
+        final int value)
+      {
+        data.putInt((int) offset, value);
+      }
+
+      @Override
+      protected void actualPutB(
+        final long offset,
+        final int value)
+      {
+        data.put((int) offset, (byte) value);
+      }
+
+      @Override
+      protected void actualPutArrayB(
+        final long offset,
+        final byte[] values)
+      {
+        for (int index = 0; index < values.length; ++index) {
+          data.put((int) offset + index, values[index]);
+        }
+      }
+
+      @Override
+      protected float actualGetF(final long offset)
+      {
+        return data.getFloat((int) offset);
+      }
+
+      @Override
+      protected int actualGetI(final long offset)
+      {
+        return data.getInt((int) offset);
+      }
+
+      @Override
+      protected int actualGetB(final long offset)
+      {
+        return (int) data.get((int) offset) & 0xff;
+      }
+
+      @Override
+      protected void actualGetArrayF(
+        final long offset,
+        final float[] values,
+        final int array_offset,
+        final int length)
+      {
+        for (int index = 0; index < length; ++index) {
+          values[array_offset + index] =
+            data.getFloat((int) offset + (index * 4));
+        }
+      }
+
+      @Override
+      protected void actualGetArrayB(
+        final long offset,
+        final byte[] values,
+        final int array_offset,
+        final int length)
+      {
+        for (int index = 0; index < length; ++index) {
+          values[array_offset + index] = data.get((int) offset + index);
+        }
+      }
+    };
+  }
+}
@@ -18,6 +18,8 @@ package com.io7m.jjacob.tests;
 
 import com.io7m.jjacob.api.JackAbstractBuffer;
 import com.io7m.jjacob.api.JackBufferType;
+import org.junit.Assert;
+import org.junit.Test;
 
 public final class JackBufferTest extends JackBufferContract
 {
@@ -107,4 +109,12 @@ public final class JackBufferTest extends JackBufferContract
       }
     };
   }
+
+  @Test
+  public void testViewsUnavailable()
+  {
+    final JackBufferType buffer = this.buffer(64, 4);
+    Assert.assertFalse(buffer.asByteBuffer().isPresent());
+    Assert.assertFalse(buffer.asFloatBuffer().isPresent());
+  }
 }
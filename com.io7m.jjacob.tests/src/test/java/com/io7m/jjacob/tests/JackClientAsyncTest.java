@@ -0,0 +1,279 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackClientAsync;
+import com.io7m.jjacob.api.JackClientAsyncType;
+import com.io7m.jjacob.api.JackClientClosedException;
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientPortConnectionException;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackPortFlag;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.simulated.JackSimulatedEngine;
+import com.io7m.jjacob.simulated.JackSimulatedEngineConfiguration;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+public final class JackClientAsyncTest
+{
+  private JackSimulatedEngine engine;
+  private JackClientType client;
+  private JackClientAsyncType async;
+
+  @Before
+  public void setup()
+    throws Exception
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    this.engine = JackSimulatedEngine.create(
+      JackSimulatedEngineConfiguration.builder().build());
+
+    final JackClientProviderType provider =
+      JackClientProvider.create(types, this.engine.libjack());
+    this.client = provider.openClient(
+      JackClientConfiguration.builder().setClientName("c").build());
+    this.async = JackClientAsync.create(this.client);
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.async.close();
+    this.engine.close();
+  }
+
+  @Test
+  public void testOperations()
+    throws Exception
+  {
+    this.async.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT)).get();
+    this.async.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT)).get();
+    this.async.activate().get();
+    Assert.assertTrue(this.client.isActive());
+
+    Assert.assertEquals(
+      Boolean.TRUE, this.async.portsConnect("c:out", "c:in").get());
+    Assert.assertEquals(
+      Boolean.FALSE, this.async.portsConnect("c:out", "c:in").get());
+    Assert.assertEquals(
+      List.of("c:out", "c:in"),
+      this.async.portsList(
+        Optional.empty(),
+        Optional.empty(),
+        EnumSet.noneOf(JackPortFlag.class)).get());
+    Assert.assertTrue(this.async.portByName("c:in").get().isPresent());
+    Assert.assertTrue(
+      this.async.portsConnectionsApply(Optional.empty(), Set.of())
+        .get()
+        .isSuccessful());
+
+    this.async.deactivate().get();
+    Assert.assertFalse(this.client.isActive());
+  }
+
+  @Test
+  public void testSingleThread()
+    throws Exception
+  {
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    final List<Thread> callers = new ArrayList<>();
+    final List<CompletableFuture<?>> futures = new ArrayList<>();
+
+    for (int index = 0; index < 16; ++index) {
+      final int port = index;
+      final Thread caller = new Thread(() -> {
+        final CompletableFuture<Object> future =
+          this.async.submit(c -> {
+            threads.add(Thread.currentThread());
+            return c.portRegister("p" + port, EnumSet.of(JACK_PORT_IS_OUTPUT));
+          });
+        synchronized (futures) {
+          futures.add(future);
+        }
+      });
+      callers.add(caller);
+      caller.start();
+    }
+
+    for (final Thread caller : callers) {
+      caller.join();
+    }
+    for (final CompletableFuture<?> future : futures) {
+      future.get();
+    }
+
+    Assert.assertEquals(1L, (long) threads.size());
+    final Thread thread = threads.iterator().next();
+    Assert.assertFalse(callers.contains(thread));
+    Assert.assertNotEquals(Thread.currentThread(), thread);
+    Assert.assertEquals(
+      16L,
+      (long) this.client.portsList(
+        Optional.empty(),
+        Optional.empty(),
+        EnumSet.noneOf(JackPortFlag.class)).size());
+  }
+
+  @Test
+  public void testFailure()
+    throws Exception
+  {
+    try {
+      this.async.portsDisconnect("c:nonexistent", "c:other").get();
+      Assert.fail();
+    } catch (final ExecutionException e) {
+      Assert.assertEquals(
+        JackClientPortConnectionException.class, e.getCause().getClass());
+    }
+
+    Assert.assertEquals(
+      "c", this.async.submit(JackClientType::name).get());
+  }
+
+  @Test
+  public void testClosed()
+    throws Exception
+  {
+    this.async.close();
+
+    try {
+      this.async.activate().get();
+      Assert.fail();
+    } catch (final ExecutionException e) {
+      Assert.assertEquals(
+        JackClientClosedException.class, e.getCause().getClass());
+    }
+    Assert.assertFalse(this.client.isClosed());
+  }
+
+  private static void await(
+    final CountDownLatch latch)
+  {
+    try {
+      latch.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void closeAsync()
+  {
+    try {
+      this.async.close();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private boolean closeAsyncWithin(
+    final Duration timeout)
+  {
+    try {
+      return this.async.close(timeout);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Test(timeout = 10_000L)
+  public void testCloseFromOperation()
+    throws Exception
+  {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CompletableFuture<String> closing =
+      this.async.submit(c -> {
+        await(release);
+        this.closeAsync();
+        return "closed";
+      });
+    final CompletableFuture<String> queued =
+      this.async.submit(JackClientType::name);
+
+    release.countDown();
+    Assert.assertEquals("closed", closing.get());
+    Assert.assertEquals("c", queued.get());
+
+    try {
+      this.async.activate().get();
+      Assert.fail();
+    } catch (final ExecutionException e) {
+      Assert.assertEquals(
+        JackClientClosedException.class, e.getCause().getClass());
+    }
+
+    Assert.assertTrue(this.async.close(Duration.ofSeconds(5L)));
+  }
+
+  @Test(timeout = 10_000L)
+  public void testCloseFromOperationBounded()
+    throws Exception
+  {
+    final CompletableFuture<Boolean> closing =
+      this.async.submit(
+        c -> Boolean.valueOf(this.closeAsyncWithin(Duration.ofSeconds(5L))));
+    Assert.assertEquals(Boolean.FALSE, closing.get());
+    Assert.assertTrue(this.async.close(Duration.ofSeconds(5L)));
+  }
+
+  @Test(timeout = 10_000L)
+  public void testCloseTimeout()
+    throws Exception
+  {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CompletableFuture<Object> blocked =
+      this.async.submit(c -> {
+        started.countDown();
+        await(release);
+        return null;
+      });
+
+    started.await();
+    Assert.assertFalse(this.async.close(Duration.ofMillis(10L)));
+    Assert.assertFalse(blocked.isDone());
+
+    release.countDown();
+    blocked.get(5L, TimeUnit.SECONDS);
+    Assert.assertTrue(this.async.close(Duration.ofSeconds(5L)));
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackConnectionReport;
+import com.io7m.jjacob.api.JackConnectionResult;
+import com.io7m.jjacob.api.JackGraphConnection;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.simulated.JackSimulatedEngine;
+import com.io7m.jjacob.simulated.JackSimulatedEngineConfiguration;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.io7m.jjacob.api.JackConnectionAction.JACK_CONNECTION_CONNECT;
+import static com.io7m.jjacob.api.JackConnectionAction.JACK_CONNECTION_DISCONNECT;
+import static com.io7m.jjacob.api.JackConnectionAction.JACK_CONNECTION_KEEP;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+public final class JackClientConnectionsTest
+{
+  private JackSimulatedEngine engine;
+  private JackClientProviderType provider;
+  private JackClientType observer;
+
+  private static JackGraphConnection connection(
+    final String source,
+    final String target)
+  {
+    return JackGraphConnection.of(source, target);
+  }
+
+  private JackClientType openClient(
+    final String name,
+    final boolean snapshot)
+    throws Exception
+  {
+    final JackClientType client =
+      this.provider.openClient(
+        JackClientConfiguration.builder()
+          .setClientName(name)
+          .setGraphSnapshotEnabled(snapshot)
+          .build());
+
+    client.portRegister("out0", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    client.portRegister("out1", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    client.portRegister("in0", EnumSet.of(JACK_PORT_IS_INPUT));
+    client.portRegister("in1", EnumSet.of(JACK_PORT_IS_INPUT));
+    return client;
+  }
+
+  private Set<JackGraphConnection> connections()
+    throws Exception
+  {
+    return this.observer.graph().orElseThrow(AssertionError::new).connections();
+  }
+
+  @Before
+  public void setup()
+    throws Exception
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    this.engine = JackSimulatedEngine.create(
+      JackSimulatedEngineConfiguration.builder().build());
+    this.provider = JackClientProvider.create(types, this.engine.libjack());
+    this.observer = this.provider.openClient(
+      JackClientConfiguration.builder()
+        .setClientName("observer")
+        .setGraphSnapshotEnabled(true)
+        .build());
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.engine.close();
+  }
+
+  private void checkApply(
+    final boolean snapshot)
+    throws Exception
+  {
+    try (JackClientType client = this.openClient("a", snapshot)) {
+      Assert.assertTrue(client.portsConnect("a:out0", "a:in0"));
+      Assert.assertTrue(client.portsConnect("a:out1", "a:in0"));
+
+      final JackConnectionReport report =
+        client.portsConnectionsApply(
+          Optional.empty(),
+          Set.of(
+            connection("a:out0", "a:in0"),
+            connection("a:out0", "a:in1"),
+            connection("a:out1", "a:in1")));
+
+      Assert.assertTrue(report.isSuccessful());
+      Assert.assertEquals(
+        List.of(
+          JackConnectionResult.of(
+            connection("a:out0", "a:in0"), JACK_CONNECTION_KEEP, true),
+          JackConnectionResult.of(
+            connection("a:out1", "a:in0"), JACK_CONNECTION_DISCONNECT, true),
+          JackConnectionResult.of(
+            connection("a:out0", "a:in1"), JACK_CONNECTION_CONNECT, true),
+          JackConnectionResult.of(
+            connection("a:out1", "a:in1"), JACK_CONNECTION_CONNECT, true)),
+        report.results());
+
+      Assert.assertEquals(
+        Set.of(
+          connection("a:out0", "a:in0"),
+          connection("a:out0", "a:in1"),
+          connection("a:out1", "a:in1")),
+        this.connections());
+
+      final JackConnectionReport again =
+        client.portsConnectionsApply(Optional.empty(), this.connections());
+      Assert.assertTrue(again.isSuccessful());
+      Assert.assertTrue(
+        again.results()
+          .stream()
+          .allMatch(result -> result.action() == JACK_CONNECTION_KEEP));
+    }
+  }
+
+  @Test
+  public void testApplyQuery()
+    throws Exception
+  {
+    this.checkApply(false);
+  }
+
+  @Test
+  public void testApplySnapshot()
+    throws Exception
+  {
+    this.checkApply(true);
+  }
+
+  @Test
+  public void testApplyScope()
+    throws Exception
+  {
+    try (JackClientType a = this.openClient("a", false)) {
+      try (JackClientType b = this.openClient("b", false)) {
+        Assert.assertTrue(a.portsConnect("a:out0", "a:in0"));
+        Assert.assertTrue(b.portsConnect("b:out0", "b:in0"));
+
+        final JackConnectionReport report =
+          a.portsConnectionsApply(
+            Optional.of("^a:"), Set.of(connection("a:out1", "a:in1")));
+        Assert.assertTrue(report.isSuccessful());
+
+        Assert.assertEquals(
+          Set.of(
+            connection("a:out1", "a:in1"),
+            connection("b:out0", "b:in0")),
+          this.connections());
+      }
+    }
+  }
+
+  @Test
+  public void testApplyFailure()
+    throws Exception
+  {
+    try (JackClientType client = this.openClient("a", false)) {
+      final JackConnectionReport report =
+        client.portsConnectionsApply(
+          Optional.empty(),
+          Set.of(
+            connection("a:out0", "a:in0"),
+            connection("a:out0", "a:missing")));
+
+      Assert.assertFalse(report.isSuccessful());
+      Assert.assertEquals(
+        List.of(
+          JackConnectionResult.of(
+            connection("a:out0", "a:missing"), JACK_CONNECTION_CONNECT, false)),
+        report.failures());
+      Assert.assertEquals(
+        Set.of(connection("a:out0", "a:in0")),
+        this.connections());
+    }
+  }
+}
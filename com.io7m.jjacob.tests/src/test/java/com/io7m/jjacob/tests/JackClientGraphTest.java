@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackGraphConnection;
+import com.io7m.jjacob.api.JackGraphPort;
+import com.io7m.jjacob.api.JackGraphSnapshotType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.simulated.JackSimulatedEngine;
+import com.io7m.jjacob.simulated.JackSimulatedEngineConfiguration;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+public final class JackClientGraphTest
+{
+  private JackSimulatedEngine engine;
+  private JackClientProviderType provider;
+
+  private static JackClientConfiguration named(
+    final String name)
+  {
+    return JackClientConfiguration.builder().setClientName(name).build();
+  }
+
+  private static JackClientConfiguration observing(
+    final String name)
+  {
+    return JackClientConfiguration.builder()
+      .setClientName(name)
+      .setGraphSnapshotEnabled(true)
+      .build();
+  }
+
+  private static JackGraphSnapshotType graphOf(
+    final JackClientType client)
+    throws Exception
+  {
+    return client.graph().orElseThrow(AssertionError::new);
+  }
+
+  @Before
+  public void setup()
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    this.engine = JackSimulatedEngine.create(
+      JackSimulatedEngineConfiguration.builder().build());
+    this.provider = JackClientProvider.create(types, this.engine.libjack());
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.engine.close();
+  }
+
+  @Test
+  public void testGraphDisabled()
+    throws Exception
+  {
+    try (JackClientType client = this.provider.openClient(named("c"))) {
+      Assert.assertEquals(Optional.empty(), client.graph());
+    }
+  }
+
+  @Test
+  public void testGraphInitial()
+    throws Exception
+  {
+    try (JackClientType source = this.provider.openClient(named("source"))) {
+      source.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+      source.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+      Assert.assertTrue(source.portsConnect("source:out", "source:in"));
+
+      try (JackClientType observer = this.provider.openClient(observing("o"))) {
+        final JackGraphSnapshotType graph = graphOf(observer);
+
+        Assert.assertEquals(Set.of("source"), graph.clients());
+        Assert.assertEquals(
+          List.of("source:out", "source:in"),
+          new ArrayList<>(graph.ports().keySet()));
+        Assert.assertEquals(
+          Set.of(JackGraphConnection.of("source:out", "source:in")),
+          graph.connections());
+        Assert.assertTrue(graph.isConnected("source:out", "source:in"));
+        Assert.assertFalse(graph.isConnected("source:in", "source:out"));
+        Assert.assertEquals(
+          Set.of("source:in"), graph.connectionsOf("source:out"));
+
+        final JackGraphPort port = graph.portByName("source:out").get();
+        Assert.assertEquals("source", port.clientName());
+        Assert.assertEquals("out", port.shortName());
+        Assert.assertEquals(LibJackPorts.defaultAudioType(), port.typeName());
+        Assert.assertEquals(EnumSet.of(JACK_PORT_IS_OUTPUT), port.flags());
+      }
+    }
+  }
+
+  @Test
+  public void testGraphUpdates()
+    throws Exception
+  {
+    try (JackClientType observer = this.provider.openClient(observing("o"))) {
+      final JackGraphSnapshotType graph0 = graphOf(observer);
+      Assert.assertEquals(Set.of(), graph0.clients());
+
+      final JackClientType other = this.provider.openClient(named("other"));
+      other.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+      other.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+
+      final JackGraphSnapshotType graph1 = graphOf(observer);
+      Assert.assertTrue(graph1.version() > graph0.version());
+      Assert.assertEquals(Set.of("other"), graph1.clients());
+      Assert.assertEquals(2L, (long) graph1.ports().size());
+
+      Assert.assertTrue(other.portsConnect("other:out", "other:in"));
+      final JackGraphSnapshotType graph2 = graphOf(observer);
+      Assert.assertTrue(graph2.version() > graph1.version());
+      Assert.assertTrue(graph2.isConnected("other:out", "other:in"));
+
+      other.portsDisconnect("other:out", "other:in");
+      final JackGraphSnapshotType graph3 = graphOf(observer);
+      Assert.assertTrue(graph3.version() > graph2.version());
+      Assert.assertEquals(Set.of(), graph3.connections());
+
+      Assert.assertTrue(other.portsConnect("other:out", "other:in"));
+      other.close();
+
+      final JackGraphSnapshotType graph4 = graphOf(observer);
+      Assert.assertEquals(Set.of(), graph4.clients());
+      Assert.assertEquals(Set.of(), graph4.ports().keySet());
+      Assert.assertEquals(Set.of(), graph4.connections());
+
+      /*
+       * Earlier snapshots are unaffected by later changes.
+       */
+
+      Assert.assertTrue(graph2.isConnected("other:out", "other:in"));
+    }
+  }
+
+  @Test
+  public void testGraphQueries()
+    throws Exception
+  {
+    try (JackClientType observer = this.provider.openClient(observing("o"))) {
+      observer.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+      observer.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+
+      Assert.assertEquals(
+        List.of("o:out", "o:in"),
+        observer.portsList(Optional.empty(), Optional.empty(), Set.of()));
+      Assert.assertEquals(
+        List.of("o:in"),
+        observer.portsList(
+          Optional.of("o:"), Optional.empty(), Set.of(JACK_PORT_IS_INPUT)));
+      Assert.assertEquals(
+        List.of(),
+        observer.portsList(Optional.of("missing"), Optional.empty(), Set.of()));
+
+      Assert.assertTrue(observer.portByName("o:out").isPresent());
+      Assert.assertFalse(observer.portByName("o:missing").isPresent());
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.metrics.JackClientMetrics;
+import com.io7m.jjacob.metrics.JackClientMetricsRegistrationException;
+import com.io7m.jjacob.simulated.JackSimulatedEngine;
+import com.io7m.jjacob.simulated.JackSimulatedEngineConfiguration;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+public final class JackClientMetricsTest
+{
+  private JackSimulatedEngine engine;
+  private JackClientProviderType provider;
+  private MBeanServer server;
+
+  @Before
+  public void setup()
+    throws Exception
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    this.engine =
+      JackSimulatedEngine.create(
+        JackSimulatedEngineConfiguration.builder()
+          .setSampleRate(48000)
+          .setBufferSize(256)
+          .build());
+    this.provider = JackClientProvider.create(types, this.engine.libjack());
+    this.server = ManagementFactory.getPlatformMBeanServer();
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.engine.close();
+  }
+
+  /**
+   * Client metrics are sampled and published as a platform MBean.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 10_000L)
+  public void testMetrics()
+    throws Exception
+  {
+    try (final JackClientType client =
+           this.provider.openClient(
+             JackClientConfiguration.builder()
+               .setClientName("test")
+               .setProcessTimingEnabled(true)
+               .build())) {
+
+      client.setProcessCallback(context -> {
+
+      });
+      client.activate();
+
+      try (final JackClientMetrics metrics =
+             JackClientMetrics.register(client, Duration.ofMillis(10L))) {
+
+        final ObjectName name = metrics.objectName();
+        Assert.assertEquals(name, JackClientMetrics.objectNameFor(client));
+        Assert.assertTrue(this.server.isRegistered(name));
+        Assert.assertEquals(
+          "test", this.server.getAttribute(name, "ClientName"));
+        Assert.assertEquals(
+          Long.valueOf(-1L),
+          this.server.getAttribute(name, "ProcessThreadAllocatedBytes"));
+
+        try {
+          JackClientMetrics.register(client, Duration.ofMillis(10L));
+          Assert.fail();
+        } catch (final JackClientMetricsRegistrationException e) {
+          // Expected
+        }
+
+        for (int index = 0; index < 100; ++index) {
+          this.engine.processCycle();
+        }
+        this.engine.simulateXRun(Duration.ofNanos(23_000L));
+
+        final long samples = metrics.getSamples();
+        while (metrics.getSamples() < samples + 2L) {
+          Thread.sleep(10L);
+        }
+
+        Assert.assertEquals(
+          Integer.valueOf(48000),
+          this.server.getAttribute(name, "SampleRate"));
+        Assert.assertEquals(
+          Integer.valueOf(256),
+          this.server.getAttribute(name, "BufferSize"));
+        Assert.assertEquals(
+          Long.valueOf(1L),
+          this.server.getAttribute(name, "XRunCount"));
+        Assert.assertEquals(
+          Float.valueOf(23.0f),
+          this.server.getAttribute(name, "XRunLastDelayMicroseconds"));
+        Assert.assertEquals(
+          Long.valueOf(100L),
+          this.server.getAttribute(name, "ProcessCycles"));
+        Assert.assertTrue(
+          (Long) this.server.getAttribute(name, "ProcessTimeP99Nanoseconds")
+            >= 0L);
+        Assert.assertTrue(
+          (Long) this.server.getAttribute(name, "ProcessThreadAllocatedBytes")
+            >= 0L);
+      }
+    }
+  }
+
+  /**
+   * Client metrics are unregistered when the client is closed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 10_000L)
+  public void testMetricsClientClosed()
+    throws Exception
+  {
+    final JackClientType client =
+      this.provider.openClient(
+        JackClientConfiguration.builder()
+          .setClientName("test")
+          .build());
+
+    final JackClientMetrics metrics =
+      JackClientMetrics.register(client, Duration.ofMillis(10L));
+    Assert.assertEquals(
+      Long.valueOf(-1L),
+      this.server.getAttribute(
+        metrics.objectName(), "ProcessTimeP50Nanoseconds"));
+
+    client.close();
+    while (this.server.isRegistered(metrics.objectName())) {
+      Thread.sleep(10L);
+    }
+  }
+}
@@ -16,18 +16,30 @@
 
 package com.io7m.jjacob.tests;
 
+import com.io7m.jjacob.api.JackBufferMIDIEventCursorType;
+import com.io7m.jjacob.api.JackBufferMIDIException;
+import com.io7m.jjacob.api.JackBufferMIDIType;
+import com.io7m.jjacob.api.JackBufferMIDIWritableType;
+import com.io7m.jjacob.api.JackBufferType;
 import com.io7m.jjacob.api.JackClientActivateException;
 import com.io7m.jjacob.api.JackClientCallbackRegistrationException;
 import com.io7m.jjacob.api.JackClientClosedException;
 import com.io7m.jjacob.api.JackClientConfiguration;
 import com.io7m.jjacob.api.JackClientDeactivateException;
+import com.io7m.jjacob.api.JackClientInstrumentationType;
 import com.io7m.jjacob.api.JackClientOpenException;
+import com.io7m.jjacob.api.JackClientOperationType;
+import com.io7m.jjacob.api.JackClientPipelineConfiguration;
+import com.io7m.jjacob.api.JackClientPortBufferException;
 import com.io7m.jjacob.api.JackClientPortConnectionException;
 import com.io7m.jjacob.api.JackClientPortRegistrationException;
 import com.io7m.jjacob.api.JackClientPortSearchException;
 import com.io7m.jjacob.api.JackClientPortTypeRegistryType;
+import com.io7m.jjacob.api.JackClientProcessTimingType;
 import com.io7m.jjacob.api.JackClientProviderType;
 import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackClientXRunStatisticsType;
+import com.io7m.jjacob.api.JackLatencyRange;
 import com.io7m.jjacob.api.JackPortType;
 import com.io7m.jjacob.api.JackPortTypeRegistry;
 import com.io7m.jjacob.api.JackStatusCode;
@@ -36,6 +48,7 @@ import com.io7m.jjacob.jnr.LibJackPorts;
 import com.io7m.jjacob.jnr.LibJackStatus;
 import com.io7m.jjacob.jnr.LibJackType;
 import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import com.sun.management.ThreadMXBean;
 import jnr.constants.platform.Errno;
 import jnr.ffi.Memory;
 import jnr.ffi.Pointer;
@@ -45,11 +58,18 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+import static com.io7m.jjacob.api.JackProcessErrorPolicy.JACK_PROCESS_ERROR_BYPASS;
 import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsOutput;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -59,6 +79,11 @@ public abstract class JackClientProviderContract
     JackClientPortTypeRegistryType types,
     LibJackType libjack);
 
+  protected abstract JackClientProviderType clientProviderInstrumented(
+    JackClientPortTypeRegistryType types,
+    LibJackType libjack,
+    JackClientInstrumentationType instrumentation);
+
   private static JackPortTypeRegistry types()
   {
     final JackPortTypeRegistry types = new JackPortTypeRegistry();
@@ -167,6 +192,24 @@ public abstract class JackClientProviderContract
           return 0;
         }
 
+        @Override
+        public int jack_set_xrun_callback(
+          final Pointer client,
+          final XRunCallbackType process,
+          final Pointer data)
+        {
+          return 0;
+        }
+
+        @Override
+        public int jack_set_latency_callback(
+          final Pointer client,
+          final LatencyCallbackType callback,
+          final Pointer data)
+        {
+          return 0;
+        }
+
         @Override
         public Pointer jack_client_open(
           final String name,
@@ -1581,8 +1624,1637 @@ public abstract class JackClientProviderContract
     }
   }
 
-  private static class LibJackWithTestClient extends LibJackUnsupported
+  /**
+   * Obtaining port buffers in the process callback does not allocate.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackAllocationFree()
+    throws Exception
+  {
+    final int frames = 64;
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer audio_port = Memory.allocateDirect(runtime, 4);
+    final Pointer midi_port = Memory.allocateDirect(runtime, 4);
+    final Pointer audio_memory = Memory.allocateDirect(runtime, frames * 4);
+    final Pointer midi_memory = Memory.allocateDirect(runtime, frames);
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        if (LibJackPorts.defaultMidiType().equals(port_type)) {
+          return midi_port;
+        }
+        return audio_port;
+      }
+
+      private Pointer returned;
+
+      /*
+       * As with the native binding, every call of the pointer-returning
+       * function allocates a new pointer, so the process cycle must use the
+       * address-returning function. The pointer is retained so that the
+       * compiler cannot eliminate the allocation.
+       */
+
+      @Override
+      public Pointer jack_port_get_buffer(
+        final Pointer port,
+        final int frames)
+      {
+        this.returned = Pointer.wrap(
+          runtime, this.jack_port_get_buffer_address(port.address(), frames));
+        return this.returned;
+      }
+
+      @Override
+      public long jack_port_get_buffer_address(
+        final long port,
+        final int frames)
+      {
+        if (port == midi_port.address()) {
+          return midi_memory.address();
+        }
+        return audio_memory.address();
+      }
+
+      @Override
+      public int jack_get_sample_rate(
+        final Pointer client)
+      {
+        return 48000;
+      }
+
+      @Override
+      public int jack_midi_get_event_count(
+        final Pointer buffer)
+      {
+        return 2;
+      }
+
+      @Override
+      public int jack_midi_get_lost_event_count(
+        final Pointer buffer)
+      {
+        return 0;
+      }
+
+      @Override
+      public int jack_midi_event_get(
+        final MidiEvent event,
+        final Pointer buffer,
+        final int index)
+      {
+        event.frames.set((long) index);
+        event.size.set(3L);
+        event.pointer.set(midi_memory);
+        return 0;
+      }
+
+      @Override
+      public void jack_midi_clear_buffer(
+        final Pointer buffer)
+      {
+
+      }
+
+      @Override
+      public int jack_midi_event_write(
+        final Pointer buffer,
+        final int time,
+        final Pointer data,
+        final long data_size)
+      {
+        return 0;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .setProcessTimingEnabled(true)
+               .build())) {
+
+      final JackPortType audio =
+        client.portRegister(
+          "out",
+          LibJackPorts.defaultAudioType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+      final JackPortType midi =
+        client.portRegister(
+          "midi",
+          LibJackPorts.defaultMidiType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+
+      client.setProcessCallback(context -> {
+        final JackBufferType buffer = context.portBuffer(audio);
+        final int count = buffer.frameCount();
+        for (int index = 0; index < count; ++index) {
+          buffer.putF(index, buffer.getF(index) + 1.0f);
+        }
+        final JackBufferMIDIEventCursorType events =
+          context.portBufferMIDI(midi).events();
+        while (events.next()) {
+          events.getB(events.size() - 1);
+        }
+
+        final JackBufferMIDIWritableType output =
+          context.portBufferMIDIWritable(midi);
+        output.clear();
+        output.write1(0, 0xf8);
+        output.write3(1, 0x90, 60, 127);
+      });
+
+      final LibJackType.ProcessCallbackType process = callbacks[0];
+      Assert.assertNotNull("Callback registered", process);
+
+      final ThreadMXBean threads =
+        (ThreadMXBean) ManagementFactory.getThreadMXBean();
+      final long thread_id = Thread.currentThread().getId();
+
+      for (int cycle = 0; cycle < 100_000; ++cycle) {
+        Assert.assertEquals(0L, (long) process.call(frames, null));
+      }
+
+      final int cycles = 10_000;
+      threads.getThreadAllocatedBytes(thread_id);
+      final long before = threads.getThreadAllocatedBytes(thread_id);
+      int errors = 0;
+      for (int cycle = 0; cycle < cycles; ++cycle) {
+        errors += process.call(frames, null);
+      }
+      final long after = threads.getThreadAllocatedBytes(thread_id);
+
+      Assert.assertEquals(0L, (long) errors);
+      Assert.assertEquals(
+        110_000L, client.processTiming().get().cycles());
+      Assert.assertTrue(
+        "Less than one byte allocated per cycle",
+        after - before < (long) cycles);
+    }
+  }
+
+  /**
+   * The latency callback is only registered once a pipelined process
+   * callback is set, and latency queries reuse a single range structure.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testLatencyCallbackPipelineOnly()
+    throws Exception
+  {
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer port_pointer = Memory.allocateDirect(runtime, 4);
+    final AtomicInteger registrations = new AtomicInteger();
+    final List<Pointer> ranges = new ArrayList<>();
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_latency_callback(
+        final Pointer client,
+        final LatencyCallbackType callback,
+        final Pointer data)
+      {
+        registrations.incrementAndGet();
+        return 0;
+      }
+
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        return 0;
+      }
+
+      @Override
+      public int jack_get_buffer_size(
+        final Pointer client)
+      {
+        return 64;
+      }
+
+      @Override
+      public int jack_recompute_total_latencies(
+        final Pointer client)
+      {
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        return port_pointer;
+      }
+
+      @Override
+      public void jack_port_get_latency_range(
+        final Pointer port,
+        final int mode,
+        final Pointer range)
+      {
+        ranges.add(range);
+        range.putInt(0L, 1);
+        range.putInt(4L, 2);
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType port =
+        client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+
+      client.setProcessCallback(context -> {
+
+      });
+      Assert.assertEquals(0L, (long) registrations.get());
+
+      client.setProcessCallbackPipelined(
+        context -> {
+
+        },
+        JackClientPipelineConfiguration.builder().build());
+      Assert.assertEquals(1L, (long) registrations.get());
+
+      client.setProcessCallbackPipelined(
+        context -> {
+
+        },
+        JackClientPipelineConfiguration.builder().build());
+      Assert.assertEquals(1L, (long) registrations.get());
+
+      Assert.assertEquals(JackLatencyRange.of(1L, 2L), port.latencyCapture());
+      Assert.assertEquals(JackLatencyRange.of(1L, 2L), port.latencyPlayback());
+      Assert.assertEquals(2L, (long) ranges.size());
+      Assert.assertSame(ranges.get(0), ranges.get(1));
+    }
+  }
+
+  /**
+   * A port buffer that JACK cannot provide is reported with the name of the
+   * port.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackBufferUnavailable()
+    throws Exception
+  {
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer audio_port = Memory.allocateDirect(runtime, 4);
+    final Pointer midi_port = Memory.allocateDirect(runtime, 4);
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        if (LibJackPorts.defaultMidiType().equals(port_type)) {
+          return midi_port;
+        }
+        return audio_port;
+      }
+
+      @Override
+      public String jack_port_name(
+        final Pointer port)
+      {
+        if (port == midi_port) {
+          return "test:midi";
+        }
+        return "test:out";
+      }
+
+      @Override
+      public long jack_port_get_buffer_address(
+        final long port,
+        final int frames)
+      {
+        return 0L;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType audio =
+        client.portRegister(
+          "out",
+          LibJackPorts.defaultAudioType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+      final JackPortType midi =
+        client.portRegister(
+          "midi",
+          LibJackPorts.defaultMidiType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+
+      final List<Exception> failures = new ArrayList<>();
+      client.setProcessCallback(context -> {
+        final List<JackClientOperationType<Object>> accesses = List.of(
+          c -> context.portBuffer(audio),
+          c -> context.portBuffer(audio.handle()),
+          c -> context.portBufferMIDI(midi),
+          c -> context.portBufferMIDI(midi.handle()),
+          c -> context.portBufferMIDIWritable(midi),
+          c -> context.portBufferMIDIWritable(midi.handle()));
+        for (final JackClientOperationType<Object> access : accesses) {
+          try {
+            access.execute(client);
+          } catch (final Exception e) {
+            failures.add(e);
+          }
+        }
+      });
+
+      Assert.assertEquals(0L, (long) callbacks[0].call(64, null));
+      Assert.assertEquals(6L, (long) failures.size());
+      for (int index = 0; index < failures.size(); ++index) {
+        final Exception e = failures.get(index);
+        Assert.assertEquals(JackClientPortBufferException.class, e.getClass());
+        Assert.assertTrue(
+          e.getMessage(),
+          e.getMessage().contains(index < 2 ? "test:out" : "test:midi"));
+      }
+    }
+  }
+
+  /**
+   * Silencing the outputs of a bypassed client does not allocate.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackBypassAllocationFree()
+    throws Exception
   {
+    final int frames = 64;
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer audio_port = Memory.allocateDirect(runtime, 4);
+    final Pointer midi_port = Memory.allocateDirect(runtime, 4);
+    final Pointer audio_memory = Memory.allocateDirect(runtime, frames * 4);
+    final Pointer midi_memory = Memory.allocateDirect(runtime, frames);
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+    final int[] midi_clears = new int[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        if (LibJackPorts.defaultMidiType().equals(port_type)) {
+          return midi_port;
+        }
+        return audio_port;
+      }
+
+      @Override
+      public Pointer jack_port_get_buffer(
+        final Pointer port,
+        final int frames)
+      {
+        throw new UnsupportedOperationException(
+          "Port buffers must be fetched by address");
+      }
+
+      @Override
+      public long jack_port_get_buffer_address(
+        final long port,
+        final int frames)
+      {
+        if (port == midi_port.address()) {
+          return midi_memory.address();
+        }
+        return audio_memory.address();
+      }
+
+      @Override
+      public void jack_midi_clear_buffer(
+        final Pointer buffer)
+      {
+        Assert.assertEquals(midi_memory.address(), buffer.address());
+        ++midi_clears[0];
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .setProcessErrorPolicy(JACK_PROCESS_ERROR_BYPASS)
+               .build())) {
+
+      client.portRegister(
+        "out",
+        LibJackPorts.defaultAudioType(),
+        EnumSet.of(JACK_PORT_IS_OUTPUT),
+        0L);
+      client.portRegister(
+        "midi",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_OUTPUT),
+        0L);
+
+      client.setProcessCallback(context -> {
+        throw new IllegalStateException("Failed!");
+      });
+
+      final LibJackType.ProcessCallbackType process = callbacks[0];
+      Assert.assertNotNull("Callback registered", process);
+
+      final ThreadMXBean threads =
+        (ThreadMXBean) ManagementFactory.getThreadMXBean();
+      final long thread_id = Thread.currentThread().getId();
+
+      for (int cycle = 0; cycle < 100_000; ++cycle) {
+        audio_memory.putFloat(0L, 1.0f);
+        Assert.assertEquals(0L, (long) process.call(frames, null));
+        Assert.assertEquals(0.0f, audio_memory.getFloat(0L), 0.0f);
+      }
+
+      final int cycles = 10_000;
+      threads.getThreadAllocatedBytes(thread_id);
+      final long before = threads.getThreadAllocatedBytes(thread_id);
+      int errors = 0;
+      for (int cycle = 0; cycle < cycles; ++cycle) {
+        errors += process.call(frames, null);
+      }
+      final long after = threads.getThreadAllocatedBytes(thread_id);
+
+      Assert.assertEquals(0L, (long) errors);
+      Assert.assertEquals(1L, client.processErrorCount());
+      Assert.assertEquals(110_000L, (long) midi_clears[0]);
+      Assert.assertTrue(
+        "Less than one byte allocated per cycle",
+        after - before < (long) cycles);
+    }
+  }
+
+  /**
+   * Port buffers can be accessed as NIO buffers, and the views are reused
+   * for as long as the port memory does not change.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackBufferViews()
+    throws Exception
+  {
+    final int frames = 64;
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer audio_port = Memory.allocateDirect(runtime, 4);
+    final Pointer[] audio_memory = {
+      Memory.allocateDirect(runtime, frames * 4),
+      Memory.allocateDirect(runtime, frames * 4),
+    };
+    final int[] audio_memory_index = {0};
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        return audio_port;
+      }
+
+      @Override
+      public Pointer jack_port_get_buffer(
+        final Pointer port,
+        final int frames)
+      {
+        return audio_memory[audio_memory_index[0]];
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType audio =
+        client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+
+      final List<FloatBuffer> views = new ArrayList<>();
+      client.setProcessCallback(context -> {
+        final JackBufferType buffer = context.portBuffer(audio);
+        final FloatBuffer floats = buffer.asFloatBuffer().get();
+        final ByteBuffer bytes = buffer.asByteBuffer().get();
+
+        Assert.assertTrue(floats.isDirect());
+        Assert.assertEquals(ByteOrder.nativeOrder(), floats.order());
+        Assert.assertEquals(ByteOrder.nativeOrder(), bytes.order());
+        Assert.assertEquals(0L, (long) floats.position());
+        Assert.assertEquals((long) frames, (long) floats.limit());
+        Assert.assertEquals(buffer.sizeBytes(), (long) bytes.limit());
+
+        for (int index = 0; index < frames; ++index) {
+          buffer.putF(index, (float) index);
+        }
+        for (int index = 0; index < frames; ++index) {
+          Assert.assertEquals((float) index, floats.get(), 0.0f);
+        }
+        for (int index = 0; index < frames; ++index) {
+          floats.put(index, (float) -index);
+        }
+        for (int index = 0; index < frames; ++index) {
+          Assert.assertEquals((float) -index, buffer.getF(index), 0.0f);
+          Assert.assertEquals(
+            (float) -index, bytes.getFloat(index * 4), 0.0f);
+        }
+
+        views.add(floats);
+      });
+
+      final LibJackType.ProcessCallbackType process = callbacks[0];
+      Assert.assertEquals(0L, (long) process.call(frames, null));
+      Assert.assertEquals(0L, (long) process.call(frames, null));
+      audio_memory_index[0] = 1;
+      Assert.assertEquals(0L, (long) process.call(frames, null));
+
+      Assert.assertEquals(3L, (long) views.size());
+      Assert.assertSame(views.get(0), views.get(1));
+      Assert.assertNotSame(views.get(1), views.get(2));
+    }
+  }
+
+  /**
+   * MIDI events can be read with a cursor.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackMIDIEvents()
+    throws Exception
+  {
+    final int frames = 64;
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer midi_port = Memory.allocateDirect(runtime, 4);
+    final Pointer midi_memory = Memory.allocateDirect(runtime, frames);
+    final Pointer[] event_memory = new Pointer[3];
+    for (int index = 0; index < event_memory.length; ++index) {
+      event_memory[index] = Memory.allocateDirect(runtime, 3);
+      event_memory[index].putByte(0L, (byte) 0x90);
+      event_memory[index].putByte(1L, (byte) (60 + index));
+      event_memory[index].putByte(2L, (byte) 0xff);
+    }
+
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        return midi_port;
+      }
+
+      @Override
+      public Pointer jack_port_get_buffer(
+        final Pointer port,
+        final int frames)
+      {
+        return midi_memory;
+      }
+
+      @Override
+      public int jack_midi_get_event_count(
+        final Pointer buffer)
+      {
+        return event_memory.length;
+      }
+
+      @Override
+      public int jack_midi_get_lost_event_count(
+        final Pointer buffer)
+      {
+        return 1;
+      }
+
+      @Override
+      public int jack_midi_event_get(
+        final MidiEvent event,
+        final Pointer buffer,
+        final int index)
+      {
+        Assert.assertEquals(midi_memory.address(), buffer.address());
+        event.frames.set((long) (index * 10));
+        event.size.set(3L);
+        event.pointer.set(event_memory[index]);
+        return 0;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType midi =
+        client.portRegister(
+          "midi",
+          LibJackPorts.defaultMidiType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+
+      final List<JackBufferMIDIEventCursorType> cursors = new ArrayList<>();
+      client.setProcessCallback(context -> {
+        final JackBufferMIDIType buffer = context.portBufferMIDI(midi);
+        Assert.assertEquals(3L, (long) buffer.eventCount());
+        Assert.assertEquals(1L, (long) buffer.eventLostCount());
+
+        final JackBufferMIDIEventCursorType events = buffer.events();
+        Assert.assertEquals(-1L, (long) events.index());
+
+        final byte[] data = new byte[3];
+        for (int index = 0; index < 3; ++index) {
+          Assert.assertTrue(events.next());
+          Assert.assertEquals((long) index, (long) events.index());
+          Assert.assertEquals((long) (index * 10), (long) events.frameOffset());
+          Assert.assertEquals(3L, (long) events.size());
+          Assert.assertEquals(0x90L, (long) events.getB(0));
+          Assert.assertEquals((long) (60 + index), (long) events.getB(1));
+          Assert.assertEquals(0xffL, (long) events.getB(2));
+
+          events.getArrayB(0, data, 0, 3);
+          Assert.assertEquals((byte) 0x90, data[0]);
+          Assert.assertEquals((byte) (60 + index), data[1]);
+          Assert.assertEquals((byte) 0xff, data[2]);
+        }
+
+        Assert.assertFalse(events.next());
+        Assert.assertFalse(events.next());
+        cursors.add(events);
+      });
+
+      final LibJackType.ProcessCallbackType process = callbacks[0];
+      Assert.assertEquals(0L, (long) process.call(frames, null));
+      Assert.assertEquals(0L, (long) process.call(frames, null));
+      Assert.assertSame(cursors.get(0), cursors.get(1));
+    }
+  }
+
+  /**
+   * Reading MIDI event data out of bounds fails.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackMIDIEventsOutOfBounds()
+    throws Exception
+  {
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer midi_port = Memory.allocateDirect(runtime, 4);
+    final Pointer midi_memory = Memory.allocateDirect(runtime, 4);
+    final Pointer event_memory = Memory.allocateDirect(runtime, 3);
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        return midi_port;
+      }
+
+      @Override
+      public Pointer jack_port_get_buffer(
+        final Pointer port,
+        final int frames)
+      {
+        return midi_memory;
+      }
+
+      @Override
+      public int jack_midi_get_event_count(
+        final Pointer buffer)
+      {
+        return 1;
+      }
+
+      @Override
+      public int jack_midi_get_lost_event_count(
+        final Pointer buffer)
+      {
+        return 0;
+      }
+
+      @Override
+      public int jack_midi_event_get(
+        final MidiEvent event,
+        final Pointer buffer,
+        final int index)
+      {
+        event.frames.set(0L);
+        event.size.set(3L);
+        event.pointer.set(event_memory);
+        return 0;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType midi =
+        client.portRegister(
+          "midi",
+          LibJackPorts.defaultMidiType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+
+      final int[] failures = new int[1];
+      client.setProcessCallback(context -> {
+        final JackBufferMIDIEventCursorType events =
+          context.portBufferMIDI(midi).events();
+
+        try {
+          events.getB(0);
+        } catch (final ArrayIndexOutOfBoundsException e) {
+          ++failures[0];
+        }
+
+        Assert.assertTrue(events.next());
+
+        try {
+          events.getB(3);
+        } catch (final ArrayIndexOutOfBoundsException e) {
+          ++failures[0];
+        }
+
+        try {
+          events.getArrayB(1, new byte[3], 0, 3);
+        } catch (final ArrayIndexOutOfBoundsException e) {
+          ++failures[0];
+        }
+
+        try {
+          events.getArrayB(0, new byte[2], 0, 3);
+        } catch (final ArrayIndexOutOfBoundsException e) {
+          ++failures[0];
+        }
+      });
+
+      Assert.assertEquals(0L, (long) callbacks[0].call(64, null));
+      Assert.assertEquals(4L, (long) failures[0]);
+    }
+  }
+
+  /**
+   * MIDI events can be written.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackMIDIWrite()
+    throws Exception
+  {
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer midi_port = Memory.allocateDirect(runtime, 4);
+    final Pointer midi_memory = Memory.allocateDirect(runtime, 4);
+    final Pointer reserved_memory = Memory.allocateDirect(runtime, 128);
+    final List<String> calls = new ArrayList<>();
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        return midi_port;
+      }
+
+      @Override
+      public Pointer jack_port_get_buffer(
+        final Pointer port,
+        final int frames)
+      {
+        return midi_memory;
+      }
+
+      @Override
+      public void jack_midi_clear_buffer(
+        final Pointer buffer)
+      {
+        Assert.assertEquals(midi_memory.address(), buffer.address());
+        calls.add("clear");
+      }
+
+      @Override
+      public Pointer jack_midi_event_reserve(
+        final Pointer buffer,
+        final int time,
+        final long data_size)
+      {
+        Assert.assertEquals(midi_memory.address(), buffer.address());
+        calls.add("reserve " + time + " " + data_size);
+        return reserved_memory;
+      }
+
+      @Override
+      public int jack_midi_event_write(
+        final Pointer buffer,
+        final int time,
+        final Pointer data,
+        final long data_size)
+      {
+        Assert.assertEquals(midi_memory.address(), buffer.address());
+
+        final StringBuilder text = new StringBuilder(32);
+        text.append("write ");
+        text.append(time);
+        for (long index = 0L; index < data_size; ++index) {
+          text.append(' ');
+          text.append(Integer.toHexString((int) data.getByte(index) & 0xff));
+        }
+        calls.add(text.toString());
+        return time < 32 ? 0 : Errno.ENOBUFS.intValue();
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType midi =
+        client.portRegister(
+          "midi",
+          LibJackPorts.defaultMidiType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+
+      final byte[] sysex = new byte[100];
+      sysex[0] = (byte) 0xf0;
+      sysex[99] = (byte) 0xf7;
+
+      final int[] failures = new int[1];
+      client.setProcessCallback(context -> {
+        final JackBufferMIDIWritableType output =
+          context.portBufferMIDIWritable(midi);
+
+        output.clear();
+        output.write1(0, 0xf8);
+        output.write2(1, 0xc0, 0x105);
+        output.write3(2, 0x90, 60, 127);
+        output.writeArray(3, new byte[]{(byte) 0xf0, 0x7e, (byte) 0xf7}, 0, 3);
+        output.writeArray(4, sysex, 0, sysex.length);
+
+        try {
+          output.write1(32, 0xf8);
+        } catch (final JackBufferMIDIException e) {
+          ++failures[0];
+        }
+
+        try {
+          output.writeArray(5, sysex, 50, 51);
+        } catch (final ArrayIndexOutOfBoundsException e) {
+          ++failures[0];
+        }
+      });
+
+      Assert.assertEquals(0L, (long) callbacks[0].call(64, null));
+      Assert.assertEquals(2L, (long) failures[0]);
+      Assert.assertEquals(
+        List.of(
+          "clear",
+          "write 0 f8",
+          "write 1 c0 5",
+          "write 2 90 3c 7f",
+          "write 3 f0 7e f7",
+          "reserve 4 100",
+          "write 32 f8"),
+        calls);
+      Assert.assertEquals(0xf0L, (long) reserved_memory.getByte(0L) & 0xffL);
+      Assert.assertEquals(0xf7L, (long) reserved_memory.getByte(99L) & 0xffL);
+    }
+  }
+
+  /**
+   * Writable MIDI buffers cannot be obtained for audio ports.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessCallbackMIDIWriteNotMIDI()
+    throws Exception
+  {
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer audio_port = Memory.allocateDirect(runtime, 4);
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackUnsupported libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        return audio_port;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType audio =
+        client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+
+      final int[] failures = new int[1];
+      client.setProcessCallback(context -> {
+        try {
+          context.portBufferMIDIWritable(audio);
+        } catch (final JackClientPortSearchException e) {
+          ++failures[0];
+        }
+      });
+
+      Assert.assertEquals(0L, (long) callbacks[0].call(64, null));
+      Assert.assertEquals(1L, (long) failures[0]);
+    }
+  }
+
+  /**
+   * Failing to register the xrun callback fails to open the client.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testXRunCallbackFailure()
+    throws Exception
+  {
+    final boolean[] closed = new boolean[1];
+    final LibJackUnsupported libjack = new LibJackUnsupported()
+    {
+      @Override
+      public Pointer jack_client_open(
+        final String name,
+        final int options,
+        final int[] status,
+        final String server_name)
+      {
+        return Memory.allocateDirect(Runtime.getSystemRuntime(), 4);
+      }
+
+      @Override
+      public String jack_get_client_name(
+        final Pointer client)
+      {
+        return "test";
+      }
+
+      @Override
+      public int jack_set_xrun_callback(
+        final Pointer client,
+        final XRunCallbackType process,
+        final Pointer data)
+      {
+        return -1;
+      }
+
+      @Override
+      public int jack_client_close(
+        final Pointer client)
+      {
+        closed[0] = true;
+        return 0;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    this.expected.expect(JackClientCallbackRegistrationException.class);
+    try {
+      provider.openClient(JackClientConfiguration.builder().build());
+    } finally {
+      Assert.assertTrue("Client closed", closed[0]);
+    }
+  }
+
+  /**
+   * Xruns and process cycles are counted, and listeners are notified.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testXRunStatistics()
+    throws Exception
+  {
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackWithTestClient libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public float jack_get_xrun_delayed_usecs(
+        final Pointer client)
+      {
+        return 123.0f;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackClientXRunStatisticsType stats = client.xrunStatistics();
+      Assert.assertEquals(0L, stats.xrunCount());
+      Assert.assertEquals(0.0f, stats.xrunLastDelayMicroseconds(), 0.0f);
+      Assert.assertEquals(0L, stats.processCycles());
+      Assert.assertEquals(0L, stats.processCyclesSinceLastXRun());
+
+      client.setProcessCallback(context -> {
+
+      });
+
+      final LibJackType.ProcessCallbackType process = callbacks[0];
+      for (int index = 0; index < 10; ++index) {
+        Assert.assertEquals(0, process.call(64, null));
+      }
+
+      Assert.assertEquals(10L, stats.processCycles());
+      Assert.assertEquals(10L, stats.processCyclesSinceLastXRun());
+
+      final List<Long> received = new ArrayList<>();
+      client.setXRunListener(statistics -> {
+        received.add(Long.valueOf(statistics.xrunCount()));
+        throw new IllegalStateException("Ignored");
+      });
+
+      Assert.assertEquals(0, libjack.xrun.call(null));
+      Assert.assertEquals(List.of(Long.valueOf(1L)), received);
+      Assert.assertEquals(1L, stats.xrunCount());
+      Assert.assertEquals(123.0f, stats.xrunLastDelayMicroseconds(), 0.0f);
+      Assert.assertEquals(0L, stats.processCyclesSinceLastXRun());
+
+      for (int index = 0; index < 5; ++index) {
+        Assert.assertEquals(0, process.call(64, null));
+      }
+
+      Assert.assertEquals(15L, stats.processCycles());
+      Assert.assertEquals(5L, stats.processCyclesSinceLastXRun());
+    }
+  }
+
+  /**
+   * Setting an xrun listener on a closed client fails.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testXRunListenerClosed()
+    throws Exception
+  {
+    final LibJackUnsupported libjack = new LibJackWithTestClient();
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      client.close();
+      this.expected.expect(JackClientClosedException.class);
+      client.setXRunListener(statistics -> {
+
+      });
+    }
+  }
+
+  /**
+   * Process callback timing is not measured unless enabled.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessTimingDisabled()
+    throws Exception
+  {
+    final LibJackUnsupported libjack = new LibJackWithTestClient();
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+      Assert.assertFalse(client.processTiming().isPresent());
+    }
+  }
+
+  /**
+   * Process callback timing is measured against the period budget.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testProcessTiming()
+    throws Exception
+  {
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackWithTestClient libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public int jack_get_sample_rate(
+        final Pointer client)
+      {
+        return 48000;
+      }
+    };
+
+    final JackClientProviderType provider =
+      this.clientProvider(types(), libjack);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .setProcessTimingEnabled(true)
+               .setProcessTimingBudgetThreshold(1.0)
+               .build())) {
+
+      final JackClientProcessTimingType timing =
+        client.processTiming().get();
+
+      Assert.assertEquals(0L, timing.cycles());
+      Assert.assertEquals(0L, timing.percentileNanoseconds(50.0));
+      Assert.assertEquals(1.0, timing.budgetThreshold(), 0.0);
+
+      final int[] cycle = {0};
+      client.setProcessCallback(context -> {
+        if (cycle[0] < 3) {
+          Thread.sleep(5L);
+        }
+        ++cycle[0];
+      });
+
+      final LibJackType.ProcessCallbackType process = callbacks[0];
+      for (int index = 0; index < 100; ++index) {
+        Assert.assertEquals(0, process.call(64, null));
+      }
+
+      Assert.assertEquals(100L, timing.cycles());
+      Assert.assertEquals(1_333_333L, timing.budgetNanoseconds());
+      Assert.assertEquals(3L, timing.overBudgetCount());
+      Assert.assertTrue(timing.maximumNanoseconds() >= 5_000_000L);
+      Assert.assertEquals(
+        timing.maximumNanoseconds(), timing.percentileNanoseconds(100.0));
+      Assert.assertTrue(
+        timing.percentileNanoseconds(50.0) < timing.budgetNanoseconds());
+      Assert.assertTrue(
+        timing.percentileNanoseconds(98.0) >= 5_000_000L);
+      Assert.assertTrue(
+        timing.percentileNanoseconds(0.0)
+          <= timing.percentileNanoseconds(50.0));
+    }
+  }
+
+  /**
+   * Non-positive timing thresholds are rejected.
+   */
+
+  @Test
+  public final void testProcessTimingThresholdInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    JackClientConfiguration.builder()
+      .setProcessTimingBudgetThreshold(0.0)
+      .build();
+  }
+
+  /**
+   * Instrumentation is notified of process cycles, xruns, and control calls.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testInstrumentation()
+    throws Exception
+  {
+    final int frames = 64;
+    final Runtime runtime = Runtime.getSystemRuntime();
+    final Pointer audio_port = Memory.allocateDirect(runtime, 4);
+    final Pointer audio_memory = Memory.allocateDirect(runtime, frames * 4);
+    final LibJackType.ProcessCallbackType[] callbacks =
+      new LibJackType.ProcessCallbackType[1];
+
+    final LibJackWithTestClient libjack = new LibJackWithTestClient()
+    {
+      @Override
+      public int jack_set_process_callback(
+        final Pointer client,
+        final ProcessCallbackType process,
+        final Pointer data)
+      {
+        callbacks[0] = process;
+        return 0;
+      }
+
+      @Override
+      public Pointer jack_port_register(
+        final Pointer client,
+        final String port_name,
+        final String port_type,
+        final long flags,
+        final long buffer_size)
+      {
+        return audio_port;
+      }
+
+      @Override
+      public Pointer jack_port_get_buffer(
+        final Pointer port,
+        final int frames)
+      {
+        return audio_memory;
+      }
+
+      @Override
+      public int jack_connect(
+        final Pointer client,
+        final String source_port,
+        final String target_port)
+      {
+        return 0;
+      }
+
+      @Override
+      public int jack_port_name_size()
+      {
+        return 1024;
+      }
+
+      @Override
+      public Pointer jack_get_ports(
+        final Pointer client,
+        final String port_name_pattern,
+        final String type_name_pattern,
+        final long flags)
+      {
+        return null;
+      }
+
+      @Override
+      public float jack_get_xrun_delayed_usecs(
+        final Pointer client)
+      {
+        return 23.0f;
+      }
+    };
+
+    final List<String> events = new ArrayList<>();
+    final JackClientInstrumentationType instrumentation =
+      new JackClientInstrumentationType()
+      {
+        @Override
+        public boolean onProcessCycleWanted(
+          final JackClientType client)
+        {
+          return client.xrunStatistics().processCycles() % 2L == 0L;
+        }
+
+        @Override
+        public void onProcessCycle(
+          final JackClientType client,
+          final int frames,
+          final long time_nanos,
+          final int ports)
+        {
+          Assert.assertTrue(time_nanos >= 0L);
+          events.add("cycle " + frames + " " + ports);
+        }
+
+        @Override
+        public void onXRun(
+          final JackClientType client,
+          final float delay_usecs)
+        {
+          events.add("xrun " + delay_usecs);
+        }
+
+        @Override
+        public void onControlCall(
+          final JackClientType client,
+          final String function,
+          final long time_nanos,
+          final boolean succeeded)
+        {
+          Assert.assertTrue(time_nanos >= 0L);
+          events.add(function + " " + succeeded);
+        }
+      };
+
+    final JackClientProviderType provider =
+      this.clientProviderInstrumented(types(), libjack, instrumentation);
+
+    try (final JackClientType client =
+           provider.openClient(
+             JackClientConfiguration
+               .builder()
+               .setClientName("test")
+               .build())) {
+
+      final JackPortType port =
+        client.portRegister(
+          "out",
+          LibJackPorts.defaultAudioType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+
+      client.portsConnect("a", "b");
+      client.portsListAllInputs();
+
+      client.setProcessCallback(context -> {
+        context.portBuffer(port);
+        context.portBuffer(port);
+      });
+
+      for (int index = 0; index < 4; ++index) {
+        Assert.assertEquals(0, callbacks[0].call(frames, null));
+      }
+      Assert.assertEquals(0, libjack.xrun.call(null));
+
+      Assert.assertEquals(
+        List.of(
+          "jack_port_register true",
+          "jack_connect true",
+          "jack_get_ports true",
+          "cycle 64 2",
+          "cycle 64 2",
+          "xrun 23.0"),
+        events);
+    }
+  }
+
+  private static class LibJackWithTestClient extends LibJackUnsupported
+  {
+    private XRunCallbackType xrun;
+
+    @Override
+    public int jack_set_xrun_callback(
+      final Pointer client,
+      final XRunCallbackType process,
+      final Pointer data)
+    {
+      this.xrun = process;
+      return 0;
+    }
+
+    @Override
+    public int jack_set_latency_callback(
+      final Pointer client,
+      final LatencyCallbackType callback,
+      final Pointer data)
+    {
+      return 0;
+    }
+
     @Override
     public final Pointer jack_client_open(
       final String name,
@@ -16,6 +16,7 @@
 
 package com.io7m.jjacob.tests;
 
+import com.io7m.jjacob.api.JackClientInstrumentationType;
 import com.io7m.jjacob.api.JackClientPortTypeRegistryType;
 import com.io7m.jjacob.api.JackClientProviderType;
 import com.io7m.jjacob.jnr.LibJackType;
@@ -30,4 +31,13 @@ public final class JackClientProviderTest extends JackClientProviderContract
   {
     return JackClientProvider.create(types, libjack);
   }
+
+  @Override
+  protected JackClientProviderType clientProviderInstrumented(
+    final JackClientPortTypeRegistryType types,
+    final LibJackType libjack,
+    final JackClientInstrumentationType instrumentation)
+  {
+    return JackClientProvider.create(types, libjack, instrumentation);
+  }
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackCommandQueue;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public final class JackCommandQueueTest
+{
+  @Rule public final ExpectedException expected = ExpectedException.none();
+
+  private static final class Received
+  {
+    private final int offset;
+    private final int command;
+    private final int target;
+    private final double value;
+
+    Received(
+      final int in_offset,
+      final int in_command,
+      final int in_target,
+      final double in_value)
+    {
+      this.offset = in_offset;
+      this.command = in_command;
+      this.target = in_target;
+      this.value = in_value;
+    }
+  }
+
+  private static List<Received> drain(
+    final JackCommandQueue queue,
+    final int cycle_start,
+    final int frames)
+    throws Exception
+  {
+    final List<Received> received = new ArrayList<>();
+    final int count = queue.drain(
+      cycle_start,
+      frames,
+      (offset, command, target, value) ->
+        received.add(new Received(offset, command, target, value)));
+    Assert.assertEquals(received.size(), count);
+    return received;
+  }
+
+  @Test
+  public void testCapacityRounded()
+  {
+    Assert.assertEquals(1, JackCommandQueue.create(1).capacity());
+    Assert.assertEquals(128, JackCommandQueue.create(100).capacity());
+  }
+
+  @Test
+  public void testCapacityInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    JackCommandQueue.create(0);
+  }
+
+  @Test
+  public void testImmediateInOrder()
+    throws Exception
+  {
+    final JackCommandQueue queue = JackCommandQueue.create(8);
+
+    for (int iteration = 0; iteration < 10; ++iteration) {
+      for (int index = 0; index < 8; ++index) {
+        Assert.assertTrue(queue.offer(index, index * 2, (double) index));
+      }
+
+      final List<Received> received = drain(queue, iteration * 64, 64);
+      Assert.assertEquals(8, received.size());
+      for (int index = 0; index < 8; ++index) {
+        final Received r = received.get(index);
+        Assert.assertEquals(0, r.offset);
+        Assert.assertEquals(index, r.command);
+        Assert.assertEquals(index * 2, r.target);
+        Assert.assertEquals((double) index, r.value, 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testFull()
+    throws Exception
+  {
+    final JackCommandQueue queue = JackCommandQueue.create(4);
+    for (int index = 0; index < 4; ++index) {
+      Assert.assertTrue(queue.offer(index, 0, 0.0));
+    }
+    Assert.assertFalse(queue.offer(4, 0, 0.0));
+    Assert.assertEquals(1L, queue.rejectedCount());
+
+    Assert.assertEquals(4, drain(queue, 0, 64).size());
+    Assert.assertTrue(queue.offer(5, 0, 0.0));
+  }
+
+  @Test
+  public void testTimestamped()
+    throws Exception
+  {
+    final JackCommandQueue queue = JackCommandQueue.create(8);
+    Assert.assertTrue(queue.offerAt(100L, 0, 0, 0.0));
+    Assert.assertTrue(queue.offerAt(130L, 1, 0, 0.0));
+    Assert.assertTrue(queue.offerAt(200L, 2, 0, 0.0));
+    Assert.assertTrue(queue.offer(3, 0, 0.0));
+
+    {
+      final List<Received> received = drain(queue, 128, 64);
+      Assert.assertEquals(2, received.size());
+      Assert.assertEquals(0, received.get(0).command);
+      Assert.assertEquals(0, received.get(0).offset);
+      Assert.assertEquals(1, received.get(1).command);
+      Assert.assertEquals(2, received.get(1).offset);
+    }
+
+    {
+      final List<Received> received = drain(queue, 192, 64);
+      Assert.assertEquals(2, received.size());
+      Assert.assertEquals(2, received.get(0).command);
+      Assert.assertEquals(8, received.get(0).offset);
+      Assert.assertEquals(3, received.get(1).command);
+      Assert.assertEquals(0, received.get(1).offset);
+    }
+  }
+
+  @Test
+  public void testTimestampedWrapping()
+    throws Exception
+  {
+    final JackCommandQueue queue = JackCommandQueue.create(8);
+    Assert.assertTrue(queue.offerAt(0x1_0000_0010L, 0, 0, 0.0));
+
+    Assert.assertEquals(0, drain(queue, 0xffff_ffe0, 32).size());
+
+    final List<Received> received = drain(queue, 0, 32);
+    Assert.assertEquals(1, received.size());
+    Assert.assertEquals(16, received.get(0).offset);
+  }
+
+  @Test
+  public void testReceiverException()
+    throws Exception
+  {
+    final JackCommandQueue queue = JackCommandQueue.create(8);
+    Assert.assertTrue(queue.offer(0, 0, 0.0));
+    Assert.assertTrue(queue.offer(1, 0, 0.0));
+
+    try {
+      queue.drain(0, 64, (offset, command, target, value) -> {
+        throw new IllegalStateException();
+      });
+      Assert.fail();
+    } catch (final IllegalStateException e) {
+      // Expected
+    }
+
+    final List<Received> received = drain(queue, 0, 64);
+    Assert.assertEquals(1, received.size());
+    Assert.assertEquals(1, received.get(0).command);
+  }
+
+  @Test
+  public void testProducersConcurrent()
+    throws Exception
+  {
+    final JackCommandQueue queue = JackCommandQueue.create(64);
+    final int producer_count = 4;
+    final int per_producer = 10_000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> producers = new ArrayList<>();
+
+    for (int producer = 0; producer < producer_count; ++producer) {
+      final int target = producer;
+      final Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          int sent = 0;
+          while (sent < per_producer) {
+            if (queue.offer(sent, target, 0.0)) {
+              ++sent;
+            } else {
+              Thread.yield();
+            }
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      producers.add(thread);
+      thread.start();
+    }
+
+    final int[] expected_next = new int[producer_count];
+    final int[] total = new int[1];
+    start.countDown();
+
+    final long deadline = System.nanoTime() + 30_000_000_000L;
+    while (total[0] < producer_count * per_producer) {
+      Assert.assertTrue(System.nanoTime() < deadline);
+      queue.drain(0, 64, (offset, command, target, value) -> {
+        Assert.assertEquals(expected_next[target], command);
+        ++expected_next[target];
+        ++total[0];
+      });
+    }
+
+    for (final Thread thread : producers) {
+      thread.join();
+    }
+    for (int producer = 0; producer < producer_count; ++producer) {
+      Assert.assertEquals(per_producer, expected_next[producer]);
+    }
+  }
+}
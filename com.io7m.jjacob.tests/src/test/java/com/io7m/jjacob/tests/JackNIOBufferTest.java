@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackNIOBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public final class JackNIOBufferTest extends JackBufferContract
+{
+  @Override
+  protected JackBufferType buffer(
+    final int frames_count,
+    final int frames_size)
+  {
+    return new JackNIOBuffer(
+      ByteBuffer.allocateDirect(frames_count * frames_size),
+      frames_size);
+  }
+
+  @Test
+  public void testViewsReused()
+  {
+    final JackBufferType buffer = this.buffer(64, 4);
+    Assert.assertTrue(buffer.asByteBuffer().isPresent());
+    Assert.assertTrue(buffer.asFloatBuffer().isPresent());
+    Assert.assertSame(buffer.asByteBuffer(), buffer.asByteBuffer());
+    Assert.assertSame(buffer.asFloatBuffer(), buffer.asFloatBuffer());
+  }
+
+  @Test
+  public void testBulkAccessIndependentOfViews()
+  {
+    final JackBufferType buffer = this.buffer(64, 4);
+    final float[] values = new float[64];
+    for (int index = 0; index < values.length; ++index) {
+      values[index] = (float) index;
+    }
+    buffer.putArrayF(0, values);
+
+    /*
+     * Disturbing the position and limit of the exposed view must not affect
+     * any subsequent bulk access.
+     */
+
+    buffer.asFloatBuffer().get().position(40).limit(48);
+
+    final float[] received = new float[16];
+    buffer.getArrayF(20, received);
+    buffer.getArrayF(40, received, 0, 8);
+    buffer.putArrayF(48, received);
+    buffer.getArrayF(0, values);
+
+    for (int index = 0; index < 48; ++index) {
+      Assert.assertEquals((float) index, values[index], 0.0f);
+    }
+    for (int index = 48; index < 56; ++index) {
+      Assert.assertEquals((float) (index - 8), values[index], 0.0f);
+    }
+    for (int index = 56; index < 64; ++index) {
+      Assert.assertEquals((float) (index - 28), values[index], 0.0f);
+    }
+  }
+
+  @Test
+  public void testGetArrayTargetRangeChecked()
+  {
+    final JackBufferType buffer = this.buffer(4, 4);
+
+    this.expected.expect(ArrayIndexOutOfBoundsException.class);
+    buffer.getArrayF(0, new float[2], 1, 2);
+  }
+}
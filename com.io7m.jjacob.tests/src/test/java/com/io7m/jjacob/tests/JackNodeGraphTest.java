@@ -0,0 +1,776 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackBufferMIDIEventCursorType;
+import com.io7m.jjacob.api.JackBufferMIDIWritableType;
+import com.io7m.jjacob.api.JackBufferOperations;
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackNodeContextType;
+import com.io7m.jjacob.api.JackNodeGraph;
+import com.io7m.jjacob.api.JackNodeGraphEditType;
+import com.io7m.jjacob.api.JackNodeGraphException;
+import com.io7m.jjacob.api.JackNodeGraphWorkers;
+import com.io7m.jjacob.api.JackNodePortDeclaration;
+import com.io7m.jjacob.api.JackNodePortKind;
+import com.io7m.jjacob.api.JackNodeType;
+import com.io7m.jjacob.api.JackPortType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.simulated.JackSimulatedEngine;
+import com.io7m.jjacob.simulated.JackSimulatedEngineConfiguration;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.io7m.jjacob.api.JackNodePortKind.JACK_NODE_PORT_AUDIO;
+import static com.io7m.jjacob.api.JackNodePortKind.JACK_NODE_PORT_MIDI;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+public final class JackNodeGraphTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private JackSimulatedEngine engine;
+  private JackClientProviderType provider;
+  private JackClientType client;
+  private JackNodeGraph graph;
+  private JackPortType out;
+  private float[] received;
+  private JackClientType parallel_client;
+
+  private static JackClientConfiguration named(
+    final String name)
+  {
+    return JackClientConfiguration.builder().setClientName(name).build();
+  }
+
+  private static List<JackNodePortDeclaration> ports(
+    final JackNodePortKind kind,
+    final String... names)
+  {
+    final List<JackNodePortDeclaration> ports = new ArrayList<>();
+    for (final String name : names) {
+      ports.add(JackNodePortDeclaration.of(name, kind));
+    }
+    return ports;
+  }
+
+  private static final class Constant implements JackNodeType
+  {
+    private final float value;
+
+    Constant(
+      final float in_value)
+    {
+      this.value = in_value;
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return List.of();
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return ports(JACK_NODE_PORT_AUDIO, "out");
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+      throws JackException
+    {
+      JackBufferOperations.fill(context.output(0), this.value);
+    }
+  }
+
+  private static final class Sum implements JackNodeType
+  {
+    Sum()
+    {
+
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return ports(JACK_NODE_PORT_AUDIO, "in0", "in1");
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return ports(JACK_NODE_PORT_AUDIO, "out");
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+      throws JackException
+    {
+      final JackBufferType output = context.output(0);
+      JackBufferOperations.copy(output, context.input(0));
+      JackBufferOperations.addScaled(output, context.input(1), 1.0f);
+    }
+  }
+
+  private static final class Rendezvous implements JackNodeType
+  {
+    private final CountDownLatch latch;
+    private final AtomicBoolean met;
+
+    Rendezvous(
+      final CountDownLatch in_latch,
+      final AtomicBoolean in_met)
+    {
+      this.latch = in_latch;
+      this.met = in_met;
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return List.of();
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return ports(JACK_NODE_PORT_AUDIO, "out");
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+      throws Exception
+    {
+      this.latch.countDown();
+      if (this.latch.await(10L, TimeUnit.SECONDS)) {
+        this.met.set(true);
+      }
+      JackBufferOperations.fill(context.output(0), 1.0f);
+    }
+  }
+
+  private static final class Ramp implements JackNodeType
+  {
+    Ramp()
+    {
+
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return List.of();
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return ports(JACK_NODE_PORT_AUDIO, "out");
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+      throws JackException
+    {
+      final JackBufferType output = context.output(0);
+      for (int index = 0; index < output.frameCount(); ++index) {
+        output.putF(index, (float) index);
+      }
+    }
+  }
+
+  /**
+   * A node that reads its input in bulk and copies it to its output,
+   * recording any sample that does not match the ramp.
+   */
+
+  private static final class RampReader implements JackNodeType
+  {
+    private final AtomicBoolean corrupted;
+    private float[] samples;
+
+    RampReader(
+      final AtomicBoolean in_corrupted)
+    {
+      this.corrupted = in_corrupted;
+      this.samples = new float[0];
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return ports(JACK_NODE_PORT_AUDIO, "in");
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return ports(JACK_NODE_PORT_AUDIO, "out");
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+      throws JackException
+    {
+      final JackBufferType input = context.input(0);
+      final JackBufferType output = context.output(0);
+      final int frames = input.frameCount();
+      if (this.samples.length != frames) {
+        this.samples = new float[frames];
+      }
+
+      for (int repeat = 0; repeat < 64; ++repeat) {
+        input.getArrayF(0, this.samples);
+        JackBufferOperations.copy(output, input);
+        for (int index = 0; index < frames; ++index) {
+          if (this.samples[index] != (float) index
+            || output.getF(index) != (float) index) {
+            this.corrupted.set(true);
+          }
+        }
+      }
+    }
+  }
+
+  private static final class Failing implements JackNodeType
+  {
+    Failing()
+    {
+
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return List.of();
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return List.of();
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+    {
+      throw new IllegalStateException("Failed!");
+    }
+  }
+
+  private static final class Transpose implements JackNodeType
+  {
+    Transpose()
+    {
+
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> inputs()
+    {
+      return ports(JACK_NODE_PORT_MIDI, "in");
+    }
+
+    @Override
+    public List<JackNodePortDeclaration> outputs()
+    {
+      return ports(JACK_NODE_PORT_MIDI, "out");
+    }
+
+    @Override
+    public void process(
+      final JackNodeContextType context)
+      throws JackException
+    {
+      final JackBufferMIDIEventCursorType events =
+        context.inputMIDI(0).events();
+      final JackBufferMIDIWritableType output = context.outputMIDI(0);
+      while (events.next()) {
+        output.write3(
+          events.frameOffset(),
+          events.getB(0),
+          events.getB(1) + 12,
+          events.getB(2));
+      }
+    }
+  }
+
+  @Before
+  public void setup()
+    throws Exception
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    this.engine =
+      JackSimulatedEngine.create(
+        JackSimulatedEngineConfiguration.builder().build());
+    this.provider = JackClientProvider.create(types, this.engine.libjack());
+
+    this.received = new float[1];
+    final JackClientType sink = this.provider.openClient(named("sink"));
+    final JackPortType in =
+      sink.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    sink.setProcessCallback(context -> {
+      this.received[0] = context.portBuffer(in).getF(0);
+    });
+    sink.activate();
+
+    this.client = this.provider.openClient(named("graph"));
+    this.out =
+      this.client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    this.graph = JackNodeGraph.create(this.client);
+    this.client.setProcessCallback(this.graph);
+    this.client.activate();
+    Assert.assertTrue(this.client.portsConnect("graph:out", "sink:in"));
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.engine.close();
+  }
+
+  @Test
+  public void testEmpty()
+    throws Exception
+  {
+    this.engine.processCycle();
+    Assert.assertEquals(List.of(), this.graph.executionOrder());
+    Assert.assertEquals(0L, this.client.processErrorCount());
+  }
+
+  @Test
+  public void testTopologicalOrder()
+    throws Exception
+  {
+    this.graph.edit()
+      .nodeAdd("sum", new Sum())
+      .nodeAdd("c1", new Constant(1.0f))
+      .nodeAdd("c2", new Constant(2.0f))
+      .connect("c2", "out", "sum", "in0")
+      .connect("c1", "out", "sum", "in1")
+      .connectOutput("sum", "out", this.out)
+      .commit();
+
+    Assert.assertEquals(
+      List.of("c1", "c2", "sum"), this.graph.executionOrder());
+
+    this.engine.processCycle();
+    Assert.assertEquals(3.0f, this.received[0], 0.0f);
+  }
+
+  @Test
+  public void testUnconnectedInputsSilent()
+    throws Exception
+  {
+    this.graph.edit()
+      .nodeAdd("c1", new Constant(1.0f))
+      .nodeAdd("sum", new Sum())
+      .connect("c1", "out", "sum", "in1")
+      .connectOutput("sum", "out", this.out)
+      .commit();
+
+    this.engine.processCycle();
+    Assert.assertEquals(1.0f, this.received[0], 0.0f);
+  }
+
+  @Test
+  public void testEditPublishedWhileActive()
+    throws Exception
+  {
+    this.graph.edit()
+      .nodeAdd("c", new Constant(1.0f))
+      .connectOutput("c", "out", this.out)
+      .commit();
+
+    this.engine.processCycle();
+    Assert.assertEquals(1.0f, this.received[0], 0.0f);
+
+    this.graph.edit()
+      .nodeRemove("c")
+      .nodeAdd("c", new Constant(5.0f))
+      .connectOutput("c", "out", this.out)
+      .commit();
+
+    this.engine.processCycle();
+    Assert.assertEquals(5.0f, this.received[0], 0.0f);
+    Assert.assertTrue(this.client.isActive());
+  }
+
+  @Test
+  public void testPortInput()
+    throws Exception
+  {
+    final JackClientType source = this.provider.openClient(named("source"));
+    final JackPortType source_out =
+      source.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    source.setProcessCallback(context -> {
+      JackBufferOperations.fill(context.portBuffer(source_out), 4.0f);
+    });
+    source.activate();
+
+    final JackPortType in =
+      this.client.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    Assert.assertTrue(this.client.portsConnect("source:out", "graph:in"));
+
+    this.graph.edit()
+      .nodeAdd("c", new Constant(1.0f))
+      .nodeAdd("sum", new Sum())
+      .connectInput(in, "sum", "in0")
+      .connect("c", "out", "sum", "in1")
+      .connectOutput("sum", "out", this.out)
+      .commit();
+
+    this.engine.processCycle();
+    Assert.assertEquals(5.0f, this.received[0], 0.0f);
+  }
+
+  @Test
+  public void testMIDI()
+    throws Exception
+  {
+    final JackClientType source = this.provider.openClient(named("midi"));
+    final JackPortType source_out =
+      source.portRegister(
+        "out",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_OUTPUT),
+        0L);
+    source.setProcessCallback(context -> {
+      final JackBufferMIDIWritableType buffer =
+        context.portBufferMIDIWritable(source_out);
+      buffer.clear();
+      buffer.write3(1, 0x90, 0x3c, 0x7f);
+    });
+    source.activate();
+
+    final JackPortType midi_in =
+      this.client.portRegister(
+        "midi_in",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_INPUT),
+        0L);
+    final JackPortType midi_out =
+      this.client.portRegister(
+        "midi_out",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_OUTPUT),
+        0L);
+
+    final List<Integer> events = new ArrayList<>();
+    final JackClientType sink = this.provider.openClient(named("midi_sink"));
+    final JackPortType sink_in =
+      sink.portRegister(
+        "in",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_INPUT),
+        0L);
+    sink.setProcessCallback(context -> {
+      final JackBufferMIDIEventCursorType cursor =
+        context.portBufferMIDI(sink_in).events();
+      while (cursor.next()) {
+        events.add(Integer.valueOf(cursor.frameOffset()));
+        events.add(Integer.valueOf(cursor.getB(1)));
+      }
+    });
+    sink.activate();
+
+    Assert.assertTrue(this.client.portsConnect("midi:out", "graph:midi_in"));
+    Assert.assertTrue(
+      this.client.portsConnect("graph:midi_out", "midi_sink:in"));
+
+    this.graph.edit()
+      .nodeAdd("t0", new Transpose())
+      .nodeAdd("t1", new Transpose())
+      .connectInput(midi_in, "t0", "in")
+      .connect("t0", "out", "t1", "in")
+      .connectOutput("t1", "out", midi_out)
+      .commit();
+
+    this.engine.processCycle();
+    Assert.assertEquals(
+      List.of(Integer.valueOf(1), Integer.valueOf(0x3c + 24)),
+      events);
+  }
+
+  private JackNodeGraph parallelGraph(
+    final JackNodeGraphWorkers workers)
+    throws Exception
+  {
+    this.client.portsDisconnect("graph:out", "sink:in");
+
+    final JackClientType parallel = this.provider.openClient(named("pgraph"));
+    final JackPortType parallel_out =
+      parallel.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    final JackNodeGraph result = JackNodeGraph.create(parallel, workers);
+    parallel.setProcessCallback(result);
+    parallel.activate();
+    Assert.assertTrue(parallel.portsConnect("pgraph:out", "sink:in"));
+    this.out = parallel_out;
+    this.parallel_client = parallel;
+    return result;
+  }
+
+  @Test
+  public void testParallelTree()
+    throws Exception
+  {
+    try (JackNodeGraphWorkers workers = JackNodeGraphWorkers.create(3)) {
+      final JackNodeGraph parallel = this.parallelGraph(workers);
+
+      /*
+       * A binary tree of sums over sixteen constants.
+       */
+
+      final JackNodeGraphEditType edit = parallel.edit();
+      final List<String> level = new ArrayList<>();
+      for (int index = 0; index < 16; ++index) {
+        final String name = "c" + index;
+        edit.nodeAdd(name, new Constant((float) index));
+        level.add(name);
+      }
+
+      int sums = 0;
+      while (level.size() > 1) {
+        final List<String> next = new ArrayList<>();
+        for (int index = 0; index < level.size(); index += 2) {
+          final String name = "s" + sums;
+          ++sums;
+          edit.nodeAdd(name, new Sum());
+          edit.connect(level.get(index), "out", name, "in0");
+          edit.connect(level.get(index + 1), "out", name, "in1");
+          next.add(name);
+        }
+        level.clear();
+        level.addAll(next);
+      }
+      edit.connectOutput(level.get(0), "out", this.out);
+      edit.commit();
+
+      for (int cycle = 0; cycle < 100; ++cycle) {
+        this.received[0] = 0.0f;
+        this.engine.processCycle();
+        Assert.assertEquals(120.0f, this.received[0], 0.0f);
+      }
+    }
+  }
+
+  @Test
+  public void testParallelConcurrent()
+    throws Exception
+  {
+    try (JackNodeGraphWorkers workers = JackNodeGraphWorkers.create(1)) {
+      final JackNodeGraph parallel = this.parallelGraph(workers);
+
+      /*
+       * Each node waits for the other to start, which can only succeed if
+       * the two nodes are executed concurrently.
+       */
+
+      final CountDownLatch latch = new CountDownLatch(2);
+      final AtomicBoolean met0 = new AtomicBoolean();
+      final AtomicBoolean met1 = new AtomicBoolean();
+      parallel.edit()
+        .nodeAdd("r0", new Rendezvous(latch, met0))
+        .nodeAdd("r1", new Rendezvous(latch, met1))
+        .nodeAdd("sum", new Sum())
+        .connect("r0", "out", "sum", "in0")
+        .connect("r1", "out", "sum", "in1")
+        .connectOutput("sum", "out", this.out)
+        .commit();
+
+      this.engine.processCycle();
+      Assert.assertTrue(met0.get());
+      Assert.assertTrue(met1.get());
+      Assert.assertEquals(2.0f, this.received[0], 0.0f);
+    }
+  }
+
+  @Test
+  public void testParallelFanOut()
+    throws Exception
+  {
+    try (JackNodeGraphWorkers workers = JackNodeGraphWorkers.create(3)) {
+      final JackNodeGraph parallel = this.parallelGraph(workers);
+
+      /*
+       * Four nodes read the same source buffer at the same time; bulk reads
+       * must not disturb one another.
+       */
+
+      final AtomicBoolean corrupted = new AtomicBoolean();
+      parallel.edit()
+        .nodeAdd("ramp", new Ramp())
+        .nodeAdd("r0", new RampReader(corrupted))
+        .nodeAdd("r1", new RampReader(corrupted))
+        .nodeAdd("r2", new RampReader(corrupted))
+        .nodeAdd("r3", new RampReader(corrupted))
+        .nodeAdd("sum0", new Sum())
+        .nodeAdd("sum1", new Sum())
+        .nodeAdd("sum", new Sum())
+        .connect("ramp", "out", "r0", "in")
+        .connect("ramp", "out", "r1", "in")
+        .connect("ramp", "out", "r2", "in")
+        .connect("ramp", "out", "r3", "in")
+        .connect("r0", "out", "sum0", "in0")
+        .connect("r1", "out", "sum0", "in1")
+        .connect("r2", "out", "sum1", "in0")
+        .connect("r3", "out", "sum1", "in1")
+        .connect("sum0", "out", "sum", "in0")
+        .connect("sum1", "out", "sum", "in1")
+        .connectOutput("sum", "out", this.out)
+        .commit();
+
+      for (int cycle = 0; cycle < 200; ++cycle) {
+        this.engine.processCycle();
+      }
+
+      Assert.assertFalse(corrupted.get());
+      Assert.assertEquals(0L, this.parallel_client.processErrorCount());
+    }
+  }
+
+  @Test
+  public void testParallelFailure()
+    throws Exception
+  {
+    try (JackNodeGraphWorkers workers = JackNodeGraphWorkers.create(2)) {
+      final JackNodeGraph parallel = this.parallelGraph(workers);
+      parallel.edit()
+        .nodeAdd("c0", new Constant(1.0f))
+        .nodeAdd("c1", new Constant(1.0f))
+        .nodeAdd("fail", new Failing())
+        .connectOutput("c0", "out", this.out)
+        .commit();
+
+      Assert.assertEquals(0L, this.parallel_client.processErrorCount());
+      this.engine.processCycle();
+      Assert.assertEquals(1L, this.parallel_client.processErrorCount());
+    }
+  }
+
+  @Test
+  public void testParallelWorkersShared()
+    throws Exception
+  {
+    try (JackNodeGraphWorkers workers = JackNodeGraphWorkers.create(1)) {
+      JackNodeGraph.create(this.client, workers);
+      this.expected.expect(IllegalStateException.class);
+      JackNodeGraph.create(this.client, workers);
+    }
+  }
+
+  @Test
+  public void testCycleRejected()
+    throws Exception
+  {
+    this.graph.edit()
+      .nodeAdd("c", new Constant(1.0f))
+      .connectOutput("c", "out", this.out)
+      .commit();
+
+    try {
+      this.graph.edit()
+        .nodeAdd("a", new Sum())
+        .nodeAdd("b", new Sum())
+        .connect("a", "out", "b", "in0")
+        .connect("b", "out", "a", "in0")
+        .commit();
+      Assert.fail();
+    } catch (final JackNodeGraphException e) {
+      Assert.assertTrue(e.getMessage().contains("cycle"));
+    }
+
+    this.engine.processCycle();
+    Assert.assertEquals(List.of("c"), this.graph.executionOrder());
+    Assert.assertEquals(1.0f, this.received[0], 0.0f);
+  }
+
+  @Test
+  public void testKindMismatchRejected()
+    throws Exception
+  {
+    this.expected.expect(JackNodeGraphException.class);
+    this.graph.edit()
+      .nodeAdd("c", new Constant(1.0f))
+      .nodeAdd("t", new Transpose())
+      .connect("c", "out", "t", "in")
+      .commit();
+  }
+
+  @Test
+  public void testInputConnectedTwiceRejected()
+    throws Exception
+  {
+    this.expected.expect(JackNodeGraphException.class);
+    this.graph.edit()
+      .nodeAdd("c0", new Constant(1.0f))
+      .nodeAdd("c1", new Constant(1.0f))
+      .nodeAdd("sum", new Sum())
+      .connect("c0", "out", "sum", "in0")
+      .connect("c1", "out", "sum", "in0")
+      .commit();
+  }
+
+  @Test
+  public void testUnknownNodeRejected()
+    throws Exception
+  {
+    this.expected.expect(JackNodeGraphException.class);
+    this.graph.edit()
+      .nodeAdd("c", new Constant(1.0f))
+      .connect("c", "out", "nonexistent", "in0")
+      .commit();
+  }
+
+  @Test
+  public void testDuplicateNodeRejected()
+    throws Exception
+  {
+    this.expected.expect(JackNodeGraphException.class);
+    this.graph.edit()
+      .nodeAdd("c", new Constant(1.0f))
+      .nodeAdd("c", new Constant(1.0f));
+  }
+}
@@ -18,10 +18,14 @@ package com.io7m.jjacob.tests;
 
 import com.io7m.jjacob.api.JackPortTypeRegistry;
 import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.porttype.api.JackPortTypeInformation;
+import com.io7m.jjacob.porttype.api.JackPortTypeInformationProviderType;
 import com.io7m.jjacob.vanilla.JackPortTypesDefault;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
+
 public final class JackPortTypeRegistryTest
 {
   @Test
@@ -51,4 +55,27 @@ public final class JackPortTypeRegistryTest
       "Type exists",
       registry.lookupByName(LibJackPorts.defaultAudioType()).isPresent());
   }
+
+  @Test
+  public void testFirstProviderWins()
+  {
+    final JackPortTypeInformation type0 =
+      JackPortTypeInformation.of("x", 4, false);
+    final JackPortTypeInformation type1 =
+      JackPortTypeInformation.of("x", 8, false);
+
+    final JackPortTypeInformationProviderType provider0 = () -> List.of(type0);
+    final JackPortTypeInformationProviderType provider1 = () -> List.of(type1);
+
+    final JackPortTypeRegistry registry = new JackPortTypeRegistry();
+    registry.providerAdd(provider0);
+    registry.providerAdd(provider1);
+    Assert.assertEquals(type0, registry.lookupByName("x").get());
+
+    registry.providerRemove(provider0);
+    Assert.assertEquals(type1, registry.lookupByName("x").get());
+
+    registry.providerRemove(provider1);
+    Assert.assertFalse(registry.lookupByName("x").isPresent());
+  }
 }
@@ -0,0 +1,463 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackNIOBuffer;
+import com.io7m.jjacob.api.JackRingBufferByte;
+import com.io7m.jjacob.api.JackRingBufferFloat;
+import com.io7m.jjacob.api.JackRingBufferMemoryException;
+import com.io7m.jjacob.api.JackRingBufferVector;
+import com.io7m.jjacob.jnr.LibCMemoryLockType;
+import com.io7m.jjacob.vanilla.JackRingBufferLockedMemory;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class JackRingBufferTest
+{
+  @Rule public final ExpectedException expected = ExpectedException.none();
+
+  @Test
+  public void testCapacityRounded()
+  {
+    Assert.assertEquals(1, JackRingBufferByte.create(1).capacity());
+    Assert.assertEquals(64, JackRingBufferByte.create(64).capacity());
+    Assert.assertEquals(128, JackRingBufferByte.create(65).capacity());
+    Assert.assertEquals(1024, JackRingBufferFloat.create(1000).capacity());
+  }
+
+  @Test
+  public void testCapacityInvalid()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    JackRingBufferByte.create(0);
+  }
+
+  @Test
+  public void testCapacityInvalidFloat()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    JackRingBufferFloat.create((1 << 28) + 1);
+  }
+
+  @Test
+  public void testMemorySource()
+    throws Exception
+  {
+    final List<ByteBuffer> allocated = new ArrayList<>();
+    final JackRingBufferFloat ring =
+      JackRingBufferFloat.create(6, size -> {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        allocated.add(buffer);
+        return buffer;
+      });
+
+    Assert.assertEquals(8, ring.capacity());
+    Assert.assertEquals(1, allocated.size());
+    Assert.assertEquals(32, allocated.get(0).capacity());
+
+    final float[] data = {1.0f, 2.0f, 3.0f};
+    final float[] received = new float[3];
+    Assert.assertEquals(3, ring.write(data, 0, 3));
+    Assert.assertEquals(
+      2.0f,
+      allocated.get(0).order(ByteOrder.nativeOrder()).getFloat(4),
+      0.0f);
+    Assert.assertEquals(3, ring.read(received, 0, 3));
+    Assert.assertArrayEquals(data, received, 0.0f);
+  }
+
+  @Test
+  public void testMemorySourceNotDirect()
+    throws Exception
+  {
+    this.expected.expect(JackRingBufferMemoryException.class);
+    JackRingBufferByte.create(8, ByteBuffer::allocate);
+  }
+
+  @Test
+  public void testMemorySourceWrongSize()
+    throws Exception
+  {
+    this.expected.expect(JackRingBufferMemoryException.class);
+    JackRingBufferByte.create(
+      8, size -> ByteBuffer.allocateDirect(size + 1));
+  }
+
+  @Test
+  public void testLockedMemory()
+    throws Exception
+  {
+    final List<String> calls = new ArrayList<>();
+    final LibCMemoryLockType libc = new LibCMemoryLockType()
+    {
+      @Override
+      public int mlock(
+        final long address,
+        final long length)
+      {
+        Assert.assertNotEquals(0L, address);
+        calls.add("mlock " + length);
+        return 0;
+      }
+
+      @Override
+      public int munlock(
+        final long address,
+        final long length)
+      {
+        Assert.assertNotEquals(0L, address);
+        calls.add("munlock " + length);
+        return 0;
+      }
+    };
+
+    final JackRingBufferLockedMemory memory =
+      JackRingBufferLockedMemory.create(libc);
+    final JackRingBufferByte bytes = JackRingBufferByte.create(64, memory);
+    final JackRingBufferFloat floats = JackRingBufferFloat.create(16, memory);
+    Assert.assertEquals(128L, memory.lockedBytes());
+    Assert.assertEquals(List.of("mlock 64", "mlock 64"), calls);
+
+    final byte[] data = {1, 2, 3};
+    final byte[] received = new byte[3];
+    Assert.assertEquals(3, bytes.write(data, 0, 3));
+    Assert.assertEquals(3, bytes.read(received, 0, 3));
+    Assert.assertArrayEquals(data, received);
+    Assert.assertEquals(16, floats.writeAvailable());
+
+    memory.close();
+    memory.close();
+    Assert.assertEquals(0L, memory.lockedBytes());
+    Assert.assertEquals(
+      List.of("mlock 64", "mlock 64", "munlock 64", "munlock 64"), calls);
+
+    this.expected.expect(JackRingBufferMemoryException.class);
+    JackRingBufferByte.create(64, memory);
+  }
+
+  @Test
+  public void testLockedMemoryFails()
+    throws Exception
+  {
+    final LibCMemoryLockType libc = new LibCMemoryLockType()
+    {
+      @Override
+      public int mlock(
+        final long address,
+        final long length)
+      {
+        return -1;
+      }
+
+      @Override
+      public int munlock(
+        final long address,
+        final long length)
+      {
+        throw new AssertionError("Nothing was locked");
+      }
+    };
+
+    try (final JackRingBufferLockedMemory memory =
+           JackRingBufferLockedMemory.create(libc)) {
+      try {
+        JackRingBufferFloat.create(16, memory);
+        Assert.fail();
+      } catch (final JackRingBufferMemoryException e) {
+        Assert.assertEquals(0L, memory.lockedBytes());
+      }
+    }
+  }
+
+  @Test
+  public void testLockedMemoryNative()
+    throws Exception
+  {
+    try (final JackRingBufferLockedMemory memory =
+           JackRingBufferLockedMemory.create()) {
+      final JackRingBufferFloat ring = JackRingBufferFloat.create(1024, memory);
+      Assert.assertEquals(4096L, memory.lockedBytes());
+
+      final float[] data = {1.0f, 2.0f, 3.0f};
+      final float[] received = new float[3];
+      Assert.assertEquals(3, ring.write(data, 0, 3));
+      Assert.assertEquals(3, ring.read(received, 0, 3));
+      Assert.assertArrayEquals(data, received, 0.0f);
+    }
+  }
+
+  @Test
+  public void testWriteReadWrapping()
+  {
+    final JackRingBufferByte ring = JackRingBufferByte.create(8);
+    final byte[] data = {0, 1, 2, 3, 4, 5};
+    final byte[] received = new byte[6];
+
+    for (int iteration = 0; iteration < 10; ++iteration) {
+      Assert.assertEquals(8, ring.writeAvailable());
+      Assert.assertEquals(6, ring.write(data, 0, 6));
+      Assert.assertEquals(6, ring.readAvailable());
+      Assert.assertEquals(2, ring.writeAvailable());
+      Assert.assertEquals(6, ring.read(received, 0, 6));
+      Assert.assertArrayEquals(data, received);
+      Assert.assertEquals(0, ring.readAvailable());
+    }
+  }
+
+  @Test
+  public void testWritePartial()
+  {
+    final JackRingBufferByte ring = JackRingBufferByte.create(4);
+    final byte[] data = {0, 1, 2, 3, 4, 5};
+    final byte[] received = new byte[6];
+
+    Assert.assertEquals(4, ring.write(data, 0, 6));
+    Assert.assertEquals(0, ring.write(data, 4, 2));
+    Assert.assertEquals(2, ring.read(received, 0, 2));
+    Assert.assertEquals(2, ring.write(data, 4, 2));
+    Assert.assertEquals(4, ring.read(received, 2, 6 - 2));
+    Assert.assertArrayEquals(data, received);
+  }
+
+  @Test
+  public void testVectors()
+  {
+    final JackRingBufferByte ring = JackRingBufferByte.create(8);
+    final byte[] data = new byte[6];
+    Assert.assertEquals(6, ring.write(data, 0, 6));
+    Assert.assertEquals(6, ring.read(data, 0, 6));
+
+    final JackRingBufferVector<ByteBuffer> w = ring.writeVector();
+    Assert.assertEquals(6, w.firstOffset());
+    Assert.assertEquals(2, w.firstLength());
+    Assert.assertEquals(0, w.secondOffset());
+    Assert.assertEquals(6, w.secondLength());
+    Assert.assertEquals(8, w.length());
+
+    for (int index = 0; index < 5; ++index) {
+      final int offset = index < w.firstLength()
+        ? w.firstOffset() + index
+        : w.secondOffset() + (index - w.firstLength());
+      w.buffer().put(offset, (byte) (index + 10));
+    }
+    ring.writeAdvance(5);
+    Assert.assertSame(w, ring.writeVector());
+
+    final JackRingBufferVector<ByteBuffer> r = ring.readVector();
+    Assert.assertEquals(6, r.firstOffset());
+    Assert.assertEquals(2, r.firstLength());
+    Assert.assertEquals(3, r.secondLength());
+    Assert.assertEquals(10, r.buffer().get(r.firstOffset()));
+    Assert.assertEquals(11, r.buffer().get(r.firstOffset() + 1));
+    Assert.assertEquals(12, r.buffer().get(r.secondOffset()));
+    ring.readAdvance(3);
+
+    final byte[] received = new byte[2];
+    Assert.assertEquals(2, ring.read(received, 0, 2));
+    Assert.assertArrayEquals(new byte[]{13, 14}, received);
+  }
+
+  @Test
+  public void testWriteAdvanceTooFar()
+  {
+    final JackRingBufferByte ring = JackRingBufferByte.create(8);
+    this.expected.expect(IllegalArgumentException.class);
+    ring.writeAdvance(9);
+  }
+
+  @Test
+  public void testReadAdvanceTooFar()
+  {
+    final JackRingBufferFloat ring = JackRingBufferFloat.create(8);
+    ring.write(new float[4], 0, 4);
+    this.expected.expect(IllegalArgumentException.class);
+    ring.readAdvance(5);
+  }
+
+  @Test
+  public void testFloatVectors()
+  {
+    final JackRingBufferFloat ring = JackRingBufferFloat.create(4);
+    final JackRingBufferVector<FloatBuffer> w = ring.writeVector();
+    w.buffer().put(0, 1.0f);
+    w.buffer().put(1, 2.0f);
+    ring.writeAdvance(2);
+
+    final float[] received = new float[2];
+    Assert.assertEquals(2, ring.read(received, 0, 2));
+    Assert.assertArrayEquals(new float[]{1.0f, 2.0f}, received, 0.0f);
+  }
+
+  private static JackBufferType nioBuffer(
+    final int frames)
+  {
+    return new JackNIOBuffer(ByteBuffer.allocateDirect(frames * 4), 4);
+  }
+
+  private static JackBufferType heapBuffer(
+    final int frames)
+  {
+    return new JackBufferOperationsFallbackTest().buffer(frames, 4);
+  }
+
+  private static void checkBuffers(
+    final JackBufferType source,
+    final JackBufferType target)
+  {
+    final JackRingBufferFloat ring = JackRingBufferFloat.create(32);
+    for (int index = 0; index < source.frameCount(); ++index) {
+      source.putF(index, (float) index);
+    }
+
+    for (int iteration = 0; iteration < 10; ++iteration) {
+      Assert.assertEquals(24, ring.writeFrom(source));
+      Assert.assertEquals(8, ring.writeAvailable());
+      Assert.assertEquals(24, ring.readInto(target));
+      for (int index = 0; index < target.frameCount(); ++index) {
+        Assert.assertEquals((float) index, target.getF(index), 0.0f);
+        target.putF(index, -1.0f);
+      }
+    }
+
+    ring.write(new float[28], 0, 28);
+    Assert.assertEquals(4, ring.writeFrom(source));
+    ring.read(new float[28], 0, 28);
+    Assert.assertEquals(4, ring.readInto(target));
+    for (int index = 0; index < target.frameCount(); ++index) {
+      Assert.assertEquals(
+        index < 4 ? (float) index : -1.0f, target.getF(index), 0.0f);
+    }
+  }
+
+  @Test
+  public void testFloatBuffersNIO()
+  {
+    checkBuffers(nioBuffer(24), nioBuffer(24));
+  }
+
+  @Test
+  public void testFloatBuffersFallback()
+  {
+    checkBuffers(heapBuffer(24), heapBuffer(24));
+  }
+
+  @Test
+  public void testFloatBuffersNIOReusable()
+  {
+    final JackRingBufferFloat ring = JackRingBufferFloat.create(16);
+    final JackBufferType buffer = nioBuffer(64);
+    final float[] values = new float[64];
+    for (int index = 0; index < values.length; ++index) {
+      values[index] = (float) index;
+    }
+
+    buffer.putArrayF(0, values);
+    Assert.assertEquals(16, ring.writeFrom(buffer));
+
+    buffer.putArrayF(0, new float[64]);
+    buffer.putArrayF(0, values);
+    final float[] received = new float[44];
+    buffer.getArrayF(20, received);
+    for (int index = 0; index < received.length; ++index) {
+      Assert.assertEquals((float) (index + 20), received[index], 0.0f);
+    }
+
+    buffer.putArrayF(0, new float[64]);
+    Assert.assertEquals(16, ring.readInto(buffer));
+    buffer.getArrayF(0, received);
+    for (int index = 0; index < received.length; ++index) {
+      final float expected = index < 16 ? (float) index : 0.0f;
+      Assert.assertEquals(expected, received[index], 0.0f);
+    }
+  }
+
+  @Test
+  public void testFloatBuffersNotSamples()
+  {
+    final JackRingBufferFloat ring = JackRingBufferFloat.create(32);
+    this.expected.expect(IllegalArgumentException.class);
+    ring.writeFrom(new JackNIOBuffer(ByteBuffer.allocateDirect(32), 1));
+  }
+
+  @Test(timeout = 30_000L)
+  public void testConcurrentSequence()
+    throws Exception
+  {
+    final JackRingBufferByte ring = JackRingBufferByte.create(64);
+    final int total = 100_000;
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    final Thread producer = new Thread(() -> {
+      final byte[] data = new byte[13];
+      int next = 0;
+      while (next < total) {
+        final int count = Math.min(data.length, total - next);
+        for (int index = 0; index < count; ++index) {
+          data[index] = (byte) (next + index);
+        }
+        int sent = 0;
+        while (sent < count) {
+          final int written = ring.write(data, sent, count - sent);
+          if (written == 0) {
+            Thread.yield();
+          }
+          sent += written;
+        }
+        next += count;
+      }
+    });
+
+    final Thread consumer = new Thread(() -> {
+      final byte[] data = new byte[17];
+      int expected_next = 0;
+      try {
+        while (expected_next < total) {
+          final int count = ring.read(data, 0, data.length);
+          if (count == 0) {
+            Thread.yield();
+          }
+          for (int index = 0; index < count; ++index) {
+            Assert.assertEquals((byte) expected_next, data[index]);
+            ++expected_next;
+          }
+        }
+      } catch (final Throwable e) {
+        failure.set(e);
+      }
+    });
+
+    producer.start();
+    consumer.start();
+    producer.join();
+    consumer.join();
+
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+    Assert.assertEquals(0, ring.readAvailable());
+  }
+}
@@ -0,0 +1,824 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.tests;
+
+import com.io7m.jjacob.api.JackBufferMIDIEventCursorType;
+import com.io7m.jjacob.api.JackBufferMIDIWritableType;
+import com.io7m.jjacob.api.JackClientConfiguration;
+import com.io7m.jjacob.api.JackClientOpenException;
+import com.io7m.jjacob.api.JackClientPipelineConfiguration;
+import com.io7m.jjacob.api.JackClientPipelineType;
+import com.io7m.jjacob.api.JackClientProviderType;
+import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackCommandQueue;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackLatencyRange;
+import com.io7m.jjacob.api.JackPortFlag;
+import com.io7m.jjacob.api.JackPortType;
+import com.io7m.jjacob.api.JackPortTypeRegistry;
+import com.io7m.jjacob.api.JackProcessErrorPolicy;
+import com.io7m.jjacob.api.JackStatusCode;
+import com.io7m.jjacob.jnr.LibJackPorts;
+import com.io7m.jjacob.simulated.JackSimulatedEngine;
+import com.io7m.jjacob.simulated.JackSimulatedEngineConfiguration;
+import com.io7m.jjacob.vanilla.JackClientProvider;
+import com.io7m.jjacob.vanilla.JackPortTypesDefault;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+
+public final class JackSimulatedEngineTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private JackSimulatedEngine engine;
+  private JackClientProviderType provider;
+
+  private static JackClientConfiguration named(
+    final String name)
+  {
+    return JackClientConfiguration.builder().setClientName(name).build();
+  }
+
+  private void open(
+    final JackSimulatedEngineConfiguration configuration)
+  {
+    final JackPortTypeRegistry types = new JackPortTypeRegistry();
+    types.providerAdd(new JackPortTypesDefault());
+    this.engine = JackSimulatedEngine.create(configuration);
+    this.provider = JackClientProvider.create(types, this.engine.libjack());
+  }
+
+  private JackClientType constantSource(
+    final String name,
+    final float value)
+    throws JackException
+  {
+    final JackClientType client = this.provider.openClient(named(name));
+    final JackPortType out =
+      client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    client.setProcessCallback(context -> {
+      context.portBuffer(out).putF(0, value);
+    });
+    client.activate();
+    return client;
+  }
+
+  @Before
+  public void setup()
+  {
+    this.open(JackSimulatedEngineConfiguration.builder().build());
+  }
+
+  @After
+  public void tearDown()
+    throws Exception
+  {
+    this.engine.close();
+  }
+
+  @Test
+  public void testAudioSummed()
+    throws Exception
+  {
+    /*
+     * The sink is activated first, so the engine must reorder clients such
+     * that the sources run before it.
+     */
+
+    final float[] received = new float[1];
+    final JackClientType sink = this.provider.openClient(named("sink"));
+    final JackPortType in =
+      sink.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    sink.setProcessCallback(context -> {
+      received[0] = context.portBuffer(in).getF(0);
+    });
+    sink.activate();
+
+    final JackClientType source0 = this.constantSource("source0", 1.0f);
+    final JackClientType source1 = this.constantSource("source1", 2.0f);
+
+    this.engine.processCycle();
+    Assert.assertEquals(0.0f, received[0], 0.0f);
+
+    Assert.assertTrue(sink.portsConnect("source0:out", "sink:in"));
+    this.engine.processCycle();
+    Assert.assertEquals(1.0f, received[0], 0.0f);
+
+    Assert.assertTrue(sink.portsConnect("source1:out", "sink:in"));
+    Assert.assertFalse(sink.portsConnect("source1:out", "sink:in"));
+    this.engine.processCycle();
+    Assert.assertEquals(3.0f, received[0], 0.0f);
+
+    sink.portsDisconnect("source0:out", "sink:in");
+    this.engine.processCycle();
+    Assert.assertEquals(2.0f, received[0], 0.0f);
+
+    Assert.assertEquals(4L, this.engine.cycleCount());
+    Assert.assertEquals(4L, sink.xrunStatistics().processCycles());
+    Assert.assertEquals(4L, source0.xrunStatistics().processCycles());
+    Assert.assertEquals(4L, source1.xrunStatistics().processCycles());
+  }
+
+  @Test
+  public void testMIDIMerged()
+    throws Exception
+  {
+    for (int index = 0; index < 2; ++index) {
+      final JackClientType client =
+        this.provider.openClient(named("midi" + index));
+      final JackPortType out =
+        client.portRegister(
+          "out",
+          LibJackPorts.defaultMidiType(),
+          EnumSet.of(JACK_PORT_IS_OUTPUT),
+          0L);
+
+      final int source = index;
+      client.setProcessCallback(context -> {
+        final JackBufferMIDIWritableType buffer =
+          context.portBufferMIDIWritable(out);
+        buffer.clear();
+        buffer.write3(source, 0x90, 0x3c + source, 0x7f);
+        buffer.write3(source + 2, 0x80, 0x3c + source, 0x00);
+      });
+      client.activate();
+    }
+
+    final List<Integer> received = new ArrayList<>();
+    final JackClientType sink = this.provider.openClient(named("sink"));
+    final JackPortType in =
+      sink.portRegister(
+        "in",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_INPUT),
+        0L);
+
+    sink.setProcessCallback(context -> {
+      final JackBufferMIDIEventCursorType events =
+        context.portBufferMIDI(in).events();
+      while (events.next()) {
+        received.add(Integer.valueOf(events.frameOffset()));
+        received.add(Integer.valueOf(events.getB(0)));
+        received.add(Integer.valueOf(events.getB(1)));
+      }
+    });
+    sink.activate();
+    sink.portsConnect("midi0:out", "sink:in");
+    sink.portsConnect("midi1:out", "sink:in");
+
+    this.engine.processCycle();
+
+    Assert.assertEquals(
+      List.of(
+        Integer.valueOf(0), Integer.valueOf(0x90), Integer.valueOf(0x3c),
+        Integer.valueOf(1), Integer.valueOf(0x90), Integer.valueOf(0x3d),
+        Integer.valueOf(2), Integer.valueOf(0x80), Integer.valueOf(0x3c),
+        Integer.valueOf(3), Integer.valueOf(0x80), Integer.valueOf(0x3d)),
+      received);
+  }
+
+  @Test
+  public void testPortHandles()
+    throws Exception
+  {
+    final JackClientType source = this.constantSource("source", 3.0f);
+
+    final JackClientType client = this.provider.openClient(named("c"));
+    final JackPortType in =
+      client.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    final JackPortType midi_in =
+      client.portRegister(
+        "midi_in",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_INPUT),
+        0L);
+    final JackPortType midi_out =
+      client.portRegister(
+        "midi_out",
+        LibJackPorts.defaultMidiType(),
+        EnumSet.of(JACK_PORT_IS_OUTPUT),
+        0L);
+
+    Assert.assertEquals(0, in.handle());
+    Assert.assertEquals(1, midi_in.handle());
+    Assert.assertEquals(2, midi_out.handle());
+    Assert.assertSame(in, client.portByName("c:in").get());
+    Assert.assertEquals(-1, client.portByName("source:out").get().handle());
+
+    final float[] received = new float[1];
+    final int[] events = new int[1];
+    client.setProcessCallback(context -> {
+      received[0] = context.portBuffer(in.handle()).getF(0);
+      events[0] = context.portBufferMIDI(midi_in.handle()).eventCount();
+
+      final JackBufferMIDIWritableType out =
+        context.portBufferMIDIWritable(midi_out.handle());
+      out.clear();
+      out.write3(0, 0x90, 0x3c, 0x7f);
+    });
+    client.activate();
+    client.portsConnect("source:out", "c:in");
+    client.portsConnect("c:midi_out", "c:midi_in");
+
+    this.engine.processCycle();
+    this.engine.processCycle();
+    Assert.assertEquals(3.0f, received[0], 0.0f);
+    Assert.assertEquals(1, events[0]);
+    Assert.assertTrue(source.isActive());
+  }
+
+  @Test
+  public void testPortHandleInvalid()
+    throws Exception
+  {
+    final JackClientType client = this.provider.openClient(named("c"));
+    final JackPortType out =
+      client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+
+    final List<Exception> errors = new ArrayList<>();
+    client.setProcessCallback(context -> {
+      try {
+        context.portBufferMIDI(out.handle());
+      } catch (final JackException e) {
+        errors.add(e);
+      }
+      try {
+        context.portBuffer(out.handle() + 1);
+      } catch (final JackException e) {
+        errors.add(e);
+      }
+    });
+    client.activate();
+    this.engine.processCycle();
+
+    Assert.assertEquals(2, errors.size());
+  }
+
+  @Test
+  public void testManyClients()
+    throws Exception
+  {
+    /*
+     * A chain of clients, each of which adds one to its input.
+     */
+
+    final int count = 100;
+    final float[] last = new float[1];
+    final List<JackClientType> clients = new ArrayList<>(count);
+    for (int index = 0; index < count; ++index) {
+      final JackClientType client =
+        this.provider.openClient(named("c" + index));
+      final JackPortType in =
+        client.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+      final JackPortType out =
+        client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+      client.setProcessCallback(context -> {
+        final float value = context.portBuffer(in).getF(0) + 1.0f;
+        context.portBuffer(out).putF(0, value);
+        last[0] = value;
+      });
+      clients.add(client);
+    }
+
+    for (int index = count - 1; index >= 0; --index) {
+      clients.get(index).activate();
+    }
+    for (int index = 1; index < count; ++index) {
+      clients.get(index).portsConnect(
+        "c" + (index - 1) + ":out", "c" + index + ":in");
+    }
+
+    for (int cycle = 0; cycle < 10; ++cycle) {
+      this.engine.processCycle();
+      Assert.assertEquals((float) count, last[0], 0.0f);
+    }
+
+    Assert.assertEquals(
+      200,
+      clients.get(0).portsList(
+        Optional.empty(),
+        Optional.empty(),
+        EnumSet.noneOf(JackPortFlag.class)).size());
+  }
+
+  @Test
+  public void testClock()
+    throws Exception
+  {
+    this.engine.close();
+    this.open(
+      JackSimulatedEngineConfiguration.builder()
+        .setPeriod(Duration.ofMillis(1L))
+        .build());
+
+    final CountDownLatch latch = new CountDownLatch(50);
+    final JackClientType client = this.provider.openClient(named("clock"));
+    client.setProcessCallback(context -> latch.countDown());
+    client.activate();
+
+    this.engine.start();
+    Assert.assertTrue(latch.await(10L, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testClockXRun()
+    throws Exception
+  {
+    this.engine.close();
+    this.open(
+      JackSimulatedEngineConfiguration.builder()
+        .setPeriod(Duration.ofMillis(1L))
+        .build());
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final JackClientType client = this.provider.openClient(named("slow"));
+    client.setXRunListener(statistics -> latch.countDown());
+    client.setProcessCallback(context -> Thread.sleep(5L));
+    client.activate();
+
+    this.engine.start();
+    Assert.assertTrue(latch.await(10L, TimeUnit.SECONDS));
+    Assert.assertTrue(client.xrunStatistics().xrunCount() >= 1L);
+    Assert.assertTrue(this.engine.xrunCount() >= 1L);
+  }
+
+  @Test
+  public void testCallbackFailureDeactivates()
+    throws Exception
+  {
+    final AtomicInteger calls = new AtomicInteger();
+    final JackClientType client = this.provider.openClient(named("fail"));
+    client.setProcessCallback(context -> {
+      calls.incrementAndGet();
+      throw new IllegalStateException("Failed!");
+    });
+    client.activate();
+
+    this.engine.processCycle();
+    this.engine.processCycle();
+    Assert.assertEquals(1, calls.get());
+  }
+
+  private JackClientType failingSource(
+    final String name,
+    final JackProcessErrorPolicy policy,
+    final AtomicInteger calls)
+    throws JackException
+  {
+    final JackClientType client =
+      this.provider.openClient(
+        JackClientConfiguration.builder()
+          .setClientName(name)
+          .setProcessErrorPolicy(policy)
+          .build());
+    final JackPortType out =
+      client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    client.setProcessCallback(context -> {
+      context.portBuffer(out).putF(0, 1.0f);
+      if (calls.incrementAndGet() > 1) {
+        throw new IllegalStateException("Failed!");
+      }
+    });
+    client.activate();
+    return client;
+  }
+
+  private float[] sink()
+    throws JackException
+  {
+    final float[] received = new float[1];
+    final JackClientType sink = this.provider.openClient(named("sink"));
+    final JackPortType in =
+      sink.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    sink.setProcessCallback(context -> {
+      received[0] = context.portBuffer(in).getF(0);
+    });
+    sink.activate();
+    return received;
+  }
+
+  @Test
+  public void testCallbackFailureCounted()
+    throws Exception
+  {
+    final AtomicInteger calls = new AtomicInteger();
+    final JackClientType client =
+      this.failingSource(
+        "fail", JackProcessErrorPolicy.JACK_PROCESS_ERROR_FAIL, calls);
+
+    Assert.assertEquals(0L, client.processErrorCount());
+    this.engine.processCycle();
+    this.engine.processCycle();
+    this.engine.processCycle();
+    Assert.assertEquals(2, calls.get());
+    Assert.assertEquals(1L, client.processErrorCount());
+  }
+
+  @Test
+  public void testCallbackFailureSilenced()
+    throws Exception
+  {
+    final AtomicInteger calls = new AtomicInteger();
+    final float[] received = this.sink();
+    final JackClientType client =
+      this.failingSource(
+        "fail", JackProcessErrorPolicy.JACK_PROCESS_ERROR_SILENCE, calls);
+    Assert.assertTrue(client.portsConnect("fail:out", "sink:in"));
+
+    this.engine.processCycle();
+    Assert.assertEquals(1.0f, received[0], 0.0f);
+
+    this.engine.processCycle();
+    Assert.assertEquals(0.0f, received[0], 0.0f);
+    this.engine.processCycle();
+    Assert.assertEquals(0.0f, received[0], 0.0f);
+
+    Assert.assertEquals(3, calls.get());
+    Assert.assertEquals(2L, client.processErrorCount());
+  }
+
+  @Test
+  public void testCallbackFailureBypassed()
+    throws Exception
+  {
+    final AtomicInteger calls = new AtomicInteger();
+    final float[] received = this.sink();
+    final JackClientType client =
+      this.failingSource(
+        "fail", JackProcessErrorPolicy.JACK_PROCESS_ERROR_BYPASS, calls);
+    Assert.assertTrue(client.portsConnect("fail:out", "sink:in"));
+
+    this.engine.processCycle();
+    Assert.assertEquals(1.0f, received[0], 0.0f);
+
+    this.engine.processCycle();
+    Assert.assertEquals(0.0f, received[0], 0.0f);
+    this.engine.processCycle();
+    Assert.assertEquals(0.0f, received[0], 0.0f);
+
+    Assert.assertEquals(2, calls.get());
+    Assert.assertEquals(1L, client.processErrorCount());
+    Assert.assertEquals(3L, client.xrunStatistics().processCycles());
+  }
+
+  @Test
+  public void testProcessCallbackSwappedWhileActive()
+    throws Exception
+  {
+    final float[] received = this.sink();
+    final JackClientType source = this.constantSource("source", 1.0f);
+    Assert.assertTrue(source.portsConnect("source:out", "sink:in"));
+
+    this.engine.processCycle();
+    Assert.assertEquals(1.0f, received[0], 0.0f);
+
+    final JackPortType out =
+      source.portByName("source:out").get();
+    source.setProcessCallback(context -> {
+      context.portBuffer(out).putF(0, 2.0f);
+    });
+
+    this.engine.processCycle();
+    Assert.assertEquals(2.0f, received[0], 0.0f);
+    Assert.assertTrue(source.isActive());
+    Assert.assertEquals(0L, source.processErrorCount());
+  }
+
+  @Test
+  public void testProcessCallbackCrossfade()
+    throws Exception
+  {
+    final List<float[]> received = new ArrayList<>();
+    final JackClientType sink = this.provider.openClient(named("sink"));
+    final JackPortType in =
+      sink.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    sink.setProcessCallback(context -> {
+      final float[] frames = new float[context.bufferFrameCount()];
+      for (int index = 0; index < frames.length; ++index) {
+        frames[index] = context.portBuffer(in).getF(index);
+      }
+      received.add(frames);
+    });
+    sink.activate();
+
+    final JackClientType source = this.provider.openClient(named("source"));
+    final JackPortType out =
+      source.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    source.setProcessCallback(context -> {
+      final int frames = context.bufferFrameCount();
+      for (int index = 0; index < frames; ++index) {
+        context.portBuffer(out).putF(index, 1.0f);
+      }
+    });
+    source.activate();
+    Assert.assertTrue(source.portsConnect("source:out", "sink:in"));
+
+    this.engine.processCycle();
+    source.setProcessCallbackCrossfade(context -> {
+      final int frames = context.bufferFrameCount();
+      for (int index = 0; index < frames; ++index) {
+        context.portBuffer(out).putF(index, 3.0f);
+      }
+    });
+    this.engine.processCycle();
+    this.engine.processCycle();
+
+    Assert.assertEquals(3, received.size());
+
+    final float[] before = received.get(0);
+    for (int index = 0; index < before.length; ++index) {
+      Assert.assertEquals(1.0f, before[index], 0.0f);
+    }
+
+    final float[] fade = received.get(1);
+    Assert.assertEquals(1.0f, fade[0], 0.0001f);
+    for (int index = 1; index < fade.length; ++index) {
+      Assert.assertTrue(fade[index] > fade[index - 1]);
+      Assert.assertTrue(fade[index] < 3.0f);
+    }
+
+    final float[] after = received.get(2);
+    for (int index = 0; index < after.length; ++index) {
+      Assert.assertEquals(3.0f, after[index], 0.0f);
+    }
+  }
+
+  private static void awaitProcessed(
+    final JackClientPipelineType pipeline,
+    final long count)
+    throws InterruptedException
+  {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+    while (pipeline.cyclesProcessed() < count) {
+      if (System.nanoTime() > deadline) {
+        Assert.fail("Pipeline did not process cycle " + count);
+      }
+      Thread.sleep(1L);
+    }
+  }
+
+  private JackClientPipelineType doubler(
+    final JackClientType client,
+    final int latency)
+    throws JackException
+  {
+    final JackPortType in =
+      client.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    final JackPortType out =
+      client.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+
+    return client.setProcessCallbackPipelined(
+      context -> {
+        final int frames = context.bufferFrameCount();
+        for (int index = 0; index < frames; ++index) {
+          context.portBuffer(out).putF(
+            index, context.portBuffer(in).getF(index) * 2.0f);
+        }
+      },
+      JackClientPipelineConfiguration.builder()
+        .setLatencyPeriods(latency)
+        .setWorkerCount(2)
+        .build());
+  }
+
+  @Test
+  public void testProcessCallbackPipelined()
+    throws Exception
+  {
+    final float[] received = this.sink();
+
+    final JackClientType pipe = this.provider.openClient(named("pipe"));
+    final JackClientPipelineType pipeline = this.doubler(pipe, 2);
+    pipe.activate();
+
+    final AtomicInteger cycle = new AtomicInteger();
+    final JackClientType source = this.provider.openClient(named("source"));
+    final JackPortType out =
+      source.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    source.setProcessCallback(context -> {
+      final float value = (float) cycle.incrementAndGet();
+      final int frames = context.bufferFrameCount();
+      for (int index = 0; index < frames; ++index) {
+        context.portBuffer(out).putF(index, value);
+      }
+    });
+    source.activate();
+
+    Assert.assertTrue(source.portsConnect("source:out", "pipe:in"));
+    Assert.assertTrue(source.portsConnect("pipe:out", "sink:in"));
+
+    final List<Float> outputs = new ArrayList<>();
+    for (int index = 0; index < 8; ++index) {
+      this.engine.processCycle();
+      outputs.add(Float.valueOf(received[0]));
+      awaitProcessed(pipeline, (long) (index + 1));
+    }
+
+    for (int index = 0; index < 8; ++index) {
+      final float expected = index < 2 ? 0.0f : (float) ((index - 1) * 2);
+      Assert.assertEquals(
+        "Cycle " + index, expected, outputs.get(index).floatValue(), 0.0f);
+    }
+
+    Assert.assertEquals(2, pipeline.latencyPeriods());
+    Assert.assertEquals(0L, pipeline.cyclesLate());
+    Assert.assertEquals(0L, pipeline.cyclesDropped());
+    Assert.assertEquals(0L, pipeline.cyclesFailed());
+  }
+
+  @Test
+  public void testProcessCallbackPipelinedSequential()
+    throws Exception
+  {
+    final JackClientType pipe = this.provider.openClient(named("pipe"));
+    final JackPortType in =
+      pipe.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger overlaps = new AtomicInteger();
+    final List<Float> seen = new ArrayList<>();
+    final JackClientPipelineType pipeline =
+      pipe.setProcessCallbackPipelined(
+        context -> {
+          if (active.incrementAndGet() != 1) {
+            overlaps.incrementAndGet();
+          }
+          synchronized (seen) {
+            seen.add(Float.valueOf(context.portBuffer(in).getF(0)));
+          }
+          Thread.sleep(1L);
+          active.decrementAndGet();
+        },
+        JackClientPipelineConfiguration.builder()
+          .setLatencyPeriods(3)
+          .setWorkerCount(4)
+          .build());
+    pipe.activate();
+
+    final AtomicInteger cycle = new AtomicInteger();
+    final JackClientType source = this.provider.openClient(named("source"));
+    final JackPortType out =
+      source.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    source.setProcessCallback(context -> {
+      final float value = (float) cycle.incrementAndGet();
+      final int frames = context.bufferFrameCount();
+      for (int index = 0; index < frames; ++index) {
+        context.portBuffer(out).putF(index, value);
+      }
+    });
+    source.activate();
+    Assert.assertTrue(source.portsConnect("source:out", "pipe:in"));
+
+    for (int index = 0; index < 64; ++index) {
+      this.engine.processCycle();
+    }
+    awaitProcessed(pipeline, 4L);
+    pipe.close();
+
+    Assert.assertEquals(0, overlaps.get());
+    synchronized (seen) {
+      for (int index = 1; index < seen.size(); ++index) {
+        Assert.assertTrue(
+          "Cycle " + seen.get(index) + " after " + seen.get(index - 1),
+          seen.get(index).floatValue() > seen.get(index - 1).floatValue());
+      }
+    }
+  }
+
+  @Test
+  public void testProcessCallbackPipelinedLatency()
+    throws Exception
+  {
+    final JackClientType pipe = this.provider.openClient(named("pipe"));
+    this.doubler(pipe, 2);
+    pipe.activate();
+
+    final JackClientType upstream = this.provider.openClient(named("up"));
+    final JackPortType source =
+      upstream.portRegister("out", EnumSet.of(JACK_PORT_IS_OUTPUT));
+    upstream.setProcessCallback(context -> {
+
+    });
+    upstream.activate();
+
+    final JackClientType downstream = this.provider.openClient(named("down"));
+    final JackPortType target =
+      downstream.portRegister("in", EnumSet.of(JACK_PORT_IS_INPUT));
+    downstream.setProcessCallback(context -> {
+
+    });
+    downstream.activate();
+
+    Assert.assertTrue(upstream.portsConnect("up:out", "pipe:in"));
+    Assert.assertTrue(upstream.portsConnect("pipe:out", "down:in"));
+
+    final long frames = (long) (pipe.bufferSize() * 2);
+    final JackLatencyRange expected = JackLatencyRange.of(frames, frames);
+    final JackLatencyRange none = JackLatencyRange.of(0L, 0L);
+    Assert.assertEquals(expected, target.latencyCapture());
+    Assert.assertEquals(expected, source.latencyPlayback());
+    Assert.assertEquals(none, source.latencyCapture());
+    Assert.assertEquals(none, target.latencyPlayback());
+
+    pipe.setProcessCallback(context -> {
+
+    });
+    Assert.assertEquals(none, target.latencyCapture());
+    Assert.assertEquals(none, source.latencyPlayback());
+  }
+
+  @Test
+  public void testCommandQueue()
+    throws Exception
+  {
+    final List<String> received = new ArrayList<>();
+    final JackClientType client = this.provider.openClient(named("c"));
+    client.setCommandReceiver((offset, command, target, value) -> {
+      received.add("command " + command + " " + offset + " " + value);
+    });
+    client.setProcessCallback(context -> {
+      received.add("process");
+    });
+    client.activate();
+
+    final int frames = client.bufferSize();
+    final JackCommandQueue queue = client.commandQueue();
+    Assert.assertTrue(queue.offerAt((long) frames + 5L, 1, 0, 2.0));
+    Assert.assertTrue(queue.offer(2, 0, 3.0));
+
+    this.engine.processCycle();
+    Assert.assertEquals(List.of("process"), received);
+    received.clear();
+
+    this.engine.processCycle();
+    Assert.assertEquals(
+      List.of("command 1 5 2.0", "command 2 0 3.0", "process"),
+      received);
+    received.clear();
+
+    final long now = client.frameTime();
+    Assert.assertTrue(now >= (long) frames * 2L);
+    Assert.assertTrue(now <= (long) frames * 3L);
+  }
+
+  @Test
+  public void testNameNotUnique()
+    throws Exception
+  {
+    final JackClientType client0 = this.provider.openClient(named("x"));
+    final JackClientType client1 = this.provider.openClient(named("x"));
+    Assert.assertEquals("x", client0.name());
+    Assert.assertEquals("x-01", client1.name());
+
+    try {
+      this.provider.openClient(
+        JackClientConfiguration.builder()
+          .setClientName("x")
+          .setClientNameUseExact(true)
+          .build());
+      Assert.fail();
+    } catch (final JackClientOpenException e) {
+      Assert.assertTrue(
+        e.status().contains(JackStatusCode.JACK_NAME_NOT_UNIQUE));
+    }
+  }
+
+  @Test
+  public void testClosed()
+    throws Exception
+  {
+    this.engine.close();
+    this.expected.expect(IllegalStateException.class);
+    this.engine.processCycle();
+  }
+}
@@ -16,10 +16,13 @@
 
 package com.io7m.jjacob.tests;
 
+import com.io7m.jjacob.jnr.LibJackBufferAddressType;
 import com.io7m.jjacob.jnr.LibJackType;
 import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
 
-public class LibJackUnsupported implements LibJackType
+public class LibJackUnsupported
+  implements LibJackType, LibJackBufferAddressType
 {
   public LibJackUnsupported()
   {
@@ -66,6 +69,24 @@ public class LibJackUnsupported implements LibJackType
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public int jack_frame_time(final Pointer client)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int jack_last_frame_time(final Pointer client)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public float jack_get_xrun_delayed_usecs(final Pointer client)
+  {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public int jack_set_process_callback(
     final Pointer client,
@@ -84,6 +105,67 @@ public class LibJackUnsupported implements LibJackType
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public int jack_set_port_registration_callback(
+    final Pointer client,
+    final PortRegistrationCallbackType callback,
+    final Pointer data)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int jack_set_port_connect_callback(
+    final Pointer client,
+    final PortConnectCallbackType callback,
+    final Pointer data)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int jack_set_graph_order_callback(
+    final Pointer client,
+    final GraphOrderCallbackType callback,
+    final Pointer data)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int jack_set_latency_callback(
+    final Pointer client,
+    final LatencyCallbackType callback,
+    final Pointer data)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void jack_port_get_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void jack_port_set_latency_range(
+    final Pointer port,
+    final int mode,
+    final Pointer range)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int jack_recompute_total_latencies(
+    final Pointer client)
+  {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public Pointer jack_port_register(
     final Pointer client,
@@ -160,12 +242,42 @@ public class LibJackUnsupported implements LibJackType
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public long jack_port_get_buffer_address(
+    final long port,
+    final int frames)
+  {
+    final Pointer buffer =
+      this.jack_port_get_buffer(
+        Pointer.wrap(Runtime.getSystemRuntime(), port), frames);
+    if (buffer == null) {
+      return 0L;
+    }
+    return buffer.address();
+  }
+
   @Override
   public int jack_port_name_size()
   {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public Pointer jack_port_by_id(
+    final Pointer client,
+    final int port_id)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Pointer jack_port_get_all_connections(
+    final Pointer client,
+    final Pointer port)
+  {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public Pointer jack_port_by_name(
     final Pointer client,
@@ -226,4 +338,30 @@ public class LibJackUnsupported implements LibJackType
   {
     throw new UnsupportedOperationException();
   }
+
+  @Override
+  public void jack_midi_clear_buffer(
+    final Pointer buffer)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Pointer jack_midi_event_reserve(
+    final Pointer buffer,
+    final int time,
+    final long data_size)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int jack_midi_event_write(
+    final Pointer buffer,
+    final int time,
+    final Pointer data,
+    final long data_size)
+  {
+    throw new UnsupportedOperationException();
+  }
 }
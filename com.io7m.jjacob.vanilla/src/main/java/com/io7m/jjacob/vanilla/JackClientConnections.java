@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackConnectionReport;
+import com.io7m.jjacob.api.JackConnectionResult;
+import com.io7m.jjacob.api.JackGraphConnection;
+import com.io7m.jjacob.jnr.LibJackType;
+import com.io7m.junreachable.UnreachableCodeException;
+import jnr.ffi.Pointer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static com.io7m.jjacob.api.JackConnectionAction.JACK_CONNECTION_CONNECT;
+import static com.io7m.jjacob.api.JackConnectionAction.JACK_CONNECTION_DISCONNECT;
+import static com.io7m.jjacob.api.JackConnectionAction.JACK_CONNECTION_KEEP;
+import static jnr.constants.platform.Errno.EEXIST;
+
+/**
+ * Functions to apply declarative sets of connections.
+ */
+
+final class JackClientConnections
+{
+  private static final Comparator<JackGraphConnection> CONNECTION_ORDER =
+    Comparator.comparing(JackGraphConnection::target)
+      .thenComparing(JackGraphConnection::source);
+
+  private JackClientConnections()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * A receiver of control-plane call timings.
+   */
+
+  interface ControlCallType
+  {
+    /**
+     * A control-plane call has completed.
+     *
+     * @param function  The libjack function
+     * @param time_then The time at which the call started
+     * @param succeeded {@code true} if the call succeeded
+     */
+
+    void onControlCall(
+      String function,
+      long time_then,
+      boolean succeeded);
+  }
+
+  /**
+   * Make the connections in scope match {@code connections}.
+   *
+   * @param libjack     The libjack interface
+   * @param client      The client
+   * @param graph       The graph snapshot of the client, if one is maintained
+   * @param control     A receiver of control-plane call timings
+   * @param scope       A pattern matching the port names in scope, if any
+   * @param connections The desired connections
+   *
+   * @return A report of the changes made
+   */
+
+  static JackConnectionReport apply(
+    final LibJackType libjack,
+    final Pointer client,
+    final JackClientGraph graph,
+    final ControlCallType control,
+    final Optional<String> scope,
+    final Set<JackGraphConnection> connections)
+  {
+    final Pattern pattern = scope.map(Pattern::compile).orElse(null);
+
+    final Set<JackGraphConnection> current;
+    if (graph != null) {
+      current = graph.snapshot().connections();
+    } else {
+      final long time_then = System.nanoTime();
+      current = JackClientGraph.connectionsOf(libjack, client);
+      control.onControlCall("jack_get_ports", time_then, true);
+    }
+
+    final JackConnectionReport.Builder report = JackConnectionReport.builder();
+    final List<JackGraphConnection> removals = new ArrayList<>(16);
+    final List<JackGraphConnection> additions = new ArrayList<>(16);
+
+    for (final JackGraphConnection connection : current) {
+      if (!connections.contains(connection) && inScope(pattern, connection)) {
+        removals.add(connection);
+      }
+    }
+    for (final JackGraphConnection connection : connections) {
+      if (current.contains(connection)) {
+        report.addResults(
+          JackConnectionResult.of(connection, JACK_CONNECTION_KEEP, true));
+      } else {
+        additions.add(connection);
+      }
+    }
+
+    /*
+     * Changes are grouped by input port so that the set of sources feeding
+     * each input changes in a single run of requests.
+     */
+
+    removals.sort(CONNECTION_ORDER);
+    additions.sort(CONNECTION_ORDER);
+
+    for (final JackGraphConnection connection : removals) {
+      final long time_then = System.nanoTime();
+      final int r =
+        libjack.jack_disconnect(
+          client, connection.source(), connection.target());
+      control.onControlCall("jack_disconnect", time_then, r == 0);
+      report.addResults(
+        JackConnectionResult.of(
+          connection, JACK_CONNECTION_DISCONNECT, r == 0));
+    }
+
+    for (final JackGraphConnection connection : additions) {
+      final long time_then = System.nanoTime();
+      final int r =
+        libjack.jack_connect(
+          client, connection.source(), connection.target());
+      final boolean ok = r == 0 || r == EEXIST.intValue();
+      control.onControlCall("jack_connect", time_then, ok);
+      report.addResults(
+        JackConnectionResult.of(connection, JACK_CONNECTION_CONNECT, ok));
+    }
+
+    return report.build();
+  }
+
+  private static boolean inScope(
+    final Pattern pattern,
+    final JackGraphConnection connection)
+  {
+    if (pattern == null) {
+      return true;
+    }
+    return pattern.matcher(connection.source()).find()
+      || pattern.matcher(connection.target()).find();
+  }
+}
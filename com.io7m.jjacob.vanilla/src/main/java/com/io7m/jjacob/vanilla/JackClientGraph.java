@@ -0,0 +1,508 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackClientCallbackRegistrationException;
+import com.io7m.jjacob.api.JackGraphConnection;
+import com.io7m.jjacob.api.JackGraphPort;
+import com.io7m.jjacob.api.JackPortFlag;
+import com.io7m.jjacob.jnr.LibJackPortFlags;
+import com.io7m.jjacob.jnr.LibJackType;
+import com.io7m.junreachable.UnreachableCodeException;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_CAN_MONITOR;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_PHYSICAL;
+import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_TERMINAL;
+import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortCanMonitor;
+import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsInput;
+import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsOutput;
+import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsPhysical;
+import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsTerminal;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A graph snapshot maintained from server notifications. Notifications are
+ * delivered on a (non real-time) thread owned by libjack, and are applied
+ * under a lock; each change publishes a new immutable snapshot that can be
+ * read without locking.
+ */
+
+final class JackClientGraph
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JackClientGraph.class);
+
+  private final LibJackType libjack;
+  private final Pointer client;
+  private final Object lock;
+  private final Map<String, JackGraphPort> ports;
+  private final Map<String, Pointer> pointers;
+  private final Map<Long, String> names_by_address;
+  private final Set<JackGraphConnection> connections;
+  private final Map<String, Set<String>> adjacency;
+  private final LibJackType.PortRegistrationCallbackType registration_callback;
+  private final LibJackType.PortConnectCallbackType connect_callback;
+  private final LibJackType.GraphOrderCallbackType order_callback;
+  private long version;
+  private volatile JackGraphSnapshot snapshot;
+
+  JackClientGraph(
+    final LibJackType in_libjack,
+    final Pointer in_client)
+  {
+    this.libjack = Objects.requireNonNull(in_libjack, "libjack");
+    this.client = Objects.requireNonNull(in_client, "client");
+    this.lock = new Object();
+    this.ports = new LinkedHashMap<>(64);
+    this.pointers = new HashMap<>(64);
+    this.names_by_address = new HashMap<>(64);
+    this.connections = new LinkedHashSet<>(64);
+    this.adjacency = new HashMap<>(64);
+    this.version = 0L;
+
+    /*
+     * The callbacks are held here so that they remain strongly reachable for
+     * as long as the native side may call them.
+     */
+
+    this.registration_callback = (port, register, data) -> {
+      try {
+        this.onPortRegistration(port, register != 0);
+      } catch (final Exception e) {
+        LOG.error("Port registration callback raised exception: ", e);
+      }
+    };
+    this.connect_callback = (port_a, port_b, connect, data) -> {
+      try {
+        this.onPortConnect(port_a, port_b, connect != 0);
+      } catch (final Exception e) {
+        LOG.error("Port connect callback raised exception: ", e);
+      }
+    };
+    this.order_callback = data -> {
+      this.onGraphOrder();
+      return 0;
+    };
+
+    synchronized (this.lock) {
+      this.publish();
+    }
+  }
+
+  /**
+   * Decode a NULL-terminated array of strings returned by libjack, and then
+   * free the array.
+   */
+
+  static List<String> stringsOf(
+    final LibJackType libjack,
+    final Pointer array)
+  {
+    if (array == null || array.address() == 0L) {
+      return List.of();
+    }
+
+    final int max_size = libjack.jack_port_name_size();
+    final int address_size = Runtime.getSystemRuntime().addressSize();
+    final ArrayList<String> results = new ArrayList<>(16);
+    long offset = 0L;
+    while (true) {
+      if (array.getAddress(offset) == 0L) {
+        break;
+      }
+      results.add(array.getPointer(offset).getString(0L, max_size, UTF_8));
+      offset += (long) address_size;
+    }
+
+    libjack.jack_free(array);
+    return results;
+  }
+
+  /**
+   * Query the server for all connections. Every connection has exactly one
+   * output port, so it suffices to examine the connections of each output.
+   */
+
+  static Set<JackGraphConnection> connectionsOf(
+    final LibJackType libjack,
+    final Pointer client)
+  {
+    final List<String> outputs =
+      stringsOf(
+        libjack,
+        libjack.jack_get_ports(
+          client, null, null, (long) LibJackPortFlags.JackPortIsOutput.intValue()));
+
+    final Set<JackGraphConnection> results = new LinkedHashSet<>(64);
+    for (final String output : outputs) {
+      final Pointer port = libjack.jack_port_by_name(client, output);
+      if (port == null || port.address() == 0L) {
+        continue;
+      }
+
+      final List<String> inputs =
+        stringsOf(libjack, libjack.jack_port_get_all_connections(client, port));
+      for (final String input : inputs) {
+        results.add(JackGraphConnection.of(output, input));
+      }
+    }
+    return results;
+  }
+
+  static EnumSet<JackPortFlag> flagsOf(
+    final int raw_flags)
+  {
+    final EnumSet<JackPortFlag> result = EnumSet.noneOf(JackPortFlag.class);
+    for (final LibJackPortFlags flag : LibJackPortFlags.values()) {
+      final int flag_i = flag.intValue();
+      if ((raw_flags & flag_i) == flag_i) {
+        result.add(flagOf(flag));
+      }
+    }
+    return result;
+  }
+
+  private static JackPortFlag flagOf(
+    final LibJackPortFlags flag)
+  {
+    switch (flag) {
+      case JackPortIsInput:
+        return JACK_PORT_IS_INPUT;
+      case JackPortIsOutput:
+        return JACK_PORT_IS_OUTPUT;
+      case JackPortIsPhysical:
+        return JACK_PORT_IS_PHYSICAL;
+      case JackPortCanMonitor:
+        return JACK_PORT_CAN_MONITOR;
+      case JackPortIsTerminal:
+        return JACK_PORT_IS_TERMINAL;
+    }
+    throw new UnreachableCodeException();
+  }
+
+  static long nativeFlagsOf(
+    final Set<JackPortFlag> options)
+  {
+    long flags = 0L;
+    for (final JackPortFlag flag : options) {
+      flags |= (long) nativeFlagOf(flag).intValue();
+    }
+    return flags;
+  }
+
+  private static LibJackPortFlags nativeFlagOf(
+    final JackPortFlag flag)
+  {
+    switch (flag) {
+      case JACK_PORT_IS_INPUT:
+        return JackPortIsInput;
+      case JACK_PORT_IS_OUTPUT:
+        return JackPortIsOutput;
+      case JACK_PORT_IS_PHYSICAL:
+        return JackPortIsPhysical;
+      case JACK_PORT_CAN_MONITOR:
+        return JackPortCanMonitor;
+      case JACK_PORT_IS_TERMINAL:
+        return JackPortIsTerminal;
+    }
+    throw new UnreachableCodeException();
+  }
+
+  JackGraphSnapshot snapshot()
+  {
+    return this.snapshot;
+  }
+
+  /**
+   * Register the notification callbacks. This must happen whilst the client
+   * is inactive.
+   */
+
+  void register()
+    throws JackClientCallbackRegistrationException
+  {
+    if (this.libjack.jack_set_port_registration_callback(
+      this.client, this.registration_callback, null) != 0) {
+      throw new JackClientCallbackRegistrationException(
+        "Unable to register port registration callback");
+    }
+    if (this.libjack.jack_set_port_connect_callback(
+      this.client, this.connect_callback, null) != 0) {
+      throw new JackClientCallbackRegistrationException(
+        "Unable to register port connect callback");
+    }
+    if (this.libjack.jack_set_graph_order_callback(
+      this.client, this.order_callback, null) != 0) {
+      throw new JackClientCallbackRegistrationException(
+        "Unable to register graph order callback");
+    }
+  }
+
+  /**
+   * Populate the graph from the server. This is done once, after the
+   * callbacks have been registered, so that no changes can be missed;
+   * changes that are both notified and observed here are applied
+   * idempotently.
+   */
+
+  void synchronize()
+  {
+    final List<String> names =
+      stringsOf(
+        this.libjack,
+        this.libjack.jack_get_ports(this.client, null, null, 0L));
+
+    synchronized (this.lock) {
+      for (final String name : names) {
+        final Pointer port = this.libjack.jack_port_by_name(this.client, name);
+        if (port != null && port.address() != 0L) {
+          this.addPort(port);
+        }
+      }
+
+      for (final String name : names) {
+        final Pointer port = this.pointers.get(name);
+        if (port == null) {
+          continue;
+        }
+
+        final List<String> others =
+          stringsOf(
+            this.libjack,
+            this.libjack.jack_port_get_all_connections(this.client, port));
+        for (final String other : others) {
+          if (this.ports.containsKey(other)) {
+            this.addConnection(name, other);
+          }
+        }
+      }
+
+      this.publish();
+    }
+  }
+
+  private void onPortRegistration(
+    final int port_id,
+    final boolean register)
+  {
+    final Pointer port = this.libjack.jack_port_by_id(this.client, port_id);
+    if (port == null || port.address() == 0L) {
+      return;
+    }
+
+    synchronized (this.lock) {
+      final boolean changed;
+      if (register) {
+        changed = this.addPort(port) != null;
+      } else {
+        changed = this.removePort(port.address());
+      }
+      if (changed) {
+        this.publish();
+      }
+    }
+  }
+
+  private void onPortConnect(
+    final int port_a,
+    final int port_b,
+    final boolean connect)
+  {
+    final Pointer pointer_a = this.libjack.jack_port_by_id(this.client, port_a);
+    final Pointer pointer_b = this.libjack.jack_port_by_id(this.client, port_b);
+    if (pointer_a == null || pointer_a.address() == 0L
+      || pointer_b == null || pointer_b.address() == 0L) {
+      return;
+    }
+
+    synchronized (this.lock) {
+      final String name_a = this.nameOf(pointer_a);
+      final String name_b = this.nameOf(pointer_b);
+      if (name_a == null || name_b == null) {
+        return;
+      }
+
+      final boolean changed;
+      if (connect) {
+        changed = this.addConnection(name_a, name_b);
+      } else {
+        changed = this.removeConnection(name_a, name_b);
+      }
+      if (changed) {
+        this.publish();
+      }
+    }
+  }
+
+  /*
+   * A graph order notification carries no information about what changed,
+   * but indicates that the server has recomputed the processing order; the
+   * version is advanced so that observers can detect this.
+   */
+
+  private void onGraphOrder()
+  {
+    synchronized (this.lock) {
+      this.publish();
+    }
+  }
+
+  private String nameOf(
+    final Pointer port)
+  {
+    final String name = this.names_by_address.get(Long.valueOf(port.address()));
+    if (name != null) {
+      return name;
+    }
+    final String added = this.addPort(port);
+    return added != null ? added : this.libjack.jack_port_name(port);
+  }
+
+  private String addPort(
+    final Pointer port)
+  {
+    final String name = this.libjack.jack_port_name(port);
+    if (name == null || this.ports.containsKey(name)) {
+      return null;
+    }
+
+    final String type = this.libjack.jack_port_type(port);
+    final int flags = this.libjack.jack_port_flags(port);
+    this.ports.put(
+      name,
+      JackGraphPort.of(name, type == null ? "" : type, flagsOf(flags)));
+    this.pointers.put(name, port);
+    this.names_by_address.put(Long.valueOf(port.address()), name);
+    return name;
+  }
+
+  private boolean removePort(
+    final long address)
+  {
+    final String name = this.names_by_address.remove(Long.valueOf(address));
+    if (name == null) {
+      return false;
+    }
+
+    this.ports.remove(name);
+    this.pointers.remove(name);
+
+    final Set<String> others = this.adjacency.remove(name);
+    if (others != null) {
+      for (final String other : others) {
+        final Set<String> other_set = this.adjacency.get(other);
+        if (other_set != null) {
+          other_set.remove(name);
+        }
+        this.connections.remove(JackGraphConnection.of(name, other));
+        this.connections.remove(JackGraphConnection.of(other, name));
+      }
+    }
+    return true;
+  }
+
+  private JackGraphConnection connectionOf(
+    final String name_a,
+    final String name_b)
+  {
+    final JackGraphPort port_a = this.ports.get(name_a);
+    if (port_a != null && port_a.flags().contains(JACK_PORT_IS_INPUT)) {
+      return JackGraphConnection.of(name_b, name_a);
+    }
+    return JackGraphConnection.of(name_a, name_b);
+  }
+
+  private boolean addConnection(
+    final String name_a,
+    final String name_b)
+  {
+    final boolean added =
+      this.connections.add(this.connectionOf(name_a, name_b));
+    if (added) {
+      this.adjacency.computeIfAbsent(name_a, k -> new LinkedHashSet<>())
+        .add(name_b);
+      this.adjacency.computeIfAbsent(name_b, k -> new LinkedHashSet<>())
+        .add(name_a);
+    }
+    return added;
+  }
+
+  private boolean removeConnection(
+    final String name_a,
+    final String name_b)
+  {
+    final boolean removed =
+      this.connections.remove(this.connectionOf(name_a, name_b));
+    if (removed) {
+      final Set<String> set_a = this.adjacency.get(name_a);
+      if (set_a != null) {
+        set_a.remove(name_b);
+      }
+      final Set<String> set_b = this.adjacency.get(name_b);
+      if (set_b != null) {
+        set_b.remove(name_a);
+      }
+    }
+    return removed;
+  }
+
+  private void publish()
+  {
+    ++this.version;
+
+    final Set<String> clients = new LinkedHashSet<>(16);
+    for (final JackGraphPort port : this.ports.values()) {
+      clients.add(port.clientName());
+    }
+
+    final Map<String, Set<String>> adjacency_copy =
+      new HashMap<>(this.adjacency.size());
+    for (final Map.Entry<String, Set<String>> entry : this.adjacency.entrySet()) {
+      if (!entry.getValue().isEmpty()) {
+        adjacency_copy.put(
+          entry.getKey(),
+          Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+      }
+    }
+
+    this.snapshot =
+      new JackGraphSnapshot(
+        this.version,
+        Collections.unmodifiableSet(clients),
+        Collections.unmodifiableMap(new LinkedHashMap<>(this.ports)),
+        Collections.unmodifiableMap(new HashMap<>(this.pointers)),
+        Collections.unmodifiableSet(new LinkedHashSet<>(this.connections)),
+        Collections.unmodifiableMap(adjacency_copy));
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackClientCallbackRegistrationException;
+import com.io7m.jjacob.api.JackLatencyRange;
+import com.io7m.jjacob.jnr.LibJackLatencyCallbackMode;
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.io7m.jjacob.jnr.LibJackLatencyCallbackMode.JackCaptureLatency;
+import static com.io7m.jjacob.jnr.LibJackLatencyCallbackMode.JackPlaybackLatency;
+
+/**
+ * The latency callback of a client. The client is treated as a single
+ * processing stage in which every output depends on every input: the
+ * capture latency of each output port is the union of the capture latencies
+ * of the input ports, and the playback latency of each input port is the
+ * union of the playback latencies of the output ports, each increased by
+ * any latency that the client itself adds.
+ */
+
+final class JackClientLatency
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JackClientLatency.class);
+
+  private static final Pointer[] NO_PORTS = new Pointer[0];
+
+  private final LibJackType libjack;
+  private final Pointer client;
+  private final Pointer range;
+  private final LibJackType.LatencyCallbackType callback;
+  private final Object lock;
+  private volatile Pointer[] inputs;
+  private volatile Pointer[] outputs;
+  private volatile int added;
+  private boolean registered;
+
+  JackClientLatency(
+    final LibJackType in_libjack,
+    final Pointer in_client)
+  {
+    this.libjack = Objects.requireNonNull(in_libjack, "libjack");
+    this.client = Objects.requireNonNull(in_client, "client");
+    this.range = Memory.allocateDirect(Runtime.getSystemRuntime(), 8, true);
+    this.lock = new Object();
+    this.inputs = NO_PORTS;
+    this.outputs = NO_PORTS;
+    this.added = 0;
+    this.registered = false;
+
+    /*
+     * The callback is held here so that it remains strongly reachable for
+     * as long as the native side may call it.
+     */
+
+    this.callback = (mode, data) -> this.onLatency(mode);
+  }
+
+  /**
+   * Fetch the latency range of a port. The range is read through the
+   * preallocated structure of this client, so no native memory is allocated.
+   *
+   * @param port The port
+   * @param mode The latency mode
+   *
+   * @return The latency range
+   */
+
+  JackLatencyRange rangeOf(
+    final Pointer port,
+    final LibJackLatencyCallbackMode mode)
+  {
+    Objects.requireNonNull(port, "port");
+    Objects.requireNonNull(mode, "mode");
+
+    synchronized (this.lock) {
+      this.libjack.jack_port_get_latency_range(
+        port, mode.intValue(), this.range);
+      return JackLatencyRange.of(
+        Integer.toUnsignedLong(this.range.getInt(0L)),
+        Integer.toUnsignedLong(this.range.getInt(4L)));
+    }
+  }
+
+  /**
+   * Register the latency callback, if it has not already been registered.
+   * This must happen whilst the client is inactive. Clients that never add
+   * latency of their own do not need the callback: the server's default
+   * propagation gives the same result.
+   *
+   * @throws JackClientCallbackRegistrationException If registration fails
+   */
+
+  void register()
+    throws JackClientCallbackRegistrationException
+  {
+    synchronized (this.lock) {
+      if (this.registered) {
+        return;
+      }
+      if (this.libjack.jack_set_latency_callback(
+        this.client, this.callback, null) != 0) {
+        throw new JackClientCallbackRegistrationException(
+          "Unable to register latency callback");
+      }
+      this.registered = true;
+    }
+  }
+
+  /**
+   * Include a newly registered port in latency calculations.
+   *
+   * @param port   The port
+   * @param output {@code true} if the port is an output port
+   */
+
+  void portAdd(
+    final Pointer port,
+    final boolean output)
+  {
+    Objects.requireNonNull(port, "port");
+
+    synchronized (this.lock) {
+      if (output) {
+        this.outputs = append(this.outputs, port);
+      } else {
+        this.inputs = append(this.inputs, port);
+      }
+    }
+  }
+
+  private static Pointer[] append(
+    final Pointer[] ports,
+    final Pointer port)
+  {
+    final Pointer[] result = Arrays.copyOf(ports, ports.length + 1);
+    result[ports.length] = port;
+    return result;
+  }
+
+  /**
+   * Set the latency that the client adds between its inputs and outputs,
+   * and ask the server to recompute the latencies of the graph.
+   *
+   * @param frames The added latency in frames
+   */
+
+  void setAdded(
+    final int frames)
+  {
+    this.added = frames;
+    if (this.libjack.jack_recompute_total_latencies(this.client) != 0) {
+      LOG.warn("Unable to recompute total latencies");
+    }
+  }
+
+  private void onLatency(
+    final int mode)
+  {
+    synchronized (this.lock) {
+      if (mode == JackCaptureLatency.intValue()) {
+        this.propagate(this.inputs, this.outputs, JackCaptureLatency);
+      } else if (mode == JackPlaybackLatency.intValue()) {
+        this.propagate(this.outputs, this.inputs, JackPlaybackLatency);
+      }
+    }
+  }
+
+  private void propagate(
+    final Pointer[] sources,
+    final Pointer[] targets,
+    final LibJackLatencyCallbackMode mode)
+  {
+    final int mode_value = mode.intValue();
+
+    long minimum = 0L;
+    long maximum = 0L;
+    for (int index = 0; index < sources.length; ++index) {
+      this.libjack.jack_port_get_latency_range(
+        sources[index], mode_value, this.range);
+      final long port_min = Integer.toUnsignedLong(this.range.getInt(0L));
+      final long port_max = Integer.toUnsignedLong(this.range.getInt(4L));
+      minimum = index == 0 ? port_min : Math.min(minimum, port_min);
+      maximum = Math.max(maximum, port_max);
+    }
+
+    final long extra = (long) this.added;
+    this.range.putInt(0L, (int) (minimum + extra));
+    this.range.putInt(4L, (int) (maximum + extra));
+    for (int index = 0; index < targets.length; ++index) {
+      this.libjack.jack_port_set_latency_range(
+        targets[index], mode_value, this.range);
+    }
+  }
+}
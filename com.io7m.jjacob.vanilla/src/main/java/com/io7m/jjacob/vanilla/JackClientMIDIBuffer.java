@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackBufferMIDIEventCursorType;
+import com.io7m.jjacob.api.JackBufferMIDIType;
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Pointer;
+
+/**
+ * A readable MIDI buffer, rebound to the port buffer on each access.
+ */
+
+final class JackClientMIDIBuffer implements JackBufferMIDIType
+{
+  private final JackClientMIDIEventCursor cursor;
+  private int event_count;
+  private int lost_event_count;
+
+  JackClientMIDIBuffer(
+    final LibJackType in_libjack)
+  {
+    this.cursor = new JackClientMIDIEventCursor(in_libjack);
+    this.event_count = 0;
+    this.lost_event_count = 0;
+  }
+
+  void bind(
+    final Pointer in_buffer_ptr,
+    final int in_event_count,
+    final int in_lost_event_count)
+  {
+    this.event_count = in_event_count;
+    this.lost_event_count = in_lost_event_count;
+    this.cursor.bind(in_buffer_ptr, in_event_count);
+  }
+
+  @Override
+  public int eventCount()
+  {
+    return this.event_count;
+  }
+
+  @Override
+  public int eventLostCount()
+  {
+    return this.lost_event_count;
+  }
+
+  @Override
+  public JackBufferMIDIEventCursorType events()
+  {
+    this.cursor.reset();
+    return this.cursor;
+  }
+}
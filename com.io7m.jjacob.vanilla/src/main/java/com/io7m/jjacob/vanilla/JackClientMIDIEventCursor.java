@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackBufferMIDIEventCursorType;
+import com.io7m.jjacob.api.JackBufferMIDIException;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.jnr.LibJackType;
+import com.kenai.jffi.MemoryIO;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+import jnr.ffi.provider.ParameterFlags;
+
+import java.util.Objects;
+
+/**
+ * A cursor over the events in a MIDI buffer.
+ */
+
+final class JackClientMIDIEventCursor
+  implements JackBufferMIDIEventCursorType
+{
+  private final LibJackType libjack;
+  private final LibJackType.MidiEvent event;
+  private final MemoryIO memory;
+  private Pointer buffer_ptr;
+  private int event_count;
+  private int index;
+  private int frame_offset;
+  private int size;
+  private long data;
+
+  JackClientMIDIEventCursor(
+    final LibJackType in_libjack)
+  {
+    this.libjack = Objects.requireNonNull(in_libjack, "libjack");
+    this.memory = MemoryIO.getInstance();
+
+    /*
+     * Back the event structure with native memory so that libjack writes
+     * events directly into it, rather than into a temporary copy that
+     * would otherwise be allocated on every call.
+     */
+
+    this.event = new LibJackType.MidiEvent(Runtime.getSystemRuntime());
+    Struct.getMemory(this.event, ParameterFlags.DIRECT);
+    this.index = -1;
+  }
+
+  void bind(
+    final Pointer in_buffer_ptr,
+    final int in_event_count)
+  {
+    this.buffer_ptr = in_buffer_ptr;
+    this.event_count = in_event_count;
+    this.reset();
+  }
+
+  void reset()
+  {
+    this.index = -1;
+    this.frame_offset = 0;
+    this.size = 0;
+    this.data = 0L;
+  }
+
+  @Override
+  public boolean next()
+    throws JackException
+  {
+    final int next = this.index + 1;
+    if (next >= this.event_count) {
+      this.index = this.event_count;
+      this.frame_offset = 0;
+      this.size = 0;
+      this.data = 0L;
+      return false;
+    }
+
+    final int r =
+      this.libjack.jack_midi_event_get(this.event, this.buffer_ptr, next);
+    if (r != 0) {
+      throw new JackBufferMIDIException(
+        "Could not retrieve MIDI event " + next);
+    }
+
+    this.index = next;
+    this.frame_offset = (int) this.event.frames.get();
+    this.size = (int) this.event.size.get();
+    this.data = this.event.pointer.longValue();
+    return true;
+  }
+
+  @Override
+  public int index()
+  {
+    return this.index;
+  }
+
+  @Override
+  public int frameOffset()
+  {
+    return this.frame_offset;
+  }
+
+  @Override
+  public int size()
+  {
+    return this.size;
+  }
+
+  @Override
+  public int getB(
+    final int offset)
+  {
+    if (offset < 0 || offset >= this.size) {
+      throw new ArrayIndexOutOfBoundsException(offset);
+    }
+    return (int) this.memory.getByte(this.data + (long) offset) & 0xff;
+  }
+
+  @Override
+  public void getArrayB(
+    final int offset,
+    final byte[] values,
+    final int array_offset,
+    final int length)
+  {
+    Objects.requireNonNull(values, "values");
+
+    if (offset < 0 || length < 0 || offset > this.size - length) {
+      throw new ArrayIndexOutOfBoundsException(offset);
+    }
+    if (array_offset < 0 || array_offset > values.length - length) {
+      throw new ArrayIndexOutOfBoundsException(array_offset);
+    }
+    this.memory.getByteArray(
+      this.data + (long) offset, values, array_offset, length);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackBufferMIDIException;
+import com.io7m.jjacob.api.JackBufferMIDIWritableType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.util.Objects;
+
+/**
+ * A writable MIDI buffer, rebound to the port buffer on each access.
+ */
+
+final class JackClientMIDIWritableBuffer
+  implements JackBufferMIDIWritableType
+{
+  /*
+   * Events are assembled in a small, preallocated region of native memory
+   * and then copied into the port buffer with jack_midi_event_write. Events
+   * too large to fit into the region are copied directly into space
+   * reserved with jack_midi_event_reserve.
+   */
+
+  private static final int SCRATCH_SIZE = 64;
+
+  private final LibJackType libjack;
+  private final Pointer scratch;
+  private Pointer buffer_ptr;
+
+  JackClientMIDIWritableBuffer(
+    final LibJackType in_libjack)
+  {
+    this.libjack = Objects.requireNonNull(in_libjack, "libjack");
+    this.scratch =
+      Memory.allocateDirect(Runtime.getSystemRuntime(), SCRATCH_SIZE);
+  }
+
+  void bind(
+    final Pointer in_buffer_ptr)
+  {
+    this.buffer_ptr = in_buffer_ptr;
+  }
+
+  private void writeScratch(
+    final int frame_offset,
+    final int size)
+    throws JackBufferMIDIException
+  {
+    final int r =
+      this.libjack.jack_midi_event_write(
+        this.buffer_ptr, frame_offset, this.scratch, (long) size);
+    if (r != 0) {
+      throw new JackBufferMIDIException("Could not write MIDI event");
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    this.libjack.jack_midi_clear_buffer(this.buffer_ptr);
+  }
+
+  @Override
+  public void write1(
+    final int frame_offset,
+    final int b0)
+    throws JackException
+  {
+    this.scratch.putByte(0L, (byte) (b0 & 0xff));
+    this.writeScratch(frame_offset, 1);
+  }
+
+  @Override
+  public void write2(
+    final int frame_offset,
+    final int b0,
+    final int b1)
+    throws JackException
+  {
+    this.scratch.putByte(0L, (byte) (b0 & 0xff));
+    this.scratch.putByte(1L, (byte) (b1 & 0xff));
+    this.writeScratch(frame_offset, 2);
+  }
+
+  @Override
+  public void write3(
+    final int frame_offset,
+    final int b0,
+    final int b1,
+    final int b2)
+    throws JackException
+  {
+    this.scratch.putByte(0L, (byte) (b0 & 0xff));
+    this.scratch.putByte(1L, (byte) (b1 & 0xff));
+    this.scratch.putByte(2L, (byte) (b2 & 0xff));
+    this.writeScratch(frame_offset, 3);
+  }
+
+  @Override
+  public void writeArray(
+    final int frame_offset,
+    final byte[] values,
+    final int offset,
+    final int length)
+    throws JackException
+  {
+    Objects.requireNonNull(values, "values");
+
+    if (offset < 0 || length < 0 || offset > values.length - length) {
+      throw new ArrayIndexOutOfBoundsException(offset);
+    }
+
+    if (length <= SCRATCH_SIZE) {
+      this.scratch.put(0L, values, offset, length);
+      this.writeScratch(frame_offset, length);
+      return;
+    }
+
+    final Pointer reserved =
+      this.libjack.jack_midi_event_reserve(
+        this.buffer_ptr, frame_offset, (long) length);
+    if (reserved == null || reserved.address() == 0L) {
+      throw new JackBufferMIDIException("Could not reserve MIDI event");
+    }
+    reserved.put(0L, values, offset, length);
+  }
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackBufferMIDIType;
+import com.io7m.jjacob.api.JackBufferMIDIWritableType;
+import com.io7m.jjacob.api.JackBufferOperations;
+import com.io7m.jjacob.api.JackBufferType;
+import com.io7m.jjacob.api.JackClientPipelineConfiguration;
+import com.io7m.jjacob.api.JackClientPipelineType;
+import com.io7m.jjacob.api.JackClientPortSearchException;
+import com.io7m.jjacob.api.JackClientProcessCallbackContextType;
+import com.io7m.jjacob.api.JackClientProcessCallbackType;
+import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackNIOBuffer;
+import com.io7m.jjacob.api.JackPortType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A pipelined process callback.</p>
+ *
+ * <p>The pipeline owns {@code latency + 1} preallocated slots, each holding
+ * a copy of the audio ports of the client for one cycle. On cycle {@code n},
+ * the real-time thread copies the slot captured on cycle
+ * {@code n - latency} to the output ports, if it is finished, and then
+ * copies the input ports into the slot for cycle {@code n} and wakes the
+ * workers. The workers take turns to run the callback against filled slots,
+ * oldest first: a worker must hold the turn to claim a slot, and releases
+ * it only once the slot is finished, so the callback is never executed
+ * concurrently and sees cycles in the order in which they were captured.
+ * The real-time thread never waits for a worker: a slot that is not
+ * finished when it is due produces silence, and a cycle whose slot is
+ * still being processed is not captured.</p>
+ *
+ * <p>Each slot moves through the states {@code FREE}, {@code FILLED},
+ * {@code PROCESSING}, and {@code DONE}; the transition into each state
+ * publishes the contents of the slot to the thread that next claims it.</p>
+ */
+
+final class JackClientPipeline
+  implements JackClientProcessCallbackType, JackClientPipelineType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JackClientPipeline.class);
+
+  private static final int FREE = 0;
+  private static final int FILLED = 1;
+  private static final int PROCESSING = 2;
+  private static final int DONE = 3;
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  private final String client_name;
+  private final JackClientProcessCallbackType callback;
+  private final int latency;
+  private final int frames;
+  private final int[] inputs;
+  private final int[] outputs;
+  private final Slot[] slots;
+  private final Thread[] workers;
+  private final AtomicBoolean turn;
+  private final AtomicLong processed;
+  private final AtomicLong late;
+  private final AtomicLong dropped;
+  private final AtomicLong failed;
+  private volatile boolean running;
+  private long cycle;
+
+  /**
+   * Create a pipeline.
+   *
+   * @param in_client_name   The name of the client
+   * @param in_callback      The process callback
+   * @param in_configuration The pipeline configuration
+   * @param in_frames        The number of frames in each cycle
+   * @param in_inputs        The handles of the input audio ports
+   * @param in_outputs       The handles of the output audio ports
+   * @param in_handles       The number of port handles allocated
+   */
+
+  JackClientPipeline(
+    final String in_client_name,
+    final JackClientProcessCallbackType in_callback,
+    final JackClientPipelineConfiguration in_configuration,
+    final int in_frames,
+    final int[] in_inputs,
+    final int[] in_outputs,
+    final int in_handles)
+  {
+    this.client_name = Objects.requireNonNull(in_client_name, "client_name");
+    this.callback = Objects.requireNonNull(in_callback, "callback");
+    Objects.requireNonNull(in_configuration, "configuration");
+    this.inputs = Objects.requireNonNull(in_inputs, "inputs").clone();
+    this.outputs = Objects.requireNonNull(in_outputs, "outputs").clone();
+
+    this.latency = in_configuration.latencyPeriods();
+    this.frames = in_frames;
+    this.slots = new Slot[this.latency + 1];
+    for (int index = 0; index < this.slots.length; ++index) {
+      final Slot slot = new Slot(in_handles);
+      slot.allocate(this.inputs, in_frames);
+      slot.allocate(this.outputs, in_frames);
+      this.slots[index] = slot;
+    }
+
+    this.turn = new AtomicBoolean(false);
+    this.processed = new AtomicLong(0L);
+    this.late = new AtomicLong(0L);
+    this.dropped = new AtomicLong(0L);
+    this.failed = new AtomicLong(0L);
+    this.cycle = 0L;
+
+    this.workers = new Thread[in_configuration.workerCount()];
+    for (int index = 0; index < this.workers.length; ++index) {
+      final Thread thread = new Thread(
+        this::work,
+        new StringBuilder(64)
+          .append("com.io7m.jjacob.pipeline[")
+          .append(in_client_name)
+          .append("]-")
+          .append(index)
+          .toString());
+      thread.setDaemon(true);
+      this.workers[index] = thread;
+    }
+  }
+
+  /**
+   * @return The number of frames in each cycle
+   */
+
+  int frames()
+  {
+    return this.frames;
+  }
+
+  /**
+   * Start the worker threads.
+   */
+
+  void start()
+  {
+    this.running = true;
+    for (final Thread thread : this.workers) {
+      thread.start();
+    }
+  }
+
+  /**
+   * Stop the worker threads, waiting a short time for any callback that is
+   * currently executing to return.
+   */
+
+  void stop()
+  {
+    this.running = false;
+    for (final Thread thread : this.workers) {
+      LockSupport.unpark(thread);
+    }
+
+    try {
+      for (final Thread thread : this.workers) {
+        if (thread != Thread.currentThread()) {
+          thread.join(TimeUnit.SECONDS.toMillis(1L));
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public int latencyPeriods()
+  {
+    return this.latency;
+  }
+
+  @Override
+  public long cyclesProcessed()
+  {
+    return this.processed.get();
+  }
+
+  @Override
+  public long cyclesLate()
+  {
+    return this.late.get();
+  }
+
+  @Override
+  public long cyclesDropped()
+  {
+    return this.dropped.get();
+  }
+
+  @Override
+  public long cyclesFailed()
+  {
+    return this.failed.get();
+  }
+
+  /*
+   * Executed on the real-time thread.
+   */
+
+  @Override
+  public void onProcess(
+    final JackClientProcessCallbackContextType context)
+    throws JackException
+  {
+    final long current = this.cycle;
+    this.cycle = current + 1L;
+
+    /*
+     * The slots are sized for the buffer size at the time the pipeline was
+     * created; if the server changes the buffer size, nothing further can
+     * be captured or emitted.
+     */
+
+    if (context.bufferFrameCount() != this.frames) {
+      this.silence(context);
+      this.dropped.incrementAndGet();
+      return;
+    }
+
+    this.emit(context, current - (long) this.latency);
+    this.capture(context, current);
+  }
+
+  private void emit(
+    final JackClientProcessCallbackContextType context,
+    final long due)
+    throws JackException
+  {
+    if (due < 0L) {
+      this.silence(context);
+      return;
+    }
+
+    final Slot slot = this.slotFor(due);
+    if (slot.cycle != due || slot.state.get() != DONE) {
+      this.silence(context);
+      this.late.incrementAndGet();
+      return;
+    }
+
+    for (final int handle : this.outputs) {
+      JackBufferOperations.copy(
+        context.portBuffer(handle), slot.buffers[handle]);
+    }
+    slot.state.set(FREE);
+  }
+
+  private void capture(
+    final JackClientProcessCallbackContextType context,
+    final long current)
+    throws JackException
+  {
+    final Slot slot = this.slotFor(current);
+    if (!slot.reclaim()) {
+      this.dropped.incrementAndGet();
+      return;
+    }
+
+    for (final int handle : this.inputs) {
+      JackBufferOperations.copy(
+        slot.buffers[handle], context.portBuffer(handle));
+    }
+    slot.cycle = current;
+    slot.state.set(FILLED);
+
+    for (final Thread thread : this.workers) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void silence(
+    final JackClientProcessCallbackContextType context)
+    throws JackException
+  {
+    for (final int handle : this.outputs) {
+      JackBufferOperations.clear(context.portBuffer(handle));
+    }
+  }
+
+  private Slot slotFor(
+    final long cycle_number)
+  {
+    return this.slots[(int) (cycle_number % (long) this.slots.length)];
+  }
+
+  /*
+   * Executed on the worker threads.
+   */
+
+  private void work()
+  {
+    final SlotContext context = new SlotContext(this.frames);
+    while (this.running) {
+      if (!this.turn.compareAndSet(false, true)) {
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        continue;
+      }
+
+      final Slot slot = this.claim();
+      if (slot == null) {
+        this.turn.set(false);
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        continue;
+      }
+
+      slot.clearOutputs(this.outputs);
+      context.slot = slot;
+      try {
+        this.callback.onProcess(context);
+      } catch (final Exception e) {
+        this.failed.incrementAndGet();
+        slot.clearOutputs(this.outputs);
+        LOG.error(
+          "Pipelined process callback of client {} raised exception: ",
+          this.client_name,
+          e);
+      }
+      context.slot = null;
+
+      slot.state.set(DONE);
+      this.processed.incrementAndGet();
+      this.turn.set(false);
+    }
+  }
+
+  private Slot claim()
+  {
+    while (true) {
+      Slot oldest = null;
+      for (final Slot slot : this.slots) {
+        if (slot.state.get() == FILLED
+          && (oldest == null || slot.cycle < oldest.cycle)) {
+          oldest = slot;
+        }
+      }
+
+      if (oldest == null) {
+        return null;
+      }
+      if (oldest.state.compareAndSet(FILLED, PROCESSING)) {
+        return oldest;
+      }
+    }
+  }
+
+  private static final class Slot
+  {
+    private final AtomicInteger state;
+    private final JackNIOBuffer[] buffers;
+    private long cycle;
+
+    Slot(
+      final int handles)
+    {
+      this.state = new AtomicInteger(FREE);
+      this.buffers = new JackNIOBuffer[handles];
+      this.cycle = -1L;
+    }
+
+    void allocate(
+      final int[] handles,
+      final int frames)
+    {
+      for (final int handle : handles) {
+        final ByteBuffer memory =
+          ByteBuffer.allocateDirect(Math.multiplyExact(frames, 4))
+            .order(ByteOrder.nativeOrder());
+        this.buffers[handle] = new JackNIOBuffer(memory, 4);
+      }
+    }
+
+    /*
+     * A slot may be refilled if it is free, or if it holds a cycle that was
+     * due to be emitted but was either not started or not finished in time.
+     */
+
+    boolean reclaim()
+    {
+      final int current = this.state.get();
+      if (current == FREE) {
+        return true;
+      }
+      if (current == PROCESSING) {
+        return false;
+      }
+      return this.state.compareAndSet(current, FREE);
+    }
+
+    void clearOutputs(
+      final int[] outputs)
+    {
+      for (final int handle : outputs) {
+        JackBufferOperations.clear(this.buffers[handle]);
+      }
+    }
+  }
+
+  private static final class SlotContext
+    implements JackClientProcessCallbackContextType
+  {
+    private final int frames;
+    private Slot slot;
+
+    SlotContext(
+      final int in_frames)
+    {
+      this.frames = in_frames;
+    }
+
+    @Override
+    public int bufferFrameCount()
+    {
+      return this.frames;
+    }
+
+    @Override
+    public JackBufferType portBuffer(
+      final JackPortType port)
+      throws JackException
+    {
+      Objects.requireNonNull(port, "port");
+      return this.portBuffer(port.handle());
+    }
+
+    @Override
+    public JackBufferMIDIType portBufferMIDI(
+      final JackPortType port)
+      throws JackException
+    {
+      throw midiUnavailable();
+    }
+
+    @Override
+    public JackBufferMIDIWritableType portBufferMIDIWritable(
+      final JackPortType port)
+      throws JackException
+    {
+      throw midiUnavailable();
+    }
+
+    @Override
+    public JackBufferType portBuffer(
+      final int handle)
+      throws JackException
+    {
+      final JackNIOBuffer[] buffers = this.slot.buffers;
+      if (handle < 0 || handle >= buffers.length || buffers[handle] == null) {
+        throw new JackClientPortSearchException(
+          "No audio port in the pipeline with handle " + handle);
+      }
+      return buffers[handle];
+    }
+
+    @Override
+    public JackBufferMIDIType portBufferMIDI(
+      final int handle)
+      throws JackException
+    {
+      throw midiUnavailable();
+    }
+
+    @Override
+    public JackBufferMIDIWritableType portBufferMIDIWritable(
+      final int handle)
+      throws JackException
+    {
+      throw midiUnavailable();
+    }
+
+    private static JackClientPortSearchException midiUnavailable()
+    {
+      return new JackClientPortSearchException(
+        "MIDI buffers are not available to pipelined process callbacks");
+    }
+  }
+}
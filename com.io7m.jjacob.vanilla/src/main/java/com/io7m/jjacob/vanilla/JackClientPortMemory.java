@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackNIOBuffer;
+import com.io7m.jjacob.jnr.LibJackBufferAddressType;
+import com.io7m.jjacob.jnr.LibJackType;
+import com.kenai.jffi.MemoryIO;
+import jnr.ffi.Pointer;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * The buffer memory of a single port, accessed only by the process thread.
+ *
+ * The address of the port buffer is fetched on each cycle without
+ * allocating when the binding implements {@link LibJackBufferAddressType}.
+ * JACK typically hands out the same port memory each cycle, so the values
+ * that wrap the memory are kept and are only recreated when the address or
+ * size of the buffer changes (such as when the buffer size or the
+ * connections of an input port change).
+ */
+
+final class JackClientPortMemory
+{
+  private final LibJackType libjack;
+  private final LibJackBufferAddressType addresses;
+  private final Pointer port;
+  private final long port_address;
+  private final int frame_size;
+  private JackNIOBuffer buffer;
+  private long buffer_address;
+  private Pointer pointer;
+
+  JackClientPortMemory(
+    final LibJackType in_libjack,
+    final Pointer in_port,
+    final int in_frame_size)
+  {
+    this.libjack = Objects.requireNonNull(in_libjack, "libjack");
+    this.port = Objects.requireNonNull(in_port, "port");
+    this.port_address = in_port.address();
+    this.frame_size = in_frame_size;
+
+    if (in_libjack instanceof LibJackBufferAddressType) {
+      this.addresses = (LibJackBufferAddressType) in_libjack;
+    } else {
+      this.addresses = null;
+    }
+  }
+
+  /**
+   * @param frames The number of frames in the current cycle
+   *
+   * @return The address of the port buffer for the current cycle, or
+   * {@code 0} if the buffer could not be obtained
+   */
+
+  long address(
+    final int frames)
+  {
+    final LibJackBufferAddressType direct = this.addresses;
+    if (direct != null) {
+      return direct.jack_port_get_buffer_address(this.port_address, frames);
+    }
+
+    final Pointer buffer_ptr =
+      this.libjack.jack_port_get_buffer(this.port, frames);
+    if (buffer_ptr == null) {
+      return 0L;
+    }
+    return buffer_ptr.address();
+  }
+
+  /**
+   * A direct buffer cannot be re-pointed at new memory, so the buffer is
+   * created only when the address or size of the port buffer changes.
+   *
+   * @param address The address of the port buffer
+   * @param frames  The number of frames in the current cycle
+   *
+   * @return A buffer over the port memory
+   */
+
+  JackNIOBuffer buffer(
+    final long address,
+    final int frames)
+  {
+    final JackNIOBuffer current = this.buffer;
+    if (current == null
+      || this.buffer_address != address
+      || current.frameCount() != frames) {
+      final ByteBuffer memory =
+        MemoryIO.getInstance().newDirectByteBuffer(
+          address, Math.multiplyExact(frames, this.frame_size));
+      this.buffer = new JackNIOBuffer(memory, this.frame_size);
+      this.buffer_address = address;
+    }
+    return this.buffer;
+  }
+
+  /**
+   * @param address The address of the port buffer
+   *
+   * @return A pointer to the port memory, for use with the MIDI functions
+   */
+
+  Pointer pointer(
+    final long address)
+  {
+    final Pointer current = this.pointer;
+    if (current == null || current.address() != address) {
+      this.pointer = Pointer.wrap(this.port.getRuntime(), address);
+    }
+    return this.pointer;
+  }
+
+  /**
+   * Set every byte of the port buffer to zero.
+   *
+   * @param address The address of the port buffer
+   * @param frames  The number of frames in the current cycle
+   */
+
+  void clear(
+    final long address,
+    final int frames)
+  {
+    MemoryIO.getInstance().setMemory(
+      address, (long) frames * (long) this.frame_size, (byte) 0);
+  }
+}
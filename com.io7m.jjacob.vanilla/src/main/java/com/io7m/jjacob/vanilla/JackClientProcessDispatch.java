@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackClientProcessCallbackContextType;
+import com.io7m.jjacob.api.JackClientProcessCallbackType;
+import com.io7m.jjacob.jnr.LibJackType;
+import jnr.ffi.Pointer;
+
+import java.util.Objects;
+
+/**
+ * <p>The process callback that a client's native trampoline currently
+ * dispatches to.</p>
+ *
+ * <p>A dispatch may optionally describe a crossfade from a previous callback.
+ * In this case, for a single cycle, both callbacks are executed and the
+ * audio outputs of the previous callback are faded out whilst the outputs of
+ * the new callback are faded in. All storage required for the crossfade is
+ * allocated when the dispatch is created, so the process thread does not
+ * allocate.</p>
+ */
+
+final class JackClientProcessDispatch
+{
+  private final JackClientProcessCallbackType callback;
+  private final JackClientProcessCallbackType fade_from;
+  private final Pointer[] fade_ports;
+  private final Pointer[] fade_midi_ports;
+  private final float[][] fade_old;
+  private final float[][] fade_new;
+  private final int fade_frames;
+  private final JackClientProcessDispatch settled;
+
+  private JackClientProcessDispatch(
+    final JackClientProcessCallbackType in_callback,
+    final JackClientProcessCallbackType in_fade_from,
+    final Pointer[] in_fade_ports,
+    final Pointer[] in_fade_midi_ports,
+    final int in_fade_frames)
+  {
+    this.callback =
+      Objects.requireNonNull(in_callback, "callback");
+    this.fade_from =
+      Objects.requireNonNull(in_fade_from, "fade_from");
+    this.fade_ports =
+      Objects.requireNonNull(in_fade_ports, "fade_ports");
+    this.fade_midi_ports =
+      Objects.requireNonNull(in_fade_midi_ports, "fade_midi_ports");
+    this.fade_frames = in_fade_frames;
+    this.fade_old = new float[in_fade_ports.length][in_fade_frames];
+    this.fade_new = new float[in_fade_ports.length][in_fade_frames];
+    this.settled = new JackClientProcessDispatch(in_callback);
+  }
+
+  private JackClientProcessDispatch(
+    final JackClientProcessCallbackType in_callback)
+  {
+    this.callback = Objects.requireNonNull(in_callback, "callback");
+    this.fade_from = null;
+    this.fade_ports = null;
+    this.fade_midi_ports = null;
+    this.fade_old = null;
+    this.fade_new = null;
+    this.fade_frames = 0;
+    this.settled = this;
+  }
+
+  /**
+   * Create a dispatch that simply calls the given callback.
+   *
+   * @param callback The callback
+   *
+   * @return A dispatch
+   */
+
+  static JackClientProcessDispatch of(
+    final JackClientProcessCallbackType callback)
+  {
+    return new JackClientProcessDispatch(callback);
+  }
+
+  /**
+   * Create a dispatch that crossfades from one callback to another.
+   *
+   * @param from       The callback being replaced
+   * @param callback   The new callback
+   * @param ports      The audio output ports that will be crossfaded
+   * @param midi_ports The MIDI output ports, which are cleared before the new
+   *                   callback runs
+   * @param frames     The buffer size for which the crossfade is prepared
+   *
+   * @return A dispatch
+   */
+
+  static JackClientProcessDispatch crossfade(
+    final JackClientProcessCallbackType from,
+    final JackClientProcessCallbackType callback,
+    final Pointer[] ports,
+    final Pointer[] midi_ports,
+    final int frames)
+  {
+    return new JackClientProcessDispatch(
+      callback, from, ports, midi_ports, frames);
+  }
+
+  /**
+   * @return The callback that this dispatch executes
+   */
+
+  JackClientProcessCallbackType callback()
+  {
+    return this.callback;
+  }
+
+  /**
+   * @return {@code true} if this dispatch crossfades from another callback
+   */
+
+  boolean isCrossfade()
+  {
+    return this.fade_from != null;
+  }
+
+  /**
+   * @return The dispatch that should replace this one after a single cycle
+   */
+
+  JackClientProcessDispatch settled()
+  {
+    return this.settled;
+  }
+
+  /**
+   * Execute the callback(s) for a single cycle.
+   *
+   * @param libjack The libjack implementation
+   * @param context The process context
+   * @param frames  The number of frames in the cycle
+   *
+   * @throws Exception On errors raised by the callbacks
+   */
+
+  void execute(
+    final LibJackType libjack,
+    final JackClientProcessCallbackContextType context,
+    final int frames)
+    throws Exception
+  {
+    if (this.fade_from == null || frames != this.fade_frames) {
+      this.callback.onProcess(context);
+      return;
+    }
+
+    this.fade_from.onProcess(context);
+    for (int index = 0; index < this.fade_ports.length; ++index) {
+      final Pointer buffer =
+        libjack.jack_port_get_buffer(this.fade_ports[index], frames);
+      buffer.get(0L, this.fade_old[index], 0, frames);
+    }
+    for (int index = 0; index < this.fade_midi_ports.length; ++index) {
+      libjack.jack_midi_clear_buffer(
+        libjack.jack_port_get_buffer(this.fade_midi_ports[index], frames));
+    }
+
+    this.callback.onProcess(context);
+
+    final float step = 1.0f / (float) frames;
+    for (int index = 0; index < this.fade_ports.length; ++index) {
+      final Pointer buffer =
+        libjack.jack_port_get_buffer(this.fade_ports[index], frames);
+      final float[] old_frames = this.fade_old[index];
+      final float[] new_frames = this.fade_new[index];
+      buffer.get(0L, new_frames, 0, frames);
+      for (int frame = 0; frame < frames; ++frame) {
+        final float gain = (float) frame * step;
+        new_frames[frame] =
+          (old_frames[frame] * (1.0f - gain)) + (new_frames[frame] * gain);
+      }
+      buffer.put(0L, new_frames, 0, frames);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A channel through which exceptions raised by a process callback are
+ * passed from the real-time thread to a background thread for logging.</p>
+ *
+ * <p>Recording an exception stores a reference into a preallocated ring of
+ * slots, increments counters, and wakes the drainer; it never allocates,
+ * formats, or takes a lock. If the ring is full, the exception is counted
+ * but otherwise dropped. The ring has a single producer (the process thread)
+ * and a single consumer (the drainer thread).</p>
+ */
+
+final class JackClientProcessErrors
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JackClientProcessErrors.class);
+
+  private static final int CAPACITY = 16;
+  private static final Drainer DRAINER = new Drainer();
+
+  private final String client_name;
+  private final AtomicReferenceArray<Exception> slots;
+  private final AtomicLong written;
+  private final AtomicLong read;
+  private final AtomicLong count;
+  private final AtomicLong dropped;
+  private long dropped_reported;
+
+  JackClientProcessErrors(
+    final String in_client_name)
+  {
+    this.client_name = Objects.requireNonNull(in_client_name, "client_name");
+    this.slots = new AtomicReferenceArray<>(CAPACITY);
+    this.written = new AtomicLong(0L);
+    this.read = new AtomicLong(0L);
+    this.count = new AtomicLong(0L);
+    this.dropped = new AtomicLong(0L);
+    this.dropped_reported = 0L;
+  }
+
+  /**
+   * Start delivering recorded exceptions to the log.
+   */
+
+  void start()
+  {
+    DRAINER.add(this);
+  }
+
+  /**
+   * Stop delivering recorded exceptions to the log, after logging any that
+   * are outstanding.
+   */
+
+  void stop()
+  {
+    DRAINER.remove(this);
+    this.drain();
+  }
+
+  /**
+   * @return The number of exceptions recorded
+   */
+
+  long count()
+  {
+    return this.count.get();
+  }
+
+  /**
+   * Record an exception. This method is safe to call from the real-time
+   * thread.
+   *
+   * @param exception The exception
+   */
+
+  void record(
+    final Exception exception)
+  {
+    this.count.incrementAndGet();
+
+    final long w = this.written.get();
+    if (w - this.read.get() >= (long) CAPACITY) {
+      this.dropped.incrementAndGet();
+    } else {
+      this.slots.lazySet((int) (w % (long) CAPACITY), exception);
+      this.written.lazySet(w + 1L);
+    }
+    DRAINER.wake();
+  }
+
+  private synchronized void drain()
+  {
+    final long w = this.written.get();
+    long r = this.read.get();
+    while (r < w) {
+      final int index = (int) (r % (long) CAPACITY);
+      final Exception exception = this.slots.get(index);
+      this.slots.lazySet(index, null);
+      ++r;
+      this.read.set(r);
+      LOG.error(
+        "Process callback of client {} raised exception: ",
+        this.client_name,
+        exception);
+    }
+
+    final long dropped_now = this.dropped.get();
+    if (dropped_now != this.dropped_reported) {
+      LOG.error(
+        "Process callback of client {}: {} further exceptions were not logged",
+        this.client_name,
+        Long.valueOf(dropped_now - this.dropped_reported));
+      this.dropped_reported = dropped_now;
+    }
+  }
+
+  /*
+   * A single daemon thread drains the channels of all clients. It is woken
+   * when an exception is recorded, and also wakes periodically so that a
+   * lost wakeup can delay logging but never prevent it.
+   */
+
+  private static final class Drainer implements Runnable
+  {
+    private final Set<JackClientProcessErrors> channels;
+    private final Thread thread;
+
+    Drainer()
+    {
+      this.channels = ConcurrentHashMap.newKeySet();
+      this.thread = new Thread(this, "com.io7m.jjacob.process-errors");
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+
+    void add(
+      final JackClientProcessErrors channel)
+    {
+      this.channels.add(channel);
+    }
+
+    void remove(
+      final JackClientProcessErrors channel)
+    {
+      this.channels.remove(channel);
+    }
+
+    void wake()
+    {
+      LockSupport.unpark(this.thread);
+    }
+
+    @Override
+    public void run()
+    {
+      while (true) {
+        LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1L));
+        for (final JackClientProcessErrors channel : this.channels) {
+          try {
+            channel.drain();
+          } catch (final Exception e) {
+            // Nothing sensible can be done if logging itself fails
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackClientProcessTimingType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free process callback timing. All recording is performed by the
+ * process thread, which is the only writer of every counter here, so values
+ * are published with ordered stores rather than atomic read-modify-write
+ * operations.
+ *
+ * Durations are recorded into a log-linear histogram: values below 16
+ * nanoseconds have a bucket each, and each power-of-two range above that is
+ * divided into 8 linear sub-buckets, bounding the relative error of any
+ * recorded value to 12.5%. The histogram covers the entire range of
+ * {@code long} values in 488 buckets.
+ */
+
+final class JackClientProcessTiming implements JackClientProcessTimingType
+{
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+  private static final long LINEAR_LIMIT = 1L << (SUB_BUCKET_BITS + 1);
+
+  private final AtomicLongArray buckets;
+  private final AtomicLong cycles;
+  private final AtomicLong maximum;
+  private final AtomicLong over_budget;
+  private final AtomicLong budget;
+  private final double threshold;
+  private final double nanos_per_frame;
+  private final double threshold_nanos_per_frame;
+
+  JackClientProcessTiming(
+    final double in_threshold,
+    final int sample_rate)
+  {
+    if (sample_rate <= 0) {
+      throw new IllegalArgumentException(
+        "Sample rate must be positive (received " + sample_rate + ")");
+    }
+
+    this.threshold = in_threshold;
+    this.nanos_per_frame = 1_000_000_000.0 / (double) sample_rate;
+    this.threshold_nanos_per_frame = this.nanos_per_frame * in_threshold;
+    this.buckets = new AtomicLongArray(BUCKETS);
+    this.cycles = new AtomicLong(0L);
+    this.maximum = new AtomicLong(0L);
+    this.over_budget = new AtomicLong(0L);
+    this.budget = new AtomicLong(0L);
+  }
+
+  static int bucketOf(
+    final long value)
+  {
+    if (value < LINEAR_LIMIT) {
+      return (int) Math.max(0L, value);
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    final int sub = (int) ((value >>> shift) & (long) (SUB_BUCKETS - 1));
+    return ((shift + 1) * SUB_BUCKETS) + sub;
+  }
+
+  static long bucketUpperBound(
+    final int bucket)
+  {
+    if ((long) bucket < LINEAR_LIMIT) {
+      return (long) bucket;
+    }
+    final int shift = (bucket / SUB_BUCKETS) - 1;
+    final long sub = (long) (bucket % SUB_BUCKETS);
+    final long lower = ((long) SUB_BUCKETS + sub) << shift;
+    final long upper = lower + ((1L << shift) - 1L);
+    return upper < lower ? Long.MAX_VALUE : upper;
+  }
+
+  /**
+   * Record a process cycle. This is called only by the process thread.
+   *
+   * @param frames  The number of frames in the cycle
+   * @param elapsed The time taken by the process callback in nanoseconds
+   */
+
+  void record(
+    final int frames,
+    final long elapsed)
+  {
+    final long time = Math.max(0L, elapsed);
+    final double frames_d = (double) frames;
+
+    final int bucket = bucketOf(time);
+    this.buckets.lazySet(bucket, this.buckets.get(bucket) + 1L);
+
+    if (time > this.maximum.get()) {
+      this.maximum.lazySet(time);
+    }
+    if ((double) time > frames_d * this.threshold_nanos_per_frame) {
+      this.over_budget.lazySet(this.over_budget.get() + 1L);
+    }
+
+    final long cycle_budget = (long) (frames_d * this.nanos_per_frame);
+    if (cycle_budget != this.budget.get()) {
+      this.budget.lazySet(cycle_budget);
+    }
+    this.cycles.lazySet(this.cycles.get() + 1L);
+  }
+
+  @Override
+  public long cycles()
+  {
+    return this.cycles.get();
+  }
+
+  @Override
+  public long maximumNanoseconds()
+  {
+    return this.maximum.get();
+  }
+
+  @Override
+  public long percentileNanoseconds(
+    final double percentile)
+  {
+    if (!(percentile >= 0.0 && percentile <= 100.0)) {
+      throw new IllegalArgumentException(
+        "Percentile must be in the range [0, 100] (received "
+          + percentile + ")");
+    }
+
+    final long count = this.cycles.get();
+    final long max = this.maximum.get();
+    if (count == 0L) {
+      return 0L;
+    }
+
+    final long target =
+      Math.max(1L, (long) Math.ceil((percentile / 100.0) * (double) count));
+
+    long seen = 0L;
+    for (int index = 0; index < BUCKETS; ++index) {
+      seen += this.buckets.get(index);
+      if (seen >= target) {
+        return Math.min(bucketUpperBound(index), max);
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public long budgetNanoseconds()
+  {
+    return this.budget.get();
+  }
+
+  @Override
+  public double budgetThreshold()
+  {
+    return this.threshold;
+  }
+
+  @Override
+  public long overBudgetCount()
+  {
+    return this.over_budget.get();
+  }
+
+  @Override
+  public String toString()
+  {
+    return new StringBuilder(128)
+      .append("[JackClientProcessTiming cycles=")
+      .append(this.cycles())
+      .append(" p50=")
+      .append(this.percentileNanoseconds(50.0))
+      .append(" p99=")
+      .append(this.percentileNanoseconds(99.0))
+      .append(" max=")
+      .append(this.maximumNanoseconds())
+      .append(" budget=")
+      .append(this.budgetNanoseconds())
+      .append(" over_budget=")
+      .append(this.overBudgetCount())
+      .append("]")
+      .toString();
+  }
+}
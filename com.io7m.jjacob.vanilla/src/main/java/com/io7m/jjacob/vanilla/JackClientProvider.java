@@ -16,72 +16,64 @@
 
 package com.io7m.jjacob.vanilla;
 
-import com.io7m.jjacob.api.JackAbstractBuffer;
 import com.io7m.jjacob.api.JackBufferMIDIType;
+import com.io7m.jjacob.api.JackBufferMIDIWritableType;
 import com.io7m.jjacob.api.JackBufferType;
 import com.io7m.jjacob.api.JackClientActivateException;
 import com.io7m.jjacob.api.JackClientCallbackRegistrationException;
 import com.io7m.jjacob.api.JackClientClosedException;
 import com.io7m.jjacob.api.JackClientConfiguration;
 import com.io7m.jjacob.api.JackClientDeactivateException;
+import com.io7m.jjacob.api.JackClientInstrumentationType;
 import com.io7m.jjacob.api.JackClientOpenException;
+import com.io7m.jjacob.api.JackClientPipelineConfiguration;
+import com.io7m.jjacob.api.JackClientPipelineType;
+import com.io7m.jjacob.api.JackClientPortBufferException;
 import com.io7m.jjacob.api.JackClientPortConnectionException;
 import com.io7m.jjacob.api.JackClientPortRegistrationException;
 import com.io7m.jjacob.api.JackClientPortSearchException;
 import com.io7m.jjacob.api.JackClientPortTypeRegistryType;
 import com.io7m.jjacob.api.JackClientProcessCallbackContextType;
 import com.io7m.jjacob.api.JackClientProcessCallbackType;
+import com.io7m.jjacob.api.JackClientProcessTimingType;
 import com.io7m.jjacob.api.JackClientProviderType;
 import com.io7m.jjacob.api.JackClientType;
+import com.io7m.jjacob.api.JackClientXRunListenerType;
+import com.io7m.jjacob.api.JackClientXRunStatisticsType;
+import com.io7m.jjacob.api.JackCommandQueue;
+import com.io7m.jjacob.api.JackCommandReceiverType;
+import com.io7m.jjacob.api.JackConnectionReport;
 import com.io7m.jjacob.api.JackException;
+import com.io7m.jjacob.api.JackGraphConnection;
+import com.io7m.jjacob.api.JackGraphSnapshotType;
+import com.io7m.jjacob.api.JackLatencyRange;
 import com.io7m.jjacob.api.JackPortFlag;
 import com.io7m.jjacob.api.JackPortType;
+import com.io7m.jjacob.api.JackProcessErrorPolicy;
 import com.io7m.jjacob.api.JackStatusCode;
-import com.io7m.jjacob.jnr.LibJackPortFlags;
-import com.io7m.jjacob.jnr.LibJackStatus;
 import com.io7m.jjacob.jnr.LibJackType;
 import com.io7m.jjacob.porttype.api.JackPortTypeInformation;
-import com.io7m.junreachable.UnimplementedCodeException;
 import com.io7m.junreachable.UnreachableCodeException;
 import jnr.ffi.Pointer;
-import jnr.ffi.Runtime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_CAN_MONITOR;
-import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_INPUT;
 import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_OUTPUT;
-import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_PHYSICAL;
-import static com.io7m.jjacob.api.JackPortFlag.JACK_PORT_IS_TERMINAL;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_BACKEND_ERROR;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_CLIENT_ZOMBIE;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_FAILURE;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_INIT_FAILURE;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_INVALID_OPTION;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_LOAD_FAILURE;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_NAME_NOT_UNIQUE;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_NO_SUCH_CLIENT;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_SERVER_ERROR;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_SERVER_FAILED;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_SERVER_STARTED;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_SHM_FAILURE;
-import static com.io7m.jjacob.api.JackStatusCode.JACK_VERSION_ERROR;
+import static com.io7m.jjacob.jnr.LibJackLatencyCallbackMode.JackCaptureLatency;
+import static com.io7m.jjacob.jnr.LibJackLatencyCallbackMode.JackPlaybackLatency;
 import static com.io7m.jjacob.jnr.LibJackOptions.JackNoStartServer;
 import static com.io7m.jjacob.jnr.LibJackOptions.JackServerName;
 import static com.io7m.jjacob.jnr.LibJackOptions.JackUseExactName;
-import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortCanMonitor;
-import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsInput;
-import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsOutput;
-import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsPhysical;
-import static com.io7m.jjacob.jnr.LibJackPortFlags.JackPortIsTerminal;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static jnr.constants.platform.Errno.EEXIST;
 
 /**
@@ -93,15 +85,24 @@ public final class JackClientProvider implements JackClientProviderType
   private static final Logger LOG =
     LoggerFactory.getLogger(JackClientProvider.class);
 
+  private static final JackClientInstrumentationType NO_INSTRUMENTATION =
+    new JackClientInstrumentationType()
+    {
+    };
+
   private final LibJackType libjack;
   private final JackClientPortTypeRegistryType types;
+  private final JackClientInstrumentationType instrumentation;
 
   private JackClientProvider(
     final LibJackType in_libjack,
-    final JackClientPortTypeRegistryType in_types)
+    final JackClientPortTypeRegistryType in_types,
+    final JackClientInstrumentationType in_instrumentation)
   {
     this.libjack = Objects.requireNonNull(in_libjack, "client");
     this.types = Objects.requireNonNull(in_types, "types");
+    this.instrumentation =
+      Objects.requireNonNull(in_instrumentation, "instrumentation");
   }
 
   /**
@@ -116,70 +117,102 @@ public final class JackClientProvider implements JackClientProviderType
   public static JackClientProviderType create(
     final JackClientPortTypeRegistryType types,
     final LibJackType libjack)
+  {
+    return create(types, libjack, NO_INSTRUMENTATION);
+  }
+
+  /**
+   * Create a new client provider. The given instrumentation is notified of
+   * process cycles, xruns, and control-plane calls of all clients opened by
+   * the provider.
+   *
+   * @param types           A registry of known port types
+   * @param libjack         A libjack implementation
+   * @param instrumentation The instrumentation
+   *
+   * @return A new provider
+   */
+
+  public static JackClientProviderType create(
+    final JackClientPortTypeRegistryType types,
+    final LibJackType libjack,
+    final JackClientInstrumentationType instrumentation)
   {
     Objects.requireNonNull(types, "types");
     Objects.requireNonNull(libjack, "client");
-    return new JackClientProvider(libjack, types);
+    Objects.requireNonNull(instrumentation, "instrumentation");
+    return new JackClientProvider(libjack, types, instrumentation);
   }
 
   private static JackClientType fetchClientInformation(
     final Pointer client,
     final JackClientPortTypeRegistryType types,
-    final LibJackType libjack)
+    final LibJackType libjack,
+    final JackClientInstrumentationType instrumentation,
+    final JackClientConfiguration configuration)
+    throws JackException
   {
     final String client_real_name =
       libjack.jack_get_client_name(client);
 
     LOG.debug("opened client: {}", client_real_name);
-    return new Client(libjack, types, client, client_real_name);
-  }
 
-  private static EnumSet<JackStatusCode> statusOf(final int status)
-  {
-    final EnumSet<JackStatusCode> result = EnumSet.noneOf(JackStatusCode.class);
-    for (final LibJackStatus v : LibJackStatus.values()) {
-      final int flag = v.intValue();
-      if ((status & flag) == flag) {
-        result.add(statusCodeOf(v));
+    final JackClientProcessTiming timing;
+    if (configuration.processTimingEnabled()) {
+      timing = new JackClientProcessTiming(
+        configuration.processTimingBudgetThreshold(),
+        libjack.jack_get_sample_rate(client));
+    } else {
+      timing = null;
+    }
+
+    final JackClientGraph graph;
+    if (configuration.graphSnapshotEnabled()) {
+      graph = new JackClientGraph(libjack, client);
+    } else {
+      graph = null;
+    }
+
+    final Client result =
+      new Client(
+        libjack,
+        types,
+        instrumentation,
+        client,
+        client_real_name,
+        timing,
+        graph,
+        configuration.processErrorPolicy(),
+        JackCommandQueue.create(configuration.commandQueueCapacity()));
+
+    instrumentation.onClientOpened(result);
+
+    /*
+     * The xrun callback is registered unconditionally so that xrun
+     * statistics are always available. Callbacks can only be registered
+     * whilst the client is inactive, so this must happen here.
+     */
+
+    final int r =
+      libjack.jack_set_xrun_callback(client, result.xrun_callback, null);
+    if (r != 0) {
+      result.close();
+      throw new JackClientCallbackRegistrationException(
+        "Unable to register xrun callback");
+    }
+
+    if (graph != null) {
+      try {
+        graph.register();
+      } catch (final JackClientCallbackRegistrationException e) {
+        result.close();
+        throw e;
       }
+      graph.synchronize();
     }
     return result;
   }
 
-  private static JackStatusCode statusCodeOf(
-    final LibJackStatus v)
-  {
-    switch (v) {
-      case JackFailure:
-        return JACK_FAILURE;
-      case JackInvalidOption:
-        return JACK_INVALID_OPTION;
-      case JackNameNotUnique:
-        return JACK_NAME_NOT_UNIQUE;
-      case JackServerStarted:
-        return JACK_SERVER_STARTED;
-      case JackServerFailed:
-        return JACK_SERVER_FAILED;
-      case JackServerError:
-        return JACK_SERVER_ERROR;
-      case JackNoSuchClient:
-        return JACK_NO_SUCH_CLIENT;
-      case JackLoadFailure:
-        return JACK_LOAD_FAILURE;
-      case JackInitFailure:
-        return JACK_INIT_FAILURE;
-      case JackShmFailure:
-        return JACK_SHM_FAILURE;
-      case JackVersionError:
-        return JACK_VERSION_ERROR;
-      case JackBackendError:
-        return JACK_BACKEND_ERROR;
-      case JackClientZombie:
-        return JACK_CLIENT_ZOMBIE;
-    }
-    throw new UnreachableCodeException();
-  }
-
   @Override
   public String toString()
   {
@@ -235,11 +268,12 @@ public final class JackClientProvider implements JackClientProviderType
         server_name);
 
     if (client.address() == 0L) {
-      final EnumSet<JackStatusCode> status_of = statusOf(status[0]);
+      final EnumSet<JackStatusCode> status_of = JackClientStatusCodes.statusOf(status[0]);
       throw new JackClientOpenException("Could not create client", status_of);
     }
 
-    return fetchClientInformation(client, this.types, this.libjack);
+    return fetchClientInformation(
+      client, this.types, this.libjack, this.instrumentation, configuration);
   }
 
   private static final class Client implements JackClientType
@@ -249,57 +283,95 @@ public final class JackClientProvider implements JackClientProviderType
     private final String client_real_name;
     private final JackClientProcessCallbackContext process_context;
     private final JackClientPortTypeRegistryType types;
+    private final JackClientXRunStatistics xrun_statistics;
+    private final LibJackType.XRunCallbackType xrun_callback;
+    private final JackClientProcessTiming timing;
+    private final JackClientInstrumentationType instrumentation;
+    private final JackClientGraph graph;
+    private final JackClientProcessErrors process_errors;
+    private final JackProcessErrorPolicy process_error_policy;
+    private final Object ports_lock;
+    private volatile PortTable ports_table;
     private volatile boolean active;
     private volatile boolean closed;
-    private volatile JackClientProcessCallbackType process;
+    private final Object process_lock;
+    private final AtomicReference<JackClientProcessDispatch> process_dispatch;
+    private volatile LibJackType.ProcessCallbackType process_trampoline;
+    private volatile JackClientXRunListenerType xrun_listener;
+    private volatile long process_thread;
+    private volatile boolean process_bypassed;
+    private final JackClientLatency latency;
+    private volatile JackClientPipeline pipeline;
+    private final JackCommandQueue commands;
+    private volatile JackCommandReceiverType command_receiver;
 
     Client(
       final LibJackType in_libjack,
       final JackClientPortTypeRegistryType in_types,
+      final JackClientInstrumentationType in_instrumentation,
       final Pointer in_client,
-      final String in_client_real_name)
+      final String in_client_real_name,
+      final JackClientProcessTiming in_timing,
+      final JackClientGraph in_graph,
+      final JackProcessErrorPolicy in_process_error_policy,
+      final JackCommandQueue in_commands)
     {
       this.libjack =
         Objects.requireNonNull(in_libjack, "client");
       this.types =
         Objects.requireNonNull(in_types, "types");
+      this.instrumentation =
+        Objects.requireNonNull(in_instrumentation, "instrumentation");
       this.client =
         Objects.requireNonNull(in_client, "client");
       this.client_real_name =
         Objects.requireNonNull(in_client_real_name, "client_real_name");
+      this.timing = in_timing;
+      this.graph = in_graph;
+      this.process_error_policy =
+        Objects.requireNonNull(in_process_error_policy, "process_error_policy");
+      this.commands =
+        Objects.requireNonNull(in_commands, "commands");
+      this.process_errors = new JackClientProcessErrors(in_client_real_name);
+      this.process_errors.start();
+      this.latency = new JackClientLatency(in_libjack, in_client);
+      this.ports_lock = new Object();
+      this.process_lock = new Object();
+      this.process_dispatch = new AtomicReference<>();
+      this.ports_table = new PortTable(new Port[0]);
 
       this.closed = false;
       this.active = false;
       this.process_context = new JackClientProcessCallbackContext(this.libjack);
+      this.xrun_statistics = new JackClientXRunStatistics();
+      this.process_thread = -1L;
+
+      /*
+       * The callback is held here so that it remains strongly reachable for
+       * as long as the native side may call it.
+       */
+
+      this.xrun_callback = data -> {
+        this.onXRun();
+        return 0;
+      };
     }
 
-    private static long flagsOf(
-      final Set<JackPortFlag> options)
-    {
-      long flags = 0L;
-      for (final JackPortFlag flag : options) {
-        flags |= (long) flagOf(flag).intValue();
-      }
-      return flags;
-    }
-
-    private static LibJackPortFlags flagOf(
-      final JackPortFlag flag)
+    private void onXRun()
     {
-      switch (flag) {
-        case JACK_PORT_IS_INPUT:
-          return JackPortIsInput;
-        case JACK_PORT_IS_OUTPUT:
-          return JackPortIsOutput;
-        case JACK_PORT_IS_PHYSICAL:
-          return JackPortIsPhysical;
-        case JACK_PORT_CAN_MONITOR:
-          return JackPortCanMonitor;
-        case JACK_PORT_IS_TERMINAL:
-          return JackPortIsTerminal;
+      final float delay =
+        this.libjack.jack_get_xrun_delayed_usecs(this.client);
+      this.xrun_statistics.onXRun(delay);
+      this.instrumentation.onXRun(this, delay);
+
+      final JackClientXRunListenerType listener = this.xrun_listener;
+      if (listener != null) {
+        try {
+          listener.onXRun(this.xrun_statistics);
+        } catch (final Exception e) {
+          LOG.error("XRun listener raised exception: ", e);
+        }
       }
-
-      throw new UnreachableCodeException();
     }
 
     @Override
@@ -382,32 +454,343 @@ public final class JackClientProvider implements JackClientProviderType
     {
       Objects.requireNonNull(in_process, "process");
 
+      this.checkNotClosed();
+      this.processRegister();
+      this.process_bypassed = false;
+      this.process_dispatch.set(JackClientProcessDispatch.of(in_process));
+      this.pipelineReplace(null);
+    }
+
+    @Override
+    public JackClientPipelineType setProcessCallbackPipelined(
+      final JackClientProcessCallbackType in_process,
+      final JackClientPipelineConfiguration in_configuration)
+      throws JackException
+    {
+      Objects.requireNonNull(in_process, "process");
+      Objects.requireNonNull(in_configuration, "configuration");
+
+      this.checkNotClosed();
+      this.processRegister();
+      this.latency.register();
+
+      final Port[] ports = this.ports_table.ports;
+      final int[] handles = new int[ports.length];
+      int input_count = 0;
+      int output_count = ports.length;
+      for (final Port port : ports) {
+        if (!port.type.isJackMIDI() && port.type.frameSizeBytes() == 4) {
+          if (port.output) {
+            --output_count;
+            handles[output_count] = port.handle;
+          } else {
+            handles[input_count] = port.handle;
+            ++input_count;
+          }
+        }
+      }
+
+      final JackClientPipeline created =
+        new JackClientPipeline(
+          this.client_real_name,
+          in_process,
+          in_configuration,
+          this.libjack.jack_get_buffer_size(this.client),
+          Arrays.copyOfRange(handles, 0, input_count),
+          Arrays.copyOfRange(handles, output_count, ports.length),
+          ports.length);
+
+      created.start();
+      this.process_bypassed = false;
+      this.process_dispatch.set(JackClientProcessDispatch.of(created));
+      this.pipelineReplace(created);
+      return created;
+    }
+
+    /*
+     * The latency added by the pipeline is reported to the server so that
+     * other clients can compensate for it.
+     */
+
+    private void pipelineReplace(
+      final JackClientPipeline next)
+    {
+      final JackClientPipeline previous = this.pipeline;
+      this.pipeline = next;
+      if (previous != null) {
+        previous.stop();
+      }
+      if (!this.closed && (previous != null || next != null)) {
+        this.latency.setAdded(
+          next == null ? 0 : next.latencyPeriods() * next.frames());
+      }
+    }
+
+    @Override
+    public void setProcessCallbackCrossfade(
+      final JackClientProcessCallbackType in_process)
+      throws JackException
+    {
+      Objects.requireNonNull(in_process, "process");
+
       this.checkNotClosed();
 
-      this.process = in_process;
+      final JackClientProcessDispatch current = this.process_dispatch.get();
+      if (current == null
+        || !this.active
+        || this.process_bypassed
+        || this.pipeline != null) {
+        this.setProcessCallback(in_process);
+        return;
+      }
 
-      final int r =
-        this.libjack.jack_set_process_callback(
-          this.client,
-          (frames, data) -> {
-            try {
-              this.process_context.buffer_size = frames;
-              in_process.onProcess(this.process_context);
-              return 0;
-            } catch (final Exception e) {
-              LOG.error("Process callback raised exception: ", e);
-              return -1;
-            }
-          },
-          null);
+      final List<Pointer> audio = new ArrayList<>();
+      final List<Pointer> midi = new ArrayList<>();
+      for (final Port port : this.ports_table.ports) {
+        if (port.output) {
+          if (port.type.isJackMIDI()) {
+            midi.add(port.pointer);
+          } else if (port.type.frameSizeBytes() == 4) {
+            audio.add(port.pointer);
+          }
+        }
+      }
 
-      if (r != 0) {
-        this.process = null;
-        throw new JackClientCallbackRegistrationException(
-          "Unable to register process callback");
+      this.process_dispatch.set(
+        JackClientProcessDispatch.crossfade(
+          current.callback(),
+          in_process,
+          audio.toArray(new Pointer[0]),
+          midi.toArray(new Pointer[0]),
+          this.libjack.jack_get_buffer_size(this.client)));
+    }
+
+    /*
+     * A single trampoline is registered with libjack for the lifetime of the
+     * client; setting a process callback afterwards only replaces the
+     * dispatch that the trampoline reads on each cycle. JACK refuses to
+     * register callbacks for active clients, so the first callback must be
+     * set before activation.
+     */
+
+    private void processRegister()
+      throws JackException
+    {
+      synchronized (this.process_lock) {
+        if (this.process_trampoline != null) {
+          return;
+        }
+
+        final LibJackType.ProcessCallbackType trampoline =
+          (frames, data) -> this.onProcessCycle(frames);
+
+        final int r =
+          this.libjack.jack_set_process_callback(this.client, trampoline, null);
+
+        if (r != 0) {
+          throw new JackClientCallbackRegistrationException(
+            "Unable to register process callback");
+        }
+        this.process_trampoline = trampoline;
+      }
+    }
+
+    private int onProcessCycle(
+      final int frames)
+    {
+      try {
+        final JackClientProcessCallbackContext context =
+          this.process_context;
+        context.buffer_size = frames;
+        context.ports_accessed = 0;
+        context.ports_table = this.ports_table;
+        context.ports_fetched = false;
+        this.xrun_statistics.onProcessCycle();
+
+        final long thread_id = Thread.currentThread().getId();
+        if (thread_id != this.process_thread) {
+          this.process_thread = thread_id;
+        }
+
+        final JackCommandReceiverType receiver = this.command_receiver;
+        if (receiver != null) {
+          this.commands.drain(
+            this.libjack.jack_last_frame_time(this.client), frames, receiver);
+        }
+
+        if (this.process_bypassed) {
+          this.silence(frames);
+          return 0;
+        }
+
+        /*
+         * A crossfade is only ever performed once: the dispatch is replaced
+         * with its settled form before the callbacks run so that a failing
+         * callback cannot cause the crossfade to be repeated.
+         */
+
+        final JackClientProcessDispatch dispatch = this.process_dispatch.get();
+        if (dispatch == null) {
+          return 0;
+        }
+        if (dispatch.isCrossfade()) {
+          this.process_dispatch.compareAndSet(dispatch, dispatch.settled());
+        }
+
+        final JackClientProcessTiming process_timing = this.timing;
+        final boolean instrumented =
+          this.instrumentation.onProcessCycleWanted(this);
+
+        if (process_timing != null || instrumented) {
+          final long time_then = System.nanoTime();
+          dispatch.execute(this.libjack, context, frames);
+          final long time_taken = System.nanoTime() - time_then;
+
+          if (process_timing != null) {
+            process_timing.record(frames, time_taken);
+          }
+          if (instrumented) {
+            this.instrumentation.onProcessCycle(
+              this, frames, time_taken, context.ports_accessed);
+          }
+        } else {
+          dispatch.execute(this.libjack, context, frames);
+        }
+        return 0;
+      } catch (final Exception e) {
+        return this.onProcessException(frames, e);
+      }
+    }
+
+    /*
+     * Exceptions raised by the process callback are handed to a channel that
+     * is drained by a separate thread; logging on the process thread could
+     * block on I/O and cause further xruns.
+     */
+
+    private int onProcessException(
+      final int frames,
+      final Exception e)
+    {
+      this.process_errors.record(e);
+
+      switch (this.process_error_policy) {
+        case JACK_PROCESS_ERROR_FAIL:
+          return -1;
+        case JACK_PROCESS_ERROR_SILENCE:
+          this.silence(frames);
+          return 0;
+        case JACK_PROCESS_ERROR_BYPASS:
+          this.process_bypassed = true;
+          this.silence(frames);
+          return 0;
+      }
+
+      throw new UnreachableCodeException();
+    }
+
+    /*
+     * Clear the buffers of all of the output ports registered by this client
+     * so that whatever the callback partially wrote is not heard.
+     */
+
+    private void silence(
+      final int frames)
+    {
+      final Port[] ports = this.ports_table.ports;
+      for (int index = 0; index < ports.length; ++index) {
+        final Port port = ports[index];
+        if (!port.output) {
+          continue;
+        }
+
+        final long address = port.memory.address(frames);
+        if (address == 0L) {
+          continue;
+        }
+
+        if (port.type.isJackMIDI()) {
+          this.libjack.jack_midi_clear_buffer(port.memory.pointer(address));
+        } else {
+          port.memory.clear(address, frames);
+        }
       }
     }
 
+    @Override
+    public JackCommandQueue commandQueue()
+    {
+      return this.commands;
+    }
+
+    @Override
+    public void setCommandReceiver(
+      final JackCommandReceiverType receiver)
+      throws JackException
+    {
+      Objects.requireNonNull(receiver, "receiver");
+
+      this.checkNotClosed();
+      this.command_receiver = receiver;
+    }
+
+    @Override
+    public long frameTime()
+      throws JackException
+    {
+      this.checkNotClosed();
+
+      return Integer.toUnsignedLong(this.libjack.jack_frame_time(this.client));
+    }
+
+    @Override
+    public void setXRunListener(
+      final JackClientXRunListenerType listener)
+      throws JackException
+    {
+      Objects.requireNonNull(listener, "listener");
+
+      this.checkNotClosed();
+      this.xrun_listener = listener;
+    }
+
+    @Override
+    public JackClientXRunStatisticsType xrunStatistics()
+    {
+      return this.xrun_statistics;
+    }
+
+    @Override
+    public Optional<JackClientProcessTimingType> processTiming()
+    {
+      return Optional.ofNullable(this.timing);
+    }
+
+    @Override
+    public OptionalLong processThreadId()
+    {
+      final long thread_id = this.process_thread;
+      return thread_id == -1L ? OptionalLong.empty() : OptionalLong.of(thread_id);
+    }
+
+    @Override
+    public long processErrorCount()
+    {
+      return this.process_errors.count();
+    }
+
+    @Override
+    public Optional<JackGraphSnapshotType> graph()
+      throws JackException
+    {
+      this.checkNotClosed();
+
+      if (this.graph == null) {
+        return Optional.empty();
+      }
+      return Optional.of(this.graph.snapshot());
+    }
+
     @Override
     public JackPortType portRegister(
       final String name,
@@ -430,20 +813,42 @@ public final class JackClientProvider implements JackClientProviderType
           "Unrecognized port type: " + type);
       }
 
+      final long time_then = System.nanoTime();
       final Pointer pointer =
         this.libjack.jack_port_register(
           this.client,
           name,
           type,
-          flagsOf(options),
+          JackClientGraph.nativeFlagsOf(options),
           buffer_size);
+      this.onControlCall(
+        "jack_port_register", time_then, pointer.address() != 0L);
 
       if (pointer.address() == 0L) {
         throw new JackClientPortRegistrationException(
           "Unable to register port");
       }
 
-      return new Port(this, type_info_opt.get(), pointer);
+      /*
+       * The port table is copied on each registration so that the process
+       * callback can read it without locking.
+       */
+
+      synchronized (this.ports_lock) {
+        final Port[] ports_old = this.ports_table.ports;
+        final Port[] ports_new = Arrays.copyOf(ports_old, ports_old.length + 1);
+        final Port port =
+          new Port(
+            this,
+            type_info_opt.get(),
+            pointer,
+            ports_old.length,
+            options.contains(JACK_PORT_IS_OUTPUT));
+        ports_new[ports_old.length] = port;
+        this.ports_table = new PortTable(ports_new);
+        this.latency.portAdd(pointer, port.output);
+        return port;
+      }
     }
 
     @Override
@@ -459,40 +864,20 @@ public final class JackClientProvider implements JackClientProviderType
 
       this.checkNotClosed();
 
-      final long iflags = flagsOf(flags);
+      if (this.graph != null) {
+        return this.graph.snapshot().portsList(name_pattern, type_pattern, flags);
+      }
+
+      final long iflags = JackClientGraph.nativeFlagsOf(flags);
       final String name = name_pattern.orElse(null);
       final String type = type_pattern.orElse(null);
 
-      final Runtime rt = Runtime.getSystemRuntime();
-
-      final int max_size =
-        this.libjack.jack_port_name_size();
+      final long time_then = System.nanoTime();
       final Pointer ports =
         this.libjack.jack_get_ports(this.client, name, type, iflags);
+      this.onControlCall("jack_get_ports", time_then, true);
 
-      if (ports == null || ports.address() == 0L) {
-        return List.of();
-      }
-
-      long offset = 0L;
-      final ArrayList<String> results = new ArrayList<>(16);
-      while (true) {
-        final long port = ports.getAddress(offset);
-        if (port == 0L) {
-          break;
-        }
-
-        final Pointer name_ptr =
-          ports.getPointer(offset);
-        final String port_name =
-          name_ptr.getString(0L, max_size, UTF_8);
-
-        results.add(port_name);
-        offset += (long) rt.addressSize();
-      }
-
-      this.libjack.jack_free(ports);
-      return results;
+      return JackClientGraph.stringsOf(this.libjack, ports);
     }
 
     @Override
@@ -506,8 +891,11 @@ public final class JackClientProvider implements JackClientProviderType
 
       this.checkNotClosed();
 
+      final long time_then = System.nanoTime();
       final int r =
         this.libjack.jack_connect(this.client, source_port, target_port);
+      this.onControlCall(
+        "jack_connect", time_then, r == 0 || r == EEXIST.intValue());
 
       if (r == 0) {
         return true;
@@ -531,8 +919,10 @@ public final class JackClientProvider implements JackClientProviderType
 
       this.checkNotClosed();
 
+      final long time_then = System.nanoTime();
       final int r =
         this.libjack.jack_disconnect(this.client, source_port, target_port);
+      this.onControlCall("jack_disconnect", time_then, r == 0);
 
       if (r == 0) {
         return;
@@ -541,6 +931,26 @@ public final class JackClientProvider implements JackClientProviderType
       throw new JackClientPortConnectionException("Could not disconnect ports");
     }
 
+    @Override
+    public JackConnectionReport portsConnectionsApply(
+      final Optional<String> scope,
+      final Set<JackGraphConnection> connections)
+      throws JackException
+    {
+      Objects.requireNonNull(scope, "scope");
+      Objects.requireNonNull(connections, "connections");
+
+      this.checkNotClosed();
+
+      return JackClientConnections.apply(
+        this.libjack,
+        this.client,
+        this.graph,
+        this::onControlCall,
+        scope,
+        connections);
+    }
+
     @Override
     public Optional<JackPortType> portByName(
       final String name)
@@ -550,15 +960,23 @@ public final class JackClientProvider implements JackClientProviderType
 
       this.checkNotClosed();
 
-      final Pointer port =
-        this.libjack.jack_port_by_name(this.client, name);
-
-      if (port == null || port.address() == 0L) {
-        return Optional.empty();
+      final Pointer port;
+      final String type_name;
+      if (this.graph != null) {
+        final JackGraphSnapshot snapshot = this.graph.snapshot();
+        port = snapshot.pointerOf(name);
+        if (port == null) {
+          return Optional.empty();
+        }
+        type_name = snapshot.ports().get(name).typeName();
+      } else {
+        port = this.libjack.jack_port_by_name(this.client, name);
+        if (port == null || port.address() == 0L) {
+          return Optional.empty();
+        }
+        type_name = this.libjack.jack_port_type(port);
       }
 
-      final String type_name = this.libjack.jack_port_type(port);
-
       final Optional<JackPortTypeInformation> type_info_opt =
         this.types.lookupByName(type_name);
 
@@ -572,7 +990,21 @@ public final class JackClientProvider implements JackClientProviderType
             .toString());
       }
 
-      return Optional.of(new Port(this, type_info_opt.get(), port));
+      for (final Port registered : this.ports_table.ports) {
+        if (registered.pointer.address() == port.address()) {
+          return Optional.of(registered);
+        }
+      }
+      return Optional.of(new Port(this, type_info_opt.get(), port, -1, false));
+    }
+
+    private void onControlCall(
+      final String function,
+      final long time_then,
+      final boolean succeeded)
+    {
+      this.instrumentation.onControlCall(
+        this, function, System.nanoTime() - time_then, succeeded);
     }
 
     private void checkNotClosed()
@@ -595,6 +1027,9 @@ public final class JackClientProvider implements JackClientProviderType
       } finally {
         this.closed = true;
         this.active = false;
+        this.process_errors.stop();
+        this.pipelineReplace(null);
+        this.instrumentation.onClientClosed(this);
       }
     }
 
@@ -621,39 +1056,48 @@ public final class JackClientProvider implements JackClientProviderType
       private final Client client;
       private final Pointer pointer;
       private final JackPortTypeInformation type;
+      private final JackClientMIDIBuffer buffer_midi;
+      private final JackClientMIDIWritableBuffer buffer_midi_writable;
+      private final int handle;
+      private final boolean output;
+      private final JackClientPortMemory memory;
 
       Port(
         final Client in_libjack,
         final JackPortTypeInformation in_type,
-        final Pointer in_pointer)
+        final Pointer in_pointer,
+        final int in_handle,
+        final boolean in_output)
       {
         this.client = Objects.requireNonNull(in_libjack, "client");
         this.type = Objects.requireNonNull(in_type, "type");
         this.pointer = Objects.requireNonNull(in_pointer, "pointer");
+        this.handle = in_handle;
+        this.output = in_output;
+
+        /*
+         * The buffers are allocated once per port and are reused on each
+         * process cycle, so that the process callback does not allocate.
+         */
+
+        this.buffer_midi = new JackClientMIDIBuffer(this.client.libjack);
+        this.buffer_midi_writable =
+          new JackClientMIDIWritableBuffer(this.client.libjack);
+        this.memory =
+          new JackClientPortMemory(
+            this.client.libjack, in_pointer, in_type.frameSizeBytes());
       }
 
-      private static JackPortFlag flagOfLibJackFlag(
-        final LibJackPortFlags flag)
+      @Override
+      public JackClientType connection()
       {
-        switch (flag) {
-          case JackPortIsInput:
-            return JACK_PORT_IS_INPUT;
-          case JackPortIsOutput:
-            return JACK_PORT_IS_OUTPUT;
-          case JackPortIsPhysical:
-            return JACK_PORT_IS_PHYSICAL;
-          case JackPortCanMonitor:
-            return JACK_PORT_CAN_MONITOR;
-          case JackPortIsTerminal:
-            return JACK_PORT_IS_TERMINAL;
-        }
-        throw new UnreachableCodeException();
+        return this.client;
       }
 
       @Override
-      public JackClientType connection()
+      public int handle()
       {
-        return this.client;
+        return this.handle;
       }
 
       @Override
@@ -694,15 +1138,26 @@ public final class JackClientProvider implements JackClientProviderType
       {
         this.client.checkNotClosed();
 
-        final int raw_flags = this.client.libjack.jack_port_flags(this.pointer);
-        final EnumSet<JackPortFlag> result = EnumSet.noneOf(JackPortFlag.class);
-        for (final LibJackPortFlags flag : LibJackPortFlags.values()) {
-          final int flag_i = flag.intValue();
-          if ((raw_flags & flag_i) == flag_i) {
-            result.add(flagOfLibJackFlag(flag));
-          }
-        }
-        return result;
+        return JackClientGraph.flagsOf(
+          this.client.libjack.jack_port_flags(this.pointer));
+      }
+
+      @Override
+      public JackLatencyRange latencyCapture()
+        throws JackException
+      {
+        this.client.checkNotClosed();
+        return this.client.latency.rangeOf(
+          this.pointer, JackCaptureLatency);
+      }
+
+      @Override
+      public JackLatencyRange latencyPlayback()
+        throws JackException
+      {
+        this.client.checkNotClosed();
+        return this.client.latency.rangeOf(
+          this.pointer, JackPlaybackLatency);
       }
 
       @Override
@@ -724,11 +1179,35 @@ public final class JackClientProvider implements JackClientProviderType
     }
   }
 
+  /**
+   * The ports registered by a client, indexed by handle, along with storage
+   * for the buffers of the ports during a process cycle. The storage is only
+   * accessed by the process thread.
+   */
+
+  private static final class PortTable
+  {
+    private final Client.Port[] ports;
+    private final Pointer[] pointers;
+    private final JackBufferType[] buffers;
+
+    PortTable(
+      final Client.Port[] in_ports)
+    {
+      this.ports = Objects.requireNonNull(in_ports, "ports");
+      this.pointers = new Pointer[in_ports.length];
+      this.buffers = new JackBufferType[in_ports.length];
+    }
+  }
+
   private static final class JackClientProcessCallbackContext
     implements JackClientProcessCallbackContextType
   {
     private final LibJackType libjack;
     private volatile int buffer_size;
+    private int ports_accessed;
+    private PortTable ports_table;
+    private boolean ports_fetched;
 
     JackClientProcessCallbackContext(
       final LibJackType in_libjack)
@@ -753,15 +1232,12 @@ public final class JackClientProvider implements JackClientProviderType
         final Client.Port pp = (Client.Port) port;
         pp.client.checkNotClosed();
 
-        final Pointer buffer_ptr =
-          this.libjack.jack_port_get_buffer(pp.pointer, this.buffer_size);
-        if (buffer_ptr.address() == 0L) {
-          throw new UnimplementedCodeException();
+        final long address = pp.memory.address(this.buffer_size);
+        if (address == 0L) {
+          throw this.bufferUnavailable(pp);
         }
-        return new Buffer(
-          this.buffer_size,
-          pp.type.frameSizeBytes(),
-          buffer_ptr);
+        ++this.ports_accessed;
+        return pp.memory.buffer(address, this.buffer_size);
       }
 
       throw new IllegalArgumentException("Incompatible port class");
@@ -772,156 +1248,184 @@ public final class JackClientProvider implements JackClientProviderType
       final JackPortType port)
       throws JackException
     {
-      Objects.requireNonNull(port, "port");
+      final Client.Port pp = checkMIDIPort(port);
 
-      if (port instanceof Client.Port) {
-        final Client.Port pp = (Client.Port) port;
-        pp.client.checkNotClosed();
+      final long address = pp.memory.address(this.buffer_size);
+      if (address == 0L) {
+        throw this.bufferUnavailable(pp);
+      }
+      final Pointer buffer_ptr = pp.memory.pointer(address);
 
-        if (!pp.type.isJackMIDI()) {
-          throw new JackClientPortSearchException(
-            new StringBuilder(64)
-              .append(
-                "Port is not of a type containing JACK MIDI events (is type '")
-              .append(pp.type.name())
-              .append("')")
-              .toString());
-        }
+      final int event_count =
+        this.libjack.jack_midi_get_event_count(buffer_ptr);
+      final int lost_event_count =
+        this.libjack.jack_midi_get_lost_event_count(buffer_ptr);
 
-        final Pointer buffer_ptr =
-          this.libjack.jack_port_get_buffer(pp.pointer, this.buffer_size);
-        if (buffer_ptr.address() == 0L) {
-          throw new UnimplementedCodeException();
-        }
+      ++this.ports_accessed;
+      pp.buffer_midi.bind(buffer_ptr, event_count, lost_event_count);
+      return pp.buffer_midi;
+    }
 
-        final int event_count =
-          this.libjack.jack_midi_get_event_count(buffer_ptr);
-        final int lost_event_count =
-          this.libjack.jack_midi_get_lost_event_count(buffer_ptr);
+    @Override
+    public JackBufferMIDIWritableType portBufferMIDIWritable(
+      final JackPortType port)
+      throws JackException
+    {
+      final Client.Port pp = checkMIDIPort(port);
 
-        return new MIDIBuffer(event_count, lost_event_count);
+      final long address = pp.memory.address(this.buffer_size);
+      if (address == 0L) {
+        throw this.bufferUnavailable(pp);
       }
+      final Pointer buffer_ptr = pp.memory.pointer(address);
 
-      throw new IllegalArgumentException("Incompatible port class");
+      ++this.ports_accessed;
+      pp.buffer_midi_writable.bind(buffer_ptr);
+      return pp.buffer_midi_writable;
     }
-  }
 
-  private static final class MIDIBuffer implements JackBufferMIDIType
-  {
-    private final int event_count;
-    private final int lost_event_count;
+    /*
+     * Fetch the buffers of all registered ports. MIDI buffers are only
+     * bound when accessed, as binding reads the event counts.
+     */
 
-    MIDIBuffer(
-      final int in_event_count,
-      final int in_lost_event_count)
+    private PortTable portsFetch()
     {
-      this.event_count = in_event_count;
-      this.lost_event_count = in_lost_event_count;
+      final PortTable table = this.ports_table;
+      final int frames = this.buffer_size;
+      final Client.Port[] ports = table.ports;
+      for (int index = 0; index < ports.length; ++index) {
+        final Client.Port port = ports[index];
+        final long address = port.memory.address(frames);
+        if (address == 0L) {
+          table.pointers[index] = null;
+          table.buffers[index] = null;
+        } else if (port.type.isJackMIDI()) {
+          table.pointers[index] = port.memory.pointer(address);
+          table.buffers[index] = null;
+        } else {
+          table.pointers[index] = null;
+          table.buffers[index] = port.memory.buffer(address, frames);
+        }
+      }
+      this.ports_fetched = true;
+      return table;
     }
 
-    @Override
-    public int eventCount()
+    private PortTable portsTable(
+      final int handle)
+      throws JackException
     {
-      return this.event_count;
+      final PortTable table =
+        this.ports_fetched ? this.ports_table : this.portsFetch();
+      if (handle < 0 || handle >= table.ports.length) {
+        throw new JackClientPortSearchException(
+          "No port registered with handle " + handle);
+      }
+      return table;
     }
 
-    @Override
-    public int eventLostCount()
+    private Pointer checkPointer(
+      final PortTable table,
+      final int handle)
+      throws JackClientPortBufferException
     {
-      return this.lost_event_count;
+      final Pointer buffer_ptr = table.pointers[handle];
+      if (buffer_ptr == null) {
+        throw this.bufferUnavailable(table.ports[handle]);
+      }
+      return buffer_ptr;
     }
-  }
 
-  private static final class Buffer extends JackAbstractBuffer
-  {
-    private final Pointer buffer_ptr;
+    /*
+     * JACK returns NULL for the buffer of a port that does not belong to
+     * the client or whose buffer could not be mapped. This is only reached
+     * on failure, so the allocation of the port name is harmless.
+     */
 
-    Buffer(
-      final int in_buffer_frame_count,
-      final int in_buffer_frame_size,
-      final Pointer in_buffer_ptr)
+    private JackClientPortBufferException bufferUnavailable(
+      final Client.Port port)
     {
-      super(in_buffer_frame_count, in_buffer_frame_size);
-      this.buffer_ptr =
-        Objects.requireNonNull(in_buffer_ptr, "buffer_ptr");
+      return new JackClientPortBufferException(
+        new StringBuilder(64)
+          .append("jack_port_get_buffer returned NULL for port '")
+          .append(this.libjack.jack_port_name(port.pointer))
+          .append("'")
+          .toString());
     }
 
     @Override
-    protected void actualPutF(
-      final long offset,
-      final float value)
+    public JackBufferType portBuffer(
+      final int handle)
+      throws JackException
     {
-      this.buffer_ptr.putFloat(offset, value);
-    }
+      final PortTable table = this.portsTable(handle);
+      ++this.ports_accessed;
 
-    @Override
-    protected void actualPutArrayF(
-      final long offset,
-      final float[] values)
-    {
-      this.buffer_ptr.put(offset, values, 0, values.length);
-    }
-
-    @Override
-    protected void actualPutI(
-      final long offset,
-      final int value)
-    {
-      this.buffer_ptr.putInt(offset, value);
+      final JackBufferType buffer = table.buffers[handle];
+      if (buffer != null) {
+        return buffer;
+      }
+      return table.ports[handle].memory.buffer(
+        this.checkPointer(table, handle).address(), this.buffer_size);
     }
 
     @Override
-    protected void actualPutB(
-      final long offset,
-      final int value)
+    public JackBufferMIDIType portBufferMIDI(
+      final int handle)
+      throws JackException
     {
-      this.buffer_ptr.putByte(offset, (byte) (value & 0xff));
+      final PortTable table = this.portsTable(handle);
+      final Client.Port pp = checkMIDIPort(table.ports[handle]);
+      final Pointer buffer_ptr = this.checkPointer(table, handle);
+
+      final int event_count =
+        this.libjack.jack_midi_get_event_count(buffer_ptr);
+      final int lost_event_count =
+        this.libjack.jack_midi_get_lost_event_count(buffer_ptr);
+
+      ++this.ports_accessed;
+      pp.buffer_midi.bind(buffer_ptr, event_count, lost_event_count);
+      return pp.buffer_midi;
     }
 
     @Override
-    protected void actualPutArrayB(
-      final long offset,
-      final byte[] values)
+    public JackBufferMIDIWritableType portBufferMIDIWritable(
+      final int handle)
+      throws JackException
     {
-      this.buffer_ptr.put(offset, values, 0, values.length);
-    }
+      final PortTable table = this.portsTable(handle);
+      final Client.Port pp = checkMIDIPort(table.ports[handle]);
+      final Pointer buffer_ptr = this.checkPointer(table, handle);
 
-    @Override
-    protected float actualGetF(final long offset)
-    {
-      return this.buffer_ptr.getFloat(offset);
+      ++this.ports_accessed;
+      pp.buffer_midi_writable.bind(buffer_ptr);
+      return pp.buffer_midi_writable;
     }
 
-    @Override
-    protected int actualGetI(final long offset)
+    private static Client.Port checkMIDIPort(
+      final JackPortType port)
+      throws JackException
     {
-      return this.buffer_ptr.getInt(offset);
-    }
+      Objects.requireNonNull(port, "port");
 
-    @Override
-    protected int actualGetB(final long offset)
-    {
-      return (int) this.buffer_ptr.getByte(offset) & 0xff;
-    }
+      if (port instanceof Client.Port) {
+        final Client.Port pp = (Client.Port) port;
+        pp.client.checkNotClosed();
 
-    @Override
-    protected void actualGetArrayF(
-      final long offset,
-      final float[] values,
-      final int array_offset,
-      final int length)
-    {
-      this.buffer_ptr.get(offset, values, array_offset, length);
-    }
+        if (!pp.type.isJackMIDI()) {
+          throw new JackClientPortSearchException(
+            new StringBuilder(64)
+              .append(
+                "Port is not of a type containing JACK MIDI events (is type '")
+              .append(pp.type.name())
+              .append("')")
+              .toString());
+        }
+        return pp;
+      }
 
-    @Override
-    protected void actualGetArrayB(
-      final long offset,
-      final byte[] values,
-      final int array_offset,
-      final int length)
-    {
-      this.buffer_ptr.get(offset, values, array_offset, length);
+      throw new IllegalArgumentException("Incompatible port class");
     }
   }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackStatusCode;
+import com.io7m.jjacob.jnr.LibJackStatus;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.EnumSet;
+
+import static com.io7m.jjacob.api.JackStatusCode.JACK_BACKEND_ERROR;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_CLIENT_ZOMBIE;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_FAILURE;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_INIT_FAILURE;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_INVALID_OPTION;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_LOAD_FAILURE;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_NAME_NOT_UNIQUE;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_NO_SUCH_CLIENT;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_SERVER_ERROR;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_SERVER_FAILED;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_SERVER_STARTED;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_SHM_FAILURE;
+import static com.io7m.jjacob.api.JackStatusCode.JACK_VERSION_ERROR;
+
+/**
+ * Functions to translate native client status values.
+ */
+
+final class JackClientStatusCodes
+{
+  private JackClientStatusCodes()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param status A native status value
+   *
+   * @return The set of status codes present in {@code status}
+   */
+
+  static EnumSet<JackStatusCode> statusOf(
+    final int status)
+  {
+    final EnumSet<JackStatusCode> result = EnumSet.noneOf(JackStatusCode.class);
+    for (final LibJackStatus v : LibJackStatus.values()) {
+      final int flag = v.intValue();
+      if ((status & flag) == flag) {
+        result.add(statusCodeOf(v));
+      }
+    }
+    return result;
+  }
+
+  private static JackStatusCode statusCodeOf(
+    final LibJackStatus v)
+  {
+    switch (v) {
+      case JackFailure:
+        return JACK_FAILURE;
+      case JackInvalidOption:
+        return JACK_INVALID_OPTION;
+      case JackNameNotUnique:
+        return JACK_NAME_NOT_UNIQUE;
+      case JackServerStarted:
+        return JACK_SERVER_STARTED;
+      case JackServerFailed:
+        return JACK_SERVER_FAILED;
+      case JackServerError:
+        return JACK_SERVER_ERROR;
+      case JackNoSuchClient:
+        return JACK_NO_SUCH_CLIENT;
+      case JackLoadFailure:
+        return JACK_LOAD_FAILURE;
+      case JackInitFailure:
+        return JACK_INIT_FAILURE;
+      case JackShmFailure:
+        return JACK_SHM_FAILURE;
+      case JackVersionError:
+        return JACK_VERSION_ERROR;
+      case JackBackendError:
+        return JACK_BACKEND_ERROR;
+      case JackClientZombie:
+        return JACK_CLIENT_ZOMBIE;
+    }
+    throw new UnreachableCodeException();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackClientXRunStatisticsType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free xrun statistics. Process cycles are counted by the process
+ * thread (the only writer of the cycle counter, which is therefore published
+ * with ordered stores rather than atomic increments), and xruns are counted
+ * by whichever thread JACK uses to deliver xrun notifications.
+ */
+
+final class JackClientXRunStatistics implements JackClientXRunStatisticsType
+{
+  private final AtomicLong cycles;
+  private final AtomicLong xruns;
+  private final AtomicLong xrun_cycle;
+  private final AtomicInteger xrun_delay_bits;
+
+  JackClientXRunStatistics()
+  {
+    this.cycles = new AtomicLong(0L);
+    this.xruns = new AtomicLong(0L);
+    this.xrun_cycle = new AtomicLong(0L);
+    this.xrun_delay_bits = new AtomicInteger(Float.floatToRawIntBits(0.0f));
+  }
+
+  void onProcessCycle()
+  {
+    this.cycles.lazySet(this.cycles.get() + 1L);
+  }
+
+  void onXRun(
+    final float delay)
+  {
+    this.xrun_delay_bits.set(Float.floatToRawIntBits(delay));
+    this.xrun_cycle.set(this.cycles.get());
+    this.xruns.incrementAndGet();
+  }
+
+  @Override
+  public long xrunCount()
+  {
+    return this.xruns.get();
+  }
+
+  @Override
+  public float xrunLastDelayMicroseconds()
+  {
+    return Float.intBitsToFloat(this.xrun_delay_bits.get());
+  }
+
+  @Override
+  public long processCycles()
+  {
+    return this.cycles.get();
+  }
+
+  @Override
+  public long processCyclesSinceLastXRun()
+  {
+    return Math.max(0L, this.cycles.get() - this.xrun_cycle.get());
+  }
+
+  @Override
+  public String toString()
+  {
+    return new StringBuilder(64)
+      .append("[JackClientXRunStatistics xruns=")
+      .append(this.xrunCount())
+      .append(" last_delay=")
+      .append(this.xrunLastDelayMicroseconds())
+      .append(" cycles=")
+      .append(this.processCycles())
+      .append(" since_last=")
+      .append(this.processCyclesSinceLastXRun())
+      .append("]")
+      .toString();
+  }
+}
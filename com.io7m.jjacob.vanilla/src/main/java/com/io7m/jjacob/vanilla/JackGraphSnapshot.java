@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackGraphConnection;
+import com.io7m.jjacob.api.JackGraphPort;
+import com.io7m.jjacob.api.JackGraphSnapshotType;
+import jnr.ffi.Pointer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable graph snapshot. In addition to the public view of the graph,
+ * the snapshot holds the native port pointers so that clients can resolve
+ * ports by name without querying the server.
+ */
+
+final class JackGraphSnapshot implements JackGraphSnapshotType
+{
+  private final long version;
+  private final Set<String> clients;
+  private final Map<String, JackGraphPort> ports;
+  private final Map<String, Pointer> pointers;
+  private final Set<JackGraphConnection> connections;
+  private final Map<String, Set<String>> adjacency;
+
+  JackGraphSnapshot(
+    final long in_version,
+    final Set<String> in_clients,
+    final Map<String, JackGraphPort> in_ports,
+    final Map<String, Pointer> in_pointers,
+    final Set<JackGraphConnection> in_connections,
+    final Map<String, Set<String>> in_adjacency)
+  {
+    this.version = in_version;
+    this.clients = Objects.requireNonNull(in_clients, "clients");
+    this.ports = Objects.requireNonNull(in_ports, "ports");
+    this.pointers = Objects.requireNonNull(in_pointers, "pointers");
+    this.connections = Objects.requireNonNull(in_connections, "connections");
+    this.adjacency = Objects.requireNonNull(in_adjacency, "adjacency");
+  }
+
+  Pointer pointerOf(
+    final String name)
+  {
+    return this.pointers.get(name);
+  }
+
+  @Override
+  public long version()
+  {
+    return this.version;
+  }
+
+  @Override
+  public Set<String> clients()
+  {
+    return this.clients;
+  }
+
+  @Override
+  public Map<String, JackGraphPort> ports()
+  {
+    return this.ports;
+  }
+
+  @Override
+  public Set<JackGraphConnection> connections()
+  {
+    return this.connections;
+  }
+
+  @Override
+  public Set<String> connectionsOf(
+    final String port)
+  {
+    Objects.requireNonNull(port, "port");
+    return this.adjacency.getOrDefault(port, Collections.emptySet());
+  }
+
+  @Override
+  public String toString()
+  {
+    return new StringBuilder(64)
+      .append("[JackGraphSnapshot version ")
+      .append(this.version)
+      .append(" ports ")
+      .append(this.ports.size())
+      .append(" connections ")
+      .append(this.connections.size())
+      .append("]")
+      .toString();
+  }
+}
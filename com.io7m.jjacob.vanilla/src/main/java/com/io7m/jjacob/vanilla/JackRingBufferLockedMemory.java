@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jjacob.vanilla;
+
+import com.io7m.jjacob.api.JackRingBufferMemoryException;
+import com.io7m.jjacob.api.JackRingBufferMemoryType;
+import com.io7m.jjacob.jnr.LibCMemoryLock;
+import com.io7m.jjacob.jnr.LibCMemoryLockType;
+import com.io7m.jjacob.jnr.LibJackUnavailableException;
+import com.kenai.jffi.MemoryIO;
+import jnr.constants.platform.Errno;
+import jnr.ffi.LastError;
+import jnr.ffi.Runtime;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>A source of ring buffer memory that is locked into RAM with
+ * {@code mlock(2)}, so that the pages of a ring buffer cannot be paged out
+ * and then faulted back in on the process thread.</p>
+ *
+ * <p>Each allocation is a separate region of native memory. The regions are
+ * owned by this object, not by the ring buffers that use them: they remain
+ * locked and allocated until {@link #close()} is called, after which any
+ * ring buffer created from this source <i>MUST NOT</i> be used. The amount
+ * of memory that may be locked is limited by the {@code memlock} resource
+ * limit; allocations beyond it fail with an exception rather than silently
+ * returning unlocked memory.</p>
+ */
+
+public final class JackRingBufferLockedMemory
+  implements JackRingBufferMemoryType, AutoCloseable
+{
+  private final LibCMemoryLockType libc;
+  private final List<Region> regions;
+  private boolean closed;
+
+  private JackRingBufferLockedMemory(
+    final LibCMemoryLockType in_libc)
+  {
+    this.libc = Objects.requireNonNull(in_libc, "libc");
+    this.regions = new ArrayList<>();
+    this.closed = false;
+  }
+
+  /**
+   * Create a source of locked memory using the C library of the current
+   * platform.
+   *
+   * @return A source of locked memory
+   *
+   * @throws JackRingBufferMemoryException If the C library cannot be loaded
+   */
+
+  public static JackRingBufferLockedMemory create()
+    throws JackRingBufferMemoryException
+  {
+    try {
+      return create(LibCMemoryLock.get());
+    } catch (final LibJackUnavailableException e) {
+      throw new JackRingBufferMemoryException(
+        "Memory locking is unavailable", e);
+    }
+  }
+
+  /**
+   * Create a source of locked memory using the given memory locking
+   * functions.
+   *
+   * @param libc The memory locking functions
+   *
+   * @return A source of locked memory
+   */
+
+  public static JackRingBufferLockedMemory create(
+    final LibCMemoryLockType libc)
+  {
+    return new JackRingBufferLockedMemory(libc);
+  }
+
+  @Override
+  public ByteBuffer allocate(
+    final int size)
+    throws JackRingBufferMemoryException
+  {
+    if (size <= 0) {
+      throw new IllegalArgumentException(
+        "Size must be positive (received " + size + ")");
+    }
+
+    synchronized (this.regions) {
+      if (this.closed) {
+        throw new JackRingBufferMemoryException(
+          "Locked memory source is closed");
+      }
+
+      final MemoryIO io = MemoryIO.getInstance();
+      final long address = io.allocateMemory((long) size, true);
+      if (address == 0L) {
+        throw new JackRingBufferMemoryException(
+          "Unable to allocate " + size + " bytes of native memory");
+      }
+
+      if (this.libc.mlock(address, (long) size) != 0) {
+        final int errno = LastError.getLastError(Runtime.getSystemRuntime());
+        io.freeMemory(address);
+        throw new JackRingBufferMemoryException(
+          new StringBuilder(64)
+            .append("Unable to lock ")
+            .append(size)
+            .append(" bytes of memory: ")
+            .append(Errno.valueOf((long) errno))
+            .toString());
+      }
+
+      this.regions.add(new Region(address, size));
+      return io.newDirectByteBuffer(address, size);
+    }
+  }
+
+  /**
+   * @return The total number of bytes currently allocated and locked
+   */
+
+  public long lockedBytes()
+  {
+    synchronized (this.regions) {
+      long total = 0L;
+      for (final Region region : this.regions) {
+        total += (long) region.size;
+      }
+      return total;
+    }
+  }
+
+  /**
+   * Unlock and free all memory allocated by this source. Closing is
+   * idempotent.
+   */
+
+  @Override
+  public void close()
+  {
+    synchronized (this.regions) {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+
+      final MemoryIO io = MemoryIO.getInstance();
+      for (final Region region : this.regions) {
+        this.libc.munlock(region.address, (long) region.size);
+        io.freeMemory(region.address);
+      }
+      this.regions.clear();
+    }
+  }
+
+  private static final class Region
+  {
+    private final long address;
+    private final int size;
+
+    Region(
+      final long in_address,
+      final int in_size)
+    {
+      this.address = in_address;
+      this.size = in_size;
+    }
+  }
+}